@@ -0,0 +1,137 @@
+package io.ologn.gitstat.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.blame.BlameResult;
+import org.eclipse.jgit.diff.RawText;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.ologn.gitstat.jgit.BlameUtils;
+import io.ologn.gitstat.stat.CompactBlame;
+import io.ologn.gitstat.stat.FileAge;
+import io.ologn.gitstat.stat.FileCommitStat;
+import io.ologn.gitstat.stat.LineAuthorship;
+import io.ologn.gitstat.tokenizer.BetterParserC;
+import io.ologn.gitstat.tokenizer.LineTokenizer;
+
+/**
+ * Benchmarks of the blame of one file at the last commit of a 
+ * SyntheticRepo, and of the stats calculated from the blame.
+ * @author lisq199
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class BlameBenchmark {
+	
+	@Param({"100"})
+	public int commits;
+	
+	@Param({"5"})
+	public int authors;
+	
+	@Param({"1000"})
+	public int fileSize;
+	
+	@Param({"0.05"})
+	public double churnRate;
+	
+	protected SyntheticRepo repo;
+	protected RevCommit head;
+	protected BlameResult blameResult;
+	protected Function<String, String> parseToken;
+	protected RawText contents;
+	protected LineTokenizer stringTokenizer;
+	protected LineTokenizer byteTokenizer;
+	
+	@Setup(Level.Trial)
+	public void setUp() throws IOException, GitAPIException {
+		repo = SyntheticRepo.init()
+				.setNumberOfCommits(commits)
+				.setNumberOfAuthors(authors)
+				.setFileSize(fileSize)
+				.setChurnRate(churnRate)
+				.create();
+		head = repo.getHead();
+		blameResult = BlameUtils.getBlameResult(repo.getGit(), head,
+				SyntheticRepo.FILE_PATH);
+		parseToken = new BetterParserC().parseToken();
+		contents = blameResult.getResultContents();
+		stringTokenizer = LineTokenizer.of(parseToken);
+		byteTokenizer = new BetterParserC().lineTokenizer();
+	}
+	
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		repo.close();
+	}
+	
+	@Benchmark
+	public BlameResult getBlameResult() throws GitAPIException {
+		return BlameUtils.getBlameResult(repo.getGit(), head,
+				SyntheticRepo.FILE_PATH);
+	}
+	
+	@Benchmark
+	public LineAuthorship calculateLineAuthorship() {
+		return LineAuthorship.calculate(head.getName(), blameResult);
+	}
+	
+	@Benchmark
+	public FileAge calculateFileAge() {
+		return FileAge.calculate(CompactBlame.calculate(head.getName(),
+				blameResult));
+	}
+	
+	@Benchmark
+	public FileCommitStat calculateFileCommitStat() throws GitAPIException {
+		return FileCommitStat.calculate(repo.getGit(), head,
+				SyntheticRepo.FILE_PATH, parseToken);
+	}
+	
+	/**
+	 * Find the token of every line by decoding it to a String
+	 * @return
+	 */
+	@Benchmark
+	public int tokenizeLinesAsStrings() {
+		return tokenize(stringTokenizer);
+	}
+	
+	/**
+	 * Find the token of every line in its raw bytes
+	 * @return
+	 */
+	@Benchmark
+	public int tokenizeLinesAsBytes() {
+		return tokenize(byteTokenizer);
+	}
+	
+	protected int tokenize(LineTokenizer tokenizer) {
+		int sum = 0;
+		for (int i = 0; i < contents.size(); i++) {
+			sum += tokenizer.getTokenId(contents, i);
+		}
+		return sum;
+	}
+	
+}
@@ -0,0 +1,122 @@
+package io.ologn.gitstat.benchmark;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.output.NullWriter;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.ologn.common.color.ColorCategory;
+import io.ologn.gitstat.jgit.BlameUtils;
+import io.ologn.gitstat.jgit.CommitIndex;
+import io.ologn.gitstat.stat.LineAuthorship;
+import io.ologn.gitstat.stat.LineAuthorshipOverCommits;
+import io.ologn.gitstat.vis.ColorPixels;
+import io.ologn.gitstat.vis.ColorPixelsRaster;
+
+/**
+ * Benchmarks of the aggregation of LineAuthorship objects over all the 
+ * commits of a SyntheticRepo, and of rendering them as color pixels. 
+ * The blames are calculated once in the setup.<br>
+ * The rendering benchmarks load the templates from velocity_templates/ 
+ * on the classpath (src/main/resources).
+ * @author lisq199
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class RenderBenchmark {
+	
+	@Param({"100"})
+	public int commits;
+	
+	@Param({"5"})
+	public int authors;
+	
+	@Param({"1000"})
+	public int fileSize;
+	
+	@Param({"0.05"})
+	public double churnRate;
+	
+	protected LineAuthorshipOverCommits laoc;
+	protected List<long[]> dataArrays;
+	protected Map<Long, String> titleMap;
+	protected List<String> datasetDescriptions;
+	protected Map<Integer, String> bookmarkMap;
+	
+	@Setup(Level.Trial)
+	public void setUp() throws IOException, GitAPIException {
+		try (
+			SyntheticRepo repo = SyntheticRepo.init()
+					.setNumberOfCommits(commits)
+					.setNumberOfAuthors(authors)
+					.setFileSize(fileSize)
+					.setChurnRate(churnRate)
+					.create();
+		) {
+			List<LineAuthorship> lineAuthorships =
+					new ArrayList<LineAuthorship>();
+			for (RevCommit commit : repo.getCommits()) {
+				lineAuthorships.add(LineAuthorship.calculate(
+						commit.getName(), BlameUtils.getBlameResult(
+								repo.getGit(), commit,
+								SyntheticRepo.FILE_PATH)));
+			}
+			laoc = LineAuthorshipOverCommits.calculate(
+					CommitIndex.build(repo.getCommits()), lineAuthorships,
+					SyntheticRepo.FILE_PATH, true);
+		}
+		dataArrays = laoc.getColorPixelsDataArraysSortedByContribution(false);
+		titleMap = laoc.getColorPixelsTitleMap();
+		datasetDescriptions = laoc.getColorPixelsDatasetDescriptions();
+		bookmarkMap = laoc.getColorPixelsBookmarkMapByYear();
+	}
+	
+	@Benchmark
+	public List<long[]> getColorPixelsDataArraysSortedByContribution() {
+		return laoc.getColorPixelsDataArraysSortedByContribution(false);
+	}
+	
+	@Benchmark
+	public ColorPixels parseColorPixels() {
+		return parse(ColorPixels.init());
+	}
+	
+	@Benchmark
+	public void writeColorPixelsSvg() {
+		parse(ColorPixels.init()).writeHtml(new NullWriter());
+	}
+	
+	@Benchmark
+	public void writeColorPixelsRaster() {
+		parse(ColorPixelsRaster.init()).writeHtml(new NullWriter());
+	}
+	
+	protected ColorPixels parse(ColorPixels colorPixels) {
+		return colorPixels
+				.setColorCategory(ColorCategory.D3_CATEGORY20)
+				.parse(dataArrays, titleMap, datasetDescriptions,
+						bookmarkMap, true, true, false);
+	}
+	
+}
@@ -0,0 +1,242 @@
+package io.ologn.gitstat.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.TimeZone;
+
+import org.apache.commons.io.FileUtils;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+
+/**
+ * A repository with generated history for benchmarks. It's created in a 
+ * temporary directory, and has one file in the format of Better Parser 
+ * for C (see BetterParserC), which is changed by every commit. The same 
+ * settings (including the seed) always generate the same history.<br>
+ * Typical usage: {@code SyntheticRepo.init().setNumberOfCommits(500) 
+ * .setChurnRate(0.1).create()}
+ * @author lisq199
+ */
+public class SyntheticRepo implements AutoCloseable {
+	
+	public static final String FILE_PATH = "synthetic.c";
+	
+	/**
+	 * The tokens at the start of the generated lines
+	 */
+	protected static final String[] TOKENS = {
+			"DECL|function",
+			"DECL|variable",
+			"suffix:semicolon",
+			"stmt:if",
+			"stmt:return",
+			"expr:call"
+	};
+	
+	/**
+	 * The author time of the first commit: 2010-01-01T00:00:00Z
+	 */
+	protected static final long START_TIME = 1262304000000l;
+	protected static final long DAY_IN_MILLIS = 24 * 60 * 60 * 1000l;
+	
+	protected int numberOfCommits;
+	protected int numberOfAuthors;
+	protected int fileSize;
+	protected double churnRate;
+	protected long seed;
+	
+	protected File directory;
+	protected Git git;
+	protected List<RevCommit> commits;
+	
+	protected SyntheticRepo() {
+		numberOfCommits = 100;
+		numberOfAuthors = 5;
+		fileSize = 1000;
+		churnRate = 0.05;
+		seed = 42;
+		commits = new ArrayList<RevCommit>();
+	}
+	
+	/**
+	 * Set the number of commits
+	 * @param numberOfCommits
+	 * @return
+	 */
+	public SyntheticRepo setNumberOfCommits(int numberOfCommits) {
+		this.numberOfCommits = numberOfCommits;
+		return this;
+	}
+	
+	/**
+	 * Set the number of distinct authors. The author of each commit is 
+	 * picked at random.
+	 * @param numberOfAuthors
+	 * @return
+	 */
+	public SyntheticRepo setNumberOfAuthors(int numberOfAuthors) {
+		this.numberOfAuthors = numberOfAuthors;
+		return this;
+	}
+	
+	/**
+	 * Set the number of lines of the file in the first commit. Later 
+	 * commits keep the file around this size.
+	 * @param fileSize
+	 * @return
+	 */
+	public SyntheticRepo setFileSize(int fileSize) {
+		this.fileSize = fileSize;
+		return this;
+	}
+	
+	/**
+	 * Set the fraction of lines changed (modified, inserted or deleted) 
+	 * by each commit
+	 * @param churnRate
+	 * @return
+	 */
+	public SyntheticRepo setChurnRate(double churnRate) {
+		this.churnRate = churnRate;
+		return this;
+	}
+	
+	/**
+	 * Set the seed of the random history
+	 * @param seed
+	 * @return
+	 */
+	public SyntheticRepo setSeed(long seed) {
+		this.seed = seed;
+		return this;
+	}
+	
+	/**
+	 * Create the repository and commit the whole history
+	 * @return
+	 * @throws IOException
+	 * @throws GitAPIException
+	 */
+	public SyntheticRepo create() throws IOException, GitAPIException {
+		directory = Files.createTempDirectory("gitstat-benchmark").toFile();
+		git = Git.init().setDirectory(directory).call();
+		Random random = new Random(seed);
+		File file = new File(directory, FILE_PATH);
+		
+		List<String> lines = new ArrayList<String>();
+		for (int i = 0; i < fileSize; i++) {
+			lines.add(createLine(random, 0));
+		}
+		for (int i = 0; i < numberOfCommits; i++) {
+			if (i > 0) {
+				churn(random, lines, i);
+			}
+			Files.write(file.toPath(), lines, StandardCharsets.UTF_8);
+			git.add().addFilepattern(FILE_PATH).call();
+			int authorId = random.nextInt(numberOfAuthors);
+			PersonIdent author = new PersonIdent("Author " + authorId,
+					"author" + authorId + "@example.com",
+					new Date(START_TIME + i * DAY_IN_MILLIS),
+					TimeZone.getTimeZone("UTC"));
+			commits.add(git.commit()
+					.setMessage("Commit " + i)
+					.setAuthor(author)
+					.setCommitter(author)
+					.call());
+		}
+		return this;
+	}
+	
+	/**
+	 * Change the lines for a commit. The file shrinks or grows back 
+	 * when it's far from the original size.
+	 * @param random
+	 * @param lines
+	 * @param commitNumber
+	 */
+	protected void churn(Random random, List<String> lines,
+			int commitNumber) {
+		int changes = Math.max(1, (int) Math.round(fileSize * churnRate));
+		for (int i = 0; i < changes; i++) {
+			int op = random.nextInt(4);
+			if (lines.size() < fileSize / 2 + 1) {
+				op = 2;
+			} else if (lines.size() > fileSize * 2) {
+				op = 3;
+			}
+			int index = random.nextInt(lines.size());
+			switch (op) {
+			case 2:
+				lines.add(index, createLine(random, commitNumber));
+				break;
+			case 3:
+				lines.remove(index);
+				break;
+			default:
+				lines.set(index, createLine(random, commitNumber));
+				break;
+			}
+		}
+	}
+	
+	protected String createLine(Random random, int commitNumber) {
+		return TOKENS[random.nextInt(TOKENS.length)] + "|c" + commitNumber
+				+ "_" + Integer.toHexString(random.nextInt());
+	}
+	
+	public Git getGit() {
+		return git;
+	}
+	
+	public Repository getRepository() {
+		return git.getRepository();
+	}
+	
+	/**
+	 * Get the commits in the order they were made
+	 * @return
+	 */
+	public List<RevCommit> getCommits() {
+		return commits;
+	}
+	
+	/**
+	 * Get the last commit
+	 * @return
+	 */
+	public RevCommit getHead() {
+		return commits.get(commits.size() - 1);
+	}
+	
+	/**
+	 * Close the repository and delete its directory
+	 */
+	@Override
+	public void close() throws IOException {
+		if (git != null) {
+			git.close();
+		}
+		if (directory != null) {
+			FileUtils.deleteDirectory(directory);
+		}
+	}
+	
+	/**
+	 * Initialize with the default settings: 100 commits, 5 authors, 
+	 * 1000 lines and a churn rate of 5%
+	 * @return
+	 */
+	public static SyntheticRepo init() {
+		return new SyntheticRepo();
+	}
+	
+}
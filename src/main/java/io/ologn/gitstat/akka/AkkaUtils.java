@@ -2,6 +2,9 @@ package io.ologn.gitstat.akka;
 
 import java.util.concurrent.TimeUnit;
 
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+
 import akka.actor.ActorRef;
 import akka.actor.ActorSystem;
 import akka.actor.Props;
@@ -25,6 +28,29 @@ public class AkkaUtils {
 	public static final FiniteDuration TIMEOUT =
 			Duration.create(30, TimeUnit.SECONDS);
 	
+	/**
+	 * The default number of actors working in parallel
+	 */
+	public static final int POOL_SIZE =
+			Runtime.getRuntime().availableProcessors();
+	
+	private static ActorSystem actorSystem;
+	
+	/**
+	 * Get the ActorSystem shared by everything in the process. It's 
+	 * created the first time it's needed, and its threads are daemon 
+	 * threads, so it doesn't have to be shut down.
+	 * @return
+	 */
+	public static synchronized ActorSystem getActorSystem() {
+		if (actorSystem == null) {
+			Config config = ConfigFactory.parseString("akka.daemonic = on")
+					.withFallback(ConfigFactory.load());
+			actorSystem = ActorSystem.create("gitstat", config);
+		}
+		return actorSystem;
+	}
+	
 	/**
 	 * Spawn a new actor
 	 * @param system
@@ -0,0 +1,133 @@
+package io.ologn.gitstat.akka;
+
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+
+import io.ologn.gitstat.akka.msg.AuthorshipParamMessage;
+import io.ologn.gitstat.akka.msg.FileAgeMessage;
+import io.ologn.gitstat.akka.msg.LineAuthorshipMessage;
+import io.ologn.gitstat.stat.FileAge;
+import io.ologn.gitstat.stat.LineAuthorship;
+
+/**
+ * Calculates LineAuthorship or FileAge objects for many files at many 
+ * commits in parallel. Each file at a commit is a task on its own, so 
+ * the work is spread over all the cores even when there are only a few 
+ * commits or a few files. The work is done by a pool of 
+ * LineAuthorshipActor or FileAgeActor with one actor per core (see 
+ * TaskScheduler).<br>
+ * Typical usage: {@code DirectoryBlameMaster.initLineAuthorship() 
+ * .calculate(git, repo, tasks, action)}
+ * @author lisq199
+ */
+public class DirectoryBlameMaster<T> {
+	
+	/**
+	 * A file at a commit
+	 */
+	public static class Task {
+		
+		protected final RevCommit commit;
+		protected final String filePath;
+		
+		public Task(RevCommit commit, String filePath) {
+			this.commit = commit;
+			this.filePath = filePath;
+		}
+		
+		public RevCommit getCommit() {
+			return commit;
+		}
+		
+		public String getFilePath() {
+			return filePath;
+		}
+		
+		@Override
+		public int hashCode() {
+			return commit.hashCode() * 31 + filePath.hashCode();
+		}
+		
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Task)) {
+				return false;
+			}
+			Task other = (Task) obj;
+			return commit.equals(other.commit)
+					&& filePath.equals(other.filePath);
+		}
+		
+		@Override
+		public String toString() {
+			return commit.getName() + ":" + filePath;
+		}
+		
+	}
+	
+	private final TaskScheduler scheduler;
+	private final Function<Object, T> toResult;
+	
+	private DirectoryBlameMaster(Class<?> actorClass,
+			Function<Object, T> toResult) {
+		this.scheduler = TaskScheduler.init(actorClass);
+		this.toResult = toResult;
+	}
+	
+	/**
+	 * Calculate a result for each file at each commit, and pass each of 
+	 * them to action as soon as it's available. action is called on the 
+	 * calling thread.
+	 * @param git
+	 * @param repo
+	 * @param tasks
+	 * @param action
+	 * @return the tasks that failed even after retrying
+	 */
+	public List<Task> calculate(Git git, Repository repo,
+			Iterable<Task> tasks, BiConsumer<Task, T> action) {
+		return scheduler.run(tasks,
+				task -> AuthorshipParamMessage.init(
+						git, repo, task.commit, task.filePath),
+				(task, reply) -> {
+					T result = toResult.apply(reply);
+					if (result == null) {
+						return false;
+					}
+					action.accept(task, result);
+					return true;
+				});
+	}
+	
+	/**
+	 * Stop the actors. The master can't be used afterwards.
+	 */
+	public void shutdown() {
+		scheduler.shutdown();
+	}
+	
+	/**
+	 * Initialize a master calculating LineAuthorship objects
+	 * @return
+	 */
+	public static DirectoryBlameMaster<LineAuthorship> initLineAuthorship() {
+		return new DirectoryBlameMaster<LineAuthorship>(
+				LineAuthorshipActor.class,
+				reply -> ((LineAuthorshipMessage) reply).getLineAuthorship());
+	}
+	
+	/**
+	 * Initialize a master calculating FileAge objects
+	 * @return
+	 */
+	public static DirectoryBlameMaster<FileAge> initFileAge() {
+		return new DirectoryBlameMaster<FileAge>(FileAgeActor.class,
+				reply -> ((FileAgeMessage) reply).getFileAge());
+	}
+	
+}
@@ -14,6 +14,7 @@ import akka.actor.UntypedActor;
 import io.ologn.gitstat.akka.msg.AuthorshipParamMessage;
 import io.ologn.gitstat.akka.msg.BlameResultContainerMessage;
 import io.ologn.gitstat.akka.msg.FileAgeMessage;
+import io.ologn.gitstat.metrics.Metrics;
 import io.ologn.gitstat.stat.BlameResultContainer;
 import io.ologn.gitstat.stat.FileAge;
 
@@ -22,7 +23,6 @@ public class FileAgeActor extends UntypedActor {
 	@Override
 	public void onReceive(Object m) {
 		FileAge fa = null;
-		String sha1 = null;
 		
 		if (m instanceof AuthorshipParamMessage) {
 			AuthorshipParamMessage msg = (AuthorshipParamMessage) m;
@@ -31,18 +31,10 @@ public class FileAgeActor extends UntypedActor {
 			RevCommit commit = msg.getCommit();
 			String filePath = msg.getFilePath();
 			
-			System.out.println("Received AuthorshipParamMessage with "
-					+ commit);
-			sha1 = commit.getName();
-			
 			fa = calculate(git, repo, commit, filePath);
 		} else if (m instanceof BlameResultContainerMessage) {
 			BlameResultContainerMessage msg = (BlameResultContainerMessage) m;
 			
-			System.out.println("Reveived BlameResultContainerMessage"
-					+ msg.getBlameResultContainer());
-			sha1 = msg.getBlameResultContainer().getSha1();
-			
 			fa = calculate(msg.getBlameResultContainer());
 		} else {
 			unhandled(m);
@@ -50,7 +42,6 @@ public class FileAgeActor extends UntypedActor {
 		
 		FileAgeMessage lam = FileAgeMessage.init(fa);
 		getSender().tell(lam, getSelf());
-		System.out.println("Sent reply for " + sha1);
 	}
 	
 	private static FileAge calculate(Git git, Repository repo,
@@ -68,12 +59,18 @@ public class FileAgeActor extends UntypedActor {
 			e.printStackTrace();
 		} catch (IOException e) {
 			e.printStackTrace();
+		} catch (RuntimeException e) {
+			// Always reply, so the scheduler knows the actor is free again
+			e.printStackTrace();
 		}
 		return fa;
 	}
 	
 	private static FileAge calculate(BlameResultContainer container) {
-		return FileAge.calculate(container);
+		long start = Metrics.now();
+		FileAge fa = FileAge.calculate(container);
+		Metrics.getGlobal().recordTime(Metrics.STAGE_STAT, start);
+		return fa;
 	}
 
 }
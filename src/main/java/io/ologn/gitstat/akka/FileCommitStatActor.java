@@ -0,0 +1,34 @@
+package io.ologn.gitstat.akka;
+
+import org.eclipse.jgit.api.errors.GitAPIException;
+
+import akka.actor.UntypedActor;
+import io.ologn.gitstat.akka.msg.FileCommitStatMessage;
+import io.ologn.gitstat.akka.msg.FileCommitStatParamMessage;
+import io.ologn.gitstat.stat.FileCommitStat;
+
+public class FileCommitStatActor extends UntypedActor {
+	
+	@Override
+	public void onReceive(Object m) {
+		if (!(m instanceof FileCommitStatParamMessage)) {
+			unhandled(m);
+			return;
+		}
+		FileCommitStatParamMessage msg = (FileCommitStatParamMessage) m;
+		
+		FileCommitStat stat = null;
+		try {
+			stat = FileCommitStat.calculate(msg.getGit(), msg.getCommit(),
+					msg.getFilePath(), msg.getTokenizer());
+		} catch (GitAPIException e) {
+			e.printStackTrace();
+		} catch (RuntimeException e) {
+			// Always reply, so the scheduler knows the actor is free again
+			e.printStackTrace();
+		}
+		
+		getSender().tell(FileCommitStatMessage.init(stat), getSelf());
+	}
+	
+}
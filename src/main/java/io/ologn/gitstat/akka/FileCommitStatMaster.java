@@ -0,0 +1,92 @@
+package io.ologn.gitstat.akka;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.revwalk.RevCommit;
+
+import io.ologn.gitstat.akka.msg.FileCommitStatMessage;
+import io.ologn.gitstat.akka.msg.FileCommitStatParamMessage;
+import io.ologn.gitstat.stat.FileCommitStat;
+import io.ologn.gitstat.tokenizer.LineTokenizer;
+
+/**
+ * Calculates FileCommitStat objects for many files at one commit, or one 
+ * file at many commits, in parallel. The work is done by a pool of 
+ * FileCommitStatActor with one actor per core (see TaskScheduler). Since 
+ * only one file per actor is in flight at a time, the memory used doesn't 
+ * grow with the number of files, as long as the results are not kept.
+ * @author lisq199
+ */
+public class FileCommitStatMaster {
+	
+	private final TaskScheduler scheduler;
+	
+	private FileCommitStatMaster() {
+		scheduler = TaskScheduler.init(FileCommitStatActor.class);
+	}
+	
+	/**
+	 * Calculate a FileCommitStat for each file, and pass each of them to 
+	 * action as soon as it's available. action is called on the calling 
+	 * thread.
+	 * @param git
+	 * @param commit
+	 * @param filePaths
+	 * @param tokenizer it's called by many threads at the same time
+	 * @param action
+	 * @return the files that failed even after retrying
+	 */
+	public List<String> calculateFileCommitStats(Git git, RevCommit commit,
+			Iterable<String> filePaths, LineTokenizer tokenizer,
+			Consumer<FileCommitStat> action) {
+		return scheduler.run(filePaths,
+				filePath -> FileCommitStatParamMessage.init(
+						git, commit, filePath, tokenizer),
+				(filePath, reply) -> accept(reply, action));
+	}
+	
+	/**
+	 * Calculate a FileCommitStat for each commit, and pass each of them 
+	 * to action as soon as it's available. action is called on the 
+	 * calling thread.
+	 * @param git
+	 * @param commits
+	 * @param filePath
+	 * @param tokenizer it's called by many threads at the same time
+	 * @param action
+	 * @return the commits that failed even after retrying
+	 */
+	public List<RevCommit> calculateFileCommitStats(Git git,
+			Iterable<RevCommit> commits, String filePath,
+			LineTokenizer tokenizer, Consumer<FileCommitStat> action) {
+		return scheduler.run(commits,
+				commit -> FileCommitStatParamMessage.init(
+						git, commit, filePath, tokenizer),
+				(commit, reply) -> accept(reply, action));
+	}
+	
+	private static boolean accept(Object reply,
+			Consumer<FileCommitStat> action) {
+		FileCommitStat stat = ((FileCommitStatMessage) reply)
+				.getFileCommitStat();
+		if (stat == null) {
+			return false;
+		}
+		action.accept(stat);
+		return true;
+	}
+	
+	/**
+	 * Stop the actors. The master can't be used afterwards.
+	 */
+	public void shutdown() {
+		scheduler.shutdown();
+	}
+	
+	public static FileCommitStatMaster init() {
+		return new FileCommitStatMaster();
+	}
+	
+}
@@ -14,6 +14,7 @@ import akka.actor.UntypedActor;
 import io.ologn.gitstat.akka.msg.AuthorshipParamMessage;
 import io.ologn.gitstat.akka.msg.BlameResultContainerMessage;
 import io.ologn.gitstat.akka.msg.LineAuthorshipMessage;
+import io.ologn.gitstat.metrics.Metrics;
 import io.ologn.gitstat.stat.BlameResultContainer;
 import io.ologn.gitstat.stat.LineAuthorship;
 
@@ -22,7 +23,6 @@ public class LineAuthorshipActor extends UntypedActor {
 	@Override
 	public void onReceive(Object m) {
 		LineAuthorship la = null;
-		String sha1 = null;
 		
 		if (m instanceof AuthorshipParamMessage) {
 			AuthorshipParamMessage msg = (AuthorshipParamMessage) m;
@@ -31,18 +31,10 @@ public class LineAuthorshipActor extends UntypedActor {
 			RevCommit commit = msg.getCommit();
 			String filePath = msg.getFilePath();
 			
-			System.out.println("Received AuthorshipParamMessage with "
-					+ commit);
-			sha1 = commit.getName();
-
 			la = calculate(git, repo, commit, filePath);
 		} else if (m instanceof BlameResultContainerMessage) {
 			BlameResultContainerMessage msg = (BlameResultContainerMessage) m;
 			
-			System.out.println("Reveived BlameResultContainerMessage"
-					+ msg.getBlameResultContainer());
-			sha1 = msg.getBlameResultContainer().getSha1();
-			
 			la = calculate(msg.getBlameResultContainer());
 		} else {
 			unhandled(m);
@@ -50,7 +42,6 @@ public class LineAuthorshipActor extends UntypedActor {
 		
 		LineAuthorshipMessage lam = LineAuthorshipMessage.init(la);
 		getSender().tell(lam, getSelf());
-		System.out.println("Sent reply for " + sha1);
 	}
 	
 	private static LineAuthorship calculate(Git git, Repository repo,
@@ -68,12 +59,18 @@ public class LineAuthorshipActor extends UntypedActor {
 			e.printStackTrace();
 		} catch (IOException e) {
 			e.printStackTrace();
+		} catch (RuntimeException e) {
+			// Always reply, so the scheduler knows the actor is free again
+			e.printStackTrace();
 		}
 		return la;
 	}
 	
 	private static LineAuthorship calculate(BlameResultContainer container) {
-		return LineAuthorship.calculate(container);
+		long start = Metrics.now();
+		LineAuthorship la = LineAuthorship.calculate(container);
+		Metrics.getGlobal().recordTime(Metrics.STAGE_STAT, start);
+		return la;
 	}
 
 }
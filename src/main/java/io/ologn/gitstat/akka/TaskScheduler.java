@@ -0,0 +1,417 @@
+package io.ologn.gitstat.akka;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
+
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.actor.PoisonPill;
+import akka.actor.Props;
+import akka.actor.Status;
+import akka.actor.UntypedActor;
+import akka.routing.BalancingPool;
+import io.ologn.gitstat.metrics.Metrics;
+import io.ologn.gitstat.metrics.ProgressReporter;
+import scala.concurrent.duration.FiniteDuration;
+
+/**
+ * Schedules tasks on a fixed pool of actors. The actors share one mailbox, 
+ * so an idle actor always takes the next task instead of waiting behind 
+ * a slow one. At most one task per actor is in flight at a time, so the 
+ * deadline of a task covers the work on it rather than the time it spends 
+ * in a queue. A task that fails or misses its deadline is retried on its 
+ * own, and replies are handed back as soon as they arrive.<br>
+ * An actor can't be stopped in the middle of a task, so an actor whose 
+ * task misses its deadline keeps its place in the pool until it replies, 
+ * and the task is retried on another actor. Whichever valid reply for a 
+ * task arrives first is used, and the other ones are dropped.<br>
+ * The progress of a run is printed by a ProgressReporter, and the queue 
+ * depth, latency, retries and timeouts are recorded in the global 
+ * Metrics.<br>
+ * Typical usage: {@code TaskScheduler.init(LineAuthorshipActor.class) 
+ * .run(commits, toMessage, onReply)}
+ * @author lisq199
+ */
+public class TaskScheduler {
+	
+	protected final ActorSystem actorSystem;
+	protected final ActorRef workers;
+	protected final int poolSize;
+	/**
+	 * The name shown in the progress
+	 */
+	protected final String name;
+	protected FiniteDuration timeout;
+	protected int maxRetry;
+	
+	/**
+	 * One attempt of a task: a message sent to an actor
+	 */
+	protected static class Attempt<T> {
+		
+		protected final T task;
+		protected final long sentNanos;
+		protected final long deadlineNanos;
+		/**
+		 * Whether the attempt missed its deadline. Its actor is still 
+		 * busy until it replies.
+		 */
+		protected boolean timedOut;
+		
+		protected Attempt(T task, long sentNanos, long deadlineNanos) {
+			this.task = task;
+			this.sentNanos = sentNanos;
+			this.deadlineNanos = deadlineNanos;
+			this.timedOut = false;
+		}
+		
+	}
+	
+	/**
+	 * The reply for an attempt
+	 */
+	protected static class Completion<T> {
+		
+		protected final Attempt<T> attempt;
+		protected final Object reply;
+		
+		protected Completion(Attempt<T> attempt, Object reply) {
+			this.attempt = attempt;
+			this.reply = reply;
+		}
+		
+	}
+	
+	/**
+	 * Receives the reply for one attempt, whenever it arrives, and stops. 
+	 * Unlike ask(), it never gives up, so the scheduler always knows when 
+	 * an actor is done with a task.
+	 */
+	protected static class ReplyActor<T> extends UntypedActor {
+		
+		protected final Attempt<T> attempt;
+		protected final BlockingQueue<Completion<T>> completions;
+		
+		public ReplyActor(Attempt<T> attempt,
+				BlockingQueue<Completion<T>> completions) {
+			this.attempt = attempt;
+			this.completions = completions;
+		}
+		
+		@Override
+		public void onReceive(Object m) {
+			completions.add(new Completion<T>(attempt, m));
+			getContext().stop(getSelf());
+		}
+		
+	}
+	
+	/**
+	 * The state of one run
+	 */
+	protected class Run<T> {
+		
+		protected final Function<T, Object> toMessage;
+		protected final BiPredicate<T, Object> onReply;
+		protected final Deque<T> queue;
+		protected final Map<T, Integer> attempts;
+		/**
+		 * The tasks that succeeded or failed for good
+		 */
+		protected final Set<T> done;
+		/**
+		 * The attempts that are in flight and haven't missed their 
+		 * deadline
+		 */
+		protected final List<Attempt<T>> active;
+		protected final BlockingQueue<Completion<T>> completions;
+		protected final List<T> failed;
+		protected final Metrics metrics;
+		protected final ProgressReporter progress;
+		/**
+		 * The actors working on a task, including the ones whose task 
+		 * missed its deadline
+		 */
+		protected int busy;
+		protected boolean interrupted;
+		
+		protected Run(Iterable<T> tasks, Function<T, Object> toMessage,
+				BiPredicate<T, Object> onReply) {
+			this.toMessage = toMessage;
+			this.onReply = onReply;
+			this.queue = new ArrayDeque<T>();
+			tasks.forEach(queue::add);
+			this.attempts = new HashMap<T, Integer>();
+			this.done = new HashSet<T>();
+			this.active = new ArrayList<Attempt<T>>();
+			this.completions = new LinkedBlockingQueue<Completion<T>>();
+			this.failed = new ArrayList<T>();
+			this.metrics = Metrics.getGlobal();
+			this.progress = ProgressReporter.init(name, queue.size());
+			metrics.addToGauge(Metrics.QUEUED, queue.size());
+		}
+		
+		protected List<T> run() {
+			try {
+				while ((!queue.isEmpty() && !interrupted)
+						|| !active.isEmpty()) {
+					sendAll();
+					Completion<T> completion;
+					try {
+						completion = next();
+					} catch (InterruptedException e) {
+						stop();
+						continue;
+					}
+					if (completion == null) {
+						expire();
+					} else {
+						complete(completion);
+					}
+				}
+			} finally {
+				metrics.addToGauge(Metrics.QUEUED, -queue.size());
+				metrics.addToGauge(Metrics.IN_FLIGHT, -busy);
+				progress.finish();
+			}
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+			return failed;
+		}
+		
+		/**
+		 * Keep every actor busy, but don't queue up more than that
+		 */
+		protected void sendAll() {
+			while (busy < poolSize && !queue.isEmpty() && !interrupted) {
+				T task = queue.poll();
+				metrics.addToGauge(Metrics.QUEUED, -1);
+				metrics.record(Metrics.QUEUE_DEPTH, queue.size());
+				attempts.merge(task, 1, Integer::sum);
+				long sentNanos = Metrics.now();
+				Attempt<T> attempt = new Attempt<T>(task, sentNanos,
+						sentNanos + timeout.toNanos());
+				ActorRef replyTo = actorSystem.actorOf(Props.create(
+						ReplyActor.class, attempt, completions));
+				workers.tell(toMessage.apply(task), replyTo);
+				active.add(attempt);
+				busy++;
+				metrics.addToGauge(Metrics.IN_FLIGHT, 1);
+			}
+		}
+		
+		/**
+		 * Wait for the next reply, or until the next deadline
+		 * @return the reply, or null if a deadline has passed
+		 * @throws InterruptedException
+		 */
+		protected Completion<T> next() throws InterruptedException {
+			if (active.isEmpty()) {
+				// Only actors that missed their deadline are left
+				return completions.take();
+			}
+			long deadline = Long.MAX_VALUE;
+			for (Attempt<T> attempt : active) {
+				deadline = Math.min(deadline, attempt.deadlineNanos);
+			}
+			return completions.poll(Math.max(0, deadline - Metrics.now()),
+					TimeUnit.NANOSECONDS);
+		}
+		
+		/**
+		 * Handle the attempts that missed their deadline
+		 */
+		protected void expire() {
+			long now = Metrics.now();
+			for (Iterator<Attempt<T>> it = active.iterator(); it.hasNext();) {
+				Attempt<T> attempt = it.next();
+				if (attempt.deadlineNanos > now) {
+					continue;
+				}
+				it.remove();
+				attempt.timedOut = true;
+				metrics.increment(Metrics.TIMEOUTS);
+				if (!done.contains(attempt.task)) {
+					System.err.println("Task " + attempt.task
+							+ " missed its deadline of " + timeout);
+					retryOrFail(attempt.task);
+				}
+			}
+		}
+		
+		/**
+		 * Handle a reply
+		 * @param completion
+		 */
+		protected void complete(Completion<T> completion) {
+			Attempt<T> attempt = completion.attempt;
+			T task = attempt.task;
+			busy--;
+			metrics.addToGauge(Metrics.IN_FLIGHT, -1);
+			if (!attempt.timedOut) {
+				active.remove(attempt);
+				metrics.recordTime(Metrics.TASK_LATENCY, attempt.sentNanos);
+			}
+			if (done.contains(task)) {
+				return;
+			}
+			Object reply = completion.reply;
+			boolean valid;
+			if (reply instanceof Status.Failure) {
+				System.err.println("Task " + task + " failed: "
+						+ ((Status.Failure) reply).cause());
+				valid = false;
+			} else {
+				valid = onReply.test(task, reply);
+			}
+			if (valid) {
+				done.add(task);
+				metrics.increment(Metrics.TASKS);
+				progress.step();
+				if (attempt.timedOut && queue.remove(task)) {
+					// The retry isn't needed anymore
+					metrics.addToGauge(Metrics.QUEUED, -1);
+				}
+			} else if (!attempt.timedOut) {
+				// A timed out attempt has already been retried
+				retryOrFail(task);
+			}
+		}
+		
+		/**
+		 * Retry a task, or give up on it if it has used up its attempts
+		 * @param task
+		 */
+		protected void retryOrFail(T task) {
+			if (!interrupted && attempts.get(task) < maxRetry) {
+				metrics.increment(Metrics.RETRIES);
+				metrics.addToGauge(Metrics.QUEUED, 1);
+				queue.add(task);
+			} else {
+				metrics.increment(Metrics.FAILED_TASKS);
+				progress.step();
+				done.add(task);
+				failed.add(task);
+			}
+		}
+		
+		/**
+		 * Stop sending tasks after an interrupt. The tasks that are in 
+		 * flight are still waited for (until their deadline), so no actor 
+		 * is left working for the run.
+		 */
+		protected void stop() {
+			interrupted = true;
+			for (T task : queue) {
+				if (done.add(task)) {
+					metrics.increment(Metrics.FAILED_TASKS);
+					progress.step();
+					failed.add(task);
+				}
+			}
+			metrics.addToGauge(Metrics.QUEUED, -queue.size());
+			queue.clear();
+		}
+		
+	}
+	
+	protected TaskScheduler(ActorSystem actorSystem, Class<?> actorClass,
+			int poolSize) {
+		this.actorSystem = actorSystem;
+		this.poolSize = poolSize;
+		this.name = actorClass.getSimpleName();
+		this.workers = actorSystem.actorOf(new BalancingPool(poolSize)
+				.props(Props.create(actorClass)));
+		this.timeout = AkkaUtils.TIMEOUT;
+		this.maxRetry = AkkaUtils.MAX_RETRY;
+	}
+	
+	/**
+	 * Get the number of actors
+	 * @return
+	 */
+	public int getPoolSize() {
+		return poolSize;
+	}
+	
+	/**
+	 * Set the deadline of each attempt of a task
+	 * @param timeout
+	 * @return
+	 */
+	public TaskScheduler setTimeout(FiniteDuration timeout) {
+		this.timeout = timeout;
+		return this;
+	}
+	
+	/**
+	 * Set the maximum number of attempts of each task
+	 * @param maxRetry
+	 * @return
+	 */
+	public TaskScheduler setMaxRetry(int maxRetry) {
+		this.maxRetry = maxRetry;
+		return this;
+	}
+	
+	/**
+	 * Run the tasks and block until every task has either succeeded or 
+	 * used up its attempts. onReply is always called on the calling 
+	 * thread, in the order the replies arrive, so it doesn't need to be 
+	 * thread safe. It's called at most once with a valid reply for each 
+	 * task.<br>
+	 * If the calling thread is interrupted, the tasks that haven't been 
+	 * sent fail, the ones in flight are waited for, and the thread is 
+	 * interrupted again before returning.
+	 * @param tasks
+	 * @param toMessage creates the message sent to an actor for a task
+	 * @param onReply handles the reply for a task. It should return false 
+	 * if the reply is not a valid result, so the task will be retried.
+	 * @return the tasks that failed
+	 */
+	public <T> List<T> run(Iterable<T> tasks, Function<T, Object> toMessage,
+			BiPredicate<T, Object> onReply) {
+		return new Run<T>(tasks, toMessage, onReply).run();
+	}
+	
+	/**
+	 * Stop the actors. The scheduler can't be used afterwards.
+	 */
+	public void shutdown() {
+		workers.tell(PoisonPill.getInstance(), ActorRef.noSender());
+	}
+	
+	/**
+	 * Initialize with the shared ActorSystem and one actor per core
+	 * @param actorClass the class of the actors doing the work
+	 * @return
+	 */
+	public static TaskScheduler init(Class<?> actorClass) {
+		return init(actorClass, AkkaUtils.POOL_SIZE);
+	}
+	
+	/**
+	 * Initialize with the shared ActorSystem
+	 * @param actorClass the class of the actors doing the work
+	 * @param poolSize the number of actors
+	 * @return
+	 */
+	public static TaskScheduler init(Class<?> actorClass, int poolSize) {
+		return new TaskScheduler(AkkaUtils.getActorSystem(), actorClass,
+				poolSize);
+	}
+	
+}
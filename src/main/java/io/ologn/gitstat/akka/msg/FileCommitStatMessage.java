@@ -0,0 +1,34 @@
+package io.ologn.gitstat.akka.msg;
+
+import java.io.Serializable;
+
+import io.ologn.gitstat.stat.FileCommitStat;
+
+/**
+ * Immutable class for passing FileCommitStat objects as messages 
+ * with Akka.
+ * @author lisq199
+ */
+public class FileCommitStatMessage implements Serializable {
+	
+	private static final long serialVersionUID = 1L;
+	
+	private final transient FileCommitStat stat;
+	
+	private FileCommitStatMessage() {
+		stat = null;
+	}
+	
+	private FileCommitStatMessage(FileCommitStat stat) {
+		this.stat = stat;
+	}
+	
+	public FileCommitStat getFileCommitStat() {
+		return stat;
+	}
+	
+	public static FileCommitStatMessage init(FileCommitStat stat) {
+		return new FileCommitStatMessage(stat);
+	}
+	
+}
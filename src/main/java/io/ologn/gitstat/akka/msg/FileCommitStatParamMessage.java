@@ -0,0 +1,61 @@
+package io.ologn.gitstat.akka.msg;
+
+import java.io.Serializable;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.revwalk.RevCommit;
+
+import io.ologn.gitstat.tokenizer.LineTokenizer;
+
+/**
+ * Immutable class for passing parameters for calculating FileCommitStat 
+ * as messages with Akka.
+ * @author lisq199
+ */
+public class FileCommitStatParamMessage implements Serializable {
+	
+	private static final long serialVersionUID = 1L;
+	
+	private final transient Git git;
+	private final transient RevCommit commit;
+	private final String filePath;
+	private final transient LineTokenizer tokenizer;
+	
+	private FileCommitStatParamMessage() {
+		git = null;
+		commit = null;
+		filePath = null;
+		tokenizer = null;
+	}
+	
+	private FileCommitStatParamMessage(Git git, RevCommit commit,
+			String filePath, LineTokenizer tokenizer) {
+		this.git = git;
+		this.commit = commit;
+		this.filePath = filePath;
+		this.tokenizer = tokenizer;
+	}
+	
+	public Git getGit() {
+		return git;
+	}
+	
+	public RevCommit getCommit() {
+		return commit;
+	}
+	
+	public String getFilePath() {
+		return filePath;
+	}
+	
+	public LineTokenizer getTokenizer() {
+		return tokenizer;
+	}
+	
+	public static FileCommitStatParamMessage init(Git git, RevCommit commit,
+			String filePath, LineTokenizer tokenizer) {
+		return new FileCommitStatParamMessage(git, commit, filePath,
+				tokenizer);
+	}
+	
+}
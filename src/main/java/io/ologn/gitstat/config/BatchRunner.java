@@ -0,0 +1,225 @@
+package io.ologn.gitstat.config;
+
+import static io.ologn.gitstat.config.ConfigRunner.err;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.api.errors.NoHeadException;
+import org.eclipse.jgit.errors.RevisionSyntaxException;
+import org.eclipse.jgit.lib.Repository;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+
+import io.ologn.gitstat.jgit.CommitIndex;
+import io.ologn.gitstat.jgit.CommitRange;
+import io.ologn.gitstat.jgit.RepoContext;
+import io.ologn.gitstat.jgit.RevCommitUtils;
+import io.ologn.gitstat.vis.FileReportWriter;
+import io.ologn.gitstat.vis.VisRunner;
+
+/**
+ * Runs many visualizations (jobs) at the same time, and writes each of 
+ * them to its own HTML file instead of opening a browser, so it works 
+ * on headless machines. All the jobs share one repository and one index 
+ * of the commits.<br>
+ * The jobs come from the "jobs" array of the config, where each job has 
+ * the same properties as the config (the ones it doesn't have are taken 
+ * from the config), plus every combination of "batchFilePaths" and 
+ * "batchVisTypes".
+ * @author lisq199
+ */
+public class BatchRunner {
+	
+	public static final String DEFAULT_OUTPUT_DIR = "reports";
+	
+	/**
+	 * Whether the config has any batch jobs
+	 * @param config
+	 * @return
+	 */
+	static boolean isBatch(JSONObject config) {
+		return config.containsKey("jobs")
+				|| config.containsKey("batchFilePaths");
+	}
+	
+	/**
+	 * Get the config of every job. The "output" of each job is set to 
+	 * the path of its report relative to the output directory.
+	 * @param config
+	 * @return
+	 */
+	static List<JSONObject> getJobs(JSONObject config) {
+		List<JSONObject> jobs = new ArrayList<JSONObject>();
+		JSONArray array = (JSONArray) config.get("jobs");
+		if (array != null) {
+			for (Object o : (List<?>) array) {
+				addJob(jobs, config, (JSONObject) o);
+			}
+		}
+		List<String> filePaths = ConfigReader.getStringList(config,
+				"batchFilePaths");
+		List<Integer> visTypes = ConfigReader.getIntList(config,
+				"batchVisTypes");
+		if (!filePaths.isEmpty() && visTypes.isEmpty()) {
+			err("Property batchVisTypes not found.");
+		}
+		for (String filePath : filePaths) {
+			for (int visType : visTypes) {
+				JSONObject job = new JSONObject();
+				put(job, "filePath", filePath);
+				put(job, "visType", (long) visType);
+				addJob(jobs, config, job);
+			}
+		}
+		return jobs;
+	}
+	
+	/**
+	 * Add a job, with the properties it doesn't have taken from the 
+	 * config
+	 * @param jobs
+	 * @param config
+	 * @param job
+	 */
+	static void addJob(List<JSONObject> jobs, JSONObject config,
+			JSONObject job) {
+		JSONObject merged = new JSONObject();
+		putAll(merged, config);
+		merged.remove("jobs");
+		// Only a job can name its own output
+		merged.remove("output");
+		putAll(merged, job);
+		if (!job.containsKey("output")) {
+			put(merged, "output", getDefaultOutput(merged, jobs.size()));
+		}
+		jobs.add(merged);
+	}
+	
+	/**
+	 * Get the name of the report of a job that has no output, e.g. 
+	 * "3-src_main.c-type2.html". The job number keeps the names of 
+	 * similar jobs apart.
+	 * @param job
+	 * @param number
+	 * @return
+	 */
+	static String getDefaultOutput(JSONObject job, int number) {
+		int visType = ConfigReader.getInt(job, "visType");
+		String name;
+		if (visType == 4) {
+			name = ConfigReader.getString(job, "revisionString", "repo");
+		} else if ((visType == 2 || visType == 3)
+				&& job.containsKey("directoryPath")) {
+			name = ConfigReader.getString(job, "directoryPath", "");
+			name = name.isEmpty() ? "repo" : name;
+		} else {
+			name = ConfigReader.getString(job, "filePath", "");
+		}
+		return number + "-" + name.replaceAll("[^A-Za-z0-9._-]", "_")
+				+ "-type" + visType + ".html";
+	}
+	
+	@SuppressWarnings("unchecked")
+	static void put(JSONObject json, Object key, Object value) {
+		json.put(key, value);
+	}
+	
+	/**
+	 * Put all the properties of a JSONObject into another one
+	 * @param json
+	 * @param properties
+	 */
+	static void putAll(JSONObject json, JSONObject properties) {
+		for (Map.Entry<?, ?> entry : ((Map<?, ?>) properties).entrySet()) {
+			put(json, entry.getKey(), entry.getValue());
+		}
+	}
+	
+	/**
+	 * Run all the jobs. The number of jobs run at the same time is 
+	 * batchThreads (by default the number of processors).
+	 * @param config
+	 * @param dotGitPath
+	 */
+	public static void run(JSONObject config, String dotGitPath) {
+		List<JSONObject> jobs = getJobs(config);
+		Path outputDir = Paths.get(ConfigReader.getString(config,
+				"outputDir", DEFAULT_OUTPUT_DIR));
+		int threads = Math.max(ConfigReader.getInt(config, "batchThreads",
+				Runtime.getRuntime().availableProcessors()), 1);
+		System.out.println("Number of jobs: " + jobs.size());
+		try (
+			Git git = Git.open(new File(dotGitPath));
+		) {
+			Repository repo = git.getRepository();
+			// The commit range is shared, since the index has to cover it
+			CommitRange commitRange = ConfigRunner.getCommitRange(config);
+			CommitIndex commitIndex = CommitIndex.build(
+					RevCommitUtils.getAllCommits(git, commitRange));
+			AtomicInteger failed = new AtomicInteger();
+			ExecutorService executor = Executors.newFixedThreadPool(threads);
+			try {
+				List<Future<?>> futures = new ArrayList<Future<?>>();
+				for (JSONObject job : jobs) {
+					Path output = outputDir.resolve(
+							ConfigReader.getString(job, "output"));
+					FileReportWriter writer = FileReportWriter.init(output);
+					VisRunner visRunner = ConfigRunner.configure(
+							VisRunner.init(repo), job)
+							.setCommitRange(commitRange)
+							.setCommitIndex(commitIndex)
+							.setReportWriter(writer);
+					futures.add(executor.submit(() -> {
+						try {
+							ConfigRunner.runVisType(job, visRunner);
+						} catch (RuntimeException e) {
+							// Let the other jobs go on
+							e.printStackTrace();
+						}
+						if (writer.isWritten()) {
+							System.out.println("Report written: " + output);
+						} else {
+							failed.incrementAndGet();
+							System.err.println("Report failed: " + output);
+						}
+					}));
+				}
+				for (Future<?> future : futures) {
+					future.get();
+				}
+			} finally {
+				executor.shutdown();
+				RepoContext.closeAll(repo);
+			}
+			System.out.println("Reports written: "
+					+ (jobs.size() - failed.get()) + ", failed: "
+					+ failed.get());
+		} catch (IOException e) {
+			e.printStackTrace();
+		} catch (RevisionSyntaxException e) {
+			e.printStackTrace();
+		} catch (NoHeadException e) {
+			e.printStackTrace();
+		} catch (GitAPIException e) {
+			e.printStackTrace();
+		} catch (InterruptedException e) {
+			e.printStackTrace();
+		} catch (ExecutionException e) {
+			e.printStackTrace();
+		}
+	}
+	
+}
@@ -0,0 +1,15 @@
+package io.ologn.gitstat.config;
+
+/**
+ * Thrown when a property of the config is missing or invalid
+ * @author lisq199
+ */
+public class ConfigException extends IllegalArgumentException {
+	
+	private static final long serialVersionUID = 1L;
+	
+	public ConfigException(String message) {
+		super(message);
+	}
+	
+}
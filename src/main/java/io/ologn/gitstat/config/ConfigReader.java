@@ -5,10 +5,18 @@ import static io.ologn.gitstat.config.ConfigRunner.err;
 import java.io.IOException;
 import java.nio.charset.Charset;
 import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
 import java.util.stream.Collectors;
 
 import org.apache.commons.io.FileUtils;
+import org.json.simple.JSONArray;
 import org.json.simple.JSONObject;
 import org.json.simple.parser.JSONParser;
 import org.json.simple.parser.ParseException;
@@ -58,6 +66,21 @@ public class ConfigReader {
 		return b;
 	}
 	
+	/**
+	 * Get an optional boolean property
+	 * @param config
+	 * @param key
+	 * @param defaultValue the value returned if the property is not found
+	 * @return
+	 */
+	public static boolean getBoolean(JSONObject config, Object key,
+			boolean defaultValue) {
+		if (!config.containsKey(key)) {
+			return defaultValue;
+		}
+		return getBoolean(config, key);
+	}
+	
 	public static long getLong(JSONObject config, Object key) {
 		Long l = (Long) config.get(key);
 		if (l == null) {
@@ -69,6 +92,21 @@ public class ConfigReader {
 	public static int getInt(JSONObject config, Object key) {
 		return (int) getLong(config, key);
 	}
+	
+	/**
+	 * Get an optional integer property
+	 * @param config
+	 * @param key
+	 * @param defaultValue the value returned if the property is not found
+	 * @return
+	 */
+	public static int getInt(JSONObject config, Object key,
+			int defaultValue) {
+		if (!config.containsKey(key)) {
+			return defaultValue;
+		}
+		return getInt(config, key);
+	}
 
 	public static double getDouble(JSONObject config, Object key) {
 		Double d = (Double) config.get(key);
@@ -86,4 +124,79 @@ public class ConfigReader {
 		return s;
 	}
 	
+	/**
+	 * Get an optional String property
+	 * @param config
+	 * @param key
+	 * @param defaultValue the value returned if the property is not found
+	 * @return
+	 */
+	public static String getString(JSONObject config, Object key,
+			String defaultValue) {
+		if (!config.containsKey(key)) {
+			return defaultValue;
+		}
+		return getString(config, key);
+	}
+	
+	/**
+	 * Get an optional date property in the local time zone, written as 
+	 * "yyyy-MM-dd" (the start of the day) or "yyyy-MM-ddTHH:mm:ss"
+	 * @param config
+	 * @param key
+	 * @return the date, or null if the property is not found or empty
+	 */
+	public static Date getDate(JSONObject config, Object key) {
+		String s = getString(config, key, "");
+		if (s.isEmpty()) {
+			return null;
+		}
+		LocalDateTime dateTime = null;
+		try {
+			if (s.indexOf('T') < 0) {
+				dateTime = LocalDate.parse(s).atStartOfDay();
+			} else {
+				dateTime = LocalDateTime.parse(s);
+			}
+		} catch (DateTimeParseException e) {
+			err("Property " + key + " is not a valid date: " + s);
+		}
+		return Date.from(dateTime.atZone(ZoneId.systemDefault())
+				.toInstant());
+	}
+	
+	/**
+	 * Get an optional array of Strings
+	 * @param config
+	 * @param key
+	 * @return the Strings, or an empty list if the property is not found
+	 */
+	public static List<String> getStringList(JSONObject config, Object key) {
+		List<String> list = new ArrayList<String>();
+		JSONArray array = (JSONArray) config.get(key);
+		if (array != null) {
+			for (Object o : (List<?>) array) {
+				list.add((String) o);
+			}
+		}
+		return list;
+	}
+	
+	/**
+	 * Get an optional array of integers
+	 * @param config
+	 * @param key
+	 * @return the integers, or an empty list if the property is not found
+	 */
+	public static List<Integer> getIntList(JSONObject config, Object key) {
+		List<Integer> list = new ArrayList<Integer>();
+		JSONArray array = (JSONArray) config.get(key);
+		if (array != null) {
+			for (Object o : (List<?>) array) {
+				list.add(((Long) o).intValue());
+			}
+		}
+		return list;
+	}
+	
 }
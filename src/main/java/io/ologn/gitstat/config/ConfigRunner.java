@@ -8,11 +8,18 @@ import java.nio.file.Paths;
 import java.util.Scanner;
 
 import org.apache.commons.lang3.SystemUtils;
+import org.eclipse.jgit.storage.file.WindowCacheConfig;
 import org.json.simple.JSONObject;
 import org.json.simple.parser.ParseException;
 
-import io.ologn.gitstat.tokenizer.BetterParserC;
+import io.ologn.gitstat.jgit.BlameCache;
+import io.ologn.gitstat.jgit.CommitRange;
+import io.ologn.gitstat.jgit.CommitSampler;
+import io.ologn.gitstat.jgit.RepoContext;
+import io.ologn.gitstat.metrics.Metrics;
+import io.ologn.gitstat.metrics.ProgressReporter;
 import io.ologn.gitstat.tokenizer.TokenParser;
+import io.ologn.gitstat.tokenizer.TokenParserRegistry;
 import io.ologn.gitstat.vis.VisRunner;
 
 public class ConfigRunner {
@@ -22,12 +29,13 @@ public class ConfigRunner {
 	protected static final String DEFAULT_CONFIG_PATH = DEFAULT_CONFIG_NAME;
 	
 	/**
-	 * Print out an error message and exit
+	 * Stop with an error message. When running from the command line 
+	 * (see run()), the message is printed out and the program exits.
 	 * @param errMsg
+	 * @throws ConfigException always
 	 */
 	static void err(String errMsg) {
-		System.err.println("[error] " + errMsg);
-		System.exit(-1);
+		throw new ConfigException(errMsg);
 	}
 	
 	/**
@@ -76,20 +84,136 @@ public class ConfigRunner {
 	
 	static TokenParser getTokenParser(JSONObject config) {
 		String tokenizerName = ConfigReader.getString(config, "tokenizer");
-		if (tokenizerName.equalsIgnoreCase("BetterParserC")) {
-			return new BetterParserC();
-		} else {
-			err("Tokenizer " + tokenizerName + " not supported");
+		TokenParser parser = TokenParserRegistry.get(tokenizerName);
+		if (parser == null) {
+			err("Tokenizer " + tokenizerName + " not supported. Supported "
+					+ "tokenizers: " + TokenParserRegistry.getNames());
+		}
+		return parser;
+	}
+	
+	static CommitRange getCommitRange(JSONObject config) {
+		return CommitRange.init()
+				.setRange(ConfigReader.getString(config, "range", ""))
+				.setSince(ConfigReader.getDate(config, "since"))
+				.setUntil(ConfigReader.getDate(config, "until"));
+	}
+	
+	static CommitSampler getCommitSampler(JSONObject config) {
+		String bucket = ConfigReader.getString(config, "sampleBucket", "");
+		CommitSampler sampler = CommitSampler.init();
+		try {
+			sampler.setBucket(bucket);
+		} catch (IllegalArgumentException e) {
+			err("Invalid property: sampleBucket.");
+		}
+		return sampler
+				.setStride(ConfigReader.getInt(config, "sampleStride", 1))
+				.setMaxCommits(ConfigReader.getInt(config, "maxCommits", 0));
+	}
+	
+	/**
+	 * Get the configuration of the pack file cache of JGit. The 
+	 * properties that are not found keep the defaults of JGit.
+	 * @param config
+	 * @return the configuration, or null if none of the properties 
+	 * are found
+	 */
+	static WindowCacheConfig getWindowCacheConfig(JSONObject config) {
+		if (!config.containsKey("packedGitLimit")
+				&& !config.containsKey("deltaBaseCacheLimit")
+				&& !config.containsKey("packedGitMMAP")) {
 			return null;
 		}
+		WindowCacheConfig cacheConfig = new WindowCacheConfig();
+		cacheConfig.setPackedGitLimit((long) ConfigReader.getInt(config,
+				"packedGitLimit", (int) (cacheConfig.getPackedGitLimit()
+						/ WindowCacheConfig.MB)) * WindowCacheConfig.MB);
+		cacheConfig.setDeltaBaseCacheLimit(ConfigReader.getInt(config,
+				"deltaBaseCacheLimit", cacheConfig.getDeltaBaseCacheLimit()
+						/ WindowCacheConfig.MB) * WindowCacheConfig.MB);
+		cacheConfig.setPackedGitMMAP(ConfigReader.getBoolean(config,
+				"packedGitMMAP", cacheConfig.isPackedGitMMAP()));
+		return cacheConfig;
 	}
 	
 	public static void run(String[] args) {
-		JSONObject config = getConfig();
+		try {
+			run(getConfig());
+		} catch (ConfigException e) {
+			System.err.println("[error] " + e.getMessage());
+			System.exit(-1);
+		}
+	}
+	
+	static void run(JSONObject config) {
 		String dotGitPath = getDotGitPath(config);
 		
-		VisRunner visRunner = VisRunner.init(dotGitPath);
+		BlameCache.setEnabled(ConfigReader.getBoolean(config, "blameCache",
+				true));
+		WindowCacheConfig cacheConfig = getWindowCacheConfig(config);
+		if (cacheConfig != null) {
+			RepoContext.configureWindowCache(cacheConfig);
+		}
 		
+		ProgressReporter.setInterval(ConfigReader.getInt(config,
+				"progressInterval",
+				(int) ProgressReporter.DEFAULT_INTERVAL_MILLIS));
+		if (ConfigReader.getBoolean(config, "metricsJmx", true)) {
+			Metrics.registerMBean();
+		}
+		
+		if (ReportServer.isServer(config)) {
+			ReportServer.run(config, dotGitPath);
+		} else if (BatchRunner.isBatch(config)) {
+			BatchRunner.run(config, dotGitPath);
+		} else {
+			VisRunner visRunner = configure(VisRunner.init(dotGitPath),
+					config);
+			runVisType(config, visRunner);
+		}
+		writeMetrics(config);
+	}
+	
+	/**
+	 * Write the global Metrics as JSON to the file given by metricsFile, 
+	 * if there is one
+	 * @param config
+	 */
+	static void writeMetrics(JSONObject config) {
+		String metricsFile = ConfigReader.getString(config, "metricsFile",
+				"");
+		if (metricsFile.isEmpty()) {
+			return;
+		}
+		try {
+			Metrics.getGlobal().writeJson(Paths.get(metricsFile));
+			System.out.println("Metrics written: " + metricsFile);
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+	
+	/**
+	 * Set the options shared by all the types of visualizations
+	 * @param visRunner
+	 * @param config
+	 * @return
+	 */
+	static VisRunner configure(VisRunner visRunner, JSONObject config) {
+		return visRunner
+				.setRasterOutput(ConfigReader.getBoolean(config,
+						"rasterOutput", false))
+				.setCommitRange(getCommitRange(config))
+				.setCommitSampler(getCommitSampler(config));
+	}
+	
+	/**
+	 * Run the visualization of the type given by visType
+	 * @param config
+	 * @param visRunner
+	 */
+	static void runVisType(JSONObject config, VisRunner visRunner) {
 		int visType = ConfigReader.getInt(config, "visType");
 		
 		String filePath;
@@ -120,7 +244,6 @@ public class ConfigRunner {
 					combineSmallValues, percentageForOther);
 			break;
 		case 2:
-			filePath = ConfigReader.getString(config, "filePath");
 			sortByAge = ConfigReader.getBoolean(config, "sortByAge");
 			sortByAgeAscending = ConfigReader.getBoolean(config,
 					"sortByAgeAscending");
@@ -130,12 +253,22 @@ public class ConfigRunner {
 			displayLegend = ConfigReader.getBoolean(config, "displayLegend");
 			displayVertical = ConfigReader.getBoolean(config,
 					"displayVertical");
+			if (config.containsKey("directoryPath")) {
+				visRunner.type2Directory(
+						ConfigReader.getString(config, "directoryPath"),
+						ConfigReader.getStringList(config, "includePaths"),
+						ConfigReader.getStringList(config, "excludePaths"),
+						sortByAge, sortByAgeAscending, pixelHeight,
+						pixelWidth, bookmarkType, displayLegend,
+						displayVertical);
+				break;
+			}
+			filePath = ConfigReader.getString(config, "filePath");
 			visRunner.type2(filePath, sortByAge, sortByAgeAscending,
 					pixelHeight, pixelWidth, bookmarkType,
 					displayLegend, displayVertical);
 			break;
 		case 3:
-			filePath = ConfigReader.getString(config, "filePath");
 			sortByAuthor = ConfigReader.getBoolean(config, "sortByAuthor");
 			sortByAuthorContribution = ConfigReader.getBoolean(
 					config, "sortByAuthorContribution");
@@ -145,10 +278,38 @@ public class ConfigRunner {
 			bookmarkType = ConfigReader.getString(config, "bookmarkType");
 			displayVertical = ConfigReader.getBoolean(config,
 					"displayVertical");
+			if (config.containsKey("directoryPath")) {
+				visRunner.type3Directory(
+						ConfigReader.getString(config, "directoryPath"),
+						ConfigReader.getStringList(config, "includePaths"),
+						ConfigReader.getStringList(config, "excludePaths"),
+						sortByAuthor, sortByAuthorContribution,
+						pixelHeight, pixelWidth, bookmarkType,
+						displayLegend, displayVertical);
+				break;
+			}
+			filePath = ConfigReader.getString(config, "filePath");
 			visRunner.type3(filePath, sortByAuthor, sortByAuthorContribution,
 					pixelHeight, pixelWidth, bookmarkType,
 					displayLegend, displayVertical);
 			break;
+		case 4:
+			revstr = ConfigReader.getString(config, "revisionString");
+			parser = getTokenParser(config);
+			combineSmallValues = ConfigReader.getBoolean(config,
+					"combineSmallValues");
+			percentageForOther = ConfigReader.getDouble(config,
+					"percentageForOther");
+			visRunner.type4(revstr,
+					ConfigReader.getStringList(config, "includePaths"),
+					ConfigReader.getStringList(config, "excludePaths"),
+					parser, combineSmallValues, percentageForOther);
+			break;
+		case 5:
+			filePath = ConfigReader.getString(config, "filePath");
+			parser = getTokenParser(config);
+			visRunner.type5(filePath, parser);
+			break;
 		default:
 			err("Invalid property: visType.");
 			break;
@@ -0,0 +1,158 @@
+package io.ologn.gitstat.config;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * A cache of reports (or anything else held as bytes), with the least 
+ * recently used ones evicted when the total size goes over a limit.<br>
+ * Identical requests made at the same time are coalesced: the first one 
+ * calculates the report, and the others wait for it instead of 
+ * calculating it again.<br>
+ * Objects of this class are thread safe.
+ * @author lisq199
+ */
+public class ReportCache {
+	
+	protected final long maxBytes;
+	/**
+	 * The reports in access order, so the first one is the least 
+	 * recently used
+	 */
+	protected final LinkedHashMap<String, byte[]> reports;
+	protected long bytes;
+	/**
+	 * Incremented by invalidate(), so reports calculated before it are 
+	 * not added to the cache
+	 */
+	protected long generation;
+	protected final Map<String, CompletableFuture<byte[]>> pending;
+	
+	protected ReportCache(long maxBytes) {
+		this.maxBytes = maxBytes;
+		this.reports = new LinkedHashMap<String, byte[]>(16, 0.75f, true);
+		this.pending =
+				new ConcurrentHashMap<String, CompletableFuture<byte[]>>();
+	}
+	
+	/**
+	 * Get a report from the cache, or calculate it if it's not there. If 
+	 * the same report is already being calculated, wait for it.
+	 * @param key
+	 * @param calculate
+	 * @return
+	 * @throws Exception the exception thrown by calculate, also thrown 
+	 * to all the requests waiting for it
+	 */
+	public byte[] get(String key, Callable<byte[]> calculate)
+			throws Exception {
+		byte[] report = getCached(key);
+		if (report != null) {
+			return report;
+		}
+		CompletableFuture<byte[]> future = new CompletableFuture<byte[]>();
+		CompletableFuture<byte[]> existing = pending.putIfAbsent(key,
+				future);
+		if (existing != null) {
+			try {
+				return existing.get();
+			} catch (ExecutionException e) {
+				if (e.getCause() instanceof Exception) {
+					throw (Exception) e.getCause();
+				}
+				throw e;
+			}
+		}
+		try {
+			// It may have been added since the first look
+			report = getCached(key);
+			if (report == null) {
+				long startGeneration = getGeneration();
+				report = calculate.call();
+				put(key, report, startGeneration);
+			}
+			future.complete(report);
+			return report;
+		} catch (Exception e) {
+			future.completeExceptionally(e);
+			throw e;
+		} finally {
+			pending.remove(key, future);
+		}
+	}
+	
+	protected synchronized byte[] getCached(String key) {
+		return reports.get(key);
+	}
+	
+	protected synchronized long getGeneration() {
+		return generation;
+	}
+	
+	/**
+	 * Add a report, unless the cache has been invalidated since it 
+	 * started being calculated or it's bigger than the whole cache
+	 * @param key
+	 * @param report
+	 * @param startGeneration
+	 */
+	protected synchronized void put(String key, byte[] report,
+			long startGeneration) {
+		if (startGeneration != generation || report.length > maxBytes) {
+			return;
+		}
+		byte[] old = reports.put(key, report);
+		if (old != null) {
+			bytes -= old.length;
+		}
+		bytes += report.length;
+		Iterator<byte[]> iterator = reports.values().iterator();
+		while (bytes > maxBytes && iterator.hasNext()) {
+			bytes -= iterator.next().length;
+			iterator.remove();
+		}
+	}
+	
+	/**
+	 * Remove all the reports. Reports being calculated are still given 
+	 * to the requests waiting for them, but they are not cached, and new 
+	 * requests calculate them again.
+	 */
+	public synchronized void invalidate() {
+		reports.clear();
+		bytes = 0;
+		generation++;
+		pending.clear();
+	}
+	
+	/**
+	 * Get the number of reports in the cache
+	 * @return
+	 */
+	public synchronized int size() {
+		return reports.size();
+	}
+	
+	/**
+	 * Get the total size of the reports in the cache in bytes
+	 * @return
+	 */
+	public synchronized long getBytes() {
+		return bytes;
+	}
+	
+	/**
+	 * Initialize
+	 * @param maxBytes the maximum total size of the reports
+	 * @return
+	 */
+	public static ReportCache init(long maxBytes) {
+		return new ReportCache(maxBytes);
+	}
+	
+}
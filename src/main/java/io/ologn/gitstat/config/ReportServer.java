@@ -0,0 +1,330 @@
+package io.ologn.gitstat.config;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.RefDatabase;
+import org.eclipse.jgit.lib.Repository;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import io.ologn.gitstat.jgit.CommitIndex;
+import io.ologn.gitstat.jgit.CommitRange;
+import io.ologn.gitstat.jgit.RepoContext;
+import io.ologn.gitstat.jgit.RevCommitUtils;
+import io.ologn.gitstat.vis.MemoryReportWriter;
+import io.ologn.gitstat.vis.VisRunner;
+
+/**
+ * A local HTTP server (on the loopback address only) that creates the 
+ * reports on request, so the repository stays open and the reports 
+ * already created are served from a ReportCache.<br>
+ * Each type of visualization has its own endpoint, e.g. 
+ * {@code /type1?filePath=abspath.c&revisionString=HEAD}. The query 
+ * parameters have the same names as the properties of the config and 
+ * override them. A value is read as JSON if it can be (e.g. true, 3, 
+ * 3.0 or ["**.c"]), and as a String otherwise.<br>
+ * The cache is invalidated whenever a ref of the repository moves, so 
+ * revisions like HEAD always mean the current one.
+ * @author lisq199
+ */
+public class ReportServer {
+	
+	public static final String CONTENT_TYPE = "text/html; charset="
+			+ MemoryReportWriter.CHARSET.name();
+	
+	/**
+	 * The default maximum total size of the cached reports in MB
+	 */
+	public static final int DEFAULT_CACHE_SIZE = 64;
+	
+	protected final JSONObject config;
+	protected final Repository repo;
+	protected final ReportCache cache;
+	/**
+	 * The SHA-1 of all the refs when the cache was last checked
+	 */
+	protected byte[] refsDigest;
+	/**
+	 * An index of all the commits reachable from the refs, rebuilt when 
+	 * the refs move
+	 */
+	protected volatile CommitIndex commitIndex;
+	protected HttpServer server;
+	protected final CountDownLatch stopped;
+	
+	protected ReportServer(JSONObject config, Repository repo,
+			long cacheBytes) {
+		this.config = config;
+		this.repo = repo;
+		this.cache = ReportCache.init(cacheBytes);
+		this.stopped = new CountDownLatch(1);
+	}
+	
+	/**
+	 * Whether the config asks for the server
+	 * @param config
+	 * @return
+	 */
+	static boolean isServer(JSONObject config) {
+		return config.containsKey("serverPort");
+	}
+	
+	/**
+	 * Start serving
+	 * @param port
+	 * @param threads the number of requests handled at the same time
+	 * @throws IOException
+	 */
+	public void start(int port, int threads) throws IOException {
+		server = HttpServer.create(new InetSocketAddress(
+				InetAddress.getLoopbackAddress(), port), 0);
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		server.setExecutor(executor);
+		server.createContext("/", this::handle);
+		server.start();
+		System.out.println("Serving reports on http://localhost:"
+				+ server.getAddress().getPort() + "/type1 to /type5");
+	}
+	
+	/**
+	 * Stop serving, and let awaitStop() return. Calling it again does 
+	 * nothing.
+	 */
+	public synchronized void stop() {
+		if (stopped.getCount() == 0) {
+			return;
+		}
+		server.stop(0);
+		((ExecutorService) server.getExecutor()).shutdown();
+		RepoContext.closeAll(repo);
+		stopped.countDown();
+	}
+	
+	/**
+	 * Wait until stop() is called
+	 * @throws InterruptedException
+	 */
+	public void awaitStop() throws InterruptedException {
+		stopped.await();
+	}
+	
+	public ReportCache getCache() {
+		return cache;
+	}
+	
+	protected void handle(HttpExchange exchange) throws IOException {
+		try {
+			String path = exchange.getRequestURI().getPath();
+			if (!path.matches("/type[1-5]")) {
+				respond(exchange, 404, "Not found: " + path);
+				return;
+			}
+			if (!exchange.getRequestMethod().equals("GET")) {
+				respond(exchange, 405, "Only GET is supported");
+				return;
+			}
+			Map<String, String> params = parseQuery(
+					exchange.getRequestURI().getRawQuery());
+			params.put("visType", path.substring("/type".length()));
+			checkRefs();
+			byte[] report = cache.get(params.toString(),
+					() -> createReport(params));
+			exchange.getResponseHeaders().set("Content-Type",
+					CONTENT_TYPE);
+			exchange.sendResponseHeaders(200, report.length);
+			try (
+				OutputStream out = exchange.getResponseBody();
+			) {
+				out.write(report);
+			}
+		} catch (ConfigException e) {
+			respond(exchange, 400, e.getMessage());
+		} catch (Exception e) {
+			e.printStackTrace();
+			respond(exchange, 500, e.toString());
+		} finally {
+			exchange.close();
+		}
+	}
+	
+	protected static void respond(HttpExchange exchange, int status,
+			String message) throws IOException {
+		byte[] bytes = message.getBytes(MemoryReportWriter.CHARSET);
+		exchange.getResponseHeaders().set("Content-Type",
+				"text/plain; charset=" + MemoryReportWriter.CHARSET.name());
+		exchange.sendResponseHeaders(status, bytes.length);
+		try (
+			OutputStream out = exchange.getResponseBody();
+		) {
+			out.write(bytes);
+		}
+	}
+	
+	/**
+	 * Parse the query of a request. The parameters are sorted by name, 
+	 * so the same query always gives the same cache key.
+	 * @param rawQuery
+	 * @return
+	 * @throws UnsupportedEncodingException
+	 */
+	protected static Map<String, String> parseQuery(String rawQuery)
+			throws UnsupportedEncodingException {
+		Map<String, String> params = new TreeMap<String, String>();
+		if (rawQuery == null || rawQuery.isEmpty()) {
+			return params;
+		}
+		for (String pair : rawQuery.split("&")) {
+			int index = pair.indexOf('=');
+			String name = index < 0 ? pair : pair.substring(0, index);
+			String value = index < 0 ? "" : pair.substring(index + 1);
+			params.put(URLDecoder.decode(name, "UTF-8"),
+					URLDecoder.decode(value, "UTF-8"));
+		}
+		return params;
+	}
+	
+	/**
+	 * Invalidate the cache if any ref has moved since the last check
+	 * @throws IOException
+	 */
+	protected synchronized void checkRefs() throws IOException {
+		MessageDigest digest = Constants.newMessageDigest();
+		for (Ref ref : repo.getRefDatabase().getRefs(RefDatabase.ALL)
+				.values()) {
+			digest.update(Constants.encode(ref.getName()));
+			if (ref.getObjectId() != null) {
+				digest.update(Constants.encode(ref.getObjectId().name()));
+			}
+		}
+		byte[] newDigest = digest.digest();
+		if (!Arrays.equals(newDigest, refsDigest)) {
+			if (refsDigest != null) {
+				System.out.println("Refs moved, clearing the cache");
+			}
+			cache.invalidate();
+			commitIndex = null;
+			refsDigest = newDigest;
+		}
+	}
+	
+	/**
+	 * Get the index of all the commits, building it if the refs have 
+	 * moved
+	 * @return
+	 * @throws IOException
+	 * @throws GitAPIException
+	 */
+	protected synchronized CommitIndex getCommitIndex()
+			throws IOException, GitAPIException {
+		if (commitIndex == null) {
+			commitIndex = CommitIndex.build(RevCommitUtils.getAllCommits(
+					Git.wrap(repo), CommitRange.init()));
+		}
+		return commitIndex;
+	}
+	
+	/**
+	 * Create a report with the config overridden by the parameters
+	 * @param params
+	 * @return
+	 * @throws IOException
+	 * @throws GitAPIException
+	 */
+	protected byte[] createReport(Map<String, String> params)
+			throws IOException, GitAPIException {
+		JSONObject reportConfig = new JSONObject();
+		BatchRunner.putAll(reportConfig, config);
+		params.forEach((k, v) -> BatchRunner.put(reportConfig, k,
+				parseValue(v)));
+		MemoryReportWriter writer = MemoryReportWriter.init();
+		VisRunner visRunner = ConfigRunner.configure(
+				VisRunner.init(repo), reportConfig)
+				.setCommitIndex(getCommitIndex())
+				.setReportWriter(writer);
+		ConfigRunner.runVisType(reportConfig, visRunner);
+		if (!writer.isWritten()) {
+			throw new IOException("The report could not be created. See "
+					+ "the log of the server for details.");
+		}
+		return writer.getBytes();
+	}
+	
+	/**
+	 * Read a parameter as JSON, or as a String if it's not JSON
+	 * @param value
+	 * @return
+	 */
+	protected static Object parseValue(String value) {
+		try {
+			return new JSONParser().parse(value);
+		} catch (ParseException e) {
+			return value;
+		}
+	}
+	
+	/**
+	 * Run the server until the program is stopped
+	 * @param config
+	 * @param dotGitPath
+	 */
+	public static void run(JSONObject config, String dotGitPath) {
+		int port = ConfigReader.getInt(config, "serverPort");
+		int threads = Math.max(ConfigReader.getInt(config, "serverThreads",
+				Runtime.getRuntime().availableProcessors()), 1);
+		long cacheBytes = ConfigReader.getInt(config, "serverCacheSize",
+				DEFAULT_CACHE_SIZE) * 1024L * 1024L;
+		try (
+			Git git = Git.open(new File(dotGitPath));
+		) {
+			ReportServer reportServer = new ReportServer(config,
+					git.getRepository(), cacheBytes);
+			reportServer.start(port, threads);
+			// The program is usually stopped with Ctrl+C
+			Runtime.getRuntime().addShutdownHook(
+					new Thread(reportServer::stop));
+			try {
+				reportServer.awaitStop();
+			} finally {
+				reportServer.stop();
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+		} catch (InterruptedException e) {
+			e.printStackTrace();
+		}
+	}
+	
+	/**
+	 * Initialize without starting
+	 * @param config the defaults of the parameters of the requests
+	 * @param repo
+	 * @param cacheBytes the maximum total size of the cached reports
+	 * @return
+	 */
+	public static ReportServer init(JSONObject config, Repository repo,
+			long cacheBytes) {
+		return new ReportServer(config, repo, cacheBytes);
+	}
+	
+}
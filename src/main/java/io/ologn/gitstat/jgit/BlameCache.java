@@ -0,0 +1,272 @@
+package io.ologn.gitstat.jgit;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+
+import io.ologn.gitstat.metrics.Metrics;
+import io.ologn.gitstat.stat.CompactBlame;
+
+/**
+ * Persistent on-disk cache of blame results, keyed by the SHA-1 of the 
+ * commit and the path of the file. Each entry is a CompactBlame stored 
+ * in its own file under the .git directory of the repository, so the 
+ * cache survives between runs. Each Algorithm has its own directory, 
+ * since their results can differ.<br>
+ * Entries are written to a temporary file first and then moved into 
+ * place atomically, so the cache can be shared between concurrent runs: 
+ * readers either see a complete entry or no entry at all. Entries that 
+ * can't be read (e.g. written by an incompatible version) are treated 
+ * as missing. Errors are counted in the global Metrics.<br>
+ * Typical usage: {@code BlameCache.forRepository(repo).get(commitId, 
+ * filePath)}
+ * @author lisq199
+ */
+public class BlameCache {
+	
+	/**
+	 * The directory of the cache relative to the .git directory
+	 */
+	public static final String CACHE_DIR = "gitstat" + File.separator
+			+ "blame-cache";
+	
+	/**
+	 * "GSBC"
+	 */
+	public static final int MAGIC = 0x47534243;
+	
+	/**
+	 * The version of the binary format. Increase it whenever the format 
+	 * of CompactBlame changes.
+	 */
+	public static final int VERSION = 2;
+	
+	/**
+	 * The algorithm the blame results of a cache are calculated with
+	 */
+	public static enum Algorithm {
+		/**
+		 * BlameGenerator, which is the same as git blame
+		 */
+		FULL,
+		/**
+		 * IncrementalBlame, where the first parent wins at a merge
+		 */
+		INCREMENTAL;
+	}
+	
+	private static final Map<File, BlameCache> CACHES =
+			new ConcurrentHashMap<File, BlameCache>();
+	
+	private static volatile boolean enabled = true;
+	
+	protected File dir;
+	protected Algorithm algorithm;
+	/**
+	 * Whether an error has been printed already, so a full disk doesn't 
+	 * print one error per entry
+	 */
+	protected final AtomicBoolean errorPrinted;
+	
+	/**
+	 * Disable default constructor
+	 */
+	protected BlameCache() {
+		errorPrinted = new AtomicBoolean();
+	}
+	
+	protected BlameCache(File dir, Algorithm algorithm) {
+		this();
+		this.dir = dir;
+		this.algorithm = algorithm;
+	}
+	
+	/**
+	 * Get the directory of the cache
+	 * @return
+	 */
+	public File getDir() {
+		return dir;
+	}
+	
+	public Algorithm getAlgorithm() {
+		return algorithm;
+	}
+	
+	/**
+	 * Get the file storing the entry for a file at a commit
+	 * @param commitId
+	 * @param filePath
+	 * @return
+	 */
+	protected File getEntryFile(AnyObjectId commitId, String filePath) {
+		String sha1 = commitId.getName();
+		MessageDigest md = Constants.newMessageDigest();
+		String pathHash = ObjectId.fromRaw(md.digest(
+				filePath.getBytes(StandardCharsets.UTF_8))).getName();
+		return new File(new File(dir, sha1.substring(0, 2)),
+				sha1.substring(2) + "-" + pathHash.substring(0, 16));
+	}
+	
+	/**
+	 * Get an entry
+	 * @param commitId
+	 * @param filePath
+	 * @return the entry, or null if it's not cached or can't be read
+	 */
+	public CompactBlame get(AnyObjectId commitId, String filePath) {
+		if (!enabled) {
+			return null;
+		}
+		File file = getEntryFile(commitId, filePath);
+		if (!file.isFile()) {
+			return null;
+		}
+		try (
+			InputStream is = Files.newInputStream(file.toPath());
+			DataInputStream in = new DataInputStream(
+					new BufferedInputStream(is));
+		) {
+			if (in.readInt() != MAGIC || in.readInt() != VERSION
+					|| in.readInt() != algorithm.ordinal()) {
+				// Written by another version, so it's simply replaced
+				return null;
+			}
+			CompactBlame blame = CompactBlame.read(in);
+			if (!blame.getSha1().equals(commitId.getName())
+					|| !blame.getFilePath().equals(filePath)) {
+				return null;
+			}
+			return blame;
+		} catch (IOException e) {
+			// A broken entry is the same as a missing one
+			reportError(Metrics.CACHE_READ_ERRORS, "read", file, e);
+			return null;
+		}
+	}
+	
+	/**
+	 * Store an entry. Existing entries will be replaced. Errors are 
+	 * reported but otherwise ignored, since the cache is only an 
+	 * optimization.
+	 * @param blame
+	 */
+	public void put(CompactBlame blame) {
+		if (!enabled) {
+			return;
+		}
+		File file = getEntryFile(ObjectId.fromString(blame.getSha1()),
+				blame.getFilePath());
+		Path tmp = null;
+		try {
+			Files.createDirectories(file.getParentFile().toPath());
+			tmp = Files.createTempFile(file.getParentFile().toPath(),
+					file.getName(), ".tmp");
+			try (
+				OutputStream os = Files.newOutputStream(tmp);
+				DataOutputStream out = new DataOutputStream(
+						new BufferedOutputStream(os));
+			) {
+				out.writeInt(MAGIC);
+				out.writeInt(VERSION);
+				out.writeInt(algorithm.ordinal());
+				blame.write(out);
+			}
+			try {
+				Files.move(tmp, file.toPath(),
+						StandardCopyOption.ATOMIC_MOVE,
+						StandardCopyOption.REPLACE_EXISTING);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(tmp, file.toPath(),
+						StandardCopyOption.REPLACE_EXISTING);
+			}
+			tmp = null;
+		} catch (IOException e) {
+			reportError(Metrics.CACHE_WRITE_ERRORS, "write", file, e);
+		} finally {
+			if (tmp != null) {
+				tmp.toFile().delete();
+			}
+		}
+	}
+	
+	/**
+	 * Count an error in the global Metrics, and print it if it's the 
+	 * first error of the cache
+	 * @param metric
+	 * @param action
+	 * @param file
+	 * @param e
+	 */
+	protected void reportError(String metric, String action, File file,
+			IOException e) {
+		Metrics.getGlobal().increment(metric);
+		if (errorPrinted.compareAndSet(false, true)) {
+			System.err.println("Could not " + action + " the blame cache "
+					+ "entry " + file + ": " + e + " (further errors are "
+					+ "only counted in " + metric + ")");
+		}
+	}
+	
+	/**
+	 * Whether the caches are enabled
+	 * @return
+	 */
+	public static boolean isEnabled() {
+		return enabled;
+	}
+	
+	/**
+	 * Enable or disable all the caches. When disabled, get() always 
+	 * returns null and put() does nothing.
+	 * @param enabled
+	 */
+	public static void setEnabled(boolean enabled) {
+		BlameCache.enabled = enabled;
+	}
+	
+	/**
+	 * Get the cache of a repository for the results of BlameGenerator. 
+	 * The same object is returned for the same repository.
+	 * @param repo
+	 * @return
+	 */
+	public static BlameCache forRepository(Repository repo) {
+		return forRepository(repo, Algorithm.FULL);
+	}
+	
+	/**
+	 * Get the cache of a repository for the results of an algorithm. The 
+	 * same object is returned for the same repository and algorithm.
+	 * @param repo
+	 * @param algorithm
+	 * @return
+	 */
+	public static BlameCache forRepository(Repository repo,
+			Algorithm algorithm) {
+		File dir = new File(new File(repo.getDirectory(), CACHE_DIR),
+				algorithm.name().toLowerCase()).getAbsoluteFile();
+		return CACHES.computeIfAbsent(dir,
+				d -> new BlameCache(d, algorithm));
+	}
+	
+}
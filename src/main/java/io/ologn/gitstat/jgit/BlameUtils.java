@@ -2,9 +2,9 @@ package io.ologn.gitstat.jgit;
 
 import java.io.IOException;
 
-import org.eclipse.jgit.api.BlameCommand;
 import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.api.errors.JGitInternalException;
 import org.eclipse.jgit.blame.BlameResult;
 import org.eclipse.jgit.errors.AmbiguousObjectException;
 import org.eclipse.jgit.errors.IncorrectObjectTypeException;
@@ -13,6 +13,8 @@ import org.eclipse.jgit.lib.AnyObjectId;
 import org.eclipse.jgit.lib.Repository;
 import org.eclipse.jgit.revwalk.RevCommit;
 
+import io.ologn.gitstat.stat.CompactBlame;
+
 /**
  * Utilities for Git blame
  * @author lisq199
@@ -20,7 +22,8 @@ import org.eclipse.jgit.revwalk.RevCommit;
 public class BlameUtils {
 	
 	/**
-	 * Get a BlameResult for a file at a specified commit
+	 * Get a BlameResult for a file at a specified commit, with the 
+	 * RepoContext of the current thread
 	 * @param git
 	 * @param filePath
 	 * @param commitId
@@ -29,9 +32,13 @@ public class BlameUtils {
 	 */
 	public static BlameResult getBlameResult(Git git, AnyObjectId commitId,
 			String filePath) throws GitAPIException {
-		BlameCommand blameCommand = git.blame().setFilePath(filePath)
-				.setStartCommit(commitId);
-		return blameCommand.call();
+		try {
+			return RepoContext.get(git.getRepository()).blame(commitId,
+					filePath);
+		} catch (IOException e) {
+			// The same as BlameCommand
+			throw new JGitInternalException(e.getMessage(), e);
+		}
 	}
 	
 	/**
@@ -75,5 +82,32 @@ public class BlameUtils {
 					IOException {
 		return getBlameResult(git, repo, commit.getName(), filePath);
 	}
+	
+	/**
+	 * Get the blame of a file at a specified commit as a CompactBlame. 
+	 * The BlameCache of the repository is consulted first, and the blame 
+	 * is only calculated (and then cached) if it's not there.
+	 * @param git
+	 * @param commitId
+	 * @param filePath
+	 * @return the CompactBlame, or null if the file doesn't exist at 
+	 * the commit
+	 * @throws GitAPIException
+	 */
+	public static CompactBlame getCompactBlame(Git git, AnyObjectId commitId,
+			String filePath) throws GitAPIException {
+		BlameCache cache = BlameCache.forRepository(git.getRepository());
+		CompactBlame blame = cache.get(commitId, filePath);
+		if (blame != null) {
+			return blame.setRepository(git.getRepository());
+		}
+		BlameResult blameResult = getBlameResult(git, commitId, filePath);
+		if (blameResult == null) {
+			return null;
+		}
+		blame = CompactBlame.calculate(commitId.getName(), blameResult);
+		cache.put(blame);
+		return blame.setRepository(git.getRepository());
+	}
 
 }
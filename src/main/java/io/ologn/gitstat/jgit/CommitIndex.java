@@ -0,0 +1,243 @@
+package io.ologn.gitstat.jgit;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+
+/**
+ * A read-only index of the metadata of a set of commits, built once from 
+ * the commits of the initial log walk. Each commit gets a dense int id 
+ * (its position in the index), and the author time, commit time and 
+ * parents of each commit are stored in arrays, so looking them up 
+ * doesn't touch the object database again.<br>
+ * Objects of this class are immutable after they are built, so they can 
+ * be shared between threads.
+ * @author lisq199
+ */
+public class CommitIndex {
+	
+	protected Map<AnyObjectId, Integer> idMap;
+	protected ObjectId[] commitIds;
+	/**
+	 * Author times in milliseconds
+	 */
+	protected long[] authorTimes;
+	/**
+	 * Commit times in seconds, the same as RevCommit.getCommitTime()
+	 */
+	protected int[] commitTimes;
+	/**
+	 * The ids of the parents of each commit. Parents that are not in the 
+	 * index are left out.
+	 */
+	protected int[][] parents;
+	
+	/**
+	 * Disable default constructor
+	 */
+	protected CommitIndex() {}
+	
+	/**
+	 * Get the number of commits
+	 * @return
+	 */
+	public int size() {
+		return commitIds.length;
+	}
+	
+	/**
+	 * Get the id of a commit
+	 * @param commitId
+	 * @return the id, or -1 if the commit is not in the index
+	 */
+	public int getId(AnyObjectId commitId) {
+		Integer id = idMap.get(commitId);
+		return id == null ? -1 : id;
+	}
+	
+	/**
+	 * Get the id of a commit
+	 * @param sha1
+	 * @return the id, or -1 if the commit is not in the index
+	 */
+	public int getId(String sha1) {
+		return getId(ObjectId.fromString(sha1));
+	}
+	
+	/**
+	 * Check if a commit is in the index
+	 * @param sha1
+	 * @return
+	 */
+	public boolean contains(String sha1) {
+		return getId(sha1) >= 0;
+	}
+	
+	public ObjectId getObjectId(int id) {
+		return commitIds[id];
+	}
+	
+	public String getSha1(int id) {
+		return commitIds[id].getName();
+	}
+	
+	/**
+	 * Get the author time of a commit
+	 * @param id
+	 * @return the author time in milliseconds
+	 */
+	public long getAuthorTime(int id) {
+		return authorTimes[id];
+	}
+	
+	/**
+	 * Get the author time of a commit as a Date
+	 * @param id
+	 * @return
+	 */
+	public Date getAuthorDate(int id) {
+		return new Date(authorTimes[id]);
+	}
+	
+	/**
+	 * Get the commit time of a commit
+	 * @param id
+	 * @return the commit time as a Unix time stamp
+	 */
+	public int getCommitTime(int id) {
+		return commitTimes[id];
+	}
+	
+	/**
+	 * Get the commit time of a commit as a Date
+	 * @param id
+	 * @return
+	 */
+	public Date getCommitDate(int id) {
+		return new Date(commitTimes[id] * 1000l);
+	}
+	
+	/**
+	 * Get the ids of the parents of a commit that are in the index
+	 * @param id
+	 * @return
+	 */
+	public int[] getParents(int id) {
+		return parents[id].clone();
+	}
+	
+	/**
+	 * Get the id of a commit that has to be in the index
+	 * @param sha1
+	 * @return
+	 * @throws IllegalArgumentException if the commit is not in the index
+	 */
+	protected int getExistingId(String sha1) {
+		int id = getId(sha1);
+		if (id < 0) {
+			throw new IllegalArgumentException(
+					"Commit not in the index: " + sha1);
+		}
+		return id;
+	}
+	
+	/**
+	 * Get the author time of a commit as a Date
+	 * @param sha1
+	 * @return
+	 * @throws IllegalArgumentException if the commit is not in the index
+	 */
+	public Date getAuthorDate(String sha1) {
+		return getAuthorDate(getExistingId(sha1));
+	}
+	
+	/**
+	 * Get the author time of a commit
+	 * @param sha1
+	 * @return the author time in milliseconds
+	 * @throws IllegalArgumentException if the commit is not in the index
+	 */
+	public long getAuthorTime(String sha1) {
+		return getAuthorTime(getExistingId(sha1));
+	}
+	
+	/**
+	 * Get the commit time of a commit as a Date
+	 * @param sha1
+	 * @return
+	 * @throws IllegalArgumentException if the commit is not in the index
+	 */
+	public Date getCommitDate(String sha1) {
+		return getCommitDate(getExistingId(sha1));
+	}
+	
+	/**
+	 * Build a CommitIndex from commits that are already parsed, e.g. the 
+	 * commits returned by a LogCommand. The ids follow the order of the 
+	 * commits. Duplicate commits are ignored.
+	 * @param commits
+	 * @return
+	 */
+	public static CommitIndex build(Iterable<RevCommit> commits) {
+		List<RevCommit> list = new ArrayList<RevCommit>();
+		Map<AnyObjectId, Integer> idMap = new HashMap<AnyObjectId, Integer>();
+		for (RevCommit commit : commits) {
+			if (!idMap.containsKey(commit)) {
+				idMap.put(commit.copy(), list.size());
+				list.add(commit);
+			}
+		}
+		
+		CommitIndex index = new CommitIndex();
+		int size = list.size();
+		index.idMap = idMap;
+		index.commitIds = new ObjectId[size];
+		index.authorTimes = new long[size];
+		index.commitTimes = new int[size];
+		index.parents = new int[size][];
+		for (int i = 0; i < size; i++) {
+			RevCommit commit = list.get(i);
+			index.commitIds[i] = commit.copy();
+			index.authorTimes[i] = commit.getAuthorIdent().getWhen()
+					.getTime();
+			index.commitTimes[i] = commit.getCommitTime();
+			index.parents[i] = Arrays.stream(commit.getParents())
+					.mapToInt(p -> index.getId(p))
+					.filter(p -> p >= 0)
+					.toArray();
+		}
+		return index;
+	}
+	
+	/**
+	 * Build a CommitIndex from SHA-1 strings. All the commits are parsed 
+	 * with one RevWalk, on the reader of the RepoContext of the current 
+	 * thread.
+	 * @param repo
+	 * @param sha1s
+	 * @return
+	 * @throws IOException
+	 */
+	public static CommitIndex build(Repository repo, Iterable<String> sha1s)
+			throws IOException {
+		List<RevCommit> commits = new ArrayList<RevCommit>();
+		try (RevWalk revWalk = new RevWalk(
+				RepoContext.get(repo).getObjectReader())) {
+			for (String sha1 : sha1s) {
+				commits.add(revWalk.parseCommit(ObjectId.fromString(sha1)));
+			}
+		}
+		return build(commits);
+	}
+	
+}
@@ -0,0 +1,145 @@
+package io.ologn.gitstat.jgit;
+
+import java.io.IOException;
+import java.util.Date;
+
+import org.eclipse.jgit.api.LogCommand;
+import org.eclipse.jgit.errors.RevisionSyntaxException;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.filter.CommitTimeRevFilter;
+import org.eclipse.jgit.revwalk.filter.RevFilter;
+
+/**
+ * The commits to be analyzed: a range of revisions ("A..B", like git log) 
+ * and a window of commit times. They are applied to the RevWalk of a 
+ * LogCommand (see apply()) instead of filtering a list of all the 
+ * commits, so the history outside the range is never parsed:<br>
+ * - The start of a range is marked uninteresting, so the walk stops at 
+ * it.<br>
+ * - The time window is a CommitTimeRevFilter, which stops the walk at 
+ * the first commit older than since. Like git log --since, a commit 
+ * with a skewed clock can end the walk early.<br>
+ * Typical usage: {@code CommitRange.init().setRange("v1.0..HEAD") 
+ * .setSince(date)}
+ * @author lisq199
+ */
+public class CommitRange {
+	
+	protected String range;
+	protected Date since;
+	protected Date until;
+	
+	protected CommitRange() {}
+	
+	/**
+	 * Set the range of revisions. "A..B" means the commits reachable from 
+	 * B but not from A, and a single revision means the commits reachable 
+	 * from it.
+	 * @param range the range, or null for the default start of the walk
+	 * @return
+	 */
+	public CommitRange setRange(String range) {
+		this.range = range;
+		return this;
+	}
+	
+	/**
+	 * Only keep the commits committed at or after a time
+	 * @param since the time, or null for no limit
+	 * @return
+	 */
+	public CommitRange setSince(Date since) {
+		this.since = since;
+		return this;
+	}
+	
+	/**
+	 * Only keep the commits committed at or before a time
+	 * @param until the time, or null for no limit
+	 * @return
+	 */
+	public CommitRange setUntil(Date until) {
+		this.until = until;
+		return this;
+	}
+	
+	public String getRange() {
+		return range;
+	}
+	
+	public Date getSince() {
+		return since;
+	}
+	
+	public Date getUntil() {
+		return until;
+	}
+	
+	/**
+	 * Get the filter for the time window
+	 * @return the filter, or RevFilter.ALL if there's no time window
+	 */
+	public RevFilter getRevFilter() {
+		if (since != null && until != null) {
+			return CommitTimeRevFilter.between(since, until);
+		} else if (since != null) {
+			return CommitTimeRevFilter.after(since);
+		} else if (until != null) {
+			return CommitTimeRevFilter.before(until);
+		} else {
+			return RevFilter.ALL;
+		}
+	}
+	
+	/**
+	 * Apply the range and the time window to a LogCommand
+	 * @param logCommand
+	 * @param repo
+	 * @return whether a range was applied, which replaces the default 
+	 * start of the walk (HEAD)
+	 * @throws RevisionSyntaxException if a revision in the range can't be 
+	 * resolved
+	 * @throws IOException
+	 */
+	public boolean apply(LogCommand logCommand, Repository repo)
+			throws RevisionSyntaxException, IOException {
+		logCommand.setRevFilter(getRevFilter());
+		if (range == null || range.isEmpty()) {
+			return false;
+		}
+		int index = range.indexOf("..");
+		if (index < 0) {
+			logCommand.add(resolve(repo, range));
+		} else {
+			logCommand.addRange(resolve(repo, range.substring(0, index)),
+					resolve(repo, range.substring(index + 2)));
+		}
+		return true;
+	}
+	
+	protected static ObjectId resolve(Repository repo, String revstr)
+			throws RevisionSyntaxException, IOException {
+		// An empty side of the range means HEAD, like git log
+		ObjectId id = repo.resolve(revstr.isEmpty() ? "HEAD" : revstr);
+		if (id == null) {
+			throw new RevisionSyntaxException("Revision not found", revstr);
+		}
+		return id;
+	}
+	
+	@Override
+	public String toString() {
+		return "CommitRange[range=" + range + ", since=" + since
+				+ ", until=" + until + "]";
+	}
+	
+	/**
+	 * Initialize with no range and no time window
+	 * @return
+	 */
+	public static CommitRange init() {
+		return new CommitRange();
+	}
+	
+}
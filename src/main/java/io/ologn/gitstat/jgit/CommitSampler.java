@@ -0,0 +1,239 @@
+package io.ologn.gitstat.jgit;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.jgit.revwalk.RevCommit;
+
+/**
+ * Picks a sample of the commits of a timeline, so that the cost of a 
+ * visualization over commits depends on the number of columns shown 
+ * rather than the length of the history. The commits are sampled in 3 
+ * steps, each of which is skipped if it's not set:<br>
+ * 1. Bucket: only the newest commit of each day, week, month or year 
+ * (by author date, the same as the bookmarks) is kept, even if the 
+ * commits of a bucket are not next to each other.<br>
+ * 2. Stride: every Nth commit is kept, starting from the newest.<br>
+ * 3. Max commits: if there are still more commits than that, they are 
+ * picked evenly, keeping the newest and the oldest.<br>
+ * The order of the commits is kept.<br>
+ * Typical usage: {@code CommitSampler.init().setBucket("week") 
+ * .setMaxCommits(500).sample(commits)}
+ * @author lisq199
+ */
+public class CommitSampler {
+	
+	public static final String BUCKET_DAY = "day";
+	public static final String BUCKET_WEEK = "week";
+	public static final String BUCKET_MONTH = "month";
+	public static final String BUCKET_YEAR = "year";
+	
+	protected String bucket;
+	protected int stride;
+	protected int maxCommits;
+	
+	protected CommitSampler() {
+		this.bucket = "";
+		this.stride = 1;
+		this.maxCommits = 0;
+	}
+	
+	/**
+	 * Set the calendar bucket
+	 * @param bucket "day", "week", "month", "year", or an empty String 
+	 * for no buckets
+	 * @return
+	 * @throws IllegalArgumentException if the bucket is not supported
+	 */
+	public CommitSampler setBucket(String bucket) {
+		if (bucket == null) {
+			bucket = "";
+		}
+		bucket = bucket.toLowerCase();
+		if (!bucket.isEmpty() && !bucket.equals(BUCKET_DAY)
+				&& !bucket.equals(BUCKET_WEEK)
+				&& !bucket.equals(BUCKET_MONTH)
+				&& !bucket.equals(BUCKET_YEAR)) {
+			throw new IllegalArgumentException("Bucket " + bucket
+					+ " not supported");
+		}
+		this.bucket = bucket;
+		return this;
+	}
+	
+	/**
+	 * Set the stride
+	 * @param stride keep every Nth commit. 1 or less keeps all of them.
+	 * @return
+	 */
+	public CommitSampler setStride(int stride) {
+		this.stride = Math.max(stride, 1);
+		return this;
+	}
+	
+	/**
+	 * Set the target number of commits (columns)
+	 * @param maxCommits the maximum number of commits, or 0 for no limit
+	 * @return
+	 */
+	public CommitSampler setMaxCommits(int maxCommits) {
+		this.maxCommits = Math.max(maxCommits, 0);
+		return this;
+	}
+	
+	public String getBucket() {
+		return bucket;
+	}
+	
+	public int getStride() {
+		return stride;
+	}
+	
+	public int getMaxCommits() {
+		return maxCommits;
+	}
+	
+	/**
+	 * Whether any sampling is set
+	 * @return
+	 */
+	public boolean isEnabled() {
+		return !bucket.isEmpty() || stride > 1 || maxCommits > 0;
+	}
+	
+	/**
+	 * Sample the commits
+	 * @param commits the commits, newest first (the order of git log)
+	 * @return the sampled commits in the same order
+	 */
+	public List<RevCommit> sample(List<RevCommit> commits) {
+		if (!isEnabled()) {
+			return commits;
+		}
+		List<RevCommit> result = sampleByBucket(commits);
+		result = sampleByStride(result);
+		return sampleByMaxCommits(result);
+	}
+	
+	protected List<RevCommit> sampleByBucket(List<RevCommit> commits) {
+		if (bucket.isEmpty()) {
+			return commits;
+		}
+		/*
+		 * The history isn't sorted by date (e.g. merged branches), so a 
+		 * bucket can come back after another one.
+		 */
+		Map<Long, RevCommit> newestByBucket =
+				new LinkedHashMap<Long, RevCommit>();
+		for (RevCommit commit : commits) {
+			Date date = commit.getAuthorIdent().getWhen();
+			Long bucketStart = getBucketStart(date);
+			RevCommit newest = newestByBucket.get(bucketStart);
+			if (newest == null || date.after(
+					newest.getAuthorIdent().getWhen())) {
+				newestByBucket.put(bucketStart, commit);
+			}
+		}
+		Set<RevCommit> kept = new HashSet<RevCommit>(
+				newestByBucket.values());
+		List<RevCommit> result = new ArrayList<RevCommit>();
+		for (RevCommit commit : commits) {
+			if (kept.contains(commit)) {
+				result.add(commit);
+			}
+		}
+		return result;
+	}
+	
+	protected List<RevCommit> sampleByStride(List<RevCommit> commits) {
+		if (stride <= 1) {
+			return commits;
+		}
+		List<RevCommit> result = new ArrayList<RevCommit>();
+		for (int i = 0; i < commits.size(); i += stride) {
+			result.add(commits.get(i));
+		}
+		return result;
+	}
+	
+	protected List<RevCommit> sampleByMaxCommits(List<RevCommit> commits) {
+		int size = commits.size();
+		if (maxCommits <= 0 || size <= maxCommits) {
+			return commits;
+		}
+		List<RevCommit> result = new ArrayList<RevCommit>();
+		if (maxCommits == 1) {
+			result.add(commits.get(0));
+			return result;
+		}
+		for (int i = 0; i < maxCommits; i++) {
+			// Spread from the first index to the last one
+			result.add(commits.get((int) ((long) i * (size - 1)
+					/ (maxCommits - 1))));
+		}
+		return result;
+	}
+	
+	/**
+	 * Get the start of the bucket of a date in the local time zone
+	 * @param date
+	 * @return the start of the bucket in milliseconds
+	 */
+	protected long getBucketStart(Date date) {
+		if (bucket.equals(BUCKET_WEEK)) {
+			return getStartOfWeek(date);
+		}
+		Calendar calendar = Calendar.getInstance();
+		calendar.setTime(date);
+		calendar.set(Calendar.HOUR_OF_DAY, 0);
+		calendar.set(Calendar.MINUTE, 0);
+		calendar.set(Calendar.SECOND, 0);
+		calendar.set(Calendar.MILLISECOND, 0);
+		if (!bucket.equals(BUCKET_DAY)) {
+			calendar.set(Calendar.DAY_OF_MONTH, 1);
+		}
+		if (bucket.equals(BUCKET_YEAR)) {
+			calendar.set(Calendar.MONTH, Calendar.JANUARY);
+		}
+		return calendar.getTimeInMillis();
+	}
+	
+	/**
+	 * Get the start of the week of a date in the local time zone
+	 * @param date
+	 * @return the start of the week in milliseconds
+	 */
+	protected static long getStartOfWeek(Date date) {
+		Calendar calendar = Calendar.getInstance();
+		calendar.setTime(date);
+		calendar.set(Calendar.HOUR_OF_DAY, 0);
+		calendar.set(Calendar.MINUTE, 0);
+		calendar.set(Calendar.SECOND, 0);
+		calendar.set(Calendar.MILLISECOND, 0);
+		int daysIntoWeek = (calendar.get(Calendar.DAY_OF_WEEK)
+				- calendar.getFirstDayOfWeek() + 7) % 7;
+		calendar.add(Calendar.DAY_OF_MONTH, -daysIntoWeek);
+		return calendar.getTimeInMillis();
+	}
+	
+	@Override
+	public String toString() {
+		return "CommitSampler[bucket=" + bucket + ", stride=" + stride
+				+ ", maxCommits=" + maxCommits + "]";
+	}
+	
+	/**
+	 * Initialize with no sampling
+	 * @return
+	 */
+	public static CommitSampler init() {
+		return new CommitSampler();
+	}
+	
+}
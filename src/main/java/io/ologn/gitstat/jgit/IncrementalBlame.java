@@ -0,0 +1,653 @@
+package io.ologn.gitstat.jgit;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+import org.eclipse.jgit.blame.BlameResult;
+import org.eclipse.jgit.diff.DiffAlgorithm;
+import org.eclipse.jgit.diff.DiffAlgorithm.SupportedAlgorithm;
+import org.eclipse.jgit.diff.DiffEntry;
+import org.eclipse.jgit.diff.DiffEntry.ChangeType;
+import org.eclipse.jgit.diff.Edit;
+import org.eclipse.jgit.diff.EditList;
+import org.eclipse.jgit.diff.RawText;
+import org.eclipse.jgit.diff.RawTextComparator;
+import org.eclipse.jgit.diff.RenameDetector;
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.NullProgressMonitor;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevSort;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.AndTreeFilter;
+import org.eclipse.jgit.treewalk.filter.PathFilter;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
+
+import com.google.common.collect.Lists;
+
+import io.ologn.gitstat.metrics.Metrics;
+import io.ologn.gitstat.metrics.ProgressReporter;
+import io.ologn.gitstat.stat.AuthorDictionary;
+import io.ologn.gitstat.stat.BlameResultContainer;
+import io.ologn.gitstat.stat.BlameSnapshot;
+import io.ologn.gitstat.stat.CompactBlame;
+
+/**
+ * Blame for one file over its whole history in a single pass. Instead of 
+ * running a full blame for every commit (which walks the history back to 
+ * the root every time), the history of the file is walked once from the 
+ * oldest commit to the newest, and the diff of each commit is applied to 
+ * the per line attribution of its parents.<br>
+ * The walk only follows the path of the file. Like BlameGenerator, a 
+ * file that was renamed (or copied) from another path is followed to 
+ * its old path, but only by running a full blame at the commit where it 
+ * appears under the new path, so a history with many renames is slower 
+ * to calculate.<br>
+ * The time spent on each commit and the lines blamed are recorded in the 
+ * global Metrics.<br>
+ * Typical usage: {@code IncrementalBlame.init(repo, filePath) 
+ * .setBlameCache(BlameCache.forRepository(repo, 
+ * Algorithm.INCREMENTAL)) 
+ * .calculate(commits, LineAuthorship::calculate)}
+ * @author lisq199
+ */
+public class IncrementalBlame {
+	
+	protected Repository repo;
+	protected String filePath;
+	protected DiffAlgorithm diffAlgorithm;
+	protected RawTextComparator comparator;
+	protected BlameCache blameCache;
+	/**
+	 * The value of a line, used to keep the score of each author. It's 
+	 * null if the scores are not kept.
+	 */
+	protected ToIntFunction<String> lineValue;
+	protected AuthorDictionary dictionary;
+	/**
+	 * The author id of each source commit, so the author of a commit is 
+	 * only parsed once
+	 */
+	protected Map<RevCommit, Integer> commitAuthorIds;
+	
+	/**
+	 * The state of the file at a commit that still has children waiting 
+	 * to be processed
+	 */
+	protected static class FileState {
+		
+		protected ObjectId blobId;
+		protected RawText contents;
+		protected RevCommit[] sourceCommits;
+		/**
+		 * The score of each author by author id, or null if the scores 
+		 * are not kept
+		 */
+		protected long[] scores;
+		
+		protected FileState(ObjectId blobId, RawText contents,
+				RevCommit[] sourceCommits) {
+			this.blobId = blobId;
+			this.contents = contents;
+			this.sourceCommits = sourceCommits;
+		}
+		
+	}
+	
+	/**
+	 * Disable default constructor
+	 */
+	protected IncrementalBlame() {
+		// Same as the defaults of BlameCommand
+		diffAlgorithm = DiffAlgorithm.getAlgorithm(
+				SupportedAlgorithm.HISTOGRAM);
+		comparator = RawTextComparator.DEFAULT;
+	}
+	
+	protected IncrementalBlame(Repository repo, String filePath) {
+		this();
+		this.repo = repo;
+		this.filePath = filePath;
+	}
+	
+	/**
+	 * Set the BlameCache. Set it to null to disable caching. The cache 
+	 * should be the one for Algorithm.INCREMENTAL, since the results of 
+	 * BlameGenerator can be different at merges.
+	 * @param blameCache
+	 * @return
+	 */
+	public IncrementalBlame setBlameCache(BlameCache blameCache) {
+		this.blameCache = blameCache;
+		return this;
+	}
+	
+	/**
+	 * Keep the score of each author at each commit: the sum of the 
+	 * values of the lines attributed to the author. The scores of a 
+	 * commit are the scores of its first parent, updated with the lines 
+	 * removed and added by the diff between them, so only the changed 
+	 * lines are valued. The scores are available with 
+	 * BlameSnapshot.getAuthorScores().<br>
+	 * Since the scores need the contents of the file, the BlameCache is 
+	 * not read when the scores are kept.
+	 * @param lineValue gives the value of a line from its text. Set it 
+	 * to null to stop keeping the scores.
+	 * @return
+	 */
+	public IncrementalBlame setLineValue(ToIntFunction<String> lineValue) {
+		this.lineValue = lineValue;
+		return this;
+	}
+	
+	/**
+	 * Calculate the blame of the file at each of the commits, and map 
+	 * each snapshot to a result as soon as it is available, so that 
+	 * only the file states that are still needed are kept in memory. 
+	 * Commits that don't touch the file are ignored, and so are commits 
+	 * where the file doesn't exist.<br>
+	 * If a BlameCache is set, commits that are already cached are read 
+	 * from the cache (as CompactBlame objects), and the ones that are 
+	 * calculated are added to it, so only new commits are calculated 
+	 * when the same file is analyzed again. A commit only counts as 
+	 * cached if its entry can be read, so an entry that is broken or 
+	 * written by another version is calculated again.
+	 * @param commits
+	 * @param mapper
+	 * @return the results in topological order (oldest first)
+	 * @throws IOException
+	 */
+	public <T> List<T> calculate(Iterable<RevCommit> commits,
+			Function<? super BlameResultContainer, T> mapper)
+					throws IOException {
+		List<T> result = new ArrayList<T>();
+		try (
+			// Share the reader (and its caches) of the RepoContext
+			RevWalk revWalk = new RevWalk(
+					RepoContext.get(repo).getObjectReader());
+		) {
+			Set<ObjectId> wanted = new HashSet<ObjectId>();
+			for (RevCommit commit : commits) {
+				wanted.add(commit.copy());
+				revWalk.markStart(revWalk.parseCommit(commit));
+			}
+			if (wanted.isEmpty()) {
+				return result;
+			}
+			/*
+			 * Only commits that touch the file are walked, and their 
+			 * parents are rewritten to the closest ancestors that touch 
+			 * the file as well.
+			 */
+			revWalk.setTreeFilter(AndTreeFilter.create(
+					PathFilter.create(filePath), TreeFilter.ANY_DIFF));
+			revWalk.sort(RevSort.TOPO);
+			revWalk.sort(RevSort.REVERSE, true);
+			List<RevCommit> history = Lists.newArrayList(revWalk);
+			
+			Map<RevCommit, Integer> pendingChildren =
+					new HashMap<RevCommit, Integer>();
+			for (RevCommit commit : history) {
+				for (RevCommit parent : commit.getParents()) {
+					pendingChildren.merge(parent, 1, Integer::sum);
+				}
+			}
+			
+			/*
+			 * Walk backwards to find out which commits really need to be 
+			 * calculated: the wanted ones that are not cached, and the 
+			 * ones whose state is needed to calculate those. The state of 
+			 * a cached commit can be restored from the cache instead.
+			 */
+			Set<RevCommit> toCalculate = new HashSet<RevCommit>();
+			Set<RevCommit> stateNeeded = new HashSet<RevCommit>();
+			Map<RevCommit, CompactBlame> cached =
+					new HashMap<RevCommit, CompactBlame>();
+			for (int i = history.size() - 1; i >= 0; i--) {
+				RevCommit commit = history.get(i);
+				if (!wanted.contains(commit)
+						&& !stateNeeded.contains(commit)) {
+					continue;
+				}
+				CompactBlame entry = getCached(commit);
+				if (entry != null) {
+					cached.put(commit, entry);
+				} else {
+					toCalculate.add(commit);
+					for (RevCommit parent : commit.getParents()) {
+						stateNeeded.add(parent);
+					}
+				}
+			}
+			
+			Map<RevCommit, FileState> states =
+					new HashMap<RevCommit, FileState>();
+			dictionary = AuthorDictionary.getGlobal();
+			commitAuthorIds = new IdentityHashMap<RevCommit, Integer>();
+			ObjectReader reader = revWalk.getObjectReader();
+			Metrics metrics = Metrics.getGlobal();
+			ProgressReporter progress = ProgressReporter.init(
+					"Blame " + filePath, history.size());
+			try {
+				for (RevCommit commit : history) {
+					FileState state = null;
+					BlameResultContainer container = null;
+					if (toCalculate.contains(commit)) {
+						long start = Metrics.now();
+						state = calculateState(revWalk, commit, states);
+						metrics.recordTime(Metrics.INCREMENTAL_BLAME_LATENCY,
+								start);
+						if (state.contents != null) {
+							metrics.add(Metrics.BLAME_LINES,
+									state.contents.size());
+							BlameSnapshot snapshot = toSnapshot(commit, state);
+							if (blameCache != null) {
+								blameCache.put(CompactBlame.calculate(
+										snapshot));
+							}
+							container = snapshot;
+						}
+					} else if (cached.containsKey(commit)) {
+						CompactBlame entry = cached.remove(commit);
+						container = entry;
+						if (stateNeeded.contains(commit)) {
+							state = restoreState(revWalk, commit, entry);
+							if (state == null) {
+								// The entry doesn't match the file
+								state = blameState(revWalk, commit);
+								container = state.contents == null ? null
+										: toSnapshot(commit, state);
+							}
+						}
+					}
+					
+					// Parents are only kept until all their children are done
+					for (RevCommit parent : commit.getParents()) {
+						int remaining = pendingChildren.merge(parent, -1,
+								Integer::sum);
+						if (remaining <= 0) {
+							states.remove(parent);
+						}
+					}
+					if (state != null
+							&& pendingChildren.getOrDefault(commit, 0) > 0) {
+						states.put(commit, state);
+					}
+					
+					if (container != null && wanted.contains(commit)) {
+						long start = Metrics.now();
+						result.add(mapper.apply(container));
+						metrics.recordTime(Metrics.STAGE_STAT, start);
+					}
+					progress.step();
+				}
+			} finally {
+				progress.finish();
+			}
+		}
+		return result;
+	}
+	
+	/**
+	 * Create the snapshot of a state
+	 * @param commit
+	 * @param state
+	 * @return
+	 */
+	protected BlameSnapshot toSnapshot(RevCommit commit, FileState state) {
+		BlameSnapshot snapshot = BlameSnapshot.init(commit.getName(),
+				filePath, state.contents, state.sourceCommits);
+		if (state.scores != null) {
+			snapshot.setAuthorScores(dictionary, state.scores);
+		}
+		return snapshot;
+	}
+	
+	/**
+	 * Calculate the blame of the file at each of the commits
+	 * @param commits
+	 * @return
+	 * @throws IOException
+	 */
+	public List<BlameResultContainer> calculate(Iterable<RevCommit> commits)
+			throws IOException {
+		return calculate(commits, s -> s);
+	}
+	
+	/**
+	 * Calculate the state of the file at a commit from the states of its 
+	 * parents. Lines that can be found in a parent are attributed the 
+	 * same way as in that parent (the first parent wins), and all the 
+	 * other lines are attributed to the commit itself. If the file isn't 
+	 * in any of the parents because it was renamed at the commit, the 
+	 * state is calculated with a full blame instead.
+	 * @param revWalk
+	 * @param commit
+	 * @param states
+	 * @return
+	 * @throws IOException
+	 */
+	protected FileState calculateState(RevWalk revWalk, RevCommit commit,
+			Map<RevCommit, FileState> states) throws IOException {
+		ObjectReader reader = revWalk.getObjectReader();
+		ObjectId blobId = getBlobId(reader, commit);
+		if (blobId == null) {
+			return new FileState(null, null, null);
+		}
+		
+		List<FileState> parentStates = new ArrayList<FileState>();
+		for (RevCommit parent : commit.getParents()) {
+			FileState parentState = states.get(parent);
+			if (parentState != null && parentState.contents != null) {
+				if (parentState.blobId.equals(blobId)) {
+					// Nothing changed, so everything can be shared
+					return parentState;
+				}
+				parentStates.add(parentState);
+			}
+		}
+		if (parentStates.isEmpty() && isRenamed(reader, commit)) {
+			// BlameGenerator follows the file to its old path
+			FileState state = blameState(revWalk, commit);
+			if (lineValue != null) {
+				state.scores = calculateScores(state, null, null);
+			}
+			return state;
+		}
+		
+		RawText contents = readContents(reader, blobId);
+		RevCommit[] sourceCommits = new RevCommit[contents.size()];
+		EditList firstParentEdits = null;
+		for (FileState parentState : parentStates) {
+			EditList edits = inherit(parentState, contents, sourceCommits);
+			if (firstParentEdits == null) {
+				firstParentEdits = edits;
+			}
+		}
+		for (int i = 0; i < sourceCommits.length; i++) {
+			if (sourceCommits[i] == null) {
+				sourceCommits[i] = commit;
+			}
+		}
+		FileState state = new FileState(blobId, contents, sourceCommits);
+		if (lineValue != null) {
+			state.scores = calculateScores(state,
+					parentStates.isEmpty() ? null : parentStates.get(0),
+					firstParentEdits);
+		}
+		return state;
+	}
+	
+	/**
+	 * Calculate the scores of the authors at a state. If the state has a 
+	 * parent with scores, only the lines in the edits between them are 
+	 * valued: the removed lines are subtracted from the scores of the 
+	 * parent, and the added lines are added. The other lines are 
+	 * attributed the same way as in the parent, since the first parent 
+	 * wins.
+	 * @param state
+	 * @param parentState the state of the first parent, or null
+	 * @param edits the edits from the first parent to the state
+	 * @return
+	 */
+	protected long[] calculateScores(FileState state, FileState parentState,
+			EditList edits) {
+		if (parentState == null || parentState.scores == null) {
+			long[] scores = new long[0];
+			for (int i = 0; i < state.sourceCommits.length; i++) {
+				scores = addScore(scores, state, i, 1);
+			}
+			return scores;
+		}
+		long[] scores = parentState.scores.clone();
+		for (Edit edit : edits) {
+			for (int a = edit.getBeginA(); a < edit.getEndA(); a++) {
+				scores = addScore(scores, parentState, a, -1);
+			}
+			for (int b = edit.getBeginB(); b < edit.getEndB(); b++) {
+				scores = addScore(scores, state, b, 1);
+			}
+		}
+		return scores;
+	}
+	
+	/**
+	 * Add (or subtract) the value of a line to the score of its author
+	 * @param scores
+	 * @param state
+	 * @param i the line number
+	 * @param sign 1 to add, -1 to subtract
+	 * @return the scores, which is a new array if it had to grow
+	 */
+	protected long[] addScore(long[] scores, FileState state, int i,
+			int sign) {
+		RevCommit sourceCommit = state.sourceCommits[i];
+		Integer id = commitAuthorIds.get(sourceCommit);
+		if (id == null) {
+			id = dictionary.intern(sourceCommit.getAuthorIdent());
+			commitAuthorIds.put(sourceCommit, id);
+		}
+		if (id >= scores.length) {
+			scores = Arrays.copyOf(scores, Math.max(id + 1,
+					scores.length * 2));
+		}
+		scores[id] += sign * lineValue.applyAsInt(
+				state.contents.getString(i));
+		return scores;
+	}
+	
+	/**
+	 * Whether the file was renamed or copied from another path at a 
+	 * commit, found the same way as BlameGenerator does. The parents of 
+	 * the commit in the walk of calculate() are rewritten to the commits 
+	 * that touch the file, so the commit is parsed again to get its real 
+	 * parents.
+	 * @param reader
+	 * @param commit
+	 * @return
+	 * @throws IOException
+	 */
+	protected boolean isRenamed(ObjectReader reader, RevCommit commit)
+			throws IOException {
+		try (
+			RevWalk revWalk = new RevWalk(reader);
+			TreeWalk treeWalk = new TreeWalk(reader);
+		) {
+			RevCommit original = revWalk.parseCommit(commit);
+			treeWalk.setRecursive(true);
+			treeWalk.setFilter(TreeFilter.ANY_DIFF);
+			for (RevCommit parent : original.getParents()) {
+				treeWalk.reset(revWalk.parseCommit(parent).getTree(),
+						original.getTree());
+				RenameDetector detector = new RenameDetector(repo);
+				detector.addAll(DiffEntry.scan(treeWalk));
+				for (DiffEntry entry : detector.compute(reader,
+						NullProgressMonitor.INSTANCE)) {
+					if ((entry.getChangeType() == ChangeType.RENAME
+							|| entry.getChangeType() == ChangeType.COPY)
+							&& entry.getNewPath().equals(filePath)) {
+						return true;
+					}
+				}
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * Read a version of the file, and count its size in the global 
+	 * Metrics
+	 * @param reader
+	 * @param blobId
+	 * @return
+	 * @throws IOException
+	 */
+	protected static RawText readContents(ObjectReader reader,
+			ObjectId blobId) throws IOException {
+		byte[] bytes = reader.open(blobId, Constants.OBJ_BLOB)
+				.getCachedBytes(Integer.MAX_VALUE);
+		Metrics.getGlobal().add(Metrics.BYTES_READ, bytes.length);
+		return new RawText(bytes);
+	}
+	
+	/**
+	 * Restore the state of the file at a commit from a cached entry
+	 * @param revWalk
+	 * @param commit
+	 * @param cached
+	 * @return the state, or null if the entry doesn't match the file at 
+	 * the commit
+	 * @throws IOException
+	 */
+	protected FileState restoreState(RevWalk revWalk, RevCommit commit,
+			CompactBlame cached) throws IOException {
+		ObjectReader reader = revWalk.getObjectReader();
+		ObjectId blobId = getBlobId(reader, commit);
+		if (blobId == null) {
+			return null;
+		}
+		RawText contents = readContents(reader, blobId);
+		if (contents.size() != cached.getBlameSize()) {
+			return null;
+		}
+		RevCommit[] sourceCommits = new RevCommit[contents.size()];
+		for (int i = 0; i < sourceCommits.length; i++) {
+			sourceCommits[i] = parseSourceCommit(revWalk,
+					cached.getSourceCommitId(i));
+		}
+		return new FileState(blobId, contents, sourceCommits);
+	}
+	
+	/**
+	 * Calculate the state of the file at a commit with a full blame 
+	 * (BlameGenerator). It's only used when a cached entry can't be 
+	 * restored, since the states of the parents are not available then, 
+	 * and when the file was renamed.
+	 * @param revWalk
+	 * @param commit
+	 * @return
+	 * @throws IOException
+	 */
+	protected FileState blameState(RevWalk revWalk, RevCommit commit)
+			throws IOException {
+		BlameResult blameResult = RepoContext.get(repo).blame(commit,
+				filePath);
+		if (blameResult == null) {
+			return new FileState(null, null, null);
+		}
+		RawText contents = blameResult.getResultContents();
+		RevCommit[] sourceCommits = new RevCommit[contents.size()];
+		for (int i = 0; i < sourceCommits.length; i++) {
+			sourceCommits[i] = parseSourceCommit(revWalk,
+					blameResult.getSourceCommit(i));
+		}
+		return new FileState(getBlobId(revWalk.getObjectReader(), commit),
+				contents, sourceCommits);
+	}
+	
+	/**
+	 * Parse a source commit in the walk of calculate(). The walk drops 
+	 * the bodies of the commits that don't touch the file, and the body 
+	 * is needed for the author, so it's read again if it was dropped.
+	 * @param revWalk
+	 * @param id
+	 * @return
+	 * @throws IOException
+	 */
+	protected static RevCommit parseSourceCommit(RevWalk revWalk,
+			AnyObjectId id) throws IOException {
+		RevCommit commit = revWalk.parseCommit(id);
+		revWalk.parseBody(commit);
+		return commit;
+	}
+	
+	/**
+	 * Get the cached blame of the file at a commit. Nothing is cached 
+	 * while the scores are kept.
+	 * @param commit
+	 * @return the entry, or null if it's not cached or can't be read
+	 */
+	protected CompactBlame getCached(RevCommit commit) {
+		if (lineValue != null || blameCache == null) {
+			return null;
+		}
+		CompactBlame entry = blameCache.get(commit, filePath);
+		return entry == null ? null : entry.setRepository(repo);
+	}
+	
+	/**
+	 * Copy the attribution of all the lines that are unchanged between a 
+	 * parent and the new contents. Lines that already have an attribution 
+	 * are skipped.
+	 * @param parentState
+	 * @param contents
+	 * @param sourceCommits
+	 * @return the edits from the parent to the new contents
+	 */
+	protected EditList inherit(FileState parentState, RawText contents,
+			RevCommit[] sourceCommits) {
+		EditList edits = diffAlgorithm.diff(comparator,
+				parentState.contents, contents);
+		int a = 0, b = 0;
+		for (Edit edit : edits) {
+			for (; b < edit.getBeginB(); a++, b++) {
+				if (sourceCommits[b] == null) {
+					sourceCommits[b] = parentState.sourceCommits[a];
+				}
+			}
+			a = edit.getEndA();
+			b = edit.getEndB();
+		}
+		for (; b < sourceCommits.length; a++, b++) {
+			if (sourceCommits[b] == null) {
+				sourceCommits[b] = parentState.sourceCommits[a];
+			}
+		}
+		return edits;
+	}
+	
+	/**
+	 * Get the id of the file's blob at a commit
+	 * @param reader
+	 * @param commit
+	 * @return the id, or null if the file doesn't exist at the commit
+	 * @throws IOException
+	 */
+	protected ObjectId getBlobId(ObjectReader reader, RevCommit commit)
+			throws IOException {
+		try (
+			TreeWalk treeWalk = TreeWalk.forPath(reader, filePath,
+					commit.getTree());
+		) {
+			if (treeWalk == null || treeWalk.getFileMode(0).getObjectType()
+					!= Constants.OBJ_BLOB) {
+				return null;
+			}
+			return treeWalk.getObjectId(0);
+		}
+	}
+	
+	/**
+	 * Initialize
+	 * @param repo
+	 * @param filePath
+	 * @return
+	 */
+	public static IncrementalBlame init(Repository repo, String filePath) {
+		return new IncrementalBlame(repo, filePath);
+	}
+	
+}
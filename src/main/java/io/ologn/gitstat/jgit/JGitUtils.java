@@ -2,23 +2,25 @@ package io.ologn.gitstat.jgit;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Comparator;
 import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
-import java.util.function.Function;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ToLongFunction;
 
 import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.api.errors.GitAPIException;
 import org.eclipse.jgit.diff.RawText;
 import org.eclipse.jgit.errors.IncorrectObjectTypeException;
 import org.eclipse.jgit.errors.MissingObjectException;
-import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.lib.Ref;
 import org.eclipse.jgit.lib.Repository;
-import org.eclipse.jgit.revwalk.RevCommit;
-import org.eclipse.jgit.revwalk.RevWalk;
 
 /**
  * Other miscellaneous JUnit utilities
@@ -67,12 +69,7 @@ public class JGitUtils {
 	public static long getCommitTimeFromSha1(Repository repo, String sha1)
 			throws MissingObjectException, IncorrectObjectTypeException,
 			IOException {
-		ObjectId id = ObjectId.fromString(sha1);
-		RevWalk revWalk = new RevWalk(repo);
-		RevCommit commit = revWalk.parseCommit(id);
-		revWalk.dispose();
-		revWalk.close();
-		return commit.getCommitTime();
+		return RevCommitUtils.fromSha1(repo, sha1).getCommitTime();
 	}
 	
 	/**
@@ -87,23 +84,39 @@ public class JGitUtils {
 	public static Date getAuthorTimeFromSha1(Repository repo, String sha1)
 			throws MissingObjectException, IncorrectObjectTypeException,
 			IOException {
-		ObjectId id = ObjectId.fromString(sha1);
-		RevWalk revWalk = new RevWalk(repo);
-		RevCommit commit = revWalk.parseCommit(id);
-		revWalk.dispose();
-		revWalk.close();
-		return commit.getAuthorIdent().getWhen();
+		return RevCommitUtils.fromSha1(repo, sha1).getAuthorIdent()
+				.getWhen();
 	}
 	
 	/**
-	 * Get the Comparator of SHA-1 strings by author time
+	 * Get the Comparator of SHA-1 strings by author time. Commits with the 
+	 * same author time are ordered by SHA-1, so different commits never 
+	 * compare as equal. The author time of each SHA-1 is looked up only 
+	 * once and then kept by the Comparator.
+	 * @param getAuthorTime gets the author time of a commit from its SHA-1
+	 * @param ascending
+	 * @return
+	 */
+	public static Comparator<String> getSha1ComparatorByAuthorTime(
+			ToLongFunction<String> getAuthorTime, boolean ascending) {
+		Map<String, Long> authorTimes = new ConcurrentHashMap<String, Long>();
+		Comparator<String> comparator = Comparator
+				.comparingLong((String x) -> authorTimes.computeIfAbsent(
+						x, y -> getAuthorTime.applyAsLong(y)))
+				.thenComparing(Comparator.naturalOrder());
+		return ascending ? comparator : comparator.reversed();
+	}
+	
+	/**
+	 * Get the Comparator of SHA-1 strings by author time. Each commit is 
+	 * parsed only the first time it's compared.
 	 * @param repo
 	 * @param ascending
 	 * @return
 	 */
 	public static Comparator<String> getSha1ComparatorByAuthorTime(
 			Repository repo, boolean ascending) {
-		Function<String, Long> getT = x -> {
+		return getSha1ComparatorByAuthorTime(x -> {
 			try {
 				return RevCommitUtils.fromSha1(repo, x).getAuthorIdent()
 						.getWhen().getTime();
@@ -115,16 +128,7 @@ public class JGitUtils {
 				e.printStackTrace();
 			}
 			return 0l;
-		};
-		return (x, y) -> {
-			Long t1 = getT.apply(x);
-			Long t2 = getT.apply(y);
-			if (ascending) {
-				return t1.compareTo(t2);
-			} else {
-				return t2.compareTo(t1);
-			}
-		};
+		}, ascending);
 	}
 	
 	/**
@@ -139,6 +143,57 @@ public class JGitUtils {
 				getSha1ComparatorByAuthorTime(repo, ascending));
 	}
 	
+	/**
+	 * Sort SHA-1 strings by author time, with the author times taken from 
+	 * a CommitIndex. Commits with the same author time are ordered by 
+	 * SHA-1. The author time of each SHA-1 is looked up once before 
+	 * sorting, so the sort only compares the values of an array.
+	 * @param commitIndex
+	 * @param sha1s
+	 * @param ascending
+	 * @return
+	 * @throws IllegalArgumentException if a commit is not in the index
+	 */
+	public static List<String> sortByAuthorTime(CommitIndex commitIndex,
+			Collection<String> sha1s, boolean ascending) {
+		String[] keys = sha1s.toArray(new String[sha1s.size()]);
+		long[] authorTimes = new long[keys.length];
+		Integer[] order = new Integer[keys.length];
+		for (int i = 0; i < keys.length; i++) {
+			authorTimes[i] = commitIndex.getAuthorTime(keys[i]);
+			order[i] = i;
+		}
+		Comparator<Integer> comparator = Comparator
+				.comparingLong((Integer i) -> authorTimes[i])
+				.thenComparing(i -> keys[i]);
+		Arrays.sort(order, ascending ? comparator : comparator.reversed());
+		List<String> result = new ArrayList<String>(keys.length);
+		for (int i : order) {
+			result.add(keys[i]);
+		}
+		return result;
+	}
+	
+	/**
+	 * Sort the entries of a Map by the author time of their keys (SHA-1), 
+	 * with the author times taken from a CommitIndex
+	 * @param commitIndex
+	 * @param map
+	 * @param ascending
+	 * @return a new Map in the order of the keys
+	 * @throws IllegalArgumentException if a commit is not in the index
+	 */
+	public static <T> Map<String, T> sortByAuthorTime(
+			CommitIndex commitIndex, Map<String, T> map, boolean ascending) {
+		// Use LinkedHashMap to preserve the ordering
+		Map<String, T> sorted = new LinkedHashMap<String, T>();
+		for (String sha1 : sortByAuthorTime(commitIndex, map.keySet(),
+				ascending)) {
+			sorted.put(sha1, map.get(sha1));
+		}
+		return sorted;
+	}
+	
 	public static String[] getTags(Git git) throws GitAPIException {
 		List<Ref> tagList = git.tagList().call();
 		return tagList.stream()
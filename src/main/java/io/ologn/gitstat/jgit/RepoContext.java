@@ -0,0 +1,217 @@
+package io.ologn.gitstat.jgit;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.jgit.blame.BlameGenerator;
+import org.eclipse.jgit.blame.BlameResult;
+import org.eclipse.jgit.diff.DiffAlgorithm;
+import org.eclipse.jgit.diff.DiffAlgorithm.SupportedAlgorithm;
+import org.eclipse.jgit.diff.RawTextComparator;
+import org.eclipse.jgit.errors.MissingObjectException;
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.storage.file.WindowCacheConfig;
+
+import io.ologn.gitstat.metrics.Metrics;
+
+/**
+ * The objects used to read a repository in one thread: an ObjectReader, 
+ * a RevWalk on top of it and a DiffAlgorithm. They are created once per 
+ * thread and repository and then reused, so the helpers that parse 
+ * commits one at a time (e.g. RevCommitUtils.fromSha1()) don't create 
+ * and dispose a RevWalk on every call, and the reader keeps its open 
+ * pack windows and delta bases between the calls.<br>
+ * Objects of this class are not thread safe. Use get() to get the 
+ * context of the current thread, and never pass it to another thread. 
+ * A RevWalk made with new RevWalk(getObjectReader()) can share the 
+ * reader, and closing that RevWalk doesn't close the reader.<br>
+ * The pack files themselves are cached by JGit for the whole process. 
+ * Use configureWindowCache() to tune that cache for large repositories.
+ * @author lisq199
+ */
+public class RepoContext {
+	
+	/**
+	 * The number of commits parsed by the RevWalk before its objects are 
+	 * dropped, so the RevWalk doesn't keep every commit ever parsed
+	 */
+	protected static final int MAX_PARSED_COMMITS = 1 << 14;
+	
+	private static final ThreadLocal<RepoContext> CURRENT =
+			new ThreadLocal<RepoContext>();
+	
+	/**
+	 * All the open contexts, so they can be closed with the repository
+	 */
+	private static final Map<RepoContext, Boolean> OPEN =
+			new ConcurrentHashMap<RepoContext, Boolean>();
+	
+	protected final Repository repo;
+	protected final ObjectReader reader;
+	protected RevWalk revWalk;
+	protected final DiffAlgorithm diffAlgorithm;
+	protected int parsedCommits;
+	/**
+	 * The thread the context belongs to. Only this thread closes it.
+	 */
+	protected final Thread owner;
+	protected boolean closed;
+	/**
+	 * Set by closeAll() from another thread. The owner closes the context 
+	 * the next time it asks for one.
+	 */
+	protected volatile boolean closeRequested;
+	
+	protected RepoContext(Repository repo) {
+		this.repo = repo;
+		this.owner = Thread.currentThread();
+		this.reader = repo.newObjectReader();
+		this.revWalk = new RevWalk(reader);
+		// Same as the default of BlameCommand
+		this.diffAlgorithm = DiffAlgorithm.getAlgorithm(
+				SupportedAlgorithm.HISTOGRAM);
+	}
+	
+	public Repository getRepository() {
+		return repo;
+	}
+	
+	public ObjectReader getObjectReader() {
+		return reader;
+	}
+	
+	public DiffAlgorithm getDiffAlgorithm() {
+		return diffAlgorithm;
+	}
+	
+	/**
+	 * Parse a commit with the RevWalk of the context. The commit is 
+	 * fully parsed, so it can be used after the RevWalk drops it.
+	 * @param commitId
+	 * @return
+	 * @throws MissingObjectException
+	 * @throws IOException
+	 */
+	public RevCommit parseCommit(AnyObjectId commitId)
+			throws MissingObjectException, IOException {
+		if (parsedCommits >= MAX_PARSED_COMMITS) {
+			/*
+			 * A new RevWalk drops the parsed commits. RevWalk.dispose() 
+			 * can't be used, since it closes the reader and its caches.
+			 */
+			revWalk.close();
+			revWalk = new RevWalk(reader);
+			parsedCommits = 0;
+		}
+		parsedCommits++;
+		return revWalk.parseCommit(commitId);
+	}
+	
+	/**
+	 * Calculate the blame of a file at a commit with the DiffAlgorithm 
+	 * of the context. It's the same as BlameCommand, except that the 
+	 * start commit is already resolved.<br>
+	 * Note: BlameGenerator always opens its own ObjectReader, so the 
+	 * blame only shares the process wide pack cache with the context.<br>
+	 * The latency and the lines blamed are recorded in the global 
+	 * Metrics.
+	 * @param commitId
+	 * @param filePath
+	 * @return the BlameResult, or null if the file doesn't exist at 
+	 * the commit
+	 * @throws IOException
+	 */
+	public BlameResult blame(AnyObjectId commitId, String filePath)
+			throws IOException {
+		long start = Metrics.now();
+		BlameResult result;
+		try (
+			BlameGenerator generator = new BlameGenerator(repo, filePath);
+		) {
+			generator.setDiffAlgorithm(diffAlgorithm)
+					.setTextComparator(RawTextComparator.DEFAULT)
+					.push(null, commitId);
+			result = generator.computeBlameResult();
+		}
+		Metrics metrics = Metrics.getGlobal();
+		metrics.recordTime(Metrics.BLAME_LATENCY, start);
+		if (result != null) {
+			metrics.add(Metrics.BLAME_LINES,
+					result.getResultContents().size());
+		}
+		return result;
+	}
+	
+	/**
+	 * Close the reader and the RevWalk. Only the owner calls it.
+	 */
+	protected void close() {
+		closed = true;
+		OPEN.remove(this);
+		revWalk.close();
+		reader.close();
+	}
+	
+	/**
+	 * Get the context of the current thread for a repository. A new one 
+	 * is created if the thread has none, or if its context is for 
+	 * another repository or has been closed.
+	 * @param repo
+	 * @return
+	 */
+	public static RepoContext get(Repository repo) {
+		RepoContext context = CURRENT.get();
+		if (context != null && context.repo == repo && !context.closed
+				&& !context.closeRequested) {
+			return context;
+		}
+		if (context != null && !context.closed) {
+			context.close();
+		}
+		context = new RepoContext(repo);
+		OPEN.put(context, Boolean.TRUE);
+		CURRENT.set(context);
+		return context;
+	}
+	
+	/**
+	 * Close the contexts of all the threads for a repository, e.g. right 
+	 * before the repository is closed. The context of the current thread 
+	 * is closed right away. The ones of the other threads (e.g. actors 
+	 * that may still be working) are only marked, and each of them is 
+	 * closed by its own thread the next time it asks for a context, so a 
+	 * reader is never closed while it's in use. A thread that needs the 
+	 * repository again gets a new context.
+	 * @param repo
+	 */
+	public static void closeAll(Repository repo) {
+		for (RepoContext context : OPEN.keySet()) {
+			if (context.repo != repo) {
+				continue;
+			}
+			if (context.owner == Thread.currentThread()) {
+				context.close();
+			} else {
+				context.closeRequested = true;
+				OPEN.remove(context);
+			}
+		}
+	}
+	
+	/**
+	 * Install a new configuration for the pack file cache shared by the 
+	 * whole process (the "core.packedGit*" and "core.deltaBaseCacheLimit" 
+	 * settings of git). It should be called before any repository is 
+	 * read, since installing it drops everything already cached.
+	 * @param config
+	 */
+	public static void configureWindowCache(WindowCacheConfig config) {
+		config.install();
+	}
+	
+}
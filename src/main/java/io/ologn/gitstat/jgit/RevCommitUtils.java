@@ -15,11 +15,12 @@ import org.eclipse.jgit.errors.MissingObjectException;
 import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.lib.Repository;
 import org.eclipse.jgit.revwalk.RevCommit;
-import org.eclipse.jgit.revwalk.RevWalk;
 
 import com.google.common.collect.Lists;
 
 import io.ologn.common.math.OlognMath;
+import io.ologn.gitstat.metrics.Metrics;
+import io.ologn.gitstat.metrics.ProgressReporter;
 
 /**
  * Utilities for RevCommit objects
@@ -28,15 +29,20 @@ import io.ologn.common.math.OlognMath;
  */
 public class RevCommitUtils {
 	
+	/**
+	 * Parse a commit from its SHA-1 with the RepoContext of the current 
+	 * thread
+	 * @param repo
+	 * @param sha1
+	 * @return
+	 * @throws MissingObjectException
+	 * @throws IncorrectObjectTypeException
+	 * @throws IOException
+	 */
 	public static RevCommit fromSha1(Repository repo, String sha1)
 			throws MissingObjectException, IncorrectObjectTypeException,
 			IOException {
-		ObjectId id = ObjectId.fromString(sha1);
-		RevWalk revWalk = new RevWalk(repo);
-		RevCommit commit = revWalk.parseCommit(id);
-		revWalk.dispose();
-		revWalk.close();
-		return commit;
+		return RepoContext.get(repo).parseCommit(ObjectId.fromString(sha1));
 	}
 	
 	/**
@@ -49,11 +55,27 @@ public class RevCommitUtils {
 	 */
 	public static List<RevCommit> getAllCommits(Git git)
 			throws NoHeadException, GitAPIException, IOException {
-		Iterable<RevCommit> commits = git.log().all().call();
-		// Return it as a List to make it reusable
-		List<RevCommit> commitsList = Lists.newArrayList(commits);
-		System.out.println("Number of commits: " + commitsList.size());
-		return commitsList;
+		return getAllCommits(git, CommitRange.init());
+	}
+	
+	/**
+	 * Get the RevCommit objects in a CommitRange. If the CommitRange has 
+	 * no range of revisions, the walk starts from all the refs.
+	 * @param git
+	 * @param commitRange
+	 * @return a List of RevCommit objects
+	 * @throws NoHeadException
+	 * @throws GitAPIException
+	 * @throws IOException
+	 */
+	public static List<RevCommit> getAllCommits(Git git,
+			CommitRange commitRange)
+					throws NoHeadException, GitAPIException, IOException {
+		LogCommand logCommand = git.log();
+		if (!commitRange.apply(logCommand, git.getRepository())) {
+			logCommand.all();
+		}
+		return toList(logCommand);
 	}
 	
 	/**
@@ -70,10 +92,39 @@ public class RevCommitUtils {
 		for (String path : paths) {
 			logCommand.addPath(path);
 		}
-		Iterable<RevCommit> commits = logCommand.call();
+		return toList(logCommand);
+	}
+	
+	/**
+	 * Get a List of RevCommit objects in a CommitRange that contains 
+	 * certain paths. If the CommitRange has no range of revisions, the 
+	 * walk starts from HEAD.
+	 * @param git
+	 * @param commitRange
+	 * @param paths
+	 * @return a List of RevCommit objects
+	 * @throws NoHeadException
+	 * @throws GitAPIException
+	 * @throws IOException
+	 */
+	public static List<RevCommit> getCommitsWithPath(Git git,
+			CommitRange commitRange, String... paths)
+					throws NoHeadException, GitAPIException, IOException {
+		LogCommand logCommand = git.log();
+		commitRange.apply(logCommand, git.getRepository());
+		for (String path : paths) {
+			logCommand.addPath(path);
+		}
+		return toList(logCommand);
+	}
+	
+	private static List<RevCommit> toList(LogCommand logCommand)
+			throws NoHeadException, GitAPIException {
+		long start = Metrics.now();
 		// Return it as a List to make it reusable
-		List<RevCommit> commitsList = Lists.newArrayList(commits);
-		System.out.println("Number of commits: " + commitsList.size());
+		List<RevCommit> commitsList = Lists.newArrayList(logCommand.call());
+		Metrics.getGlobal().recordTime(Metrics.STAGE_LOG_WALK, start);
+		ProgressReporter.report("Number of commits: " + commitsList.size());
 		return commitsList;
 	}
 	
@@ -92,7 +143,9 @@ public class RevCommitUtils {
 	
 	/**
 	 * Filter a list (Iterable) of RevCommit objects between 2 time points. 
-	 * The 2 time points do not have to be in order.
+	 * The 2 time points do not have to be in order. To skip the commits 
+	 * outside the time points without walking them, use a CommitRange 
+	 * instead.
 	 * @param commits
 	 * @param time1 the first time in UNIX time
 	 * @param time2 the second time in UNIX time
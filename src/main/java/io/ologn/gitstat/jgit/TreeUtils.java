@@ -0,0 +1,138 @@
+package io.ologn.gitstat.jgit;
+
+import java.io.IOException;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.PathFilter;
+
+/**
+ * Utilities for the files in the tree of a commit
+ * @author lisq199
+ */
+public class TreeUtils {
+	
+	/**
+	 * Get a filter for file paths from glob patterns (see 
+	 * FileSystem.getPathMatcher()). A path passes the filter if it 
+	 * matches at least one of the includes (or there are no includes), 
+	 * and none of the excludes. Note that "*" doesn't match across 
+	 * directories, so "*.c" only matches files in the root directory, 
+	 * while "**.c" matches all the .c files.
+	 * @param includes
+	 * @param excludes
+	 * @return
+	 */
+	public static Predicate<String> getGlobFilter(Iterable<String> includes,
+			Iterable<String> excludes) {
+		List<PathMatcher> includeMatchers = getPathMatchers(includes);
+		List<PathMatcher> excludeMatchers = getPathMatchers(excludes);
+		return path -> {
+			Path p = Paths.get(path);
+			if (!includeMatchers.isEmpty() && includeMatchers.stream()
+					.noneMatch(m -> m.matches(p))) {
+				return false;
+			}
+			return excludeMatchers.stream().noneMatch(m -> m.matches(p));
+		};
+	}
+	
+	protected static List<PathMatcher> getPathMatchers(
+			Iterable<String> globs) {
+		FileSystem fileSystem = FileSystems.getDefault();
+		List<PathMatcher> matchers = new ArrayList<PathMatcher>();
+		if (globs != null) {
+			globs.forEach(g -> matchers.add(
+					fileSystem.getPathMatcher("glob:" + g)));
+		}
+		return matchers;
+	}
+	
+	/**
+	 * Get the paths of all the regular files in the tree of a commit. 
+	 * Symbolic links and submodules are skipped.
+	 * @param repo
+	 * @param commitId
+	 * @param filter only the paths that pass the filter are returned
+	 * @param maxFileSize files larger than this (in bytes) are skipped. 
+	 * Set it to 0 or less to keep all the files.
+	 * @return
+	 * @throws IOException
+	 */
+	public static List<String> getFilePaths(Repository repo,
+			AnyObjectId commitId, Predicate<String> filter, long maxFileSize)
+					throws IOException {
+		return new ArrayList<String>(getBlobIds(repo, commitId, "", filter,
+				maxFileSize).keySet());
+	}
+	
+	/**
+	 * Get the blob id of each regular file under a directory in the tree 
+	 * of a commit. Symbolic links and submodules are skipped. Comparing 
+	 * the blob ids of 2 commits tells which files changed between them 
+	 * without reading the files.
+	 * @param repo
+	 * @param commitId
+	 * @param directory the path of the directory relative to the repo, 
+	 * or an empty String for the whole tree
+	 * @param filter only the paths that pass the filter are returned
+	 * @param maxFileSize files larger than this (in bytes) are skipped. 
+	 * Set it to 0 or less to keep all the files.
+	 * @return the blob id of each path, in the order of the tree
+	 * @throws IOException
+	 */
+	public static Map<String, ObjectId> getBlobIds(Repository repo,
+			AnyObjectId commitId, String directory, Predicate<String> filter,
+			long maxFileSize) throws IOException {
+		Map<String, ObjectId> blobIds = new LinkedHashMap<String, ObjectId>();
+		// The reader belongs to the RepoContext, so it's not closed here
+		ObjectReader reader = RepoContext.get(repo).getObjectReader();
+		try (
+			RevWalk revWalk = new RevWalk(reader);
+			TreeWalk treeWalk = new TreeWalk(reader);
+		) {
+			RevCommit commit = revWalk.parseCommit(commitId);
+			treeWalk.addTree(commit.getTree());
+			treeWalk.setRecursive(true);
+			if (!directory.isEmpty()) {
+				treeWalk.setFilter(PathFilter.create(directory));
+			}
+			while (treeWalk.next()) {
+				FileMode mode = treeWalk.getFileMode(0);
+				if (mode != FileMode.REGULAR_FILE
+						&& mode != FileMode.EXECUTABLE_FILE) {
+					continue;
+				}
+				String path = treeWalk.getPathString();
+				if (!filter.test(path)) {
+					continue;
+				}
+				ObjectId blobId = treeWalk.getObjectId(0);
+				if (maxFileSize > 0 && reader.getObjectSize(blobId,
+						Constants.OBJ_BLOB) > maxFileSize) {
+					continue;
+				}
+				blobIds.put(path, blobId);
+			}
+		}
+		return blobIds;
+	}
+	
+}
@@ -0,0 +1,184 @@
+package io.ologn.gitstat.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.json.simple.JSONObject;
+
+/**
+ * The distribution of a series of non-negative values, e.g. the latency 
+ * of each blame or the depth of a queue. Only the count, sum, minimum and 
+ * maximum are exact. The values are also counted in power of 2 buckets, 
+ * so the percentiles are approximations (at most twice the real value). 
+ * <br>
+ * A histogram of a timer keeps nanoseconds, and shows them in 
+ * milliseconds.<br>
+ * Objects of this class are thread safe, and recording a value doesn't 
+ * need a lock.
+ * @author lisq199
+ */
+public class Histogram {
+	
+	protected static final double NANOS_PER_MILLI = 1e6;
+	
+	protected final boolean timer;
+	protected final LongAdder count;
+	protected final LongAdder sum;
+	protected final AtomicLong min;
+	protected final AtomicLong max;
+	/**
+	 * Bucket i counts the values that need i bits, i.e. 0 for bucket 0 
+	 * and the ones in [2^(i-1), 2^i - 1] for the others
+	 */
+	protected final AtomicLongArray buckets;
+	
+	protected Histogram(boolean timer) {
+		this.timer = timer;
+		this.count = new LongAdder();
+		this.sum = new LongAdder();
+		this.min = new AtomicLong(Long.MAX_VALUE);
+		this.max = new AtomicLong(0);
+		this.buckets = new AtomicLongArray(Long.SIZE);
+	}
+	
+	/**
+	 * Record a value. Negative values are recorded as 0.
+	 * @param value
+	 */
+	public void record(long value) {
+		value = Math.max(value, 0);
+		count.increment();
+		sum.add(value);
+		min.accumulateAndGet(value, Math::min);
+		max.accumulateAndGet(value, Math::max);
+		buckets.incrementAndGet(Long.SIZE - Long.numberOfLeadingZeros(value));
+	}
+	
+	/**
+	 * Whether the values are nanoseconds
+	 * @return
+	 */
+	public boolean isTimer() {
+		return timer;
+	}
+	
+	public long getCount() {
+		return count.sum();
+	}
+	
+	public long getSum() {
+		return sum.sum();
+	}
+	
+	/**
+	 * Get the minimum
+	 * @return the minimum, or 0 if nothing is recorded
+	 */
+	public long getMin() {
+		return getCount() == 0 ? 0 : min.get();
+	}
+	
+	public long getMax() {
+		return max.get();
+	}
+	
+	/**
+	 * Get the mean
+	 * @return the mean, or 0 if nothing is recorded
+	 */
+	public double getMean() {
+		long count = getCount();
+		return count == 0 ? 0 : (double) getSum() / count;
+	}
+	
+	/**
+	 * Get an approximation of a percentile: the upper bound of the 
+	 * bucket it's in, but never more than the maximum
+	 * @param percentile between 0 and 100
+	 * @return the percentile, or 0 if nothing is recorded
+	 */
+	public long getPercentile(double percentile) {
+		long count = getCount();
+		if (count == 0) {
+			return 0;
+		}
+		long rank = (long) Math.ceil(count * percentile / 100);
+		long seen = 0;
+		for (int i = 0; i < buckets.length(); i++) {
+			seen += buckets.get(i);
+			if (seen >= rank && seen > 0) {
+				return Math.min((1L << i) - 1, getMax());
+			}
+		}
+		return getMax();
+	}
+	
+	/**
+	 * Drop everything recorded
+	 */
+	public void reset() {
+		count.reset();
+		sum.reset();
+		min.set(Long.MAX_VALUE);
+		max.set(0);
+		for (int i = 0; i < buckets.length(); i++) {
+			buckets.set(i, 0);
+		}
+	}
+	
+	/**
+	 * Get a summary as JSON. The values of a timer are in milliseconds, 
+	 * and their keys end with "Millis".
+	 * @return
+	 */
+	public JSONObject toJson() {
+		JSONObject json = new JSONObject();
+		String suffix = timer ? "Millis" : "";
+		put(json, "count", getCount());
+		put(json, "sum" + suffix, scale(getSum()));
+		put(json, "mean" + suffix, scale(getMean()));
+		put(json, "min" + suffix, scale(getMin()));
+		put(json, "max" + suffix, scale(getMax()));
+		put(json, "p50" + suffix, scale(getPercentile(50)));
+		put(json, "p95" + suffix, scale(getPercentile(95)));
+		put(json, "p99" + suffix, scale(getPercentile(99)));
+		return json;
+	}
+	
+	protected Number scale(double value) {
+		if (!timer) {
+			return value;
+		}
+		return value / NANOS_PER_MILLI;
+	}
+	
+	protected Number scale(long value) {
+		if (!timer) {
+			return value;
+		}
+		return value / NANOS_PER_MILLI;
+	}
+	
+	@SuppressWarnings("unchecked")
+	static void put(JSONObject json, Object key, Object value) {
+		json.put(key, value);
+	}
+	
+	/**
+	 * Initialize a histogram of plain values
+	 * @return
+	 */
+	public static Histogram init() {
+		return new Histogram(false);
+	}
+	
+	/**
+	 * Initialize a histogram of durations in nanoseconds
+	 * @return
+	 */
+	public static Histogram initTimer() {
+		return new Histogram(true);
+	}
+	
+}
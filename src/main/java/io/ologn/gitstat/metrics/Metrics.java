@@ -0,0 +1,333 @@
+package io.ologn.gitstat.metrics;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.MBeanRegistrationException;
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.NotCompliantMBeanException;
+import javax.management.ObjectName;
+
+import org.json.simple.JSONObject;
+
+/**
+ * Counters, gauges and histograms of the whole process, so the time 
+ * spent on each stage of a run and the throughput of the blame can be 
+ * seen while it's running (with JMX, see MetricsMXBean) and after it's 
+ * done (as JSON).<br>
+ * Metrics are created the first time they are used, so the names below 
+ * are only the ones recorded by gitstat itself. The stage timers are 
+ * histograms of nanoseconds, with one value per call. Calls made by 
+ * different threads overlap, so their sum can be more than the elapsed 
+ * time.<br>
+ * Objects of this class are thread safe, and recording doesn't need a 
+ * lock once a metric exists.<br>
+ * Typical usage: {@code long start = Metrics.now(); ... 
+ * Metrics.getGlobal().recordTime(Metrics.STAGE_BLAME, start)}
+ * @author lisq199
+ */
+public class Metrics implements MetricsMXBean {
+	
+	public static final String OBJECT_NAME = "io.ologn.gitstat:type=Metrics";
+	
+	/**
+	 * Timer: walking the log for the commits of a visualization
+	 */
+	public static final String STAGE_LOG_WALK = "stage.logWalk";
+	/**
+	 * Timer: getting the statistics of all the commits (or files) of a 
+	 * visualization, which is mostly blame
+	 */
+	public static final String STAGE_BLAME = "stage.blame";
+	/**
+	 * Timer: turning the blame of a file at a commit into a statistic 
+	 * (age, authorship or scores)
+	 */
+	public static final String STAGE_STAT = "stage.stat";
+	/**
+	 * Timer: putting the statistics of a visualization in order for 
+	 * its chart
+	 */
+	public static final String STAGE_SORT = "stage.sort";
+	/**
+	 * Timer: creating and writing the HTML of a visualization
+	 */
+	public static final String STAGE_RENDER = "stage.render";
+	
+	/**
+	 * Timer: the full blame of a file at a commit (BlameGenerator)
+	 */
+	public static final String BLAME_LATENCY = "blame.latency";
+	/**
+	 * Timer: one step of the incremental blame, i.e. the blame of a file 
+	 * at a commit from the blame at its parents. It's much cheaper than a 
+	 * full blame, so it's kept apart from BLAME_LATENCY.
+	 */
+	public static final String INCREMENTAL_BLAME_LATENCY =
+			"blame.incrementalStep";
+	/**
+	 * Counter: the lines blamed
+	 */
+	public static final String BLAME_LINES = "blame.lines";
+	/**
+	 * Counter: the bytes of file contents read from the object database 
+	 * by the incremental blame. A full blame (BlameGenerator) reads the 
+	 * file with its own reader, so it's not counted.
+	 */
+	public static final String BYTES_READ = "objectdb.bytesRead";
+	
+	/**
+	 * Counter: BlameCache entries that exist but can't be read
+	 */
+	public static final String CACHE_READ_ERRORS = "blameCache.readErrors";
+	/**
+	 * Counter: BlameCache entries that can't be written
+	 */
+	public static final String CACHE_WRITE_ERRORS = "blameCache.writeErrors";
+	
+	/**
+	 * Histogram: the latency of a task of the TaskScheduler, including 
+	 * the time it waits for an actor
+	 */
+	public static final String TASK_LATENCY = "scheduler.taskLatency";
+	/**
+	 * Histogram: the number of tasks waiting whenever a task is sent
+	 */
+	public static final String QUEUE_DEPTH = "scheduler.queueDepth";
+	/**
+	 * Gauge: the tasks waiting to be sent to an actor
+	 */
+	public static final String QUEUED = "scheduler.queued";
+	/**
+	 * Gauge: the tasks sent to an actor and not done yet
+	 */
+	public static final String IN_FLIGHT = "scheduler.inFlight";
+	public static final String TASKS = "scheduler.tasks";
+	public static final String RETRIES = "scheduler.retries";
+	public static final String TIMEOUTS = "scheduler.timeouts";
+	public static final String FAILED_TASKS = "scheduler.failedTasks";
+	
+	private static final Metrics GLOBAL = new Metrics();
+	
+	private static boolean registered = false;
+	
+	protected final Map<String, LongAdder> counters;
+	protected final Map<String, AtomicLong> gauges;
+	protected final Map<String, Histogram> histograms;
+	protected volatile long startNanos;
+	
+	protected Metrics() {
+		this.counters = new ConcurrentHashMap<String, LongAdder>();
+		this.gauges = new ConcurrentHashMap<String, AtomicLong>();
+		this.histograms = new ConcurrentHashMap<String, Histogram>();
+		this.startNanos = now();
+	}
+	
+	/**
+	 * Add 1 to a counter
+	 * @param name
+	 */
+	public void increment(String name) {
+		add(name, 1);
+	}
+	
+	/**
+	 * Add to a counter
+	 * @param name
+	 * @param value
+	 */
+	public void add(String name, long value) {
+		counters.computeIfAbsent(name, k -> new LongAdder()).add(value);
+	}
+	
+	/**
+	 * Add to a gauge. Unlike a counter, a gauge can go down.
+	 * @param name
+	 * @param delta
+	 */
+	public void addToGauge(String name, long delta) {
+		gauges.computeIfAbsent(name, k -> new AtomicLong()).addAndGet(delta);
+	}
+	
+	/**
+	 * Record a value in a histogram of plain values
+	 * @param name
+	 * @param value
+	 */
+	public void record(String name, long value) {
+		histograms.computeIfAbsent(name, k -> Histogram.init())
+				.record(value);
+	}
+	
+	/**
+	 * Record the time since startNanos in a timer
+	 * @param name
+	 * @param startNanos the start time from now()
+	 * @return the time in nanoseconds
+	 */
+	public long recordTime(String name, long startNanos) {
+		long nanos = now() - startNanos;
+		histograms.computeIfAbsent(name, k -> Histogram.initTimer())
+				.record(nanos);
+		return nanos;
+	}
+	
+	/**
+	 * Get the value of a counter
+	 * @param name
+	 * @return the value, or 0 if it doesn't exist
+	 */
+	public long getCounter(String name) {
+		LongAdder counter = counters.get(name);
+		return counter == null ? 0 : counter.sum();
+	}
+	
+	/**
+	 * Get the value of a gauge
+	 * @param name
+	 * @return the value, or 0 if it doesn't exist
+	 */
+	public long getGauge(String name) {
+		AtomicLong gauge = gauges.get(name);
+		return gauge == null ? 0 : gauge.get();
+	}
+	
+	/**
+	 * Get a histogram or timer
+	 * @param name
+	 * @return the histogram, or null if nothing is recorded in it
+	 */
+	public Histogram getHistogram(String name) {
+		return histograms.get(name);
+	}
+	
+	@Override
+	public long getElapsedMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(now() - startNanos);
+	}
+	
+	@Override
+	public Map<String, Long> getCounters() {
+		Map<String, Long> result = new TreeMap<String, Long>();
+		counters.forEach((name, counter) -> result.put(name, counter.sum()));
+		return result;
+	}
+	
+	@Override
+	public Map<String, Long> getGauges() {
+		Map<String, Long> result = new TreeMap<String, Long>();
+		gauges.forEach((name, gauge) -> result.put(name, gauge.get()));
+		return result;
+	}
+	
+	@Override
+	public double getBlameLinesPerSecond() {
+		long elapsed = now() - startNanos;
+		return elapsed <= 0 ? 0 : getCounter(BLAME_LINES) * 1e9 / elapsed;
+	}
+	
+	@Override
+	public String[] getProgress() {
+		return ProgressReporter.getActive();
+	}
+	
+	@Override
+	public String getJson() {
+		return toJson().toJSONString();
+	}
+	
+	/**
+	 * Drop everything recorded, and start counting the elapsed time again. 
+	 * The gauges are kept, since they are the current state.
+	 */
+	@Override
+	public void reset() {
+		counters.clear();
+		histograms.clear();
+		startNanos = now();
+	}
+	
+	/**
+	 * Get everything as JSON
+	 * @return
+	 */
+	public JSONObject toJson() {
+		JSONObject histogramsJson = new JSONObject();
+		histograms.forEach((name, histogram) -> Histogram.put(
+				histogramsJson, name, histogram.toJson()));
+		JSONObject rates = new JSONObject();
+		Histogram.put(rates, "blameLinesPerSecond", getBlameLinesPerSecond());
+		
+		JSONObject json = new JSONObject();
+		Histogram.put(json, "elapsedMillis", getElapsedMillis());
+		Histogram.put(json, "counters", new JSONObject(getCounters()));
+		Histogram.put(json, "gauges", new JSONObject(getGauges()));
+		Histogram.put(json, "histograms", histogramsJson);
+		Histogram.put(json, "rates", rates);
+		return json;
+	}
+	
+	/**
+	 * Write everything as JSON to a file
+	 * @param path
+	 * @throws IOException
+	 */
+	public void writeJson(Path path) throws IOException {
+		Path parent = path.toAbsolutePath().getParent();
+		if (parent != null) {
+			Files.createDirectories(parent);
+		}
+		Files.write(path, getJson().getBytes(StandardCharsets.UTF_8));
+	}
+	
+	/**
+	 * Get the metrics of the process
+	 * @return
+	 */
+	public static Metrics getGlobal() {
+		return GLOBAL;
+	}
+	
+	/**
+	 * Get the current time for recordTime()
+	 * @return
+	 */
+	public static long now() {
+		return System.nanoTime();
+	}
+	
+	/**
+	 * Register the metrics of the process with the platform MBeanServer. 
+	 * Calling it again does nothing.
+	 */
+	public static synchronized void registerMBean() {
+		if (registered) {
+			return;
+		}
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		try {
+			server.registerMBean(GLOBAL, new ObjectName(OBJECT_NAME));
+			registered = true;
+		} catch (InstanceAlreadyExistsException e) {
+			e.printStackTrace();
+		} catch (MBeanRegistrationException e) {
+			e.printStackTrace();
+		} catch (NotCompliantMBeanException e) {
+			e.printStackTrace();
+		} catch (MalformedObjectNameException e) {
+			e.printStackTrace();
+		}
+	}
+	
+}
@@ -0,0 +1,48 @@
+package io.ologn.gitstat.metrics;
+
+import java.util.Map;
+
+/**
+ * The management interface of Metrics, so a running process can be 
+ * watched with JConsole or any other JMX client. The name of the bean 
+ * is "io.ologn.gitstat:type=Metrics".
+ * @author lisq199
+ */
+public interface MetricsMXBean {
+	
+	/**
+	 * Get the milliseconds since the metrics were started or reset
+	 * @return
+	 */
+	long getElapsedMillis();
+	
+	Map<String, Long> getCounters();
+	
+	Map<String, Long> getGauges();
+	
+	/**
+	 * Get the number of blamed lines per second since the metrics were 
+	 * started or reset
+	 * @return
+	 */
+	double getBlameLinesPerSecond();
+	
+	/**
+	 * Get the progress of the tasks that are running
+	 * @return
+	 */
+	String[] getProgress();
+	
+	/**
+	 * Get everything as JSON, the same as the file written at the end 
+	 * of a run
+	 * @return
+	 */
+	String getJson();
+	
+	/**
+	 * Drop everything recorded
+	 */
+	void reset();
+	
+}
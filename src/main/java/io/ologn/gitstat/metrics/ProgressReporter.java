@@ -0,0 +1,169 @@
+package io.ologn.gitstat.metrics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Prints the progress of a long task, e.g. blaming a file at every 
+ * commit, at most once per interval, so a long run shows how far it is 
+ * without printing a line per step. The last step is always printed. 
+ * <br>
+ * The tasks in progress are also shown by the MetricsMXBean.<br>
+ * Objects of this class are thread safe.<br>
+ * Typical usage: {@code ProgressReporter progress = ProgressReporter 
+ * .init("Blame", commits.size()); ... progress.step(); ... 
+ * progress.finish();}
+ * @author lisq199
+ */
+public class ProgressReporter {
+	
+	public static final long DEFAULT_INTERVAL_MILLIS = 1000;
+	
+	private static volatile long intervalMillis = DEFAULT_INTERVAL_MILLIS;
+	
+	/**
+	 * The tasks in progress
+	 */
+	private static final Map<ProgressReporter, Boolean> ACTIVE =
+			new ConcurrentHashMap<ProgressReporter, Boolean>();
+	
+	protected final String label;
+	protected final long total;
+	protected final long startNanos;
+	protected final AtomicLong done;
+	protected final AtomicLong lastReportNanos;
+	
+	protected ProgressReporter(String label, long total) {
+		this.label = label;
+		this.total = total;
+		this.startNanos = System.nanoTime();
+		this.done = new AtomicLong();
+		this.lastReportNanos = new AtomicLong(startNanos);
+	}
+	
+	/**
+	 * Count a finished step
+	 */
+	public void step() {
+		step(1);
+	}
+	
+	/**
+	 * Count finished steps, and print the progress if nothing has been 
+	 * printed during the interval
+	 * @param steps
+	 */
+	public void step(long steps) {
+		long current = done.addAndGet(steps);
+		long interval = TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+		if (interval <= 0 || current >= total) {
+			return;
+		}
+		long now = System.nanoTime();
+		long last = lastReportNanos.get();
+		// Only the thread that moves the time forward prints
+		if (now - last >= interval
+				&& lastReportNanos.compareAndSet(last, now)) {
+			System.out.println(toString());
+		}
+	}
+	
+	/**
+	 * Print the final progress, and remove the task from the ones in 
+	 * progress
+	 */
+	public void finish() {
+		ACTIVE.remove(this);
+		if (intervalMillis > 0 && total > 0) {
+			System.out.println(toString());
+		}
+	}
+	
+	public String getLabel() {
+		return label;
+	}
+	
+	public long getTotal() {
+		return total;
+	}
+	
+	public long getDone() {
+		return done.get();
+	}
+	
+	/**
+	 * Get the number of steps per second so far
+	 * @return
+	 */
+	public double getRate() {
+		long elapsed = System.nanoTime() - startNanos;
+		return elapsed <= 0 ? 0 : getDone() * 1e9 / elapsed;
+	}
+	
+	/**
+	 * Get the progress, e.g. "Blame: 120/400 (30%), 55.2/s, 5s left"
+	 */
+	@Override
+	public String toString() {
+		long current = getDone();
+		double rate = getRate();
+		StringBuilder sb = new StringBuilder(label).append(": ")
+				.append(current).append('/').append(total);
+		if (total > 0) {
+			sb.append(" (").append(current * 100 / total).append("%)");
+		}
+		sb.append(", ").append(String.format("%.1f", rate)).append("/s");
+		if (current < total && rate > 0) {
+			sb.append(", ").append((long) Math.ceil((total - current) / rate))
+					.append("s left");
+		}
+		return sb.toString();
+	}
+	
+	/**
+	 * Set how often the progress is printed
+	 * @param millis the interval, or 0 to print nothing
+	 */
+	public static void setInterval(long millis) {
+		intervalMillis = Math.max(millis, 0);
+	}
+	
+	public static long getInterval() {
+		return intervalMillis;
+	}
+	
+	/**
+	 * Print a message about a run, e.g. the number of commits found, 
+	 * unless printing is turned off with setInterval(0)
+	 * @param message
+	 */
+	public static void report(String message) {
+		if (intervalMillis > 0) {
+			System.out.println(message);
+		}
+	}
+	
+	/**
+	 * Get the progress of the tasks that are running
+	 * @return
+	 */
+	static String[] getActive() {
+		return ACTIVE.keySet().stream().map(ProgressReporter::toString)
+				.toArray(String[]::new);
+	}
+	
+	/**
+	 * Start reporting the progress of a task
+	 * @param label the name of the task
+	 * @param total the number of steps
+	 * @return
+	 */
+	public static ProgressReporter init(String label, long total) {
+		ProgressReporter progress = new ProgressReporter(label, total);
+		ACTIVE.put(progress, Boolean.TRUE);
+		return progress;
+	}
+	
+}
@@ -0,0 +1,168 @@
+package io.ologn.gitstat.stat;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.jgit.lib.PersonIdent;
+
+/**
+ * A dictionary that gives every distinct author (name and email) a dense 
+ * int id. The ids are never reused, so objects storing author ids instead 
+ * of GitAuthor objects (e.g. LineAuthorship) can be compared with each 
+ * other as long as they use the same dictionary.<br>
+ * The GitAuthor objects kept by the dictionary have no author time, since 
+ * the same author writes many commits.<br>
+ * Objects of this class are thread safe. Looking up an author by id 
+ * doesn't need a lock.
+ * @author lisq199
+ */
+public class AuthorDictionary {
+	
+	private static final AuthorDictionary GLOBAL = new AuthorDictionary();
+	
+	protected final Map<GitAuthor, Integer> ids;
+	/**
+	 * The author of each id. A new author is written to the array before 
+	 * its id is published, so readers never need a lock.
+	 */
+	protected volatile GitAuthor[] authors;
+	protected int size;
+	
+	protected AuthorDictionary() {
+		this.ids = new ConcurrentHashMap<GitAuthor, Integer>();
+		this.authors = new GitAuthor[16];
+		this.size = 0;
+	}
+	
+	/**
+	 * Get the number of authors
+	 * @return
+	 */
+	public int size() {
+		return ids.size();
+	}
+	
+	/**
+	 * Get the id of an author, and add the author if it's not in the 
+	 * dictionary yet.
+	 * @param author
+	 * @return
+	 */
+	public int intern(GitAuthor author) {
+		Integer id = ids.get(author);
+		if (id != null) {
+			return id;
+		}
+		return add(author.getName(), author.getEmail());
+	}
+	
+	/**
+	 * Get the id of an author, and add the author if it's not in the 
+	 * dictionary yet.
+	 * @param ident
+	 * @return
+	 */
+	public int intern(PersonIdent ident) {
+		return intern(new GitAuthor(ident.getName(), ident.getEmailAddress()));
+	}
+	
+	/**
+	 * Same as intern(GitAuthor)
+	 * @param name
+	 * @param email
+	 * @return
+	 */
+	public int intern(String name, String email) {
+		return intern(new GitAuthor(name, email));
+	}
+	
+	protected synchronized int add(String name, String email) {
+		GitAuthor author = new GitAuthor(name, email);
+		Integer id = ids.get(author);
+		if (id != null) {
+			return id;
+		}
+		GitAuthor[] array = authors;
+		if (size == array.length) {
+			array = Arrays.copyOf(array, size * 2);
+		}
+		array[size] = author;
+		// Publish the author before the id, so getAuthor() always works
+		authors = array;
+		ids.put(author, size);
+		return size++;
+	}
+	
+	/**
+	 * Get the id of an author without adding it
+	 * @param author
+	 * @return the id, or -1 if the author is not in the dictionary
+	 */
+	public int getId(GitAuthor author) {
+		Integer id = ids.get(author);
+		return id == null ? -1 : id;
+	}
+	
+	/**
+	 * Get the author by the id
+	 * @param id
+	 * @return
+	 */
+	public GitAuthor getAuthor(int id) {
+		return authors[id];
+	}
+	
+	/**
+	 * Get the author by the id, with an author time. The objects that 
+	 * store author ids and times don't store the time zones, so the 
+	 * time zone is always UTC.
+	 * @param id
+	 * @param authorTime the author time in milliseconds
+	 * @return
+	 */
+	public GitAuthor getAuthor(int id, long authorTime) {
+		GitAuthor author = authors[id];
+		return new GitAuthor(new PersonIdent(author.getName(),
+				author.getEmail(), authorTime, 0));
+	}
+	
+	/**
+	 * Get the ids of authors from their ids in another dictionary. 
+	 * Authors that are not in this dictionary yet are added. Each 
+	 * distinct author is only looked up once.
+	 * @param source the dictionary of sourceIds
+	 * @param sourceIds
+	 * @return
+	 */
+	public int[] intern(AuthorDictionary source, int[] sourceIds) {
+		if (source == this) {
+			return sourceIds.clone();
+		}
+		Map<Integer, Integer> translated = new HashMap<Integer, Integer>();
+		int[] ids = new int[sourceIds.length];
+		for (int i = 0; i < ids.length; i++) {
+			ids[i] = translated.computeIfAbsent(sourceIds[i],
+					id -> intern(source.getAuthor(id)));
+		}
+		return ids;
+	}
+	
+	/**
+	 * Get the dictionary shared by the whole process
+	 * @return
+	 */
+	public static AuthorDictionary getGlobal() {
+		return GLOBAL;
+	}
+	
+	/**
+	 * Create a new empty dictionary
+	 * @return
+	 */
+	public static AuthorDictionary init() {
+		return new AuthorDictionary();
+	}
+	
+}
@@ -6,7 +6,12 @@ import org.eclipse.jgit.blame.BlameResult;
 
 /**
  * Classes that contain a BlameResult object. This abstract class contains 
- * methods that take advantage of the BlameResult object.
+ * methods that take advantage of the BlameResult object.<br>
+ * Most implementations are detached: they keep only what they need from 
+ * the BlameResult (e.g. the author of each line) and getBlameResult() 
+ * returns null, so they don't keep the contents of the file in memory. 
+ * They override the methods they support, and the rest throw 
+ * UnsupportedOperationException.
  * @author lisq199
  *
  */
@@ -20,12 +25,27 @@ public interface BlameResultContainer {
 	
 	public String getSha1();
 	
+	/**
+	 * Get the BlameResult object, which has to be present
+	 * @return
+	 * @throws UnsupportedOperationException if the object is detached 
+	 * from its BlameResult
+	 */
+	public default BlameResult requireBlameResult() {
+		BlameResult blameResult = getBlameResult();
+		if (blameResult == null) {
+			throw new UnsupportedOperationException(getClass().getSimpleName()
+					+ " is not backed by a BlameResult");
+		}
+		return blameResult;
+	}
+	
 	/**
 	 * Get the path of the file the current BlameResult points to
 	 * @return
 	 */
 	public default String getFilePath() {
-		return getBlameResult().getResultPath();
+		return requireBlameResult().getResultPath();
 	}
 	
 	/**
@@ -33,7 +53,7 @@ public interface BlameResultContainer {
 	 * @return
 	 */
 	public default int getBlameSize() {
-		return getBlameResult().getResultContents().size();
+		return requireBlameResult().getResultContents().size();
 	}
 	
 	/**
@@ -42,7 +62,33 @@ public interface BlameResultContainer {
 	 * @return
 	 */
 	public default GitAuthor getAuthorAtLine(int i) {
-		return new GitAuthor(getBlameResult().getSourceAuthor(i));
+		return new GitAuthor(requireBlameResult().getSourceAuthor(i));
+	}
+	
+	/**
+	 * Get the id of the author of each line in an AuthorDictionary. 
+	 * Authors that are not in the dictionary yet are added.
+	 * @param dictionary
+	 * @return
+	 */
+	public default int[] getAuthorIds(AuthorDictionary dictionary) {
+		int[] ids = new int[getBlameSize()];
+		for (int i = 0; i < ids.length; i++) {
+			ids[i] = dictionary.intern(getAuthorAtLine(i));
+		}
+		return ids;
+	}
+	
+	/**
+	 * Get the author time of each line in milliseconds
+	 * @return
+	 */
+	public default long[] getAuthorTimes() {
+		long[] times = new long[getBlameSize()];
+		for (int i = 0; i < times.length; i++) {
+			times[i] = getAuthorAtLine(i).getAuthorTime().getTime();
+		}
+		return times;
 	}
 	
 	/**
@@ -52,7 +98,7 @@ public interface BlameResultContainer {
 	 * @return
 	 */
 	public default GitAuthor getCommitterAtLine(int i) {
-		return new GitAuthor(getBlameResult().getSourceCommitter(i));
+		return new GitAuthor(requireBlameResult().getSourceCommitter(i));
 	}
 	
 	/**
@@ -60,7 +106,7 @@ public interface BlameResultContainer {
 	 * @return
 	 */
 	public default String getSource() {
-		return getBlameResult().getResultContents().toString();
+		return requireBlameResult().getResultContents().toString();
 	}
 	
 	/**
@@ -69,7 +115,7 @@ public interface BlameResultContainer {
 	 * @return
 	 */
 	public default String getSourceLine(int i) {
-		return getBlameResult().getResultContents().getString(i);
+		return requireBlameResult().getResultContents().getString(i);
 	}
 	
 	/**
@@ -0,0 +1,194 @@
+package io.ologn.gitstat.stat;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import org.eclipse.jgit.blame.BlameResult;
+import org.eclipse.jgit.diff.RawText;
+import org.eclipse.jgit.revwalk.RevCommit;
+
+/**
+ * A BlameResultContainer that is not backed by a BlameResult. It stores 
+ * the contents of a file at a commit and the commit each line comes from, 
+ * which is everything the default methods of BlameResultContainer need. 
+ * Objects of this class are produced by IncrementalBlame.<br>
+ * Note: getBlameResult() always returns null.
+ * @author lisq199
+ */
+public class BlameSnapshot implements BlameResultContainer {
+	
+	protected String sha1;
+	protected String filePath;
+	protected RawText contents;
+	/**
+	 * The commit each line comes from. The RevCommit objects are shared 
+	 * between snapshots, so this array is the only per line cost.
+	 */
+	protected RevCommit[] sourceCommits;
+	/**
+	 * The score of each author by author id, kept by IncrementalBlame if 
+	 * it's asked to. null if there are no scores.
+	 */
+	protected long[] authorScores;
+	protected AuthorDictionary dictionary;
+	
+	/**
+	 * Disable default constructor
+	 */
+	protected BlameSnapshot() {}
+	
+	protected BlameSnapshot(String sha1, String filePath, RawText contents,
+			RevCommit[] sourceCommits) {
+		this();
+		this.sha1 = sha1;
+		this.filePath = filePath;
+		this.contents = contents;
+		this.sourceCommits = sourceCommits;
+	}
+	
+	/**
+	 * There is no BlameResult behind a BlameSnapshot
+	 * @return null
+	 */
+	@Override
+	public BlameResult getBlameResult() {
+		return null;
+	}
+	
+	@Override
+	public String getSha1() {
+		return sha1;
+	}
+	
+	@Override
+	public String getFilePath() {
+		return filePath;
+	}
+	
+	@Override
+	public int getBlameSize() {
+		return sourceCommits.length;
+	}
+	
+	/**
+	 * Get the commit a line comes from
+	 * @param i the line number
+	 * @return
+	 */
+	public RevCommit getSourceCommit(int i) {
+		return sourceCommits[i];
+	}
+	
+	@Override
+	public GitAuthor getAuthorAtLine(int i) {
+		return new GitAuthor(sourceCommits[i].getAuthorIdent());
+	}
+	
+	/**
+	 * Each source commit is only looked up once in the dictionary, not 
+	 * once per line.
+	 */
+	@Override
+	public int[] getAuthorIds(AuthorDictionary dictionary) {
+		Map<RevCommit, Integer> commitAuthorIds =
+				new IdentityHashMap<RevCommit, Integer>();
+		int[] ids = new int[sourceCommits.length];
+		for (int i = 0; i < ids.length; i++) {
+			Integer id = commitAuthorIds.get(sourceCommits[i]);
+			if (id == null) {
+				id = dictionary.intern(sourceCommits[i].getAuthorIdent());
+				commitAuthorIds.put(sourceCommits[i], id);
+			}
+			ids[i] = id;
+		}
+		return ids;
+	}
+	
+	/**
+	 * The author of each source commit is only parsed once, not once per 
+	 * line.
+	 */
+	@Override
+	public long[] getAuthorTimes() {
+		Map<RevCommit, Long> commitAuthorTimes =
+				new IdentityHashMap<RevCommit, Long>();
+		long[] times = new long[sourceCommits.length];
+		for (int i = 0; i < times.length; i++) {
+			Long time = commitAuthorTimes.get(sourceCommits[i]);
+			if (time == null) {
+				time = sourceCommits[i].getAuthorIdent().getWhen().getTime();
+				commitAuthorTimes.put(sourceCommits[i], time);
+			}
+			times[i] = time;
+		}
+		return times;
+	}
+	
+	/**
+	 * Set the score of each author
+	 * @param dictionary the dictionary of the author ids
+	 * @param authorScores the score of each author by author id
+	 */
+	public void setAuthorScores(AuthorDictionary dictionary,
+			long[] authorScores) {
+		this.dictionary = dictionary;
+		this.authorScores = authorScores;
+	}
+	
+	/**
+	 * Whether the snapshot has the score of each author
+	 * @return
+	 */
+	public boolean hasAuthorScores() {
+		return authorScores != null;
+	}
+	
+	/**
+	 * Get the score of each author that owns part of the file
+	 * @return
+	 * @throws UnsupportedOperationException if there are no scores
+	 */
+	public Map<GitAuthor, Long> getAuthorScores() {
+		if (authorScores == null) {
+			throw new UnsupportedOperationException(
+					"The snapshot has no author scores");
+		}
+		Map<GitAuthor, Long> scores = new HashMap<GitAuthor, Long>();
+		for (int id = 0; id < authorScores.length; id++) {
+			if (authorScores[id] != 0) {
+				scores.put(dictionary.getAuthor(id), authorScores[id]);
+			}
+		}
+		return scores;
+	}
+	
+	@Override
+	public GitAuthor getCommitterAtLine(int i) {
+		return new GitAuthor(sourceCommits[i].getCommitterIdent());
+	}
+	
+	@Override
+	public String getSource() {
+		return contents.getString(0, contents.size(), false);
+	}
+	
+	@Override
+	public String getSourceLine(int i) {
+		return contents.getString(i);
+	}
+	
+	/**
+	 * Create a BlameSnapshot
+	 * @param sha1 the SHA-1 of the commit the snapshot is taken at
+	 * @param filePath
+	 * @param contents the contents of the file at the commit
+	 * @param sourceCommits the commit each line comes from
+	 * @return
+	 */
+	public static BlameSnapshot init(String sha1, String filePath,
+			RawText contents, RevCommit[] sourceCommits) {
+		return new BlameSnapshot(sha1, filePath, contents, sourceCommits);
+	}
+	
+}
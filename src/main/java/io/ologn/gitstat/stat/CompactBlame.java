@@ -0,0 +1,436 @@
+package io.ologn.gitstat.stat;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.jgit.blame.BlameResult;
+import org.eclipse.jgit.diff.RawText;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.treewalk.TreeWalk;
+
+import io.ologn.gitstat.jgit.RepoContext;
+
+/**
+ * A compact BlameResultContainer that only stores the attribution of 
+ * each line: the index of the source commit of each line, and a small 
+ * table with the id, author, committer and their times for each source 
+ * commit.<br>
+ * The contents of the file are not stored. They are read from the 
+ * repository (see setRepository()) the first time getSource() or 
+ * getSourceLine() is called, and kept from then on.<br>
+ * Objects of this class are what BlameCache stores on disk.
+ * @author lisq199
+ */
+public class CompactBlame implements BlameResultContainer {
+	
+	protected String sha1;
+	protected String filePath;
+	
+	/**
+	 * The index of the source commit of each line
+	 */
+	protected int[] lineCommits;
+	
+	protected ObjectId[] commitIds;
+	/**
+	 * The index of the author of each source commit
+	 */
+	protected int[] commitAuthors;
+	protected long[] commitAuthorTimes;
+	/**
+	 * Time zone offsets in minutes
+	 */
+	protected int[] commitTimeZones;
+	/**
+	 * The index of the committer of each source commit
+	 */
+	protected int[] commitCommitters;
+	protected long[] commitCommitterTimes;
+	protected int[] commitCommitterTimeZones;
+	
+	/**
+	 * The names and emails of the authors and the committers
+	 */
+	protected String[] personNames;
+	protected String[] personEmails;
+	
+	protected Repository repo;
+	/**
+	 * The contents of the file, null until they are needed
+	 */
+	protected RawText contents;
+	
+	/**
+	 * Disable default constructor
+	 */
+	protected CompactBlame() {}
+	
+	/**
+	 * There is no BlameResult behind a CompactBlame
+	 * @return null
+	 */
+	@Override
+	public BlameResult getBlameResult() {
+		return null;
+	}
+	
+	@Override
+	public String getSha1() {
+		return sha1;
+	}
+	
+	@Override
+	public String getFilePath() {
+		return filePath;
+	}
+	
+	@Override
+	public int getBlameSize() {
+		return lineCommits.length;
+	}
+	
+	/**
+	 * Get the id of the commit a line comes from
+	 * @param i the line number
+	 * @return
+	 */
+	public ObjectId getSourceCommitId(int i) {
+		return commitIds[lineCommits[i]];
+	}
+	
+	/**
+	 * Get the ids of all the source commits
+	 * @return
+	 */
+	public ObjectId[] getSourceCommitIds() {
+		return commitIds.clone();
+	}
+	
+	/**
+	 * Set the repository the contents of the file are read from
+	 * @param repo
+	 * @return
+	 */
+	public CompactBlame setRepository(Repository repo) {
+		this.repo = repo;
+		return this;
+	}
+	
+	@Override
+	public GitAuthor getAuthorAtLine(int i) {
+		int c = lineCommits[i];
+		int a = commitAuthors[c];
+		return new GitAuthor(new PersonIdent(personNames[a],
+				personEmails[a], commitAuthorTimes[c], commitTimeZones[c]));
+	}
+	
+	/**
+	 * Each author is only looked up once in the dictionary, not once per 
+	 * line.
+	 */
+	@Override
+	public int[] getAuthorIds(AuthorDictionary dictionary) {
+		int[] commitAuthorIds = new int[commitAuthors.length];
+		for (int c = 0; c < commitAuthorIds.length; c++) {
+			int a = commitAuthors[c];
+			commitAuthorIds[c] = dictionary.intern(personNames[a],
+					personEmails[a]);
+		}
+		int[] ids = new int[lineCommits.length];
+		for (int i = 0; i < ids.length; i++) {
+			ids[i] = commitAuthorIds[lineCommits[i]];
+		}
+		return ids;
+	}
+	
+	@Override
+	public long[] getAuthorTimes() {
+		long[] times = new long[lineCommits.length];
+		for (int i = 0; i < times.length; i++) {
+			times[i] = commitAuthorTimes[lineCommits[i]];
+		}
+		return times;
+	}
+	
+	@Override
+	public GitAuthor getCommitterAtLine(int i) {
+		int c = lineCommits[i];
+		int p = commitCommitters[c];
+		return new GitAuthor(new PersonIdent(personNames[p],
+				personEmails[p], commitCommitterTimes[c],
+				commitCommitterTimeZones[c]));
+	}
+	
+	/**
+	 * The contents are read from the repository.
+	 * @throws IllegalStateException if the repository is not set, or the 
+	 * file can't be read from it
+	 */
+	@Override
+	public String getSource() {
+		return getContents().getString(0, lineCommits.length, false);
+	}
+	
+	/**
+	 * The contents are read from the repository.
+	 * @throws IllegalStateException if the repository is not set, or the 
+	 * file can't be read from it
+	 */
+	@Override
+	public String getSourceLine(int i) {
+		return getContents().getString(i);
+	}
+	
+	/**
+	 * Get the contents of the file, reading them from the repository if 
+	 * they haven't been read yet
+	 * @return
+	 */
+	protected RawText getContents() {
+		if (contents != null) {
+			return contents;
+		}
+		if (repo == null) {
+			throw new IllegalStateException("The contents of " + filePath
+					+ " can't be read: the CompactBlame has no repository");
+		}
+		ObjectReader reader = RepoContext.get(repo).getObjectReader();
+		try (
+			RevWalk revWalk = new RevWalk(reader);
+		) {
+			RevCommit commit = revWalk.parseCommit(ObjectId.fromString(sha1));
+			try (
+				TreeWalk treeWalk = TreeWalk.forPath(reader, filePath,
+						commit.getTree());
+			) {
+				if (treeWalk == null) {
+					throw new IllegalStateException(filePath
+							+ " doesn't exist at " + sha1);
+				}
+				RawText text = new RawText(reader.open(
+						treeWalk.getObjectId(0), Constants.OBJ_BLOB)
+						.getCachedBytes(Integer.MAX_VALUE));
+				if (text.size() != lineCommits.length) {
+					throw new IllegalStateException(filePath + " at " + sha1
+							+ " doesn't match its blame");
+				}
+				contents = text;
+				return contents;
+			}
+		} catch (IOException e) {
+			throw new IllegalStateException("The contents of " + filePath
+					+ " can't be read", e);
+		}
+	}
+	
+	/**
+	 * Write the object. The lines are run-length encoded, since 
+	 * consecutive lines usually come from the same commit.
+	 * @param out
+	 * @throws IOException
+	 */
+	public void write(DataOutput out) throws IOException {
+		out.writeUTF(sha1);
+		out.writeUTF(filePath);
+		out.writeInt(personNames.length);
+		for (int i = 0; i < personNames.length; i++) {
+			out.writeUTF(personNames[i]);
+			out.writeUTF(personEmails[i]);
+		}
+		out.writeInt(commitIds.length);
+		byte[] raw = new byte[Constants.OBJECT_ID_LENGTH];
+		for (int i = 0; i < commitIds.length; i++) {
+			commitIds[i].copyRawTo(raw, 0);
+			out.write(raw);
+			out.writeInt(commitAuthors[i]);
+			out.writeLong(commitAuthorTimes[i]);
+			out.writeInt(commitTimeZones[i]);
+			out.writeInt(commitCommitters[i]);
+			out.writeLong(commitCommitterTimes[i]);
+			out.writeInt(commitCommitterTimeZones[i]);
+		}
+		out.writeInt(lineCommits.length);
+		int i = 0;
+		while (i < lineCommits.length) {
+			int run = 1;
+			while (i + run < lineCommits.length
+					&& lineCommits[i + run] == lineCommits[i]) {
+				run++;
+			}
+			out.writeInt(lineCommits[i]);
+			out.writeInt(run);
+			i += run;
+		}
+	}
+	
+	/**
+	 * Read an object written by write()
+	 * @param in
+	 * @return
+	 * @throws IOException
+	 */
+	public static CompactBlame read(DataInput in) throws IOException {
+		CompactBlame blame = new CompactBlame();
+		blame.sha1 = in.readUTF();
+		blame.filePath = in.readUTF();
+		int personCount = in.readInt();
+		blame.personNames = new String[personCount];
+		blame.personEmails = new String[personCount];
+		for (int i = 0; i < personCount; i++) {
+			blame.personNames[i] = in.readUTF();
+			blame.personEmails[i] = in.readUTF();
+		}
+		int commitCount = in.readInt();
+		blame.commitIds = new ObjectId[commitCount];
+		blame.commitAuthors = new int[commitCount];
+		blame.commitAuthorTimes = new long[commitCount];
+		blame.commitTimeZones = new int[commitCount];
+		blame.commitCommitters = new int[commitCount];
+		blame.commitCommitterTimes = new long[commitCount];
+		blame.commitCommitterTimeZones = new int[commitCount];
+		byte[] raw = new byte[Constants.OBJECT_ID_LENGTH];
+		for (int i = 0; i < commitCount; i++) {
+			in.readFully(raw);
+			blame.commitIds[i] = ObjectId.fromRaw(raw);
+			blame.commitAuthors[i] = checkIndex(in.readInt(), personCount);
+			blame.commitAuthorTimes[i] = in.readLong();
+			blame.commitTimeZones[i] = in.readInt();
+			blame.commitCommitters[i] = checkIndex(in.readInt(),
+					personCount);
+			blame.commitCommitterTimes[i] = in.readLong();
+			blame.commitCommitterTimeZones[i] = in.readInt();
+		}
+		int lineCount = in.readInt();
+		blame.lineCommits = new int[lineCount];
+		int i = 0;
+		while (i < lineCount) {
+			int commit = checkIndex(in.readInt(), commitCount);
+			int run = in.readInt();
+			if (run <= 0 || i + run > lineCount) {
+				throw new IOException("Invalid run length: " + run);
+			}
+			for (int end = i + run; i < end; i++) {
+				blame.lineCommits[i] = commit;
+			}
+		}
+		return blame;
+	}
+	
+	private static int checkIndex(int index, int size) throws IOException {
+		if (index < 0 || index >= size) {
+			throw new IOException("Invalid index: " + index);
+		}
+		return index;
+	}
+	
+	/**
+	 * Calculate a CompactBlame from the source commit of each line
+	 * @param sha1
+	 * @param filePath
+	 * @param sourceCommits
+	 * @return
+	 */
+	protected static CompactBlame calculate(String sha1, String filePath,
+			RevCommit[] sourceCommits) {
+		CompactBlame blame = new CompactBlame();
+		blame.sha1 = sha1;
+		blame.filePath = filePath;
+		blame.lineCommits = new int[sourceCommits.length];
+		
+		Map<RevCommit, Integer> commitIndexes =
+				new HashMap<RevCommit, Integer>();
+		List<RevCommit> commits = new ArrayList<RevCommit>();
+		for (int i = 0; i < sourceCommits.length; i++) {
+			Integer index = commitIndexes.get(sourceCommits[i]);
+			if (index == null) {
+				index = commits.size();
+				commitIndexes.put(sourceCommits[i], index);
+				commits.add(sourceCommits[i]);
+			}
+			blame.lineCommits[i] = index;
+		}
+		
+		int commitCount = commits.size();
+		blame.commitIds = new ObjectId[commitCount];
+		blame.commitAuthors = new int[commitCount];
+		blame.commitAuthorTimes = new long[commitCount];
+		blame.commitTimeZones = new int[commitCount];
+		blame.commitCommitters = new int[commitCount];
+		blame.commitCommitterTimes = new long[commitCount];
+		blame.commitCommitterTimeZones = new int[commitCount];
+		Map<GitAuthor, Integer> personIndexes =
+				new HashMap<GitAuthor, Integer>();
+		List<GitAuthor> persons = new ArrayList<GitAuthor>();
+		for (int i = 0; i < commitCount; i++) {
+			RevCommit commit = commits.get(i);
+			PersonIdent author = commit.getAuthorIdent();
+			PersonIdent committer = commit.getCommitterIdent();
+			blame.commitIds[i] = commit.copy();
+			blame.commitAuthors[i] = indexOf(author, personIndexes, persons);
+			blame.commitAuthorTimes[i] = author.getWhen().getTime();
+			blame.commitTimeZones[i] = author.getTimeZoneOffset();
+			blame.commitCommitters[i] = indexOf(committer, personIndexes,
+					persons);
+			blame.commitCommitterTimes[i] = committer.getWhen().getTime();
+			blame.commitCommitterTimeZones[i] =
+					committer.getTimeZoneOffset();
+		}
+		blame.personNames = persons.stream()
+				.map(a -> a.getName())
+				.toArray(String[]::new);
+		blame.personEmails = persons.stream()
+				.map(a -> a.getEmail())
+				.toArray(String[]::new);
+		return blame;
+	}
+	
+	private static int indexOf(PersonIdent ident,
+			Map<GitAuthor, Integer> personIndexes, List<GitAuthor> persons) {
+		GitAuthor person = new GitAuthor(ident);
+		Integer index = personIndexes.get(person);
+		if (index == null) {
+			index = persons.size();
+			personIndexes.put(person, index);
+			persons.add(person);
+		}
+		return index;
+	}
+	
+	/**
+	 * Calculate a CompactBlame from a BlameResult
+	 * @param sha1
+	 * @param blameResult
+	 * @return
+	 */
+	public static CompactBlame calculate(String sha1,
+			BlameResult blameResult) {
+		RevCommit[] sourceCommits = new RevCommit[
+				blameResult.getResultContents().size()];
+		for (int i = 0; i < sourceCommits.length; i++) {
+			sourceCommits[i] = blameResult.getSourceCommit(i);
+		}
+		return calculate(sha1, blameResult.getResultPath(), sourceCommits);
+	}
+	
+	/**
+	 * Calculate a CompactBlame from a BlameSnapshot
+	 * @param snapshot
+	 * @return
+	 */
+	public static CompactBlame calculate(BlameSnapshot snapshot) {
+		return calculate(snapshot.getSha1(), snapshot.getFilePath(),
+				snapshot.sourceCommits);
+	}
+	
+}
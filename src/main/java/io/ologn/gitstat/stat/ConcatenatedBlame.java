@@ -0,0 +1,179 @@
+package io.ologn.gitstat.stat;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.eclipse.jgit.blame.BlameResult;
+
+/**
+ * The blames of many files at the same commit put one after another, as 
+ * if they were one file, so the timeline of a whole directory can be 
+ * calculated the same way as the one of a file (e.g. with 
+ * LineAuthorship.calculate() or FileAge.calculate()).<br>
+ * The parts are kept as they are, and every line is looked up in its 
+ * part, so the same methods are supported as by the parts.
+ * @author lisq199
+ */
+public class ConcatenatedBlame implements BlameResultContainer {
+	
+	protected String sha1;
+	protected String filePath;
+	protected List<BlameResultContainer> parts;
+	/**
+	 * The first line of each part, followed by the total number of lines
+	 */
+	protected int[] offsets;
+	
+	/**
+	 * Disable default constructor
+	 */
+	protected ConcatenatedBlame() {}
+	
+	protected ConcatenatedBlame(String sha1, String filePath,
+			List<? extends BlameResultContainer> parts) {
+		this.sha1 = sha1;
+		this.filePath = filePath;
+		this.parts = new ArrayList<BlameResultContainer>(parts);
+		this.offsets = new int[parts.size() + 1];
+		for (int i = 0; i < parts.size(); i++) {
+			offsets[i + 1] = offsets[i] + parts.get(i).getBlameSize();
+		}
+	}
+	
+	/**
+	 * There is no BlameResult behind a ConcatenatedBlame
+	 * @return null
+	 */
+	@Override
+	public BlameResult getBlameResult() {
+		return null;
+	}
+	
+	@Override
+	public String getSha1() {
+		return sha1;
+	}
+	
+	/**
+	 * Get the path of the directory the parts are in
+	 */
+	@Override
+	public String getFilePath() {
+		return filePath;
+	}
+	
+	@Override
+	public int getBlameSize() {
+		return offsets[offsets.length - 1];
+	}
+	
+	/**
+	 * Get the number of parts (files)
+	 * @return
+	 */
+	public int getPartCount() {
+		return parts.size();
+	}
+	
+	public BlameResultContainer getPart(int index) {
+		return parts.get(index);
+	}
+	
+	/**
+	 * Get the line where a part starts
+	 * @param index
+	 * @return
+	 */
+	public int getPartStart(int index) {
+		return offsets[index];
+	}
+	
+	/**
+	 * Get the index of the part a line is in
+	 * @param i the line number
+	 * @return
+	 */
+	public int getPartIndex(int i) {
+		if (i < 0 || i >= getBlameSize()) {
+			throw new IndexOutOfBoundsException("Line " + i);
+		}
+		int index = Arrays.binarySearch(offsets, i);
+		if (index < 0) {
+			return -index - 2;
+		}
+		// Skip the empty parts that start at the same line
+		while (offsets[index + 1] == i) {
+			index++;
+		}
+		return index;
+	}
+	
+	@Override
+	public GitAuthor getAuthorAtLine(int i) {
+		int index = getPartIndex(i);
+		return parts.get(index).getAuthorAtLine(i - offsets[index]);
+	}
+	
+	@Override
+	public int[] getAuthorIds(AuthorDictionary dictionary) {
+		int[] ids = new int[getBlameSize()];
+		for (int i = 0; i < parts.size(); i++) {
+			int[] partIds = parts.get(i).getAuthorIds(dictionary);
+			System.arraycopy(partIds, 0, ids, offsets[i], partIds.length);
+		}
+		return ids;
+	}
+	
+	@Override
+	public long[] getAuthorTimes() {
+		long[] times = new long[getBlameSize()];
+		for (int i = 0; i < parts.size(); i++) {
+			long[] partTimes = parts.get(i).getAuthorTimes();
+			System.arraycopy(partTimes, 0, times, offsets[i],
+					partTimes.length);
+		}
+		return times;
+	}
+	
+	@Override
+	public GitAuthor getCommitterAtLine(int i) {
+		int index = getPartIndex(i);
+		return parts.get(index).getCommitterAtLine(i - offsets[index]);
+	}
+	
+	@Override
+	public String getSource() {
+		StringBuilder builder = new StringBuilder();
+		for (BlameResultContainer part : parts) {
+			builder.append(part.getSource());
+		}
+		return builder.toString();
+	}
+	
+	@Override
+	public String getSourceLine(int i) {
+		int index = getPartIndex(i);
+		return parts.get(index).getSourceLine(i - offsets[index]);
+	}
+	
+	@Override
+	public Duration getAgeOfLine(int i) {
+		int index = getPartIndex(i);
+		return parts.get(index).getAgeOfLine(i - offsets[index]);
+	}
+	
+	/**
+	 * Put the blames of many files at the same commit one after another
+	 * @param sha1 the SHA-1 of the commit
+	 * @param filePath the path of the directory the files are in
+	 * @param parts the blames of the files in order
+	 * @return
+	 */
+	public static ConcatenatedBlame init(String sha1, String filePath,
+			List<? extends BlameResultContainer> parts) {
+		return new ConcatenatedBlame(sha1, filePath, parts);
+	}
+	
+}
@@ -0,0 +1,407 @@
+package io.ologn.gitstat.stat;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+
+import com.google.common.collect.Lists;
+
+import io.ologn.gitstat.akka.DirectoryBlameMaster;
+import io.ologn.gitstat.akka.DirectoryBlameMaster.Task;
+import io.ologn.gitstat.jgit.CommitIndex;
+import io.ologn.gitstat.jgit.JGitUtils;
+import io.ologn.gitstat.jgit.TreeUtils;
+import io.ologn.gitstat.vis.ColorPixels;
+
+/**
+ * The LineAuthorship or FileAge objects of all the files under a 
+ * directory over commits, so the timeline of a whole directory can be 
+ * drawn the same way as the one of a file: the files at each commit are 
+ * put one after another (in the order of the tree) as a 
+ * ConcatenatedBlame, which can be passed to LineAuthorshipOverCommits or 
+ * FileAgeOverCommits with the path of the directory.<br>
+ * Each file at each commit is calculated as a task of its own on all the 
+ * cores. A file whose blob didn't change since the previous commit is not 
+ * blamed again: the object of the previous commit is shared instead. 
+ * A file that fails even after retrying keeps the object of its 
+ * previous version (or is left out if it has none) until it changes 
+ * again, and it's listed as failed rather than removed.<br>
+ * Typical usage: {@code DirectoryTimeline.calculateLineAuthorships(git, 
+ * commits, directory, filter).concatenate(LineAuthorship::calculate)}
+ * @author lisq199
+ */
+public class DirectoryTimeline<T extends BlameResultContainer> {
+	
+	/**
+	 * The maximum number of files named in a description or a bookmark
+	 */
+	protected static final int MAX_FILES_SHOWN = 5;
+	
+	protected String directory;
+	/**
+	 * The object of each file at each commit in the order of the tree. 
+	 * The key is the SHA-1 of the commit, and the commits are kept from 
+	 * the oldest to the newest.
+	 */
+	protected Map<String, Map<String, T>> files;
+	/**
+	 * The files blamed at each commit, i.e. the ones that are new or 
+	 * changed since the previous commit
+	 */
+	protected Map<String, List<String>> changedFiles;
+	/**
+	 * The paths of all the files in the tree at each commit, including 
+	 * the ones that failed
+	 */
+	protected Map<String, List<String>> paths;
+	/**
+	 * The files at each commit whose object is missing or out of date 
+	 * because their blame failed
+	 */
+	protected Map<String, List<String>> failedFiles;
+	protected List<Task> failedTasks;
+	
+	/**
+	 * Disable default constructor
+	 */
+	protected DirectoryTimeline() {}
+	
+	protected DirectoryTimeline(String directory) {
+		this.directory = directory;
+		this.files = new LinkedHashMap<String, Map<String, T>>();
+		this.changedFiles = new HashMap<String, List<String>>();
+		this.paths = new HashMap<String, List<String>>();
+		this.failedFiles = new HashMap<String, List<String>>();
+		this.failedTasks = new ArrayList<Task>();
+	}
+	
+	public String getDirectory() {
+		return directory;
+	}
+	
+	/**
+	 * Get the number of commits
+	 * @return
+	 */
+	public int size() {
+		return files.size();
+	}
+	
+	/**
+	 * Get the object of each file at a commit
+	 * @param sha1
+	 * @return the objects in the order of the tree, or an empty Map if 
+	 * the commit is not in the timeline
+	 */
+	public Map<String, T> getFiles(String sha1) {
+		return files.getOrDefault(sha1, new LinkedHashMap<String, T>());
+	}
+	
+	/**
+	 * Get the files that are new or changed at a commit
+	 * @param sha1
+	 * @return
+	 */
+	public List<String> getChangedFiles(String sha1) {
+		return changedFiles.getOrDefault(sha1, new ArrayList<String>());
+	}
+	
+	/**
+	 * Get the paths of all the files in the tree at a commit, including 
+	 * the ones that failed
+	 * @param sha1
+	 * @return
+	 */
+	public List<String> getPaths(String sha1) {
+		return paths.getOrDefault(sha1, new ArrayList<String>());
+	}
+	
+	/**
+	 * Get the files at a commit whose blame failed. They have the object 
+	 * of their previous version, or none if there isn't one.
+	 * @param sha1
+	 * @return
+	 */
+	public List<String> getFailedFiles(String sha1) {
+		return failedFiles.getOrDefault(sha1, new ArrayList<String>());
+	}
+	
+	/**
+	 * Get the files at commits that failed even after retrying
+	 * @return
+	 */
+	public List<Task> getFailedTasks() {
+		return failedTasks;
+	}
+	
+	/**
+	 * Put the files at each commit one after another
+	 * @param mapper turns the files at a commit into the result, e.g. 
+	 * LineAuthorship::calculate
+	 * @return a result for each commit, from the oldest to the newest
+	 */
+	public <R> List<R> concatenate(
+			Function<? super ConcatenatedBlame, R> mapper) {
+		List<R> result = new ArrayList<R>();
+		files.forEach((sha1, map) -> result.add(mapper.apply(
+				ConcatenatedBlame.init(sha1, directory,
+						new ArrayList<T>(map.values())))));
+		return result;
+	}
+	
+	/**
+	 * Get the SHA-1 of the commits in the order of the columns of 
+	 * LineAuthorshipOverCommits and FileAgeOverCommits
+	 * @param commitIndex
+	 * @param ascending
+	 * @return
+	 */
+	protected List<String> getSortedSha1s(CommitIndex commitIndex,
+			boolean ascending) {
+		return JGitUtils.sortByAuthorTime(commitIndex, files.keySet(),
+				ascending);
+	}
+	
+	/**
+	 * Get the bookmarks of the files: a bookmark on each commit where 
+	 * files are added to or removed from the directory. A file whose 
+	 * blame failed is still in the directory, so it's not shown as 
+	 * removed.
+	 * @param commitIndex the same index as the one of the 
+	 * LineAuthorshipOverCommits or FileAgeOverCommits
+	 * @param ascending the same order as the one of the 
+	 * LineAuthorshipOverCommits or FileAgeOverCommits
+	 * @return
+	 */
+	public Map<Integer, String> getColorPixelsBookmarkMapByFile(
+			CommitIndex commitIndex, boolean ascending) {
+		Map<Integer, String> bookmarkMap = new HashMap<Integer, String>();
+		
+		int i = 0;
+		Set<String> previousPaths = null;
+		for (String sha1 : getSortedSha1s(commitIndex, ascending)) {
+			Set<String> currentPaths = new HashSet<String>(getPaths(sha1));
+			if (previousPaths == null) {
+				bookmarkMap.put(i, (directory.isEmpty() ? "/" : directory)
+						+ " (" + currentPaths.size() + " files)");
+			} else {
+				List<String> changes = new ArrayList<String>();
+				for (String path : getPaths(sha1)) {
+					if (!previousPaths.contains(path)) {
+						changes.add("+" + path);
+					}
+				}
+				for (String path : previousPaths) {
+					if (!currentPaths.contains(path)) {
+						changes.add("-" + path);
+					}
+				}
+				if (!changes.isEmpty()) {
+					bookmarkMap.put(i, join(changes));
+				}
+			}
+			previousPaths = currentPaths;
+			i++;
+		}
+		return bookmarkMap;
+	}
+	
+	/**
+	 * Add the changed files and the failed files of each commit to the 
+	 * descriptions of the commits
+	 * @param descriptions the descriptions of the 
+	 * LineAuthorshipOverCommits or FileAgeOverCommits
+	 * @param commitIndex the same index as the one of the descriptions
+	 * @param ascending the same order as the one of the descriptions
+	 * @return
+	 */
+	public List<String> getColorPixelsDatasetDescriptions(
+			List<String> descriptions, CommitIndex commitIndex,
+			boolean ascending) {
+		List<String> result = new ArrayList<String>();
+		List<String> sha1s = getSortedSha1s(commitIndex, ascending);
+		for (int i = 0; i < descriptions.size(); i++) {
+			StringBuilder builder = new StringBuilder(descriptions.get(i));
+			if (i < sha1s.size()) {
+				String sha1 = sha1s.get(i);
+				builder.append(ColorPixels.HTML_LF).append("Files: ")
+						.append(getPaths(sha1).size())
+						.append(ColorPixels.HTML_LF).append("Changed: ")
+						.append(join(getChangedFiles(sha1)));
+				if (!getFailedFiles(sha1).isEmpty()) {
+					builder.append(ColorPixels.HTML_LF).append("Failed: ")
+							.append(join(getFailedFiles(sha1)));
+				}
+			}
+			result.add(builder.toString());
+		}
+		return result;
+	}
+	
+	/**
+	 * Join the first MAX_FILES_SHOWN paths
+	 * @param paths
+	 * @return
+	 */
+	protected static String join(List<String> paths) {
+		StringBuilder builder = new StringBuilder();
+		for (int i = 0; i < paths.size() && i < MAX_FILES_SHOWN; i++) {
+			if (i > 0) {
+				builder.append(", ");
+			}
+			builder.append(paths.get(i));
+		}
+		if (paths.size() > MAX_FILES_SHOWN) {
+			builder.append(" (+").append(paths.size() - MAX_FILES_SHOWN)
+					.append(" more)");
+		}
+		return builder.toString();
+	}
+	
+	/**
+	 * Calculate the timeline of a directory
+	 * @param git
+	 * @param commits the commits, newest first (the order of git log)
+	 * @param directory
+	 * @param pathFilter
+	 * @param master
+	 * @return
+	 * @throws IOException
+	 */
+	protected static <T extends BlameResultContainer> DirectoryTimeline<T>
+			calculate(Git git, Iterable<RevCommit> commits, String directory,
+					Predicate<String> pathFilter,
+					DirectoryBlameMaster<T> master) throws IOException {
+		Repository repo = git.getRepository();
+		DirectoryTimeline<T> timeline = new DirectoryTimeline<T>(directory);
+		
+		/*
+		 * Only the files whose blob changed since the previous commit 
+		 * are blamed. The blob ids are compared without reading the 
+		 * files, and only the ones of the previous commit are kept.
+		 */
+		List<RevCommit> oldestFirst = Lists.reverse(
+				Lists.newArrayList(commits));
+		List<Task> tasks = new ArrayList<Task>();
+		Map<String, ObjectId> previousBlobIds =
+				new HashMap<String, ObjectId>();
+		List<String> previousPaths = new ArrayList<String>();
+		for (RevCommit commit : oldestFirst) {
+			Map<String, ObjectId> currentBlobIds = TreeUtils.getBlobIds(repo,
+					commit, directory, pathFilter,
+					RepoAuthorship.DEFAULT_MAX_FILE_SIZE);
+			List<String> changed = new ArrayList<String>();
+			for (Map.Entry<String, ObjectId> entry
+					: currentBlobIds.entrySet()) {
+				String path = entry.getKey();
+				if (!entry.getValue().equals(previousBlobIds.get(path))) {
+					changed.add(path);
+					tasks.add(new Task(commit, path));
+				}
+			}
+			// Commits that add or remove no files share the list of paths
+			List<String> currentPaths = currentBlobIds.keySet().equals(
+					previousBlobIds.keySet()) ? previousPaths
+							: new ArrayList<String>(currentBlobIds.keySet());
+			timeline.paths.put(commit.getName(), currentPaths);
+			timeline.changedFiles.put(commit.getName(), changed);
+			previousBlobIds = currentBlobIds;
+			previousPaths = currentPaths;
+		}
+		
+		Map<Task, T> results = new HashMap<Task, T>();
+		try {
+			timeline.failedTasks.addAll(master.calculate(git, repo, tasks,
+					results::put));
+		} finally {
+			master.shutdown();
+		}
+		
+		Map<String, T> previousFiles = new HashMap<String, T>();
+		// The files whose current version failed
+		Set<String> failedPaths = new HashSet<String>();
+		for (RevCommit commit : oldestFirst) {
+			String sha1 = commit.getName();
+			Set<String> changed = new HashSet<String>(
+					timeline.getChangedFiles(sha1));
+			Map<String, T> currentFiles = new LinkedHashMap<String, T>();
+			List<String> failed = new ArrayList<String>();
+			for (String path : timeline.getPaths(sha1)) {
+				T result = previousFiles.get(path);
+				if (changed.contains(path)) {
+					// A file that failed keeps its previous version
+					Task task = new Task(commit, path);
+					if (results.containsKey(task)) {
+						result = results.remove(task);
+						failedPaths.remove(path);
+					} else {
+						failedPaths.add(path);
+					}
+				}
+				if (failedPaths.contains(path)) {
+					failed.add(path);
+				}
+				if (result != null) {
+					currentFiles.put(path, result);
+				}
+			}
+			timeline.files.put(sha1, currentFiles);
+			if (!failed.isEmpty()) {
+				timeline.failedFiles.put(sha1, failed);
+			}
+			previousFiles = currentFiles;
+		}
+		return timeline;
+	}
+	
+	/**
+	 * Calculate the LineAuthorship of every file under a directory at 
+	 * every commit
+	 * @param git
+	 * @param commits the commits, newest first (the order of git log)
+	 * @param directory the path of the directory relative to the repo, 
+	 * or an empty String for the whole tree
+	 * @param pathFilter only the files whose paths pass the filter are 
+	 * included (see TreeUtils.getGlobFilter())
+	 * @return
+	 * @throws IOException
+	 */
+	public static DirectoryTimeline<LineAuthorship> calculateLineAuthorships(
+			Git git, Iterable<RevCommit> commits, String directory,
+			Predicate<String> pathFilter) throws IOException {
+		return calculate(git, commits, directory, pathFilter,
+				DirectoryBlameMaster.initLineAuthorship());
+	}
+	
+	/**
+	 * Calculate the FileAge of every file under a directory at every 
+	 * commit
+	 * @param git
+	 * @param commits the commits, newest first (the order of git log)
+	 * @param directory the path of the directory relative to the repo, 
+	 * or an empty String for the whole tree
+	 * @param pathFilter only the files whose paths pass the filter are 
+	 * included (see TreeUtils.getGlobFilter())
+	 * @return
+	 * @throws IOException
+	 */
+	public static DirectoryTimeline<FileAge> calculateFileAges(Git git,
+			Iterable<RevCommit> commits, String directory,
+			Predicate<String> pathFilter) throws IOException {
+		return calculate(git, commits, directory, pathFilter,
+				DirectoryBlameMaster.initFileAge());
+	}
+	
+}
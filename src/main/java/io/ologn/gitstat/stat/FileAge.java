@@ -3,7 +3,9 @@ package io.ologn.gitstat.stat;
 import java.io.IOException;
 import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 
 import org.eclipse.jgit.api.Git;
@@ -16,16 +18,20 @@ import org.eclipse.jgit.lib.AnyObjectId;
 import org.eclipse.jgit.lib.Repository;
 import org.eclipse.jgit.revwalk.RevCommit;
 
-import io.ologn.common.collect.OlognArrays;
-import io.ologn.common.time.OlognDurations;
-import io.ologn.gitstat.akka.FileAgeMaster;
+import io.ologn.gitstat.jgit.BlameCache;
+import io.ologn.gitstat.jgit.BlameCache.Algorithm;
 import io.ologn.gitstat.jgit.BlameUtils;
+import io.ologn.gitstat.jgit.IncrementalBlame;
 
 /**
  * BlameResultContainer already has some basic functionality of calculating 
  * the age of each line in a file at a commit. This class makes it more 
  * straightforward and it should be faster, because everything is stored in 
  * an array. To initialize an object, use FileAge.calculate().<br>
+ * Only the author time (as epoch milliseconds) and the author id (in the 
+ * global AuthorDictionary) of each line are stored, and the ages are 
+ * measured against a reference time that is fixed when the object is 
+ * calculated, so the ages don't change between calls.<br>
  * Note: Everything is accurate to milliseconds at most.
  * @author lisq199
  *
@@ -33,26 +39,47 @@ import io.ologn.gitstat.jgit.BlameUtils;
 public class FileAge implements BlameResultContainer {
 	
 	/**
-	 * Array storing the ages of the lines
+	 * Array storing the author time of each line in milliseconds
 	 */
-	protected Duration[] ages;
-	protected Duration totalAge;
+	protected long[] authorTimes;
+	/**
+	 * The id of the author of each line
+	 */
+	protected int[] authorIds;
+	protected AuthorDictionary dictionary;
+	/**
+	 * The time the ages are measured against in milliseconds
+	 */
+	protected long referenceTime;
 	protected String sha1;
+	protected String filePath;
 	
-	protected BlameResult blameResult;
+	/*
+	 * Statistics of the ages in milliseconds. The minimum, maximum and 
+	 * total are calculated together with the ages. The median and mode 
+	 * need the ages sorted, so they are only calculated when needed.
+	 */
+	protected long minAge;
+	protected long maxAge;
+	protected long totalAge;
+	protected long medianAge;
+	protected long[] modeAges;
 	
 	/**
 	 * Disable the default constructor
 	 */
 	protected FileAge() {
-		this.ages = new Duration[0];
-		this.totalAge = Duration.ZERO;
+		this.authorTimes = new long[0];
+		this.authorIds = new int[0];
+		this.dictionary = AuthorDictionary.getGlobal();
+		this.referenceTime = System.currentTimeMillis();
 	}
 	
-	protected FileAge(String sha1, BlameResult blameResult) {
+	protected FileAge(BlameResultContainer container, long referenceTime) {
 		this();
-		this.sha1 = sha1;
-		this.blameResult = blameResult;
+		this.sha1 = container.getSha1();
+		this.filePath = container.getFilePath();
+		this.referenceTime = referenceTime;
 	}
 	
 	@Override
@@ -60,19 +87,58 @@ public class FileAge implements BlameResultContainer {
 		return sha1;
 	}
 	
+	/**
+	 * A FileAge is detached from the BlameResult it's calculated from, so 
+	 * the contents of the file are not kept in memory.
+	 * @return null
+	 */
 	@Override
 	public BlameResult getBlameResult() {
-		return blameResult;
+		return null;
+	}
+	
+	@Override
+	public String getFilePath() {
+		return filePath;
+	}
+	
+	@Override
+	public int getBlameSize() {
+		return authorTimes.length;
 	}
 	
 	/**
-	 * Get the sum of the ages of every line. The sum is not going to be as 
-	 * accurate, because it will be based on seconds instead of milliseconds 
-	 * to avoid overflow.
+	 * Get the time the ages are measured against
+	 * @return the time in milliseconds
+	 */
+	public long getReferenceTime() {
+		return referenceTime;
+	}
+	
+	@Override
+	public long[] getAuthorTimes() {
+		return authorTimes.clone();
+	}
+	
+	/**
+	 * The time zone of the author time is always UTC.
+	 */
+	@Override
+	public GitAuthor getAuthorAtLine(int i) {
+		return dictionary.getAuthor(authorIds[i], authorTimes[i]);
+	}
+	
+	@Override
+	public int[] getAuthorIds(AuthorDictionary dictionary) {
+		return dictionary.intern(this.dictionary, authorIds);
+	}
+	
+	/**
+	 * Get the sum of the ages of every line
 	 * @return
 	 */
 	public Duration getTotalAge() {
-		return totalAge;
+		return Duration.ofMillis(totalAge);
 	}
 	
 	/**
@@ -81,7 +147,11 @@ public class FileAge implements BlameResultContainer {
 	 * @return
 	 */
 	public Duration[] getAgesOfLines() {
-		return ages.clone();
+		Duration[] ages = new Duration[authorTimes.length];
+		for (int i = 0; i < ages.length; i++) {
+			ages[i] = Duration.ofMillis(getAgeOfLineInMillis(i));
+		}
+		return ages;
 	}
 	
 	/**
@@ -89,10 +159,9 @@ public class FileAge implements BlameResultContainer {
 	 * @return
 	 */
 	public long[] getAgesOfLinesInMillis() {
-		int len = ages.length;
-		long[] ages = new long[len];
-		for (int i = 0; i < len; i++) {
-			ages[i] = getAgeOfLine(i).toMillis();
+		long[] ages = new long[authorTimes.length];
+		for (int i = 0; i < ages.length; i++) {
+			ages[i] = getAgeOfLineInMillis(i);
 		}
 		return ages;
 	}
@@ -102,20 +171,39 @@ public class FileAge implements BlameResultContainer {
 	 * @return
 	 */
 	public long[] getAgesOfLinesInDays() {
-		int len = ages.length;
-		long[] ages = new long[len];
-		for (int i = 0; i < len; i++) {
-			ages[i] = getAgeOfLine(i).toDays();
+		long[] ages = new long[authorTimes.length];
+		for (int i = 0; i < ages.length; i++) {
+			ages[i] = getAgeOfLineInDays(i);
 		}
 		return ages;
 	}
-
+	
 	/**
-	 * Access the array directly instead of calculating it again
+	 * Get the age of a line in milliseconds
+	 * @param i the line number
+	 * @return
+	 */
+	public long getAgeOfLineInMillis(int i) {
+		return referenceTime - authorTimes[i];
+	}
+	
+	/**
+	 * Get the age of a line in days. Same as getAgeOfLine(i).toDays(), 
+	 * but without creating a Duration.
+	 * @param i the line number
+	 * @return
+	 */
+	public long getAgeOfLineInDays(int i) {
+		return TimeUnit.MILLISECONDS.toDays(getAgeOfLineInMillis(i));
+	}
+	
+	/**
+	 * Calculate the age from the stored author time instead of the current 
+	 * time
 	 */
 	@Override
 	public Duration getAgeOfLine(int i) {
-		return ages[i];
+		return Duration.ofMillis(getAgeOfLineInMillis(i));
 	}
 	
 	/**
@@ -123,7 +211,10 @@ public class FileAge implements BlameResultContainer {
 	 * @return
 	 */
 	public Duration getAverage() {
-		return OlognDurations.average(ages);
+		if (authorTimes.length == 0) {
+			return Duration.ZERO;
+		}
+		return Duration.ofMillis(totalAge / authorTimes.length);
 	}
 	
 	/**
@@ -131,7 +222,8 @@ public class FileAge implements BlameResultContainer {
 	 * @return
 	 */
 	public Duration getMedian() {
-		return OlognDurations.median(ages, false);
+		initSortedStats();
+		return Duration.ofMillis(medianAge);
 	}
 	
 	/**
@@ -139,7 +231,12 @@ public class FileAge implements BlameResultContainer {
 	 * @return
 	 */
 	public List<Duration> getMode() {
-		return OlognArrays.mode(getAgesOfLines());
+		initSortedStats();
+		List<Duration> mode = new ArrayList<Duration>();
+		for (long age : modeAges) {
+			mode.add(Duration.ofMillis(age));
+		}
+		return mode;
 	}
 	
 	/**
@@ -147,7 +244,7 @@ public class FileAge implements BlameResultContainer {
 	 * @return
 	 */
 	public Duration getMin() {
-		return OlognArrays.min(ages);
+		return Duration.ofMillis(minAge);
 	}
 	
 	/**
@@ -155,7 +252,7 @@ public class FileAge implements BlameResultContainer {
 	 * @return
 	 */
 	public Duration getMax() {
-		return OlognArrays.max(ages);
+		return Duration.ofMillis(maxAge);
 	}
 	
 	@Override
@@ -165,7 +262,7 @@ public class FileAge implements BlameResultContainer {
 		StringBuilder builder = new StringBuilder("LineAge[\n");
 		builder.append("\tSHA-1[").append(getSha1()).append("],\n");
 		builder.append("\tfilePath[").append(getFilePath()).append("],\n");
-		for (int i = 0; i < ages.length; i++) {
+		for (int i = 0; i < authorTimes.length; i++) {
 			builder.append("\tlineNo[").append(i).append("]: ")
 					.append(dToS.apply(getAgeOfLine(i)))
 					.append(",\n");
@@ -186,15 +283,91 @@ public class FileAge implements BlameResultContainer {
 	}
 	
 	/**
-	 * Used internally for calculating the ages and total age.
+	 * Calculate the minimum, maximum and total age in one pass
 	 */
-	protected void initAges() {
-		int size = this.getBlameSize();
-		this.ages = new Duration[size];
-		for (int i = 0; i < size; i++) {
-			this.ages[i] = BlameResultContainer.super.getAgeOfLine(i);
-			totalAge = totalAge.plus(this.ages[i]);
+	protected void initStats() {
+		long min = Long.MAX_VALUE;
+		long max = Long.MIN_VALUE;
+		long total = 0;
+		for (int i = 0; i < authorTimes.length; i++) {
+			long age = getAgeOfLineInMillis(i);
+			min = Math.min(min, age);
+			max = Math.max(max, age);
+			total += age;
+		}
+		if (authorTimes.length == 0) {
+			min = max = 0;
+		}
+		this.minAge = min;
+		this.maxAge = max;
+		this.totalAge = total;
+	}
+	
+	/**
+	 * Calculate the median and the mode from one sorted copy of the ages. 
+	 * The copy is not kept.
+	 */
+	protected synchronized void initSortedStats() {
+		if (modeAges != null) {
+			return;
+		}
+		// Sorting the author times in reverse gives the ages in order
+		long[] sorted = authorTimes.clone();
+		Arrays.sort(sorted);
+		int len = sorted.length;
+		if (len == 0) {
+			this.medianAge = 0;
+			this.modeAges = new long[0];
+			return;
 		}
+		long upper = referenceTime - sorted[(len - 1) / 2];
+		long lower = referenceTime - sorted[len / 2];
+		this.medianAge = lower + (upper - lower) / 2;
+		
+		int maxCount = 0;
+		int modeCount = 0;
+		int i = 0;
+		while (i < len) {
+			int j = i;
+			while (j < len && sorted[j] == sorted[i]) {
+				j++;
+			}
+			int count = j - i;
+			if (count > maxCount) {
+				maxCount = count;
+				modeCount = 1;
+			} else if (count == maxCount) {
+				modeCount++;
+			}
+			i = j;
+		}
+		long[] mode = new long[modeCount];
+		int k = modeCount;
+		i = 0;
+		while (i < len) {
+			int j = i;
+			while (j < len && sorted[j] == sorted[i]) {
+				j++;
+			}
+			if (j - i == maxCount) {
+				// Fill from the end, so the ages are in ascending order
+				mode[--k] = referenceTime - sorted[i];
+			}
+			i = j;
+		}
+		this.modeAges = mode;
+	}
+	
+	/**
+	 * Used internally for calculating the ages and total age. The ages 
+	 * and the authors are read from a BlameResultContainer, which doesn't 
+	 * have to be backed by a BlameResult.
+	 * @param container
+	 */
+	protected void initAges(BlameResultContainer container) {
+		this.authorTimes = container.getAuthorTimes();
+		this.authorIds = container.getAuthorIds(dictionary);
+		this.initStats();
 	}
 
 	/**
@@ -204,22 +377,36 @@ public class FileAge implements BlameResultContainer {
 	 * @return
 	 */
 	private static FileAge calculate(String sha1, BlameResult blameResult) {
-		FileAge lineAge = new FileAge(sha1, blameResult);
-		lineAge.initAges();
-		return lineAge;
+		return calculate(CompactBlame.calculate(sha1, blameResult));
 	}
 
 	/**
 	 * Calculate a FileAge object
 	 * @param container
+	 * @param referenceTime the time the ages are measured against in 
+	 * milliseconds
+	 * @return
+	 */
+	public static FileAge calculate(BlameResultContainer container,
+			long referenceTime) {
+		FileAge fileAge = new FileAge(container, referenceTime);
+		fileAge.initAges(container);
+		return fileAge;
+	}
+	
+	/**
+	 * Calculate a FileAge object with the ages measured against the 
+	 * current time
+	 * @param container
 	 * @return
 	 */
 	public static FileAge calculate(BlameResultContainer container) {
-		return calculate(container.getSha1(), container.getBlameResult());
+		return calculate(container, System.currentTimeMillis());
 	}
 	
 	/**
-	 * Calculate a FileAge object
+	 * Calculate a FileAge object. The blame is read from the BlameCache 
+	 * of the repository if possible.
 	 * @param git
 	 * @param commitId
 	 * @param filePath
@@ -228,9 +415,12 @@ public class FileAge implements BlameResultContainer {
 	 */
 	public static FileAge calculate(Git git, AnyObjectId commitId,
 			String filePath) throws GitAPIException {
-		BlameResult blameResult = BlameUtils.getBlameResult(git, commitId,
+		CompactBlame blame = BlameUtils.getCompactBlame(git, commitId,
 				filePath);
-		return calculate(commitId.getName(), blameResult);
+		if (blame == null) {
+			return null;
+		}
+		return calculate(blame);
 	}
 	
 	/**
@@ -250,9 +440,7 @@ public class FileAge implements BlameResultContainer {
 			String filePath) throws RevisionSyntaxException,
 	AmbiguousObjectException, IncorrectObjectTypeException, GitAPIException,
 	IOException {
-		BlameResult blameResult = BlameUtils.getBlameResult(git, repo, revstr,
-				filePath);
-		return calculate(repo.resolve(revstr).getName(), blameResult);
+		return calculate(git, repo.resolve(revstr), filePath);
 	}
 	
 	/**
@@ -272,13 +460,14 @@ public class FileAge implements BlameResultContainer {
 			String filePath) throws RevisionSyntaxException,
 	AmbiguousObjectException, IncorrectObjectTypeException, GitAPIException,
 	IOException {
-		BlameResult blameResult = BlameUtils.getBlameResult(git, repo, commit,
-				filePath);
-		return calculate(commit.getName(), blameResult);
+		return calculate(git, commit, filePath);
 	}
 	
 	/**
-	 * Calculate multiple FileAge objects for one file over multiple commits
+	 * Calculate multiple FileAge objects for one file over multiple commits. 
+	 * The history of the file is only walked once with IncrementalBlame, 
+	 * instead of running a full blame for every commit. All the ages are 
+	 * measured against the same reference time.
 	 * @param git
 	 * @param repo
 	 * @param commits
@@ -295,8 +484,11 @@ public class FileAge implements BlameResultContainer {
 					throws RevisionSyntaxException, AmbiguousObjectException,
 					IncorrectObjectTypeException, GitAPIException,
 					IOException {
-		return FileAgeMaster.init().calculateFileAgeList(
-				git, repo, commits, filePath);
+		long referenceTime = System.currentTimeMillis();
+		return IncrementalBlame.init(repo, filePath)
+				.setBlameCache(BlameCache.forRepository(repo,
+						Algorithm.INCREMENTAL))
+				.calculate(commits, c -> calculate(c, referenceTime));
 	}
 	
 	/**
@@ -307,8 +499,9 @@ public class FileAge implements BlameResultContainer {
 	public static List<FileAge> calculateMultiple(
 			Iterable<BlameResultContainer> containerss) {
 		List<FileAge> list = new ArrayList<FileAge>();
+		long referenceTime = System.currentTimeMillis();
 		for (BlameResultContainer container : containerss) {
-			list.add(calculate(container));
+			list.add(calculate(container, referenceTime));
 		}
 		return list;
 	}
@@ -1,6 +1,5 @@
 package io.ologn.gitstat.stat;
 
-import java.io.IOException;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -13,11 +12,9 @@ import java.util.function.BiConsumer;
 import java.util.stream.StreamSupport;
 
 import org.apache.commons.lang3.ArrayUtils;
-import org.eclipse.jgit.errors.IncorrectObjectTypeException;
-import org.eclipse.jgit.errors.MissingObjectException;
-import org.eclipse.jgit.lib.Repository;
 
 import io.ologn.common.time.OlognDates;
+import io.ologn.gitstat.jgit.CommitIndex;
 import io.ologn.gitstat.jgit.JGitUtils;
 import io.ologn.gitstat.vis.ColorPixels;
 
@@ -32,14 +29,21 @@ public class FileAgeOverCommits {
 	 */
 	protected Map<String, FileAge> map;
 	
+	/**
+	 * The metadata of the commits in map
+	 */
+	protected CommitIndex commitIndex;
+	
 	/**
 	 * Disable default constructor
 	 */
 	protected FileAgeOverCommits() {}
 	
-	protected FileAgeOverCommits(Repository repo, boolean ascending) {
+	protected FileAgeOverCommits(CommitIndex commitIndex,
+			Map<String, FileAge> map, boolean ascending) {
 		this();
-		this.map = JGitUtils.getMapSortedByAuthorTime(repo, ascending);
+		this.map = JGitUtils.sortByAuthorTime(commitIndex, map, ascending);
+		this.commitIndex = commitIndex;
 	}
 	
 	/**
@@ -101,7 +105,7 @@ public class FileAgeOverCommits {
 		forEach((sha1, age) -> {
 			String[] titles = new String[age.getBlameSize()];
 			for (int i = 0; i < titles.length; i++) {
-				titles[i] = age.getAgeOfLine(i).toDays() + " days";
+				titles[i] = age.getAgeOfLineInDays(i) + " days";
 			}
 			result.add(titles);
 		});
@@ -112,15 +116,14 @@ public class FileAgeOverCommits {
 			boolean ascending) {
 		List<String[]> result = new ArrayList<String[]>();
 		forEach((sha1, age) -> {
-			Duration[] sortedAges = age.getAgesOfLines();
-			if (ascending) {
-				Arrays.sort(sortedAges);
-			} else {
-				Arrays.sort(sortedAges, (a, b) -> b.compareTo(a));
+			long[] sortedAges = age.getAgesOfLinesInDays();
+			Arrays.sort(sortedAges);
+			if (!ascending) {
+				ArrayUtils.reverse(sortedAges);
 			}
 			String[] titles = new String[sortedAges.length];
 			for (int i = 0; i < titles.length; i++) {
-				titles[i] = sortedAges[i].toDays() + " days";
+				titles[i] = sortedAges[i] + " days";
 			}
 			result.add(titles);
 		});
@@ -130,46 +133,40 @@ public class FileAgeOverCommits {
 	public Map<Long, String> getColorPixelsTitleMap() {
 		Map<Long, String> titleMap = new TreeMap<Long, String>(Long::compare);
 		forEach((sha1, age) -> {
-			long[] agesInDays = age.getAgesOfLinesInDays();
-			for (int i = 0; i < agesInDays.length; i++) {
-				if (!titleMap.containsKey(agesInDays[i])) {
+			for (int i = 0; i < age.getBlameSize(); i++) {
+				long ageInDays = age.getAgeOfLineInDays(i);
+				if (!titleMap.containsKey(ageInDays)) {
 					String title = "Age of the line: " 
-							+ agesInDays[i] + " days";
-					titleMap.put(agesInDays[i], title);
+							+ ageInDays + " days";
+					titleMap.put(ageInDays, title);
 				}
 			}
 		});
 		return titleMap;
 	}
 	
-	public List<String> getColorPixelsDatasetDescriptions(
-			Repository repo) throws MissingObjectException,
-	IncorrectObjectTypeException, IOException {
+	public List<String> getColorPixelsDatasetDescriptions() {
 		List<String> result = new ArrayList<String>();
 		for (String sha1 : map.keySet()) {
 			StringBuilder builder = new StringBuilder();
 			builder.append("SHA-1: ").append(sha1).append(ColorPixels.HTML_LF);
-			Date authorDate = JGitUtils.getAuthorTimeFromSha1(repo, sha1);
+			Date authorDate = commitIndex.getAuthorDate(sha1);
 			builder.append("Commit Author Date: ").append(authorDate)
 					.append(ColorPixels.HTML_LF);
-			long commitSeconds = JGitUtils.getCommitTimeFromSha1(
-					repo, sha1);
-			Date commitDate = new Date(commitSeconds * 1000l);
+			Date commitDate = commitIndex.getCommitDate(sha1);
 			builder.append("Commit Time: ").append(commitDate);
 			result.add(builder.toString());
 		}
 		return result;
 	}
 	
-	public Map<Integer, String> getColorPixelsBookmarkMapByYear(
-			Repository repo) throws MissingObjectException,
-	IncorrectObjectTypeException, IOException {
+	public Map<Integer, String> getColorPixelsBookmarkMapByYear() {
 		Map<Integer, String> bookmarkMap = new HashMap<Integer, String>();
 		
 		int i = 0;
 		Date currentDate, previousDate = null;
 		for (String sha1 : map.keySet()) {
-			currentDate = JGitUtils.getAuthorTimeFromSha1(repo, sha1);
+			currentDate = commitIndex.getAuthorDate(sha1);
 			if (!OlognDates.sameYear(currentDate, previousDate)) {
 				bookmarkMap.put(i, "" + OlognDates.getYear(currentDate));
 			}
@@ -192,19 +189,19 @@ public class FileAgeOverCommits {
 	
 	/**
 	 * Calculate a FileAgeOverCommits object
-	 * @param repo
+	 * @param commitIndex an index containing all the commits of ages
 	 * @param ages
 	 * @param filePath
 	 * @param ascending
 	 * @return
 	 */
-	public static FileAgeOverCommits calculate(Repository repo,
+	public static FileAgeOverCommits calculate(CommitIndex commitIndex,
 			Iterable<FileAge> ages, String filePath, boolean ascending) {
-		FileAgeOverCommits faoc = new FileAgeOverCommits(repo, ascending);
+		Map<String, FileAge> map = new HashMap<String, FileAge>();
 		StreamSupport.stream(ages.spliterator(), false)
 				.filter(a -> a.getFilePath().equals(filePath))
-				.forEach(a -> faoc.map.put(a.getSha1(), a));
-		return faoc;
+				.forEach(a -> map.put(a.getSha1(), a));
+		return new FileAgeOverCommits(commitIndex, map, ascending);
 	}
 
 }
@@ -1,5 +1,6 @@
 package io.ologn.gitstat.stat;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
@@ -10,7 +11,12 @@ import java.util.Set;
 import java.util.function.BiConsumer;
 
 import org.eclipse.jgit.blame.BlameResult;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
 
+import io.ologn.gitstat.jgit.IncrementalBlame;
+import io.ologn.gitstat.tokenizer.TokenCache;
+import io.ologn.gitstat.tokenizer.TokenParser;
 import io.ologn.gitstat.tokenizer.TokenValue;
 
 /**
@@ -27,29 +33,53 @@ public class FileAuthorship implements BlameResultContainer {
 	 * The key is the author, and the value is how much score the author has 
 	 * got.
 	 */
-	protected Map<GitAuthor, Integer> map;
-	protected int totalScore;
+	protected Map<GitAuthor, Long> map;
+	protected long totalScore;
 	protected String sha1;
-	protected BlameResult blameResult;
+	/**
+	 * The attribution of the lines, shared with the FileCommitStat the 
+	 * object is calculated from. It's null if the file doesn't exist at 
+	 * the commit, or if the object is calculated from the scores kept by 
+	 * IncrementalBlame.
+	 */
+	protected CompactBlame blame;
+	protected String filePath;
 	
 	protected FileAuthorship() {
-		map = new HashMap<GitAuthor, Integer>();
+		map = new HashMap<GitAuthor, Long>();
 		totalScore = 0;
 	}
 	
-	protected FileAuthorship(String sha1, BlameResult blameResult) {
+	protected FileAuthorship(FileCommitStat stat) {
 		this();
-		this.sha1 = sha1;
-		this.blameResult = blameResult;
+		this.sha1 = stat.getSha1();
+		this.filePath = stat.getFilePath();
+		this.blame = stat.blame;
 	}
 	
-	protected FileAuthorship(BlameResultContainer container) {
-		this(container.getSha1(), container.getBlameResult());
+	/**
+	 * A FileAuthorship is detached from the BlameResult it's calculated 
+	 * from, so the contents of the file are not kept in memory.
+	 * @return null
+	 */
+	@Override
+	public BlameResult getBlameResult() {
+		return null;
 	}
 	
 	@Override
-	public BlameResult getBlameResult() {
-		return blameResult;
+	public String getFilePath() {
+		return filePath;
+	}
+	
+	@Override
+	public int getBlameSize() {
+		return blame == null ? 0 : blame.getBlameSize();
+	}
+	
+	@Override
+	public GitAuthor getAuthorAtLine(int i) {
+		return blame.getAuthorAtLine(i);
 	}
 
 	@Override
@@ -61,8 +91,8 @@ public class FileAuthorship implements BlameResultContainer {
 	 * Return a copy of the map
 	 * @return
 	 */
-	public Map<GitAuthor, Integer> getMap() {
-		return new HashMap<GitAuthor, Integer>(map);
+	public Map<GitAuthor, Long> getMap() {
+		return new HashMap<GitAuthor, Long>(map);
 	}
 	
 	/**
@@ -84,10 +114,10 @@ public class FileAuthorship implements BlameResultContainer {
 	 * @param action
 	 */
 	public void forEach(boolean ascending,
-			BiConsumer<GitAuthor, Integer> action) {
+			BiConsumer<GitAuthor, Long> action) {
 		map.entrySet().stream().sorted((e1, e2) -> {
-			Integer v1 = e1.getValue();
-			Integer v2 = e2.getValue();
+			Long v1 = e1.getValue();
+			Long v2 = e2.getValue();
 			if (ascending) {
 				return v1.compareTo(v2);
 			} else {
@@ -101,13 +131,13 @@ public class FileAuthorship implements BlameResultContainer {
 	 * descending order.
 	 * @param action
 	 */
-	public void forEach(BiConsumer<GitAuthor, Integer> action) {
+	public void forEach(BiConsumer<GitAuthor, Long> action) {
 		forEach(false, action);
 	}
 	
 	public void addAuthor(GitAuthor author) {
 		if (!containsAuthor(author)) {
-			map.put(author, 0);
+			map.put(author, 0L);
 		}
 	}
 	
@@ -117,15 +147,15 @@ public class FileAuthorship implements BlameResultContainer {
 	 * @param author
 	 * @return
 	 */
-	public int getScore(GitAuthor author) {
+	public long getScore(GitAuthor author) {
 		if (containsAuthor(author)) {
-			return map.get(author).intValue();
+			return map.get(author).longValue();
 		} else {
 			return 0;
 		}
 	}
 	
-	public void increseScoreBy(GitAuthor author, int n) {
+	public void increseScoreBy(GitAuthor author, long n) {
 		map.replace(author, getScore(author) + n);
 		totalScore += n;
 	}
@@ -133,16 +163,16 @@ public class FileAuthorship implements BlameResultContainer {
 	public void resetAuthor(GitAuthor... authors) {
 		Arrays.stream(authors).filter(a -> containsAuthor(a)).forEach(a -> {
 			totalScore -= getScore(a);
-			map.replace(a, 0);
+			map.replace(a, 0L);
 		});
 	}
 	
 	public void resetAll() {
-		forEach((author, score) -> map.replace(author, 0));
+		forEach((author, score) -> map.replace(author, 0L));
 		totalScore = 0;
 	}
 	
-	public int getTotalScore() {
+	public long getTotalScore() {
 		return totalScore;
 	}
 	
@@ -202,7 +232,9 @@ public class FileAuthorship implements BlameResultContainer {
 	}
 	
 	/**
-	 * Calculate the FileAuthorship from a FileCommitStat
+	 * Calculate the FileAuthorship from a FileCommitStat. The values of 
+	 * the tokens are resolved to a table by token id once, so scoring 
+	 * each author is a loop over the counts.
 	 * @param tokenValue
 	 * @param stat
 	 * @return
@@ -212,15 +244,55 @@ public class FileAuthorship implements BlameResultContainer {
 		FileAuthorship authorship = new FileAuthorship(stat);
 		stat.forEach((author, counter) -> {
 			authorship.addAuthor(author);
-			counter.forEach((token, count) -> {
-				int value = tokenValue.getValue(token);
-				int totalValue = value * count;
-				authorship.increseScoreBy(author, totalValue);
-			});
+			authorship.increseScoreBy(author, counter.getScore(tokenValue));
 		});
 		return authorship;
 	}
 	
+	/**
+	 * Calculate the FileAuthorship from the author scores of a 
+	 * BlameSnapshot. The attribution of the lines is not kept.
+	 * @param snapshot
+	 * @return
+	 */
+	protected static FileAuthorship calculate(BlameSnapshot snapshot) {
+		FileAuthorship authorship = new FileAuthorship();
+		authorship.sha1 = snapshot.getSha1();
+		authorship.filePath = snapshot.getFilePath();
+		snapshot.getAuthorScores().forEach((author, score) -> {
+			authorship.addAuthor(author);
+			authorship.increseScoreBy(author, score);
+		});
+		return authorship;
+	}
+	
+	/**
+	 * Calculate multiple FileAuthorship objects over commits. The history 
+	 * of the file is only walked once with IncrementalBlame, and the 
+	 * scores of each commit are updated from the diff with its parent: 
+	 * the values of the removed lines are subtracted and the values of the 
+	 * added lines are added, so the file is never scored from scratch 
+	 * except where it's created.<br>
+	 * The results are the same as calculating a FileCommitStat for each 
+	 * commit, but they don't have the attribution of the lines.
+	 * @param repo
+	 * @param commits
+	 * @param filePath
+	 * @param parser
+	 * @return the results in topological order (oldest first)
+	 * @throws IOException
+	 */
+	public static List<FileAuthorship> calculateMultiple(Repository repo,
+			Iterable<RevCommit> commits, String filePath,
+			TokenParser parser) throws IOException {
+		TokenValue tokenValue = parser.getTokenValue();
+		TokenCache tokenCache = TokenCache.init(parser.parseToken());
+		return IncrementalBlame.init(repo, filePath)
+				.setLineValue(line -> tokenValue.getValue(
+						tokenCache.apply(line)))
+				.calculate(commits, c -> calculate((BlameSnapshot) c));
+	}
+	
 	/**
 	 * Calculate multiple TokenParser objects from a list (Iterable) of 
 	 * FileCommitStat objects
@@ -0,0 +1,155 @@
+package io.ologn.gitstat.stat;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.stream.StreamSupport;
+
+import io.ologn.gitstat.jgit.CommitIndex;
+import io.ologn.gitstat.jgit.JGitUtils;
+
+/**
+ * Objects representing the authorship (token-weighted ownership) of one 
+ * file over multiple commits
+ * @author lisq199
+ */
+public class FileAuthorshipOverCommits {
+	
+	/**
+	 * The format of the dates in the labels of the charts
+	 */
+	public static final String LABEL_DATE_FORMAT = "yyyy-MM-dd";
+	
+	/**
+	 * The key is the SHA-1 of the commit.
+	 */
+	protected Map<String, FileAuthorship> map;
+	
+	/**
+	 * The metadata of the commits in map
+	 */
+	protected CommitIndex commitIndex;
+	
+	/**
+	 * Disable default constructor
+	 */
+	protected FileAuthorshipOverCommits() {}
+	
+	protected FileAuthorshipOverCommits(CommitIndex commitIndex,
+			Map<String, FileAuthorship> map, boolean ascending) {
+		this();
+		this.map = JGitUtils.sortByAuthorTime(commitIndex, map, ascending);
+		this.commitIndex = commitIndex;
+	}
+	
+	/**
+	 * Get the number of commits
+	 * @return
+	 */
+	public int size() {
+		return map.size();
+	}
+	
+	public void forEach(BiConsumer<String, FileAuthorship> action) {
+		map.forEach(action);
+	}
+	
+	/**
+	 * Get all the authors who have owned part of the file at any of the 
+	 * commits, sorted by their highest percentage in descending order. 
+	 * A commit whose file has no score counts as 0 for everyone.
+	 * @return
+	 */
+	public List<GitAuthor> getAuthors() {
+		Map<GitAuthor, Double> maxPercentages =
+				new HashMap<GitAuthor, Double>();
+		forEach((sha1, authorship) -> authorship.getAuthors().forEach(a ->
+				maxPercentages.merge(a, authorship.getTotalScore() == 0 ? 0
+						: authorship.getPercentage(a), Math::max)));
+		List<GitAuthor> authors = new ArrayList<GitAuthor>(
+				maxPercentages.keySet());
+		authors.sort((a1, a2) -> Double.compare(maxPercentages.get(a2),
+				maxPercentages.get(a1)));
+		return authors;
+	}
+	
+	/**
+	 * Get the authorship of every author over the commits
+	 * @return
+	 */
+	public List<PersonAuthorship> getPersonAuthorships() {
+		List<PersonAuthorship> result = new ArrayList<PersonAuthorship>();
+		for (GitAuthor author : getAuthors()) {
+			result.add(PersonAuthorship.calculate(commitIndex, author,
+					map.values(), true));
+		}
+		return result;
+	}
+	
+	/**
+	 * Get the labels of the commits for Chart.js: the author date and the 
+	 * abbreviated SHA-1
+	 * @return
+	 */
+	public String[] getChartJsLabels() {
+		SimpleDateFormat format = new SimpleDateFormat(LABEL_DATE_FORMAT);
+		String[] labels = new String[size()];
+		int i = 0;
+		for (String sha1 : map.keySet()) {
+			labels[i] = format.format(commitIndex.getAuthorDate(sha1)) + " "
+					+ sha1.substring(0, 7);
+			i++;
+		}
+		return labels;
+	}
+	
+	/**
+	 * Get the percentage of the file owned by each author at each commit, 
+	 * for generating Chart.js line or area chart data. The keys are the 
+	 * authors (see GitAuthor.toStringBasic()), sorted the same way as 
+	 * getAuthors(), and the values are in the same order as 
+	 * getChartJsLabels(). An author who owns nothing at a commit has 0 
+	 * there, and so does everyone at a commit whose file has no score.
+	 * @return
+	 */
+	public Map<String, float[]> getChartJsSeries() {
+		// Use LinkedHashMap to preserve the ordering
+		Map<String, float[]> series = new LinkedHashMap<String, float[]>();
+		for (GitAuthor author : getAuthors()) {
+			float[] percentages = new float[size()];
+			int i = 0;
+			for (FileAuthorship authorship : map.values()) {
+				if (authorship.getTotalScore() != 0) {
+					percentages[i] = (float) authorship.getPercentage(author);
+				}
+				i++;
+			}
+			series.put(author.toStringBasic(), percentages);
+		}
+		return series;
+	}
+	
+	/**
+	 * Calculate a FileAuthorshipOverCommits object
+	 * @param commitIndex an index containing all the commits of authorships
+	 * @param authorships
+	 * @param filePath
+	 * @param ascending
+	 * @return
+	 */
+	public static FileAuthorshipOverCommits calculate(
+			CommitIndex commitIndex, Iterable<FileAuthorship> authorships,
+			String filePath, boolean ascending) {
+		Map<String, FileAuthorship> map =
+				new HashMap<String, FileAuthorship>();
+		StreamSupport.stream(authorships.spliterator(), false)
+				.filter(a -> filePath.equals(a.getFilePath()))
+				.forEach(a -> map.put(a.getSha1(), a));
+		return new FileAuthorshipOverCommits(commitIndex, map, ascending);
+	}
+	
+}
@@ -24,7 +24,11 @@ import org.eclipse.jgit.lib.AnyObjectId;
 import org.eclipse.jgit.lib.Repository;
 import org.eclipse.jgit.revwalk.RevCommit;
 
+import io.ologn.gitstat.akka.FileCommitStatMaster;
 import io.ologn.gitstat.jgit.BlameUtils;
+import io.ologn.gitstat.tokenizer.LineTokenizer;
+import io.ologn.gitstat.tokenizer.TokenCache;
+import io.ologn.gitstat.tokenizer.TokenParser;
 
 /**
  * Statistics for a commit. 
@@ -39,20 +43,27 @@ public class FileCommitStat implements BlameResultContainer {
 	
 	protected Map<GitAuthor, TokenCounter> map;
 	protected String sha1;
+	protected String filePath;
 	
-	protected BlameResult blameResult;
+	/**
+	 * The attribution of the lines, kept instead of the BlameResult so the 
+	 * contents of the file are not kept in memory. It's null if the file 
+	 * doesn't exist at the commit.
+	 */
+	protected CompactBlame blame;
 	
 	/**
 	 * Disable default constructor
 	 */
 	protected FileCommitStat() {
-		blameResult = null;
+		blame = null;
 	}
 	
-	protected FileCommitStat(String sha1) {
+	protected FileCommitStat(String sha1, String filePath) {
 		this();
 		map = new HashMap<GitAuthor, TokenCounter>();
 		this.sha1 = sha1;
+		this.filePath = filePath;
 	}
 	
 	public Map<GitAuthor, TokenCounter> getMap() {
@@ -68,13 +79,43 @@ public class FileCommitStat implements BlameResultContainer {
 		return sha1;
 	}
 	
+	/**
+	 * A FileCommitStat is detached from the BlameResult it's calculated 
+	 * from, so the contents of the file are not kept in memory.
+	 * @return null
+	 */
 	@Override
 	public BlameResult getBlameResult() {
-		return blameResult;
+		return null;
+	}
+	
+	@Override
+	public String getFilePath() {
+		return filePath;
+	}
+	
+	@Override
+	public int getBlameSize() {
+		return blame == null ? 0 : blame.getBlameSize();
+	}
+	
+	@Override
+	public GitAuthor getAuthorAtLine(int i) {
+		return blame.getAuthorAtLine(i);
+	}
+	
+	@Override
+	public long[] getAuthorTimes() {
+		return blame == null ? new long[0] : blame.getAuthorTimes();
 	}
 	
-	protected void setBlameResult(BlameResult blameResult) {
-		this.blameResult = blameResult;
+	@Override
+	public int[] getAuthorIds(AuthorDictionary dictionary) {
+		return blame == null ? new int[0] : blame.getAuthorIds(dictionary);
+	}
+	
+	protected void setBlame(CompactBlame blame) {
+		this.blame = blame;
 	}
 
 	/**
@@ -130,6 +171,17 @@ public class FileCommitStat implements BlameResultContainer {
 		getTokenCounter(author).countToken(token);
 	}
 	
+	/**
+	 * Same as countToken(GitAuthor, String), but with the id of the token 
+	 * in the global TokenDictionary
+	 * @param author
+	 * @param tokenId
+	 */
+	public void countToken(GitAuthor author, int tokenId) {
+		addAuthor(author);
+		getTokenCounter(author).countToken(tokenId);
+	}
+	
 	/**
 	 * Reset the TokenCounter for one or more authors. Authors that don't 
 	 * exist will be skipped.
@@ -172,20 +224,36 @@ public class FileCommitStat implements BlameResultContainer {
 	public static FileCommitStat calculate(Git git,
 			AnyObjectId commitId, String filePath,
 			Function<String, String> parseToken) throws GitAPIException {
-		FileCommitStat stat = new FileCommitStat(commitId.getName());
+		return calculate(git, commitId, filePath,
+				LineTokenizer.of(parseToken));
+	}
+	
+	/**
+	 * Calculate the FileCommitStat for an author and one file in a commit.
+	 * @param git
+	 * @param commitId
+	 * @param filePath
+	 * @param tokenizer finds the token of each line (see 
+	 * TokenParser.lineTokenizer())
+	 * @return the resulting FileCommitStat
+	 * @throws GitAPIException
+	 */
+	public static FileCommitStat calculate(Git git,
+			AnyObjectId commitId, String filePath, LineTokenizer tokenizer)
+					throws GitAPIException {
+		FileCommitStat stat = new FileCommitStat(commitId.getName(),
+				filePath);
 		BlameResult blameResult = BlameUtils.getBlameResult(
 				git, commitId, filePath);
 		if (blameResult == null) {
 			return stat;
 		}
-		stat.setBlameResult(blameResult);
+		stat.setBlame(CompactBlame.calculate(stat.sha1, blameResult));
 		RawText rawText = blameResult.getResultContents();
 		int size = rawText.size();
 		for (int i = 0; i < size; i++) {
 			GitAuthor author = new GitAuthor(blameResult.getSourceAuthor(i));
-			String line = rawText.getString(i);
-			String token = parseToken.apply(line);
-			stat.countToken(author, token);
+			stat.countToken(author, tokenizer.getTokenId(rawText, i));
 		}
 		return stat;
 	}
@@ -211,28 +279,65 @@ public class FileCommitStat implements BlameResultContainer {
 	
 	/**
 	 * Calculate the FileCommitStat objects for an author and a file in a list 
-	 * (Iterable) of commits.
+	 * (Iterable) of commits. The commits are calculated in parallel, one 
+	 * commit per core at a time, and the tokens are parsed through a 
+	 * TokenCache shared by all the commits, so each distinct line is only 
+	 * parsed once.
 	 * @param git
 	 * @param repo
 	 * @param commits
 	 * @param filePath
 	 * @param parseToken
+	 * @return the FileCommitStat objects in the order of the commits. 
+	 * Commits that failed even after retrying are left out.
+	 */
+	public static List<FileCommitStat> calculateMultiple(Git git,
+			Repository repo, Iterable<RevCommit> commits, String filePath,
+			Function<String, String> parseToken) {
+		return calculateMultiple(git, repo, commits, filePath,
+				LineTokenizer.of(TokenCache.init(parseToken)));
+	}
+	
+	/**
+	 * Same as calculateMultiple() with a parseToken function, but the 
+	 * tokens are found with the LineTokenizer of a TokenParser (see 
+	 * TokenParser.lineTokenizer()), which may not need to decode the 
+	 * lines at all.
+	 * @param git
+	 * @param repo
+	 * @param commits
+	 * @param filePath
+	 * @param parser
 	 * @return
-	 * @throws RevisionSyntaxException
-	 * @throws AmbiguousObjectException
-	 * @throws IncorrectObjectTypeException
-	 * @throws IOException
-	 * @throws GitAPIException
 	 */
 	public static List<FileCommitStat> calculateMultiple(Git git,
 			Repository repo, Iterable<RevCommit> commits, String filePath,
-			Function<String, String> parseToken)
-					throws RevisionSyntaxException, AmbiguousObjectException,
-					IncorrectObjectTypeException, IOException,
-					GitAPIException {
+			TokenParser parser) {
+		return calculateMultiple(git, repo, commits, filePath,
+				parser.lineTokenizer());
+	}
+	
+	protected static List<FileCommitStat> calculateMultiple(Git git,
+			Repository repo, Iterable<RevCommit> commits, String filePath,
+			LineTokenizer tokenizer) {
+		Map<String, FileCommitStat> statMap =
+				new HashMap<String, FileCommitStat>();
+		FileCommitStatMaster master = FileCommitStatMaster.init();
+		try {
+			List<RevCommit> failed = master.calculateFileCommitStats(git,
+					commits, filePath, tokenizer,
+					stat -> statMap.put(stat.getSha1(), stat));
+			failed.forEach(commit -> System.err.println(
+					"Giving up on " + commit));
+		} finally {
+			master.shutdown();
+		}
 		List<FileCommitStat> stats = new ArrayList<FileCommitStat>();
 		for (RevCommit commit : commits) {
-			stats.add(calculate(git, repo, commit, filePath, parseToken));
+			FileCommitStat stat = statMap.get(commit.getName());
+			if (stat != null) {
+				stats.add(stat);
+			}
 		}
 		return stats;
 	}
@@ -1,6 +1,7 @@
 package io.ologn.gitstat.stat;
 
 import java.io.IOException;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
@@ -19,35 +20,64 @@ import org.eclipse.jgit.lib.Repository;
 import org.eclipse.jgit.revwalk.RevCommit;
 
 import io.ologn.common.collect.OlognMaps;
-import io.ologn.gitstat.akka.LineAuthorshipMaster;
+import io.ologn.gitstat.jgit.BlameCache;
+import io.ologn.gitstat.jgit.BlameCache.Algorithm;
 import io.ologn.gitstat.jgit.BlameUtils;
+import io.ologn.gitstat.jgit.IncrementalBlame;
 
 /**
- * Object storing the author of each line in a file at a commit.
+ * Object storing the author of each line in a file at a commit.<br>
+ * The authors are stored as ids in an AuthorDictionary (the global one by 
+ * default) together with the author time of each line, so each object 
+ * only costs an int and a long per line no matter how many commits the 
+ * lines come from.
  * @author lisq199
  */
 public class LineAuthorship implements BlameResultContainer {
 	
-	protected GitAuthor[] authors;
-	protected Map<GitAuthor, Integer> map;
+	protected AuthorDictionary dictionary;
+	/**
+	 * The id of the author of each line
+	 */
+	protected int[] authorIds;
+	/**
+	 * The author time of each line in milliseconds
+	 */
+	protected long[] authorTimes;
+	/**
+	 * The distinct ids in authorIds in ascending order
+	 */
+	protected int[] distinctAuthorIds;
+	/**
+	 * The number of lines written by each author in distinctAuthorIds
+	 */
+	protected int[] lineCounts;
 	
 	protected String sha1;
-	protected BlameResult blameResult;
+	protected String filePath;
 	
 	protected LineAuthorship() {
-		this.authors = new GitAuthor[0];
-		this.map = new HashMap<GitAuthor, Integer>();
+		this.dictionary = AuthorDictionary.getGlobal();
+		this.authorIds = new int[0];
+		this.authorTimes = new long[0];
+		this.distinctAuthorIds = new int[0];
+		this.lineCounts = new int[0];
 	}
 	
-	protected LineAuthorship(String sha1, BlameResult blameResult) {
+	protected LineAuthorship(BlameResultContainer container) {
 		this();
-		this.sha1 = sha1;
-		this.blameResult = blameResult;
+		this.sha1 = container.getSha1();
+		this.filePath = container.getFilePath();
 	}
 	
+	/**
+	 * A LineAuthorship is detached from the BlameResult it's calculated 
+	 * from, so the contents of the file are not kept in memory.
+	 * @return null
+	 */
 	@Override
 	public BlameResult getBlameResult() {
-		return blameResult;
+		return null;
 	}
 	
 	@Override
@@ -55,9 +85,62 @@ public class LineAuthorship implements BlameResultContainer {
 		return sha1;
 	}
 	
+	@Override
+	public String getFilePath() {
+		return filePath;
+	}
+	
+	@Override
+	public int getBlameSize() {
+		return authorIds.length;
+	}
+	
+	/**
+	 * Get the dictionary of the author ids
+	 * @return
+	 */
+	public AuthorDictionary getAuthorDictionary() {
+		return dictionary;
+	}
+	
+	/**
+	 * Get the id of the author at a line
+	 * @param i the line number
+	 * @return
+	 */
+	public int getAuthorIdAtLine(int i) {
+		return authorIds[i];
+	}
+	
+	@Override
+	public int[] getAuthorIds(AuthorDictionary dictionary) {
+		return dictionary.intern(this.dictionary, authorIds);
+	}
+	
+	@Override
+	public long[] getAuthorTimes() {
+		return authorTimes.clone();
+	}
+	
+	/**
+	 * Get the distinct ids of the authors of the file in ascending order
+	 * @return
+	 */
+	public int[] getDistinctAuthorIds() {
+		return distinctAuthorIds.clone();
+	}
+	
+	/**
+	 * The time zone of the author time is always UTC.
+	 */
 	@Override
 	public GitAuthor getAuthorAtLine(int i) {
-		return authors[i];
+		return dictionary.getAuthor(authorIds[i], authorTimes[i]);
+	}
+	
+	@Override
+	public Duration getAgeOfLine(int i) {
+		return Duration.ofMillis(System.currentTimeMillis() - authorTimes[i]);
 	}
 	
 	/**
@@ -66,19 +149,33 @@ public class LineAuthorship implements BlameResultContainer {
 	 * @return
 	 */
 	public int getNumberOfLinesWrittenBy(GitAuthor author) {
-		if (this.map.containsKey(author)) {
-			return this.map.get(author);
+		return getNumberOfLinesWrittenBy(dictionary.getId(author));
+	}
+	
+	/**
+	 * Get the number of lines written by an author
+	 * @param authorId the id of the author in the dictionary
+	 * @return
+	 */
+	public int getNumberOfLinesWrittenBy(int authorId) {
+		int index = Arrays.binarySearch(distinctAuthorIds, authorId);
+		if (index >= 0) {
+			return lineCounts[index];
 		} else {
 			return 0;
 		}
 	}
 	
 	/**
-	 * Get all the authors of the file
+	 * Get the author of each line of the file
 	 * @return
 	 */
 	public GitAuthor[] getAuthors() {
-		return authors.clone();
+		GitAuthor[] authors = new GitAuthor[authorIds.length];
+		for (int i = 0; i < authors.length; i++) {
+			authors[i] = getAuthorAtLine(i);
+		}
+		return authors;
 	}
 	
 	protected Comparator<GitAuthor> getGitAuthorComparatorByContribution(
@@ -102,7 +199,8 @@ public class LineAuthorship implements BlameResultContainer {
 	 */
 	public GitAuthor[] getAuthorsSortedByContribution(boolean ascending) {
 		GitAuthor[] sortedAuthors = getAuthors();
-		Arrays.sort(authors, getGitAuthorComparatorByContribution(ascending));
+		Arrays.sort(sortedAuthors,
+				getGitAuthorComparatorByContribution(ascending));
 		return sortedAuthors;
 	}
 	
@@ -111,9 +209,13 @@ public class LineAuthorship implements BlameResultContainer {
 	 * @return
 	 */
 	public GitAuthor getAuthorWithMostLines() {
-		return Arrays.stream(getAuthors())
-				.max(getGitAuthorComparatorByContribution(true))
-				.get();
+		int best = 0;
+		for (int i = 1; i < lineCounts.length; i++) {
+			if (lineCounts[i] >= lineCounts[best]) {
+				best = i;
+			}
+		}
+		return dictionary.getAuthor(distinctAuthorIds[best]);
 	}
 	
 	/**
@@ -121,9 +223,13 @@ public class LineAuthorship implements BlameResultContainer {
 	 * @return
 	 */
 	public GitAuthor getAuthorWithLeastLines() {
-		return Arrays.stream(getAuthors())
-				.min(getGitAuthorComparatorByContribution(true))
-				.get();
+		int best = 0;
+		for (int i = 1; i < lineCounts.length; i++) {
+			if (lineCounts[i] < lineCounts[best]) {
+				best = i;
+			}
+		}
+		return dictionary.getAuthor(distinctAuthorIds[best]);
 	}
 	
 	/**
@@ -134,25 +240,46 @@ public class LineAuthorship implements BlameResultContainer {
 	 */
 	public Map<GitAuthor, Integer> getMapSortedByContribution(
 			boolean ascending) {
+		Map<GitAuthor, Integer> map = new HashMap<GitAuthor, Integer>();
+		for (int i = 0; i < distinctAuthorIds.length; i++) {
+			map.put(dictionary.getAuthor(distinctAuthorIds[i]), lineCounts[i]);
+		}
 		return OlognMaps.sortByValue(map, ascending);
 	}
 	
-	protected void countLine(GitAuthor author) {
-		int count = 1;
-		if (this.map.containsKey(author)) {
-			count += map.get(author);
+	/**
+	 * Count the lines of each author in authorIds
+	 */
+	protected void initLineCounts() {
+		int[] sortedIds = authorIds.clone();
+		Arrays.sort(sortedIds);
+		int distinct = 0;
+		for (int i = 0; i < sortedIds.length; i++) {
+			if (i == 0 || sortedIds[i] != sortedIds[i - 1]) {
+				distinct++;
+			}
+		}
+		this.distinctAuthorIds = new int[distinct];
+		this.lineCounts = new int[distinct];
+		int j = -1;
+		for (int i = 0; i < sortedIds.length; i++) {
+			if (i == 0 || sortedIds[i] != sortedIds[i - 1]) {
+				j++;
+				this.distinctAuthorIds[j] = sortedIds[i];
+			}
+			this.lineCounts[j]++;
 		}
-		map.put(author, count);
 	}
 	
-	protected void initAuthors() {
-		int size = this.getBlameSize();
-		this.authors = new GitAuthor[size];
-		for (int i = 0; i < size; i++) {
-			GitAuthor a = BlameResultContainer.super.getAuthorAtLine(i);
-			this.authors[i] = a;
-			this.countLine(a);
-		}
+	/**
+	 * Used internally for reading the authors from a BlameResultContainer, 
+	 * which doesn't have to be backed by a BlameResult.
+	 * @param container
+	 */
+	protected void initAuthors(BlameResultContainer container) {
+		this.authorIds = container.getAuthorIds(dictionary);
+		this.authorTimes = container.getAuthorTimes();
+		this.initLineCounts();
 	}
 	
 	/**
@@ -163,9 +290,7 @@ public class LineAuthorship implements BlameResultContainer {
 	 */
 	public static LineAuthorship calculate(
 			String sha1, BlameResult blameResult) {
-		LineAuthorship authorship = new LineAuthorship(sha1, blameResult);
-		authorship.initAuthors();
-		return authorship;
+		return calculate(CompactBlame.calculate(sha1, blameResult));
 	}
 	
 	/**
@@ -174,11 +299,14 @@ public class LineAuthorship implements BlameResultContainer {
 	 * @return
 	 */
 	public static LineAuthorship calculate(BlameResultContainer container) {
-		return calculate(container.getSha1(), container.getBlameResult());
+		LineAuthorship authorship = new LineAuthorship(container);
+		authorship.initAuthors(container);
+		return authorship;
 	}
 	
 	/**
-	 * Calculate a LineAuthorship object.
+	 * Calculate a LineAuthorship object. The blame is read from the BlameCache 
+	 * of the repository if possible.
 	 * @param git
 	 * @param commitId
 	 * @param filePath
@@ -187,9 +315,12 @@ public class LineAuthorship implements BlameResultContainer {
 	 */
 	public static LineAuthorship calculate(Git git, AnyObjectId commitId,
 			String filePath) throws GitAPIException {
-		BlameResult blameResult = BlameUtils.getBlameResult(git, commitId,
+		CompactBlame blame = BlameUtils.getCompactBlame(git, commitId,
 				filePath);
-		return calculate(commitId.getName(), blameResult);
+		if (blame == null) {
+			return null;
+		}
+		return calculate(blame);
 	}
 	
 	/**
@@ -209,9 +340,7 @@ public class LineAuthorship implements BlameResultContainer {
 			String revstr, String filePath) throws RevisionSyntaxException,
 	AmbiguousObjectException, IncorrectObjectTypeException, GitAPIException,
 	IOException {
-		BlameResult blameResult = BlameUtils.getBlameResult(git, repo,
-				revstr, filePath);
-		return calculate(repo.resolve(revstr).getName(), blameResult);
+		return calculate(git, repo.resolve(revstr), filePath);
 	}
 	
 	/**
@@ -231,13 +360,13 @@ public class LineAuthorship implements BlameResultContainer {
 			RevCommit commit, String filePath) throws RevisionSyntaxException,
 	AmbiguousObjectException, IncorrectObjectTypeException, GitAPIException,
 	IOException {
-		BlameResult blameResult = BlameUtils.getBlameResult(git, repo,
-				commit, filePath);
-		return calculate(commit.getName(), blameResult);
+		return calculate(git, commit, filePath);
 	}
 	
 	/**
-	 * Calculate multiple LineAuthorship objects over commits.
+	 * Calculate multiple LineAuthorship objects over commits. The history 
+	 * of the file is only walked once with IncrementalBlame, instead of 
+	 * running a full blame for every commit.
 	 * @param git
 	 * @param repo
 	 * @param commits
@@ -254,8 +383,10 @@ public class LineAuthorship implements BlameResultContainer {
 					throws RevisionSyntaxException, AmbiguousObjectException,
 					IncorrectObjectTypeException, GitAPIException,
 					IOException {
-		return LineAuthorshipMaster.init().calculateLineAuthorshipList(
-				git, repo, commits, filePath);
+		return IncrementalBlame.init(repo, filePath)
+				.setBlameCache(BlameCache.forRepository(repo,
+						Algorithm.INCREMENTAL))
+				.calculate(commits, LineAuthorship::calculate);
 	}
 	
 	/**
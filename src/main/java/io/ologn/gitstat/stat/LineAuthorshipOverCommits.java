@@ -1,6 +1,5 @@
 package io.ologn.gitstat.stat;
 
-import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
@@ -8,15 +7,12 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.function.BiConsumer;
-import java.util.function.Function;
 import java.util.stream.StreamSupport;
 
 import org.apache.commons.lang3.ArrayUtils;
-import org.eclipse.jgit.errors.IncorrectObjectTypeException;
-import org.eclipse.jgit.errors.MissingObjectException;
-import org.eclipse.jgit.lib.Repository;
 
 import io.ologn.common.time.OlognDates;
+import io.ologn.gitstat.jgit.CommitIndex;
 import io.ologn.gitstat.jgit.JGitUtils;
 import io.ologn.gitstat.vis.ColorPixels;
 
@@ -29,15 +25,35 @@ public class LineAuthorshipOverCommits {
 	
 	protected Map<String, LineAuthorship> map;
 	
+	/**
+	 * The metadata of the commits in map
+	 */
+	protected CommitIndex commitIndex;
+	
 	protected Map<GitAuthor, Integer> authorIdMap;
+	protected List<GitAuthor> authorsById;
+	/**
+	 * The author ID of each id in the AuthorDictionary of the 
+	 * LineAuthorship objects, or -1 for authors not in this object
+	 */
+	protected int[] dictionaryIdToAuthorId;
+	/**
+	 * The title of each author ID
+	 */
+	protected String[] authorTitles;
 	
 	protected LineAuthorshipOverCommits() {
 		this.authorIdMap = new HashMap<GitAuthor, Integer>();
+		this.authorsById = new ArrayList<GitAuthor>();
+		this.dictionaryIdToAuthorId = new int[0];
+		this.authorTitles = new String[0];
 	}
 	
-	protected LineAuthorshipOverCommits(Repository repo, boolean ascending) {
+	protected LineAuthorshipOverCommits(CommitIndex commitIndex,
+			Map<String, LineAuthorship> map, boolean ascending) {
 		this();
-		this.map = JGitUtils.getMapSortedByAuthorTime(repo, ascending);
+		this.map = JGitUtils.sortByAuthorTime(commitIndex, map, ascending);
+		this.commitIndex = commitIndex;
 	}
 	
 	/**
@@ -71,140 +87,146 @@ public class LineAuthorshipOverCommits {
 	 * @return
 	 */
 	public GitAuthor getAuthorById(int id) {
-		for (Map.Entry<GitAuthor, Integer> e : authorIdMap.entrySet()) {
-			if (e.getValue() == id) {
-				return e.getKey();
-			}
+		if (id >= 0 && id < authorsById.size()) {
+			return authorsById.get(id);
 		}
 		return null;
 	}
 	
+	/**
+	 * Get the author ID of each line. The IDs are looked up by the ids of 
+	 * the AuthorDictionary, so no GitAuthor is hashed.
+	 * @param a
+	 * @return
+	 */
+	protected long[] getAuthorIds(LineAuthorship a) {
+		long[] data = new long[a.getBlameSize()];
+		for (int i = 0; i < data.length; i++) {
+			data[i] = dictionaryIdToAuthorId[a.getAuthorIdAtLine(i)];
+		}
+		return data;
+	}
+	
+	/**
+	 * Get the author ID of each line sorted by the number of lines each 
+	 * author wrote at the commit. Lines of authors with the same number 
+	 * of lines keep their order.
+	 * @param a
+	 * @param ascending
+	 * @return
+	 */
+	protected long[] getAuthorIdsSortedByContribution(LineAuthorship a,
+			boolean ascending) {
+		long[] data = getAuthorIds(a);
+		int[] lines = new int[authorsById.size()];
+		for (long id : data) {
+			lines[(int) id]++;
+		}
+		Long[] sortedData = Arrays.stream(ArrayUtils.toObject(data))
+				.sorted((x, y) -> {
+					int xLines = lines[x.intValue()];
+					int yLines = lines[y.intValue()];
+					if (ascending) {
+						return Integer.compare(xLines, yLines);
+					} else {
+						return Integer.compare(yLines, xLines);
+					}
+				})
+				.toArray(Long[]::new);
+		return ArrayUtils.toPrimitive(sortedData);
+	}
+	
+	/**
+	 * Get the titles of the authors of the lines
+	 * @param ids the author ID of each line
+	 * @return
+	 */
+	protected String[] getTitles(long[] ids) {
+		String[] titles = new String[ids.length];
+		for (int i = 0; i < titles.length; i++) {
+			titles[i] = authorTitles[(int) ids[i]];
+		}
+		return titles;
+	}
+	
 	public List<long[]> getColorPixelsDataArrays() {
 		List<long[]> result = new ArrayList<long[]>();
-		Function<LineAuthorship, long[]> getIds = a -> {
-			long[] data = new long[a.getBlameSize()];
-			for (int i = 0; i < data.length; i++) {
-				data[i] = this.getAuthorId(a.getAuthorAtLine(i));
-			}
-			return data;
-		};
-		forEach((sha1, a) -> result.add(getIds.apply(a)));
+		forEach((sha1, a) -> result.add(getAuthorIds(a)));
 		return result;
 	}
 	
 	public List<long[]> getColorPixelsDataArraysSortedByAuthorId() {
 		List<long[]> result = new ArrayList<long[]>();
-		Function<LineAuthorship, long[]> getSortedIds = a -> {
-			long[] data = new long[a.getBlameSize()];
-			for (int i = 0; i < data.length; i++) {
-				data[i] = this.getAuthorId(a.getAuthorAtLine(i));
-			}
+		forEach((sha1, a) -> {
+			long[] data = getAuthorIds(a);
 			Arrays.sort(data);
-			return data;
-		};
-		forEach((sha1, a) -> result.add(getSortedIds.apply(a)));
+			result.add(data);
+		});
 		return result;
 	}
 	
 	public List<long[]> getColorPixelsDataArraysSortedByContribution(
 			boolean ascending) {
 		List<long[]> result = new ArrayList<long[]>();
-		Function<LineAuthorship, long[]> getSortedIds = a -> {
-			long[] data = new long[a.getBlameSize()];
-			for (int i = 0; i < data.length; i++) {
-				data[i] = this.getAuthorId(a.getAuthorAtLine(i));
-			}
-			Long[] sortedData = Arrays.stream(ArrayUtils.toObject(data))
-					.sorted((x, y) -> {
-						int xLines = a.getNumberOfLinesWrittenBy(
-								getAuthorById(x.intValue()));
-						int yLines = a.getNumberOfLinesWrittenBy(
-								getAuthorById(y.intValue()));
-						if (ascending) {
-							return Integer.compare(xLines, yLines);
-						} else {
-							return Integer.compare(yLines, xLines);
-						}
-					})
-					.toArray(Long[]::new);
-			return ArrayUtils.toPrimitive(sortedData);
-		};
-		forEach((sha1, a) -> result.add(getSortedIds.apply(a)));
+		forEach((sha1, a) -> result.add(
+				getAuthorIdsSortedByContribution(a, ascending)));
 		return result;
 	}
 	
 	public List<String[]> getColorPixelsTitleArrays() {
 		List<String[]> result = new ArrayList<String[]>();
-		forEach((sha1, a) -> result.add(Arrays.stream(a.getAuthors())
-				.map(author -> author.toStringBasic())
-				.toArray(String[]::new)));
+		forEach((sha1, a) -> result.add(getTitles(getAuthorIds(a))));
 		return result;
 	}
 	
 	public List<String[]> getColorPixelsTitleArraysSortedByAuthorId() {
 		List<String[]> result = new ArrayList<String[]>();
-		forEach((sha1, a) -> result.add(Arrays.stream(a.getAuthors())
-				.sorted((a1, a2) -> Integer.compare(
-						getAuthorId(a1), getAuthorId(a2)))
-				.map(author -> author.toStringBasic())
-				.toArray(String[]::new)));
+		forEach((sha1, a) -> {
+			long[] data = getAuthorIds(a);
+			Arrays.sort(data);
+			result.add(getTitles(data));
+		});
 		return result;
 	}
 	
 	public List<String[]> getColorPixelsTitleArraysSortedByContribution(
 			boolean ascending) {
 		List<String[]> result = new ArrayList<String[]>();
-		forEach((sha1, a) -> result.add(Arrays.stream(a.getAuthors())
-				.sorted((a1, a2) -> {
-					int a1Lines = a.getNumberOfLinesWrittenBy(a1);
-					int a2Lines = a.getNumberOfLinesWrittenBy(a2);
-					if (ascending) {
-						return Integer.compare(a1Lines, a2Lines);
-					} else {
-						return Integer.compare(a2Lines, a1Lines);
-					}
-				})
-				.map(author -> author.toStringBasic())
-				.toArray(String[]::new)));
+		forEach((sha1, a) -> result.add(getTitles(
+				getAuthorIdsSortedByContribution(a, ascending))));
 		return result;
 	}
 	
 	public Map<Long, String> getColorPixelsTitleMap() {
 		Map<Long, String> titleMap = new HashMap<Long, String>();
-		authorIdMap.forEach((author, id) -> {
-			titleMap.put(id.longValue(), author.toStringBasic());
-		});
+		for (int id = 0; id < authorTitles.length; id++) {
+			titleMap.put((long) id, authorTitles[id]);
+		}
 		return titleMap;
 	}
 	
-	public List<String> getColorPixelsDatasetDescriptions(
-			Repository repo) throws MissingObjectException,
-	IncorrectObjectTypeException, IOException {
+	public List<String> getColorPixelsDatasetDescriptions() {
 		List<String> result = new ArrayList<String>();
 		for (String sha1 : map.keySet()) {
 			StringBuilder builder = new StringBuilder();
 			builder.append("SHA-1: ").append(sha1).append(ColorPixels.HTML_LF);
-			Date authorDate = JGitUtils.getAuthorTimeFromSha1(repo, sha1);
+			Date authorDate = commitIndex.getAuthorDate(sha1);
 			builder.append("Commit Author Date: ").append(authorDate)
 					.append(ColorPixels.HTML_LF);
-			long commitSeconds = JGitUtils.getCommitTimeFromSha1(
-					repo, sha1);
-			Date commitDate = new Date(commitSeconds * 1000l);
+			Date commitDate = commitIndex.getCommitDate(sha1);
 			builder.append("Commit Time: ").append(commitDate);
 			result.add(builder.toString());
 		}
 		return result;
 	}
 	
-	public Map<Integer, String> getColorPixelsBookmarkMapByYear(
-			Repository repo) throws MissingObjectException,
-	IncorrectObjectTypeException, IOException {
+	public Map<Integer, String> getColorPixelsBookmarkMapByYear() {
 		Map<Integer, String> bookmarkMap = new HashMap<Integer, String>();
 		
 		int i = 0;
 		Date currentDate, previousDate = null;
 		for (String sha1 : map.keySet()) {
-			currentDate = JGitUtils.getAuthorTimeFromSha1(repo, sha1);
+			currentDate = commitIndex.getAuthorDate(sha1);
 			if (!OlognDates.sameYear(currentDate, previousDate)) {
 				bookmarkMap.put(i, "" + OlognDates.getYear(currentDate));
 			}
@@ -226,32 +248,43 @@ public class LineAuthorshipOverCommits {
 	}
 	
 	protected void initAuthorIdMap() {
-		int id = 0;
+		int[] idMap = new int[AuthorDictionary.getGlobal().size()];
+		Arrays.fill(idMap, -1);
 		for (LineAuthorship authorship : map.values()) {
-			for (GitAuthor author : authorship.getAuthors()) {
-				if (!authorIdMap.containsKey(author)) {
-					authorIdMap.put(author, id++);
+			for (int i = 0; i < authorship.getBlameSize(); i++) {
+				int dictionaryId = authorship.getAuthorIdAtLine(i);
+				if (idMap[dictionaryId] < 0) {
+					GitAuthor author = authorship.getAuthorAtLine(i);
+					idMap[dictionaryId] = authorsById.size();
+					authorIdMap.put(author, authorsById.size());
+					authorsById.add(author);
 				}
 			}
 		}
+		this.dictionaryIdToAuthorId = idMap;
+		this.authorTitles = authorsById.stream()
+				.map(author -> author.toStringBasic())
+				.toArray(String[]::new);
 	}
 	
 	/**
 	 * Calculate a LineAuthorshipOverCommits object
-	 * @param repo
+	 * @param commitIndex an index containing all the commits of authorships
 	 * @param authorships
 	 * @param filePath
 	 * @param ascending
 	 * @return
 	 */
-	public static LineAuthorshipOverCommits calculate(Repository repo,
-			Iterable<LineAuthorship> authorships, String filePath,
-			boolean ascending) {
-		LineAuthorshipOverCommits laoc = new LineAuthorshipOverCommits(
-				repo, ascending);
+	public static LineAuthorshipOverCommits calculate(
+			CommitIndex commitIndex, Iterable<LineAuthorship> authorships,
+			String filePath, boolean ascending) {
+		Map<String, LineAuthorship> map =
+				new HashMap<String, LineAuthorship>();
 		StreamSupport.stream(authorships.spliterator(), false)
 				.filter(a -> a.getFilePath().equals(filePath))
-				.forEach(a -> laoc.map.put(a.getSha1(), a));
+				.forEach(a -> map.put(a.getSha1(), a));
+		LineAuthorshipOverCommits laoc = new LineAuthorshipOverCommits(
+				commitIndex, map, ascending);
 		laoc.initAuthorIdMap();
 		return laoc;
 	}
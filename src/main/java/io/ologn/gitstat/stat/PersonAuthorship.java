@@ -1,7 +1,10 @@
 package io.ologn.gitstat.stat;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.function.BiConsumer;
@@ -10,6 +13,7 @@ import org.eclipse.jgit.errors.IncorrectObjectTypeException;
 import org.eclipse.jgit.errors.MissingObjectException;
 import org.eclipse.jgit.lib.Repository;
 
+import io.ologn.gitstat.jgit.CommitIndex;
 import io.ologn.gitstat.jgit.JGitUtils;
 
 /**
@@ -33,11 +37,11 @@ public class PersonAuthorship {
 	 */
 	protected PersonAuthorship() {}
 	
-	protected PersonAuthorship(GitAuthor author, Repository repo,
-			boolean ascending) {
+	protected PersonAuthorship(GitAuthor author, CommitIndex commitIndex,
+			Map<String, Double> map, boolean ascending) {
 		this();
 		this.author = author;
-		this.map = JGitUtils.getMapSortedByAuthorTime(repo, true);
+		this.map = JGitUtils.sortByAuthorTime(commitIndex, map, ascending);
 	}
 	
 	/**
@@ -92,6 +96,28 @@ public class PersonAuthorship {
 	/**
 	 * Calculate a person's authorship of a file over multiple commits, sorted 
 	 * by either ascending or descending order.
+	 * @param commitIndex an index containing all the commits of fAuthorships
+	 * @param author
+	 * @param fAuthorships a list (Iterable) of FileAuthorship objects
+	 * @param ascending true for ascending order, and false for descending
+	 * @return
+	 */
+	public static PersonAuthorship calculate(CommitIndex commitIndex,
+			GitAuthor author, Iterable<FileAuthorship> fAuthorships,
+			boolean ascending) {
+		Map<String, Double> map = new HashMap<String, Double>();
+		for (FileAuthorship fAuthorship : fAuthorships) {
+			String sha1 = fAuthorship.getSha1();
+			double percentage = fAuthorship.getPercentage(author);
+			map.put(sha1, percentage);
+		}
+		return new PersonAuthorship(author, commitIndex, map, ascending);
+	}
+	
+	/**
+	 * Calculate a person's authorship of a file over multiple commits, sorted 
+	 * by either ascending or descending order. All the commits are parsed 
+	 * once up front to get their author times.
 	 * @param repo
 	 * @param author
 	 * @param fAuthorships a list (Iterable) of FileAuthorship objects
@@ -105,14 +131,10 @@ public class PersonAuthorship {
 			GitAuthor author, Iterable<FileAuthorship> fAuthorships,
 			boolean ascending) throws MissingObjectException,
 					IncorrectObjectTypeException, IOException {
-		PersonAuthorship pAuthorship = new PersonAuthorship(
-				author, repo, ascending);
-		for (FileAuthorship fAuthorship : fAuthorships) {
-			String sha1 = fAuthorship.getSha1();
-			double percentage = fAuthorship.getPercentage(author);
-			pAuthorship.map.put(sha1, percentage);
-		}
-		return pAuthorship;
+		List<String> sha1s = new ArrayList<String>();
+		fAuthorships.forEach(a -> sha1s.add(a.getSha1()));
+		return calculate(CommitIndex.build(repo, sha1s), author,
+				fAuthorships, ascending);
 	}
 	
 	/**
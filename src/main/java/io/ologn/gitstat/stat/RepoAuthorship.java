@@ -0,0 +1,259 @@
+package io.ologn.gitstat.stat;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.errors.AmbiguousObjectException;
+import org.eclipse.jgit.errors.IncorrectObjectTypeException;
+import org.eclipse.jgit.errors.RevisionSyntaxException;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+
+import io.ologn.gitstat.akka.FileCommitStatMaster;
+import io.ologn.gitstat.jgit.RevCommitUtils;
+import io.ologn.gitstat.jgit.TreeUtils;
+import io.ologn.gitstat.tokenizer.TokenParser;
+import io.ologn.gitstat.tokenizer.TokenValue;
+
+/**
+ * The authorship of all the files in the tree of a commit. For each 
+ * author, it stores the number of lines, the count of each token, and 
+ * the score based on a TokenValue (the same as FileAuthorship).<br>
+ * The FileCommitStat of each file is added as soon as it's calculated 
+ * and then dropped, so the memory used depends on the number of authors 
+ * and tokens rather than the number of files.<br>
+ * To create an object, use RepoAuthorship.calculate().
+ * @author lisq199
+ */
+public class RepoAuthorship {
+	
+	/**
+	 * Files larger than this (in bytes) are skipped by default
+	 */
+	public static final long DEFAULT_MAX_FILE_SIZE = 1024 * 1024;
+	
+	protected String sha1;
+	protected TokenValue tokenValue;
+	protected Map<GitAuthor, Integer> lineCounts;
+	protected Map<GitAuthor, TokenCounter> tokenCounters;
+	/**
+	 * The scores of the whole tree. It's not tied to a file, so its 
+	 * file path is null.
+	 */
+	protected FileAuthorship scores;
+	protected int numberOfFiles;
+	protected int totalLines;
+	protected List<String> failedFilePaths;
+	
+	/**
+	 * Disable default constructor
+	 */
+	protected RepoAuthorship() {}
+	
+	protected RepoAuthorship(String sha1, TokenValue tokenValue) {
+		this();
+		this.sha1 = sha1;
+		this.tokenValue = tokenValue;
+		this.lineCounts = new HashMap<GitAuthor, Integer>();
+		this.tokenCounters = new HashMap<GitAuthor, TokenCounter>();
+		this.scores = new FileAuthorship();
+		this.scores.sha1 = sha1;
+		this.numberOfFiles = 0;
+		this.totalLines = 0;
+		this.failedFilePaths = new ArrayList<String>();
+	}
+	
+	/**
+	 * Get the SHA-1 of the commit
+	 * @return
+	 */
+	public String getSha1() {
+		return sha1;
+	}
+	
+	/**
+	 * Get the number of files counted
+	 * @return
+	 */
+	public int getNumberOfFiles() {
+		return numberOfFiles;
+	}
+	
+	/**
+	 * Get the number of lines in all the files counted
+	 * @return
+	 */
+	public int getTotalLines() {
+		return totalLines;
+	}
+	
+	/**
+	 * Get the files that could not be blamed
+	 * @return
+	 */
+	public List<String> getFailedFilePaths() {
+		return new ArrayList<String>(failedFilePaths);
+	}
+	
+	public Set<GitAuthor> getAuthors() {
+		return lineCounts.keySet();
+	}
+	
+	/**
+	 * Get the number of lines written by an author in all the files
+	 * @param author
+	 * @return
+	 */
+	public int getNumberOfLines(GitAuthor author) {
+		return lineCounts.getOrDefault(author, 0);
+	}
+	
+	/**
+	 * Get the count of each token written by an author in all the files
+	 * @param author
+	 * @return
+	 */
+	public TokenCounter getTokenCounter(GitAuthor author) {
+		return tokenCounters.get(author);
+	}
+	
+	/**
+	 * Get the scores of the authors, as a FileAuthorship of the whole 
+	 * tree
+	 * @return
+	 */
+	public FileAuthorship getScores() {
+		return scores;
+	}
+	
+	public long getScore(GitAuthor author) {
+		return scores.getScore(author);
+	}
+	
+	public long getTotalScore() {
+		return scores.getTotalScore();
+	}
+	
+	public double getPercentage(GitAuthor author) {
+		return scores.getPercentage(author);
+	}
+	
+	/**
+	 * Same as FileAuthorship.getChartJsPieMap()
+	 * @return
+	 */
+	public Map<String, Double> getChartJsPieMap() {
+		return scores.getChartJsPieMap();
+	}
+	
+	/**
+	 * Same as FileAuthorship.getTrimmedChartJsPieMap()
+	 * @param otherPercentage
+	 * @return
+	 */
+	public Map<String, Double> getTrimmedChartJsPieMap(
+			double otherPercentage) {
+		return scores.getTrimmedChartJsPieMap(otherPercentage);
+	}
+	
+	/**
+	 * Add the stats of a file
+	 * @param stat
+	 */
+	protected void add(FileCommitStat stat) {
+		numberOfFiles++;
+		stat.forEach((author, counter) -> {
+			tokenCounters.computeIfAbsent(author, a -> new TokenCounter())
+					.addAll(counter);
+			int count = counter.getTotalCount();
+			lineCounts.merge(author, count, Integer::sum);
+			totalLines += count;
+		});
+		FileAuthorship.calculate(tokenValue, stat).forEach((author, score) -> {
+			scores.addAuthor(author);
+			scores.increseScoreBy(author, score);
+		});
+	}
+	
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder("RepoAuthorship[\n");
+		builder.append("\tSHA-1[").append(getSha1()).append("],\n");
+		builder.append("\tfiles[").append(getNumberOfFiles()).append("],\n");
+		builder.append("\tlines[").append(getTotalLines()).append("],\n");
+		scores.forEach((author, score) -> {
+			builder.append("\t").append(author).append(": ")
+					.append(getNumberOfLines(author)).append(" lines, ")
+					.append(score).append(" - ").append(getPercentage(author))
+					.append("%,\n");
+		});
+		builder.append("]");
+		return builder.toString();
+	}
+	
+	/**
+	 * Calculate the authorship of all the files at a commit. The files 
+	 * are blamed in parallel, one file per core at a time.
+	 * @param git
+	 * @param commit
+	 * @param pathFilter only the files whose paths pass the filter are 
+	 * counted (see TreeUtils.getGlobFilter())
+	 * @param maxFileSize files larger than this (in bytes) are skipped. 
+	 * Set it to 0 or less to keep all the files.
+	 * @param parser
+	 * @return
+	 * @throws IOException
+	 */
+	public static RepoAuthorship calculate(Git git, RevCommit commit,
+			Predicate<String> pathFilter, long maxFileSize,
+			TokenParser parser) throws IOException {
+		RepoAuthorship authorship = new RepoAuthorship(commit.getName(),
+				parser.getTokenValue());
+		List<String> filePaths = TreeUtils.getFilePaths(git.getRepository(),
+				commit, pathFilter, maxFileSize);
+		FileCommitStatMaster master = FileCommitStatMaster.init();
+		try {
+			authorship.failedFilePaths.addAll(master.calculateFileCommitStats(
+					git, commit, filePaths, parser.lineTokenizer(),
+					authorship::add));
+		} finally {
+			master.shutdown();
+		}
+		return authorship;
+	}
+	
+	/**
+	 * Calculate the authorship of all the files at a commit, skipping 
+	 * files larger than DEFAULT_MAX_FILE_SIZE
+	 * @param git
+	 * @param repo
+	 * @param revstr
+	 * @param pathFilter
+	 * @param parser
+	 * @return
+	 * @throws RevisionSyntaxException
+	 * @throws AmbiguousObjectException
+	 * @throws IncorrectObjectTypeException
+	 * @throws IOException
+	 */
+	public static RepoAuthorship calculate(Git git, Repository repo,
+			String revstr, Predicate<String> pathFilter, TokenParser parser)
+					throws RevisionSyntaxException, AmbiguousObjectException,
+					IncorrectObjectTypeException, IOException {
+		ObjectId commitId = repo.resolve(revstr);
+		if (commitId == null) {
+			throw new RevisionSyntaxException("Revision not found", revstr);
+		}
+		RevCommit commit = RevCommitUtils.fromSha1(repo, commitId.getName());
+		return calculate(git, commit, pathFilter, DEFAULT_MAX_FILE_SIZE,
+				parser);
+	}
+	
+}
@@ -1,29 +1,127 @@
 package io.ologn.gitstat.stat;
 
 import java.util.Arrays;
-import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
 import java.util.function.BiConsumer;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
 
+import io.ologn.gitstat.tokenizer.TokenDictionary;
+import io.ologn.gitstat.tokenizer.TokenValue;
+
 /**
- * The purpose of this class is to count different types of tokens in a file.
+ * The purpose of this class is to count different types of tokens in a 
+ * file.<br>
+ * The tokens are stored as ids from a TokenDictionary, and the counts are 
+ * kept in int arrays (an open addressing hash table from token id to 
+ * count), so counting a token doesn't box anything, and scoring all the 
+ * tokens (see getScore()) is a loop over two int arrays.
  * @author lisq199
  *
  */
 public class TokenCounter {
 	
+	protected static final int EMPTY = -1;
+	protected static final int INITIAL_CAPACITY = 8;
+	
+	protected TokenDictionary dictionary;
+	/**
+	 * The token id in each slot of the table, or EMPTY
+	 */
+	protected int[] ids;
+	/**
+	 * The count of the token in each slot of the table
+	 */
+	protected int[] counts;
 	/**
-	 * A map storing all the tokens and counters
+	 * The number of tokens in the table
 	 */
-	protected Map<String, Integer> map;
+	protected int size;
 	
+	/**
+	 * Create a TokenCounter using the global TokenDictionary
+	 */
 	public TokenCounter() {
-		map = new HashMap<String, Integer>();
+		this(TokenDictionary.getGlobal());
+	}
+	
+	/**
+	 * Create a TokenCounter using a TokenDictionary
+	 * @param dictionary
+	 */
+	public TokenCounter(TokenDictionary dictionary) {
+		this.dictionary = dictionary;
+		this.ids = new int[INITIAL_CAPACITY];
+		this.counts = new int[INITIAL_CAPACITY];
+		this.size = 0;
+		Arrays.fill(ids, EMPTY);
+	}
+	
+	public TokenDictionary getDictionary() {
+		return dictionary;
+	}
+	
+	/**
+	 * Get the slot of a token id in the table. If the id is not in the 
+	 * table, it's the empty slot where the id would be added.
+	 * @param id
+	 * @return
+	 */
+	protected int getSlot(int id) {
+		int mask = ids.length - 1;
+		// Spread the ids, so consecutive ids don't cluster
+		int hash = id * 0x9E3779B9;
+		int slot = (hash ^ (hash >>> 16)) & mask;
+		while (ids[slot] != EMPTY && ids[slot] != id) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+	
+	/**
+	 * Get the slot of a token id in the table, adding the id with a count 
+	 * of 0 if it's not in the table
+	 * @param id
+	 * @return
+	 */
+	protected int addSlot(int id) {
+		int slot = getSlot(id);
+		if (ids[slot] == EMPTY) {
+			// Keep the table at most half full
+			if ((size + 1) * 2 > ids.length) {
+				grow();
+				slot = getSlot(id);
+			}
+			ids[slot] = id;
+			size++;
+		}
+		return slot;
+	}
+	
+	protected void grow() {
+		int[] oldIds = ids;
+		int[] oldCounts = counts;
+		ids = new int[oldIds.length * 2];
+		counts = new int[oldIds.length * 2];
+		Arrays.fill(ids, EMPTY);
+		for (int i = 0; i < oldIds.length; i++) {
+			if (oldIds[i] != EMPTY) {
+				int slot = getSlot(oldIds[i]);
+				ids[slot] = oldIds[i];
+				counts[slot] = oldCounts[i];
+			}
+		}
+	}
+	
+	/**
+	 * Get the number of distinct tokens
+	 * @return
+	 */
+	public int size() {
+		return size;
 	}
 	
 	/**
@@ -32,15 +130,35 @@ public class TokenCounter {
 	 * @return
 	 */
 	public boolean containsToken(String token) {
-		return map.containsKey(token);
+		int id = dictionary.getId(token);
+		return id >= 0 && containsToken(id);
+	}
+	
+	/**
+	 * Check if a token is already present by its id
+	 * @param id
+	 * @return
+	 */
+	public boolean containsToken(int id) {
+		return ids[getSlot(id)] != EMPTY;
 	}
 	
 	public Set<String> getTokens() {
-		return map.keySet();
+		Set<String> tokens = new HashSet<String>();
+		for (int i = 0; i < ids.length; i++) {
+			if (ids[i] != EMPTY) {
+				tokens.add(dictionary.getToken(ids[i]));
+			}
+		}
+		return tokens;
 	}
 	
 	public void forEach(BiConsumer<String, Integer> action) {
-		map.forEach(action);
+		for (int i = 0; i < ids.length; i++) {
+			if (ids[i] != EMPTY) {
+				action.accept(dictionary.getToken(ids[i]), counts[i]);
+			}
+		}
 	}
 	
 	/**
@@ -49,9 +167,7 @@ public class TokenCounter {
 	 * @param token
 	 */
 	public void addToken(String token) {
-		if (!containsToken(token)) {
-			map.put(token, 0);
-		}
+		addSlot(dictionary.intern(token));
 	}
 	
 	/**
@@ -61,11 +177,30 @@ public class TokenCounter {
 	 * @return
 	 */
 	public int getCount(String token) {
-		if (containsToken(token)) {
-			return map.get(token).intValue();
-		} else {
-			return 0;
+		int id = dictionary.getId(token);
+		return id >= 0 ? getCount(id) : 0;
+	}
+	
+	/**
+	 * Get the count of a token by its id. If the token is not present, 
+	 * then its count is 0.
+	 * @param id
+	 * @return
+	 */
+	public int getCount(int id) {
+		return counts[getSlot(id)];
+	}
+	
+	/**
+	 * Get the sum of the counts of all the tokens
+	 * @return
+	 */
+	public int getTotalCount() {
+		int total = 0;
+		for (int i = 0; i < counts.length; i++) {
+			total += counts[i];
 		}
+		return total;
 	}
 	
 	/**
@@ -74,7 +209,18 @@ public class TokenCounter {
 	 * @param n
 	 */
 	public void increaseCountBy(String token, int n) {
-		map.replace(token, map.get(token) + n);
+		increaseCountBy(dictionary.intern(token), n);
+	}
+	
+	/**
+	 * Increase the count of a token by an integer, adding the token if 
+	 * it's not present
+	 * @param id the id of the token
+	 * @param n
+	 */
+	public void increaseCountBy(int id, int n) {
+		int slot = addSlot(id);
+		counts[slot] += n;
 	}
 	
 	/**
@@ -91,15 +237,19 @@ public class TokenCounter {
 	 * @param token
 	 */
 	public void resetToken(String... tokens) {
-		Arrays.stream(tokens).filter(t -> containsToken(t))
-				.forEach(t -> map.replace(t, 0));
+		for (String token : tokens) {
+			int id = dictionary.getId(token);
+			if (id >= 0) {
+				counts[getSlot(id)] = 0;
+			}
+		}
 	}
 	
 	/**
 	 * Reset all the tokens to 0
 	 */
 	public void resetAll() {
-		forEach((token, v) -> map.replace(token, 0));
+		Arrays.fill(counts, 0);
 	}
 	
 	/**
@@ -108,8 +258,62 @@ public class TokenCounter {
 	 * @param token
 	 */
 	public void countToken(String token) {
-		addToken(token);
-		increaseCount(token);
+		countToken(dictionary.intern(token));
+	}
+	
+	/**
+	 * Same as countToken(String), but with the id of the token
+	 * @param id
+	 */
+	public void countToken(int id) {
+		int slot = addSlot(id);
+		counts[slot]++;
+	}
+	
+	/**
+	 * Add the counts of another TokenCounter to this one
+	 * @param other
+	 */
+	public void addAll(TokenCounter other) {
+		for (int i = 0; i < other.ids.length; i++) {
+			int id = other.ids[i];
+			if (id == EMPTY) {
+				continue;
+			}
+			if (other.dictionary != dictionary) {
+				id = dictionary.intern(other.dictionary.getToken(id));
+			}
+			int slot = addSlot(id);
+			counts[slot] += other.counts[i];
+		}
+	}
+	
+	/**
+	 * Get the total value of all the tokens: the sum of the count of each 
+	 * token times its value
+	 * @param valueTable the value of each token by id (see 
+	 * TokenValue.getValueTable()). It must be made from the dictionary of 
+	 * this counter after all the tokens are counted.
+	 * @return
+	 */
+	public int getScore(int[] valueTable) {
+		int score = 0;
+		for (int i = 0; i < ids.length; i++) {
+			int id = ids[i];
+			if (id != EMPTY) {
+				score += counts[i] * valueTable[id];
+			}
+		}
+		return score;
+	}
+	
+	/**
+	 * Same as getScore(int[]), with the value table of a TokenValue
+	 * @param tokenValue
+	 * @return
+	 */
+	public int getScore(TokenValue tokenValue) {
+		return getScore(tokenValue.getValueTable(dictionary));
 	}
 	
 	@Override
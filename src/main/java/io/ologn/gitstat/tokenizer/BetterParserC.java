@@ -10,6 +10,8 @@ import java.util.function.Function;
  *
  */
 public class BetterParserC implements TokenParser {
+	
+	private static final byte[] DECL_PREFIX = {'D', 'E', 'C', 'L', '|'};
 
 	@Override
 	public TokenValue getTokenValue() {
@@ -24,6 +26,24 @@ public class BetterParserC implements TokenParser {
 		return BetterParserC::parseToken;
 	}
 
+	/**
+	 * Find the token in the raw bytes of the line, the same way as 
+	 * parseToken(String), so no String is created for the line.
+	 * @return
+	 */
+	@Override
+	public LineTokenizer lineTokenizer() {
+		return new ByteLineTokenizer() {
+			
+			@Override
+			protected int getTokenId(byte[] content, int start, int end,
+					ByteTokenTable table) {
+				return parseTokenId(content, start, end, table);
+			}
+			
+		};
+	}
+	
 	public static String parseToken(String line) {
 		String l = line.trim(); // Just in case
 		int index; // index is the index of '|'
@@ -40,4 +60,55 @@ public class BetterParserC implements TokenParser {
 		}
 	}
 	
+	/**
+	 * Same as parseToken(String), but with the raw bytes of the line. 
+	 * For UTF-8 text, the token is the same.
+	 * @param b
+	 * @param start the index of the first byte of the line
+	 * @param end the index after the last byte of the line
+	 * @param table
+	 * @return the id of the token
+	 */
+	public static int parseTokenId(byte[] b, int start, int end,
+			ByteTokenTable table) {
+		// Same as String.trim(). Bytes of multibyte characters are never 
+		// trimmed, since they are negative.
+		while (start < end && b[start] >= 0 && b[start] <= ' ') {
+			start++;
+		}
+		while (end > start && b[end - 1] >= 0 && b[end - 1] <= ' ') {
+			end--;
+		}
+		int from = start;
+		if (startsWith(b, start, end, DECL_PREFIX)) {
+			// If it starts with "DECL|", then ignore the first '|'
+			from += DECL_PREFIX.length;
+		}
+		int index = -1; // index is the index of '|'
+		for (int i = from; i < end; i++) {
+			if (b[i] == '|') {
+				index = i;
+				break;
+			}
+		}
+		if (index <= start) {
+			return table.intern(b, start, end);
+		} else {
+			return table.intern(b, start, index);
+		}
+	}
+	
+	private static boolean startsWith(byte[] b, int start, int end,
+			byte[] prefix) {
+		if (end - start < prefix.length) {
+			return false;
+		}
+		for (int i = 0; i < prefix.length; i++) {
+			if (b[start + i] != prefix[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
 }
@@ -0,0 +1,90 @@
+package io.ologn.gitstat.tokenizer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.eclipse.jgit.diff.RawText;
+
+/**
+ * A LineTokenizer that finds the token in the raw bytes of the line, 
+ * without decoding the line to a String. The bytes are read with 
+ * RawText.writeLine(), which hands over the contents of the RawText 
+ * instead of copying them, and the token is looked up in a ByteTokenTable 
+ * of the current thread, so a line whose token has been seen by the 
+ * thread before is tokenized without allocating anything.
+ * @author lisq199
+ */
+public abstract class ByteLineTokenizer implements LineTokenizer {
+	
+	/**
+	 * Receives the bytes of one line from RawText.writeLine()
+	 */
+	protected static class LineSlice extends OutputStream {
+		
+		protected byte[] content;
+		protected int start;
+		protected int end;
+		
+		@Override
+		public void write(byte[] b, int off, int len) {
+			content = b;
+			start = off;
+			end = off + len;
+		}
+		
+		/**
+		 * Never called: RawText.writeLine() hands over the whole line 
+		 * with one call to write(byte[], int, int), and a single byte 
+		 * can't be kept as a slice of the contents.
+		 */
+		@Override
+		public void write(int b) {
+			throw new UnsupportedOperationException("LineSlice only "
+					+ "receives whole lines from RawText.writeLine()");
+		}
+		
+	}
+	
+	/**
+	 * The state of each thread, which is not shared so no locks are 
+	 * needed
+	 */
+	protected static class ThreadState {
+		
+		protected final LineSlice slice = new LineSlice();
+		protected final ByteTokenTable table = ByteTokenTable.init(
+				TokenDictionary.getGlobal());
+		
+	}
+	
+	private static final ThreadLocal<ThreadState> STATES =
+			ThreadLocal.withInitial(ThreadState::new);
+	
+	@Override
+	public int getTokenId(RawText text, int line) {
+		ThreadState state = STATES.get();
+		LineSlice slice = state.slice;
+		try {
+			text.writeLine(slice, line);
+		} catch (IOException e) {
+			// LineSlice never throws
+			throw new IllegalStateException(e);
+		}
+		return getTokenId(slice.content, slice.start, slice.end,
+				state.table);
+	}
+	
+	/**
+	 * Get the id of the token of a line
+	 * @param content
+	 * @param start the index of the first byte of the line
+	 * @param end the index after the last byte of the line, not 
+	 * including the line feed
+	 * @param table where the bytes of the token are looked up (see 
+	 * ByteTokenTable.intern())
+	 * @return
+	 */
+	protected abstract int getTokenId(byte[] content, int start, int end,
+			ByteTokenTable table);
+	
+}
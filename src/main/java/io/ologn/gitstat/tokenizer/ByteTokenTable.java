@@ -0,0 +1,142 @@
+package io.ologn.gitstat.tokenizer;
+
+import java.util.Arrays;
+
+import org.eclipse.jgit.util.RawParseUtils;
+
+/**
+ * A table from the bytes of a token to its id in a TokenDictionary. 
+ * Looking up a token that's already in the table doesn't allocate 
+ * anything. A new token is decoded the same way as RawText.getString() 
+ * and interned in the dictionary.<br>
+ * Objects of this class are not thread safe. The table is cleared when 
+ * it's full, so it stays small even when the tokens are whole lines.
+ * @author lisq199
+ */
+public class ByteTokenTable {
+	
+	/**
+	 * The maximum number of tokens kept before the table is cleared
+	 */
+	public static final int MAX_SIZE = 1 << 16;
+	protected static final int INITIAL_CAPACITY = 64;
+	
+	protected final TokenDictionary dictionary;
+	/**
+	 * The bytes of the token in each slot of the table, or null
+	 */
+	protected byte[][] keys;
+	protected int[] hashes;
+	protected int[] ids;
+	protected int size;
+	
+	protected ByteTokenTable(TokenDictionary dictionary) {
+		this.dictionary = dictionary;
+		clear();
+	}
+	
+	/**
+	 * Get the number of tokens in the table
+	 * @return
+	 */
+	public int size() {
+		return size;
+	}
+	
+	/**
+	 * Remove all the tokens. The ids in the dictionary are not affected.
+	 */
+	public void clear() {
+		keys = new byte[INITIAL_CAPACITY][];
+		hashes = new int[INITIAL_CAPACITY];
+		ids = new int[INITIAL_CAPACITY];
+		size = 0;
+	}
+	
+	/**
+	 * Get the id of the token in a range of bytes, and add the token if 
+	 * it's not in the table yet.
+	 * @param b
+	 * @param start the index of the first byte of the token
+	 * @param end the index after the last byte of the token
+	 * @return
+	 */
+	public int intern(byte[] b, int start, int end) {
+		int hash = hash(b, start, end);
+		int mask = keys.length - 1;
+		int slot = hash & mask;
+		while (keys[slot] != null) {
+			if (hashes[slot] == hash && equals(keys[slot], b, start, end)) {
+				return ids[slot];
+			}
+			slot = (slot + 1) & mask;
+		}
+		int id = dictionary.intern(RawParseUtils.decode(b, start, end));
+		if (size >= MAX_SIZE) {
+			clear();
+		} else if ((size + 1) * 2 > keys.length) {
+			grow();
+		}
+		put(Arrays.copyOfRange(b, start, end), hash, id);
+		return id;
+	}
+	
+	protected void put(byte[] key, int hash, int id) {
+		int mask = keys.length - 1;
+		int slot = hash & mask;
+		while (keys[slot] != null) {
+			slot = (slot + 1) & mask;
+		}
+		keys[slot] = key;
+		hashes[slot] = hash;
+		ids[slot] = id;
+		size++;
+	}
+	
+	protected void grow() {
+		byte[][] oldKeys = keys;
+		int[] oldHashes = hashes;
+		int[] oldIds = ids;
+		keys = new byte[oldKeys.length * 2][];
+		hashes = new int[oldKeys.length * 2];
+		ids = new int[oldKeys.length * 2];
+		size = 0;
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldKeys[i] != null) {
+				put(oldKeys[i], oldHashes[i], oldIds[i]);
+			}
+		}
+	}
+	
+	protected static int hash(byte[] b, int start, int end) {
+		int hash = 1;
+		for (int i = start; i < end; i++) {
+			hash = 31 * hash + b[i];
+		}
+		// Spread the bits, since the low bits pick the slot
+		return hash ^ (hash >>> 16);
+	}
+	
+	protected static boolean equals(byte[] key, byte[] b, int start,
+			int end) {
+		if (key.length != end - start) {
+			return false;
+		}
+		for (int i = 0; i < key.length; i++) {
+			if (key[i] != b[start + i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * Initialize an empty table
+	 * @param dictionary
+	 * @return
+	 */
+	public static ByteTokenTable init(TokenDictionary dictionary) {
+		return new ByteTokenTable(dictionary);
+	}
+	
+}
@@ -0,0 +1,27 @@
+package io.ologn.gitstat.tokenizer;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * LineLexer for Go. Unlike Java, lines starting with "*" are not 
+ * comments, since they are usually pointer dereferences.
+ * @author lisq199
+ */
+public class GoLexer extends LineLexer {
+	
+	public GoLexer() {
+		super(new String[] {"//", "/*"}, new String[0], getKeywords());
+	}
+	
+	protected static Map<String, Integer> getKeywords() {
+		Map<String, Integer> keywords = new HashMap<String, Integer>();
+		putKeywords(keywords, IMPORT, "import", "package");
+		putKeywords(keywords, DECLARATION, "func", "type", "var", "const");
+		putKeywords(keywords, CONTROL, "if", "else", "for", "switch",
+				"case", "default", "select", "go", "defer", "return",
+				"break", "continue", "goto", "fallthrough");
+		return keywords;
+	}
+	
+}
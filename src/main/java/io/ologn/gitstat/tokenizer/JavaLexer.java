@@ -0,0 +1,32 @@
+package io.ologn.gitstat.tokenizer;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * LineLexer for Java. Lines starting with a modifier, a type keyword or 
+ * an annotation are declarations. Declarations without a modifier (e.g. 
+ * local variables) are counted as statements.
+ * @author lisq199
+ */
+public class JavaLexer extends LineLexer {
+	
+	public JavaLexer() {
+		super(new String[] {"//", "/*", "*"}, new String[] {"@"},
+				getKeywords());
+	}
+	
+	protected static Map<String, Integer> getKeywords() {
+		Map<String, Integer> keywords = new HashMap<String, Integer>();
+		putKeywords(keywords, IMPORT, "import", "package");
+		putKeywords(keywords, DECLARATION, "class", "interface", "enum",
+				"public", "protected", "private", "static", "final",
+				"abstract", "native", "transient", "volatile", "strictfp",
+				"void");
+		putKeywords(keywords, CONTROL, "if", "else", "for", "while", "do",
+				"switch", "case", "default", "try", "catch", "finally",
+				"return", "break", "continue", "throw", "synchronized");
+		return keywords;
+	}
+	
+}
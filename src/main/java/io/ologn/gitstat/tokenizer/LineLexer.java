@@ -0,0 +1,267 @@
+package io.ologn.gitstat.tokenizer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * A TokenParser for source code that classifies each line by how it 
+ * starts, so the token of a line is one of a few kinds (e.g. 
+ * declaration, control flow, comment, blank or import) instead of the 
+ * line itself. The rules of a language are given as tables: the 
+ * prefixes of comment lines, the prefixes of declaration lines (e.g. 
+ * annotations), and the kind of the lines starting with each keyword. 
+ * <br>
+ * Each line is classified on its own in a single pass over its bytes, 
+ * without allocating anything, so lines inside multi-line comments or 
+ * strings are only recognized by their own prefixes (e.g. "*" for 
+ * javadoc).<br>
+ * Objects of this class are immutable and thread safe.
+ * @author lisq199
+ */
+public abstract class LineLexer implements TokenParser {
+	
+	public static final String TOKEN_BLANK = "blank";
+	public static final String TOKEN_COMMENT = "comment";
+	public static final String TOKEN_IMPORT = "import";
+	public static final String TOKEN_DECLARATION = "declaration";
+	public static final String TOKEN_CONTROL = "control";
+	public static final String TOKEN_STATEMENT = "statement";
+	/**
+	 * Lines with nothing but brackets and separators, e.g. "}"
+	 */
+	public static final String TOKEN_PUNCTUATION = "punctuation";
+	
+	protected static final int BLANK = 0, COMMENT = 1, IMPORT = 2,
+			DECLARATION = 3, CONTROL = 4, STATEMENT = 5, PUNCTUATION = 6;
+	
+	/**
+	 * The token of each kind of line
+	 */
+	protected static final String[] TOKENS = {TOKEN_BLANK, TOKEN_COMMENT,
+			TOKEN_IMPORT, TOKEN_DECLARATION, TOKEN_CONTROL, TOKEN_STATEMENT,
+			TOKEN_PUNCTUATION};
+	
+	/**
+	 * The id of each token in the global TokenDictionary
+	 */
+	protected final int[] tokenIds;
+	protected final byte[][] commentPrefixes;
+	protected final byte[][] declarationPrefixes;
+	/**
+	 * The keywords by their first byte, and the kind of the lines 
+	 * starting with each of them
+	 */
+	protected final byte[][][] keywords;
+	protected final int[][] keywordKinds;
+	
+	/**
+	 * Constructor
+	 * @param commentPrefixes lines starting with any of them are comments
+	 * @param declarationPrefixes lines starting with any of them are 
+	 * declarations
+	 * @param keywords the key is a keyword, and the value is the kind of 
+	 * the lines starting with it (e.g. CONTROL). The keywords must be 
+	 * ASCII.
+	 */
+	protected LineLexer(String[] commentPrefixes,
+			String[] declarationPrefixes, Map<String, Integer> keywords) {
+		TokenDictionary dictionary = TokenDictionary.getGlobal();
+		this.tokenIds = new int[TOKENS.length];
+		for (int i = 0; i < TOKENS.length; i++) {
+			tokenIds[i] = dictionary.intern(TOKENS[i]);
+		}
+		this.commentPrefixes = toBytes(commentPrefixes);
+		this.declarationPrefixes = toBytes(declarationPrefixes);
+		this.keywords = new byte[128][][];
+		this.keywordKinds = new int[128][];
+		keywords.forEach((keyword, kind) -> {
+			byte[] bytes = keyword.getBytes(StandardCharsets.US_ASCII);
+			int first = bytes[0];
+			byte[][] bucket = this.keywords[first];
+			int[] kinds = keywordKinds[first];
+			int n = bucket == null ? 0 : bucket.length;
+			byte[][] newBucket = new byte[n + 1][];
+			int[] newKinds = new int[n + 1];
+			for (int i = 0; i < n; i++) {
+				newBucket[i] = bucket[i];
+				newKinds[i] = kinds[i];
+			}
+			newBucket[n] = bytes;
+			newKinds[n] = kind;
+			this.keywords[first] = newBucket;
+			keywordKinds[first] = newKinds;
+		});
+	}
+	
+	protected static byte[][] toBytes(String[] strings) {
+		byte[][] bytes = new byte[strings.length][];
+		for (int i = 0; i < strings.length; i++) {
+			bytes[i] = strings[i].getBytes(StandardCharsets.US_ASCII);
+		}
+		return bytes;
+	}
+	
+	/**
+	 * The default values: 3 for declarations, 2 for control flow, 1 for 
+	 * other statements, and 0 for blank lines, comments, imports and 
+	 * punctuation.
+	 */
+	@Override
+	public TokenValue getTokenValue() {
+		Map<String, Integer> map = new HashMap<String, Integer>();
+		map.put(TOKEN_DECLARATION, 3);
+		map.put(TOKEN_CONTROL, 2);
+		map.put(TOKEN_STATEMENT, 1);
+		return new TokenValue(map, 0);
+	}
+	
+	/**
+	 * The line is encoded as UTF-8 before it's classified. 
+	 * lineTokenizer() works on the raw bytes instead.
+	 */
+	@Override
+	public Function<String, String> parseToken() {
+		return line -> {
+			byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+			return TOKENS[classify(bytes, 0, bytes.length)];
+		};
+	}
+	
+	@Override
+	public LineTokenizer lineTokenizer() {
+		return new ByteLineTokenizer() {
+			
+			@Override
+			protected int getTokenId(byte[] content, int start, int end,
+					ByteTokenTable table) {
+				return tokenIds[classify(content, start, end)];
+			}
+			
+		};
+	}
+	
+	/**
+	 * Classify a line
+	 * @param b
+	 * @param start the index of the first byte of the line
+	 * @param end the index after the last byte of the line
+	 * @return the kind of the line, e.g. BLANK
+	 */
+	protected int classify(byte[] b, int start, int end) {
+		int i = skipWhitespace(b, start, end);
+		if (i == end) {
+			return BLANK;
+		}
+		if (startsWithAny(b, i, end, commentPrefixes)) {
+			return COMMENT;
+		}
+		// Closing brackets are skipped, e.g. "} else {"
+		while (i < end && (isWhitespace(b[i]) || isPunctuation(b[i]))) {
+			i++;
+		}
+		if (i == end) {
+			return PUNCTUATION;
+		}
+		if (startsWithAny(b, i, end, declarationPrefixes)) {
+			return DECLARATION;
+		}
+		int wordEnd = i;
+		while (wordEnd < end && isWordByte(b[wordEnd])) {
+			wordEnd++;
+		}
+		int kind = getKeywordKind(b, i, wordEnd);
+		return kind < 0 ? STATEMENT : kind;
+	}
+	
+	/**
+	 * Get the kind of the lines starting with a word
+	 * @param b
+	 * @param start
+	 * @param end
+	 * @return the kind, or -1 if the word is not a keyword
+	 */
+	protected int getKeywordKind(byte[] b, int start, int end) {
+		if (start == end || b[start] < 0) {
+			return -1;
+		}
+		byte[][] bucket = keywords[b[start]];
+		if (bucket == null) {
+			return -1;
+		}
+		for (int k = 0; k < bucket.length; k++) {
+			byte[] keyword = bucket[k];
+			if (keyword.length == end - start
+					&& startsWith(b, start, end, keyword)) {
+				return keywordKinds[b[start]][k];
+			}
+		}
+		return -1;
+	}
+	
+	protected static int skipWhitespace(byte[] b, int start, int end) {
+		while (start < end && isWhitespace(b[start])) {
+			start++;
+		}
+		return start;
+	}
+	
+	protected static boolean isWhitespace(byte c) {
+		return c >= 0 && c <= ' ';
+	}
+	
+	protected static boolean isPunctuation(byte c) {
+		return c == '}' || c == ')' || c == ']' || c == '{' || c == ';'
+				|| c == ',';
+	}
+	
+	/**
+	 * Whether a byte can be part of a keyword. Bytes of multibyte 
+	 * characters count, so identifiers starting with a keyword are not 
+	 * mistaken for it.
+	 * @param c
+	 * @return
+	 */
+	protected static boolean isWordByte(byte c) {
+		return c < 0 || c == '_' || (c >= '0' && c <= '9')
+				|| (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+	}
+	
+	protected static boolean startsWithAny(byte[] b, int start, int end,
+			byte[][] prefixes) {
+		for (byte[] prefix : prefixes) {
+			if (startsWith(b, start, end, prefix)) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	protected static boolean startsWith(byte[] b, int start, int end,
+			byte[] prefix) {
+		if (end - start < prefix.length) {
+			return false;
+		}
+		for (int i = 0; i < prefix.length; i++) {
+			if (b[start + i] != prefix[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * Put the same kind for multiple keywords
+	 * @param keywords
+	 * @param kind
+	 * @param words
+	 */
+	protected static void putKeywords(Map<String, Integer> keywords,
+			int kind, String... words) {
+		for (String word : words) {
+			keywords.put(word, kind);
+		}
+	}
+	
+}
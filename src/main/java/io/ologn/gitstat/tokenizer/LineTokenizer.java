@@ -0,0 +1,38 @@
+package io.ologn.gitstat.tokenizer;
+
+import java.util.function.Function;
+
+import org.eclipse.jgit.diff.RawText;
+
+/**
+ * Finds the token of a line in a RawText, as an id in the global 
+ * TokenDictionary. Implementations must be thread safe, since one 
+ * LineTokenizer is shared by all the commits calculated in parallel.<br>
+ * To get one, use TokenParser.lineTokenizer() or LineTokenizer.of().
+ * @author lisq199
+ */
+@FunctionalInterface
+public interface LineTokenizer {
+	
+	/**
+	 * Get the id of the token of a line
+	 * @param text
+	 * @param line the line number, starting from 0
+	 * @return
+	 */
+	public int getTokenId(RawText text, int line);
+	
+	/**
+	 * Get a LineTokenizer that decodes each line to a String and parses 
+	 * it with parseToken
+	 * @param parseToken see TokenParser.parseToken(). It must be thread 
+	 * safe.
+	 * @return
+	 */
+	public static LineTokenizer of(Function<String, String> parseToken) {
+		TokenDictionary dictionary = TokenDictionary.getGlobal();
+		return (text, line) -> dictionary.intern(
+				parseToken.apply(text.getString(line)));
+	}
+	
+}
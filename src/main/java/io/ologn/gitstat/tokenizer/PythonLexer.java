@@ -0,0 +1,29 @@
+package io.ologn.gitstat.tokenizer;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * LineLexer for Python. Lines starting with a triple quote are counted 
+ * as comments, since they are usually docstrings. Decorators are 
+ * declarations.
+ * @author lisq199
+ */
+public class PythonLexer extends LineLexer {
+	
+	public PythonLexer() {
+		super(new String[] {"#", "\"\"\"", "'''"}, new String[] {"@"},
+				getKeywords());
+	}
+	
+	protected static Map<String, Integer> getKeywords() {
+		Map<String, Integer> keywords = new HashMap<String, Integer>();
+		putKeywords(keywords, IMPORT, "import", "from");
+		putKeywords(keywords, DECLARATION, "def", "class", "async");
+		putKeywords(keywords, CONTROL, "if", "elif", "else", "for",
+				"while", "try", "except", "finally", "with", "return",
+				"yield", "raise", "break", "continue");
+		return keywords;
+	}
+	
+}
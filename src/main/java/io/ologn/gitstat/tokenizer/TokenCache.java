@@ -0,0 +1,65 @@
+package io.ologn.gitstat.tokenizer;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * A parseToken function (see TokenParser.parseToken()) that remembers 
+ * the token of each line it has parsed. The lines are looked up by their 
+ * text, so a line that appears in many commits of a file is only parsed 
+ * once, no matter which commit or which position it's in.<br>
+ * Objects of this class are thread safe, so one cache can be shared by 
+ * all the commits calculated in parallel. The cache is never cleared, so 
+ * it should only live as long as the calculation that uses it.
+ * @author lisq199
+ */
+public class TokenCache implements Function<String, String> {
+	
+	protected final Function<String, String> parseToken;
+	protected final Map<String, String> cache;
+	
+	protected TokenCache(Function<String, String> parseToken) {
+		this.parseToken = parseToken;
+		this.cache = new ConcurrentHashMap<String, String>();
+	}
+	
+	/**
+	 * Get the token of a line, parsing it only if it's not in the cache
+	 * @param line
+	 * @return
+	 */
+	@Override
+	public String apply(String line) {
+		String token = cache.get(line);
+		if (token == null) {
+			token = parseToken.apply(line);
+			if (token != null) {
+				cache.putIfAbsent(line, token);
+			}
+		}
+		return token;
+	}
+	
+	/**
+	 * Get the number of distinct lines in the cache
+	 * @return
+	 */
+	public int size() {
+		return cache.size();
+	}
+	
+	/**
+	 * Initialize. If parseToken is already a TokenCache, it's returned 
+	 * as it is.
+	 * @param parseToken
+	 * @return
+	 */
+	public static TokenCache init(Function<String, String> parseToken) {
+		if (parseToken instanceof TokenCache) {
+			return (TokenCache) parseToken;
+		}
+		return new TokenCache(parseToken);
+	}
+	
+}
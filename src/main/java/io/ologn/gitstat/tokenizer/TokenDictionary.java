@@ -0,0 +1,119 @@
+package io.ologn.gitstat.tokenizer;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A dictionary that gives every distinct token a dense int id, so tokens 
+ * can be counted with int arrays (see TokenCounter) and valued with a 
+ * table looked up by id (see TokenValue.getValueTable()). The ids are 
+ * never reused.<br>
+ * A null token (a line the parser has no token for) always has the id 
+ * NULL_TOKEN_ID.<br>
+ * Objects of this class are thread safe. Looking up a token by id 
+ * doesn't need a lock.
+ * @author lisq199
+ */
+public class TokenDictionary {
+	
+	public static final int NULL_TOKEN_ID = 0;
+	
+	private static final TokenDictionary GLOBAL = new TokenDictionary();
+	
+	protected final Map<String, Integer> ids;
+	/**
+	 * The token of each id. A new token is written to the array before 
+	 * its id is published, so readers never need a lock.
+	 */
+	protected volatile String[] tokens;
+	protected volatile int size;
+	
+	protected TokenDictionary() {
+		this.ids = new ConcurrentHashMap<String, Integer>();
+		this.tokens = new String[16];
+		// The id of the null token is taken from the start
+		this.size = NULL_TOKEN_ID + 1;
+	}
+	
+	/**
+	 * Get the number of ids given, including the one of the null token. 
+	 * All the ids are less than the size.
+	 * @return
+	 */
+	public int size() {
+		return size;
+	}
+	
+	/**
+	 * Get the id of a token, and add the token if it's not in the 
+	 * dictionary yet.
+	 * @param token
+	 * @return
+	 */
+	public int intern(String token) {
+		if (token == null) {
+			return NULL_TOKEN_ID;
+		}
+		Integer id = ids.get(token);
+		if (id != null) {
+			return id;
+		}
+		return add(token);
+	}
+	
+	protected synchronized int add(String token) {
+		Integer id = ids.get(token);
+		if (id != null) {
+			return id;
+		}
+		String[] array = tokens;
+		if (size == array.length) {
+			array = Arrays.copyOf(array, size * 2);
+		}
+		array[size] = token;
+		// Publish the token before the id, so getToken() always works
+		tokens = array;
+		ids.put(token, size);
+		return size++;
+	}
+	
+	/**
+	 * Get the id of a token without adding it
+	 * @param token
+	 * @return the id, or -1 if the token is not in the dictionary
+	 */
+	public int getId(String token) {
+		if (token == null) {
+			return NULL_TOKEN_ID;
+		}
+		Integer id = ids.get(token);
+		return id == null ? -1 : id;
+	}
+	
+	/**
+	 * Get the token by the id
+	 * @param id
+	 * @return
+	 */
+	public String getToken(int id) {
+		return tokens[id];
+	}
+	
+	/**
+	 * Get the dictionary shared by the whole process
+	 * @return
+	 */
+	public static TokenDictionary getGlobal() {
+		return GLOBAL;
+	}
+	
+	/**
+	 * Create a new empty dictionary
+	 * @return
+	 */
+	public static TokenDictionary init() {
+		return new TokenDictionary();
+	}
+	
+}
@@ -24,5 +24,26 @@ public interface TokenParser {
 	 * the extracted token.
 	 */
 	public Function<String, String> parseToken();
+	
+	/**
+	 * @return the name used to look up the parser in the config file 
+	 * (see TokenParserRegistry). By default, it's the simple name of the 
+	 * class.
+	 */
+	public default String getName() {
+		return getClass().getSimpleName();
+	}
+	
+	/**
+	 * Get a LineTokenizer for one calculation. By default, each line is 
+	 * decoded and parsed with parseToken() through a TokenCache, so each 
+	 * distinct line is only parsed once. Parsers that can find the token 
+	 * in the raw bytes of a line should return a ByteLineTokenizer 
+	 * instead.
+	 * @return
+	 */
+	public default LineTokenizer lineTokenizer() {
+		return LineTokenizer.of(TokenCache.init(parseToken()));
+	}
 
 }
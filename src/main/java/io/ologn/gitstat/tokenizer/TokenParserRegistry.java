@@ -0,0 +1,54 @@
+package io.ologn.gitstat.tokenizer;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceLoader;
+
+/**
+ * All the TokenParser implementations found with ServiceLoader, by name 
+ * (see TokenParser.getName()). To add a TokenParser, list its class in 
+ * META-INF/services/io.ologn.gitstat.tokenizer.TokenParser on the class 
+ * path. It needs a public constructor without parameters.<br>
+ * The parsers are loaded once, and the same object is returned every 
+ * time, so implementations must be thread safe.
+ * @author lisq199
+ */
+public class TokenParserRegistry {
+	
+	/**
+	 * The key is the name in lower case.
+	 */
+	private static final Map<String, TokenParser> PARSERS = load();
+	
+	private static Map<String, TokenParser> load() {
+		Map<String, TokenParser> parsers =
+				new LinkedHashMap<String, TokenParser>();
+		for (TokenParser parser : ServiceLoader.load(TokenParser.class)) {
+			parsers.putIfAbsent(parser.getName().toLowerCase(), parser);
+		}
+		return parsers;
+	}
+	
+	/**
+	 * Get a TokenParser by name, ignoring case
+	 * @param name
+	 * @return the TokenParser, or null if there's no TokenParser with 
+	 * the name
+	 */
+	public static TokenParser get(String name) {
+		return PARSERS.get(name.toLowerCase());
+	}
+	
+	/**
+	 * Get the names of all the TokenParser implementations
+	 * @return
+	 */
+	public static List<String> getNames() {
+		List<String> names = new ArrayList<String>();
+		PARSERS.values().forEach(p -> names.add(p.getName()));
+		return names;
+	}
+	
+}
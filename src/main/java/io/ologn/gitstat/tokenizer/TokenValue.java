@@ -1,5 +1,6 @@
 package io.ologn.gitstat.tokenizer;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.function.BiConsumer;
@@ -15,6 +16,25 @@ public class TokenValue {
 	
 	private Map<String, Integer> map;
 	private int defaultVaule;
+	/**
+	 * The last table made by getValueTable()
+	 */
+	private volatile ValueTable valueTable;
+	
+	/**
+	 * A value table and the dictionary it's made for
+	 */
+	private static class ValueTable {
+		
+		private final TokenDictionary dictionary;
+		private final int[] values;
+		
+		private ValueTable(TokenDictionary dictionary, int[] values) {
+			this.dictionary = dictionary;
+			this.values = values;
+		}
+		
+	}
 	
 	/**
 	 * Disable default constructor
@@ -70,6 +90,37 @@ public class TokenValue {
 		return defaultVaule;
 	}
 	
+	/**
+	 * Get the value of every token in a dictionary, looked up by token 
+	 * id. The table covers all the ids given by the dictionary so far, 
+	 * so it should be taken after the tokens are interned. The same table 
+	 * is returned until the dictionary grows, so the table must not be 
+	 * modified.
+	 * @param dictionary
+	 * @return
+	 */
+	public int[] getValueTable(TokenDictionary dictionary) {
+		ValueTable cached = valueTable;
+		int size = dictionary.size();
+		int[] table;
+		int from;
+		if (cached != null && cached.dictionary == dictionary) {
+			if (cached.values.length >= size) {
+				return cached.values;
+			}
+			table = Arrays.copyOf(cached.values, size);
+			from = cached.values.length;
+		} else {
+			table = new int[size];
+			from = 0;
+		}
+		for (int id = from; id < size; id++) {
+			table[id] = getValue(dictionary.getToken(id));
+		}
+		valueTable = new ValueTable(dictionary, table);
+		return table;
+	}
+	
 	public void forEach(BiConsumer<String, Integer> action) {
 		map.forEach(action);
 	}
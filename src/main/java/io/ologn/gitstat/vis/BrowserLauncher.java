@@ -1,20 +1,27 @@
 package io.ologn.gitstat.vis;
 
 import java.awt.Desktop;
+import java.io.BufferedWriter;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.net.URI;
 import java.nio.charset.Charset;
 
 import org.apache.commons.io.FileUtils;
 
 /**
- * Used for launching the default browser to browse a URI.<br>
+ * Used for launching the default browser to browse a URI. As a 
+ * ReportWriter, it writes the HTML to a file and opens it in the 
+ * browser. It needs a desktop, so use FileReportWriter on headless 
+ * machines.<br>
  * Typical usage: {@code BrowserLauncher.init().launchWithUri(uri);}
  * @author lisq199
  *
  */
-public class BrowserLauncher {
+public class BrowserLauncher implements ReportWriter {
 	
 	public static final String HTML_NAME = BrowserLauncher.class.getName()
 			+ ".html";
@@ -49,6 +56,36 @@ public class BrowserLauncher {
 		launchWithUri(html.toURI());
 	}
 	
+	/**
+	 * Same as launchWithHtmlText(), but the html text is written to the 
+	 * file by a VelocityHtmlGenerator, so it's never held in memory as a 
+	 * whole.
+	 * @param generator
+	 * @throws IOException
+	 */
+	public void launchWithHtmlGenerator(VelocityHtmlGenerator generator)
+			throws IOException {
+		File html = new File(HTML_NAME);
+		try (
+			Writer writer = new BufferedWriter(new OutputStreamWriter(
+					new FileOutputStream(html), Charset.defaultCharset()));
+		) {
+			generator.writeHtml(writer);
+		}
+		launchWithUri(html.toURI());
+	}
+	
+	@Override
+	public void writeHtmlText(String htmlText) throws IOException {
+		launchWithHtmlText(htmlText);
+	}
+	
+	@Override
+	public void writeHtmlGenerator(VelocityHtmlGenerator generator)
+			throws IOException {
+		launchWithHtmlGenerator(generator);
+	}
+	
 	public static BrowserLauncher init() {
 		return new BrowserLauncher();
 	}
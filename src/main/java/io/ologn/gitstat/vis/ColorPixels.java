@@ -1,11 +1,15 @@
 package io.ologn.gitstat.vis;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+
+import org.apache.velocity.runtime.Renderable;
 
 import io.ologn.common.color.ColorCategory;
 import io.ologn.common.math.LinearScale;
@@ -13,7 +17,10 @@ import io.ologn.common.math.LinearScale;
 /**
  * For creating visualization with color pixels, where each block 
  * (or color pixel) represents some data, and each column represents 
- * a data set. Ultimately it will generate an HTML string.<br>
+ * a data set. Ultimately it will generate an HTML string, or write the 
+ * HTML to a Writer with writeHtml(). When writing, the rect tags are 
+ * generated while they are written, one column at a time, so the whole 
+ * SVG is never held in memory.<br>
  * Note: parseMap() must be called after all the attributes are set.<br>
  * Typical usage: {@code ColorPixels.init().setPixelHeight(2)
  * .setPixelWidth(3).parse(dataArrays, titleMap, true).createHtmlString()}
@@ -47,6 +54,11 @@ public class ColorPixels implements VelocityHtmlGenerator {
 	protected boolean vertical;
 	protected boolean scaleColors;
 	
+	protected List<long[]> dataArrays;
+	protected Map<Long, String> titleMap;
+	protected List<String> datasetDescriptions;
+	protected Map<Integer, String> bookmarkMap;
+	
 	protected ColorPixels() {
 		replaceMap = new HashMap<String, String>();
 		pixelWidth = PIXEL_WITDH;
@@ -113,9 +125,36 @@ public class ColorPixels implements VelocityHtmlGenerator {
 		return TEMPLATE_PATH;
 	}
 
+	/**
+	 * The rect tags are built as one String here. Use writeHtml() to 
+	 * avoid that.
+	 */
 	@Override
 	public Map<String, String> getReplaceMap() {
-		return new HashMap<String, String>(replaceMap);
+		Map<String, String> map = new HashMap<String, String>(replaceMap);
+		StringWriter writer = new StringWriter();
+		try {
+			writeRectTags(writer);
+		} catch (IOException e) {
+			// StringWriter doesn't throw IOException
+			e.printStackTrace();
+		}
+		map.put(REPLACE_SVG, writer.toString());
+		return map;
+	}
+	
+	/**
+	 * The rect tags are written straight into the output by a Renderable.
+	 */
+	@Override
+	public Map<String, Object> getContextMap() {
+		Map<String, Object> map = new HashMap<String, Object>(replaceMap);
+		Renderable rectTags = (context, writer) -> {
+			writeRectTags(writer);
+			return true;
+		};
+		map.put(REPLACE_SVG, rectTags);
+		return map;
 	}
 	
 	/**
@@ -148,9 +187,10 @@ public class ColorPixels implements VelocityHtmlGenerator {
 			bookmarkMap = new HashMap<Integer, String>();
 		}
 		
-		String rectTags = getRectTagsFromDataAndTitle(dataArrays, titleMap,
-				datasetDescriptions, bookmarkMap);
-		this.replaceMap.put(REPLACE_SVG, rectTags);
+		this.dataArrays = dataArrays;
+		this.titleMap = titleMap;
+		this.datasetDescriptions = datasetDescriptions;
+		this.bookmarkMap = bookmarkMap;
 		
 		// calculate total width
 		int totalWidth = pixelWidth * dataArrays.size();
@@ -199,28 +239,21 @@ public class ColorPixels implements VelocityHtmlGenerator {
 	}
 
 	/**
-	 * Get (a lot of) SVG rect tags for visualization.
-	 * @param dataArrays
-	 * @param titleMap
-	 * @param datasetDescriptions
-	 * @param bookmarkMap
-	 * @return
+	 * Write (a lot of) SVG rect tags for visualization. Adjacent pixels 
+	 * in a column with the same color and title are merged into one rect 
+	 * tag before anything is written, so only one rect tag is in memory 
+	 * at a time.
+	 * @param writer
+	 * @throws IOException
 	 */
-	protected String getRectTagsFromDataAndTitle(
-			List<long[]> dataArrays, Map<Long, String> titleMap,
-			List<String> datasetDescriptions,
-			Map<Integer, String> bookmarkMap) {
-		final String tt = "\t\t";
-		
+	protected void writeRectTags(Writer writer) throws IOException {
 		LinearScale colorScale = getColorScale(dataArrays, colorCategory);
 		
-		StringBuilder builder = new StringBuilder();
-		
 		int xOffset = 0;
 		for (int i = 0; i < dataArrays.size(); i++) {
 			if (bookmarkMap.containsKey(i)) {
 				xOffset += BOOKMARK_SIZE;
-				builder.append(getBookmarkTag(bookmarkMap, i, xOffset));
+				writer.write(getBookmarkTag(bookmarkMap, i, xOffset));
 			}
 			
 			long[] dataArray = dataArrays.get(i);
@@ -229,44 +262,83 @@ public class ColorPixels implements VelocityHtmlGenerator {
 				datasetDescription = datasetDescriptions.get(i);
 			}
 			
-			StringBuilder columnBuilder = new StringBuilder();
-			int yOffset = 0;
+			int runStart = 0;
+			long runData = 0;
+			String runColor = null;
+			String runTitle = null;
 			for (int j = 0; j < dataArray.length; j++) {
+				if (runColor != null && dataArray[j] == runData) {
+					continue;
+				}
 				String color = colorCategory.getColor(
 						dataArray[j], colorScale);
-				String style = "fill:" + color;
-				String title = "";
-				if (!datasetDescription.isEmpty()) {
-					title += datasetDescription;
-				}
-				if (titleMap.containsKey(dataArray[j])) {
-					if (!title.isEmpty()) {
-						title += HTML_LF;
-					}
-					title += titleMap.get(dataArray[j]);
+				String title = getTitle(datasetDescription, dataArray[j]);
+				if (color.equalsIgnoreCase(runColor)
+						&& title.equalsIgnoreCase(runTitle)) {
+					// Different data, but the pixels look the same
+					runData = dataArray[j];
+					continue;
 				}
-				String rectTag;
-				if (vertical) {
-					rectTag = getRectTag(xOffset, yOffset,
-							pixelWidth, pixelHeight,
-							style, title);
-				} else {
-					rectTag = getRectTag(yOffset, xOffset,
-							pixelHeight, pixelWidth,
-							style, title);
+				if (runColor != null) {
+					writeRun(writer, xOffset, runStart, j, runColor,
+							runTitle);
 				}
-				
-				columnBuilder.append(tt).append(rectTag).append("\n");
-				
-				yOffset += pixelHeight;
+				runStart = j;
+				runData = dataArray[j];
+				runColor = color;
+				runTitle = title;
 			}
-			builder.append(optimizeRectTags(columnBuilder.toString(),
-					vertical)).append("\n");
+			if (runColor != null) {
+				writeRun(writer, xOffset, runStart, dataArray.length,
+						runColor, runTitle);
+			}
+			writer.write("\n");
 			
 			xOffset += pixelWidth;
 		}
-		
-		return builder.toString();
+	}
+	
+	/**
+	 * Write one rect tag for a run of pixels in a column
+	 * @param writer
+	 * @param xOffset the offset of the column
+	 * @param from the index of the first pixel
+	 * @param to the index after the last pixel
+	 * @param color
+	 * @param title
+	 * @throws IOException
+	 */
+	protected void writeRun(Writer writer, int xOffset, int from, int to,
+			String color, String title) throws IOException {
+		int yOffset = from * pixelHeight;
+		int length = (to - from) * pixelHeight;
+		writer.write("\t\t");
+		if (vertical) {
+			writeRectTag(writer, xOffset, yOffset, pixelWidth, length,
+					"fill:" + color, title);
+		} else {
+			writeRectTag(writer, yOffset, xOffset, length, pixelWidth,
+					"fill:" + color, title);
+		}
+		writer.write("\n");
+	}
+	
+	/**
+	 * Get the title of a pixel
+	 * @param datasetDescription
+	 * @param data
+	 * @return
+	 */
+	protected String getTitle(String datasetDescription, long data) {
+		String title = datasetDescription;
+		String dataTitle = titleMap.get(data);
+		if (dataTitle != null) {
+			if (!title.isEmpty()) {
+				title += HTML_LF;
+			}
+			title += dataTitle;
+		}
+		return title;
 	}
 
 	protected String getLegendTags(List<long[]> dataArrays,
@@ -348,6 +420,40 @@ public class ColorPixels implements VelocityHtmlGenerator {
 		return result;
 	}
 	
+	/**
+	 * Write a svg rect tag
+	 * @param writer
+	 * @param x
+	 * @param y
+	 * @param width
+	 * @param height
+	 * @param style
+	 * @param title if the rect tag is not supposed to have a 
+	 * title, assign this parameter to an empty String or null.
+	 * @throws IOException
+	 */
+	protected static void writeRectTag(Writer writer, int x, int y,
+			int width, int height, String style, String title)
+					throws IOException {
+		writer.write("<rect x='");
+		writer.write(Integer.toString(x));
+		writer.write("' y='");
+		writer.write(Integer.toString(y));
+		writer.write("' width='");
+		writer.write(Integer.toString(width));
+		writer.write("' height='");
+		writer.write(Integer.toString(height));
+		writer.write("' style='");
+		writer.write(style);
+		writer.write("'>");
+		if (title != null && !title.isEmpty()) {
+			writer.write("<title>");
+			writer.write(title);
+			writer.write("</title>");
+		}
+		writer.write("</rect>");
+	}
+	
 	/**
 	 * Get a svg text tag
 	 * @param x
@@ -368,87 +474,4 @@ public class ColorPixels implements VelocityHtmlGenerator {
 		return textTag;
 	}
 	
-	/**
-	 * Get an integer attribute from an HTML tag
-	 * @param tag
-	 * @param attr
-	 * @return
-	 */
-	protected static int getIntAttr(String tag, String attr) {
-		return Integer.parseInt(getStringAttr(tag, attr));
-	}
-	
-	/**
-	 * Get a String attribute from an HTML tag
-	 * @param tag
-	 * @param attr
-	 * @return
-	 */
-	protected static String getStringAttr(String tag, String attr) {
-		int attrIndex = tag.toLowerCase().indexOf(attr);
-		if (attrIndex < 0) {
-			return "";
-		}
-		int equalsIndex = tag.indexOf('=', attrIndex);
-		int leftQuoteIndex = tag.indexOf("'", equalsIndex);
-		int rightQuoteIndex = tag.indexOf("'", leftQuoteIndex + 1);
-		return tag.substring(leftQuoteIndex + 1, rightQuoteIndex);
-	}
-	
-	/**
-	 * Get a tag within an HTML tag
-	 * @param tag
-	 * @param innerTag
-	 * @return
-	 */
-	protected static String getInnerTag(String tag, String innerTag) {
-		int leftTagIndex = tag.toLowerCase().indexOf("<" + innerTag + ">");
-		if (leftTagIndex < 0) {
-			return "";
-		}
-		int rightTagIndex = tag.toLowerCase().indexOf("</" + innerTag + ">",
-				leftTagIndex + 1);
-		int endIndex = tag.indexOf('>', rightTagIndex);
-		return tag.substring(leftTagIndex, endIndex + 1);
-	}
-	
-	/**
-	 * Optimize the rect tags, so that multiple color pixels 
-	 * of the same color are combined into one.
-	 * @param rectTags
-	 * @param vertical
-	 * @return
-	 */
-	protected static String optimizeRectTags(String rectTags,
-			boolean vertical) {
-		String[] tags = rectTags.split("\n");
-		for (int i = 0; i < tags.length - 1; i++) {
-			if (tags[i].isEmpty()) {
-				continue;
-			}
-			String currentFill = getStringAttr(tags[i], "style");
-			String nextFill = getStringAttr(tags[i + 1], "style");
-			String positionAttr = vertical ? "x" : "y";
-			int currentPos = getIntAttr(tags[i], positionAttr);
-			int nextPos = getIntAttr(tags[i + 1], positionAttr);
-			String currentTitle = getInnerTag(tags[i], "title");
-			String nextTitle = getInnerTag(tags[i + 1], "title");
-			
-			if (currentFill.equalsIgnoreCase(nextFill)
-					&& currentPos == nextPos
-					&& currentTitle.equalsIgnoreCase(nextTitle)) {
-				String tagName = vertical ? "height" : "width";
-				int currentVal = getIntAttr(tags[i], tagName);
-				int nextVal = getIntAttr(tags[i + 1], tagName);
-				int newVal = currentVal + nextVal;
-				tags[i + 1] = tags[i].replace(tagName + "='" + currentVal,
-						tagName + "='" + newVal);
-				tags[i] = "";
-			}
-		}
-		return Arrays.stream(tags)
-				.filter(s -> !s.isEmpty())
-				.collect(Collectors.joining("\n"));
-	}
-	
 }
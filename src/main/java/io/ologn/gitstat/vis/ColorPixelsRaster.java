@@ -0,0 +1,338 @@
+package io.ologn.gitstat.vis;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.imageio.ImageIO;
+
+import org.apache.velocity.runtime.Renderable;
+import org.json.simple.JSONValue;
+
+import io.ologn.common.math.LinearScale;
+
+/**
+ * Same as ColorPixels, but the pixels are rendered into a PNG image with 
+ * one image pixel per data point, which is scaled up by the browser. The 
+ * size of the output and the time it takes to render it depend on the 
+ * number of pixels only, so it works for data that is too big for one 
+ * rect tag per pixel.<br>
+ * The tooltips are exported as a separate lookup table: the distinct 
+ * titles, the description of each dataset and the run-length encoded 
+ * title ids of each column.<br>
+ * Typical usage: {@code ColorPixelsRaster.init().setPixelHeight(2) 
+ * .setPixelWidth(3).parse(dataArrays, titleMap, ...).writeHtml(writer)}
+ * @author lisq199
+ */
+public class ColorPixelsRaster extends ColorPixels {
+	
+	public static final String TEMPLATE_PATH =
+			VelocityHtmlGenerator.TEMPLATE_DIR + "ColorPixelsRaster.html";
+	
+	public static final String REPLACE_IMAGE = "imageData",
+			REPLACE_BOOKMARK = "bookmarkTags",
+			REPLACE_TOOLTIP = "tooltipTable";
+	
+	/**
+	 * The number of bytes encoded at a time. It's a multiple of 3, so 
+	 * there is no padding between the chunks.
+	 */
+	protected static final int BASE64_CHUNK_SIZE = 3 * 4096;
+	
+	protected ColorPixelsRaster() {
+		super();
+	}
+	
+	@Override
+	public String getTemplatePath() {
+		return TEMPLATE_PATH;
+	}
+	
+	@Override
+	public ColorPixelsRaster parse(List<long[]> dataArrays,
+			Map<Long, String> titleMap, List<String> datasetDescriptions,
+			Map<Integer, String> bookmarkMap, boolean displayLegend,
+			boolean vertical, boolean scaleColors) {
+		super.parse(dataArrays, titleMap, datasetDescriptions, bookmarkMap,
+				displayLegend, vertical, scaleColors);
+		// The bookmarks are drawn over the image, so they take no space
+		int totalWidth = pixelWidth * getNumberOfColumns();
+		int totalHeight = pixelHeight * getMaxColumnLength();
+		this.replaceMap.put(REPLACE_TOTAL_WIDTH,
+				"" + (vertical ? totalWidth : totalHeight));
+		this.replaceMap.put(REPLACE_TOTAL_HEIGHT,
+				"" + (vertical ? totalHeight : totalWidth));
+		this.replaceMap.put(REPLACE_BOOKMARK, getBookmarkTags());
+		return this;
+	}
+	
+	/**
+	 * The image and the lookup table are built as Strings here. Use 
+	 * writeHtml() to avoid that.
+	 */
+	@Override
+	public Map<String, String> getReplaceMap() {
+		Map<String, String> map = new HashMap<String, String>(replaceMap);
+		StringWriter imageWriter = new StringWriter();
+		StringWriter tooltipWriter = new StringWriter();
+		try {
+			writeBase64Png(imageWriter);
+			writeTooltipTable(tooltipWriter);
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		map.put(REPLACE_IMAGE, imageWriter.toString());
+		map.put(REPLACE_TOOLTIP, tooltipWriter.toString());
+		return map;
+	}
+	
+	/**
+	 * The image and the lookup table are written straight into the output 
+	 * by Renderables.
+	 */
+	@Override
+	public Map<String, Object> getContextMap() {
+		Map<String, Object> map = new HashMap<String, Object>(replaceMap);
+		Renderable image = (context, writer) -> {
+			writeBase64Png(writer);
+			return true;
+		};
+		Renderable tooltipTable = (context, writer) -> {
+			writeTooltipTable(writer);
+			return true;
+		};
+		map.put(REPLACE_IMAGE, image);
+		map.put(REPLACE_TOOLTIP, tooltipTable);
+		return map;
+	}
+	
+	protected int getNumberOfColumns() {
+		return dataArrays.size();
+	}
+	
+	protected int getMaxColumnLength() {
+		return dataArrays.stream()
+				.mapToInt(a -> a.length)
+				.max()
+				.orElse(0);
+	}
+	
+	/**
+	 * Render the data into an image with one pixel per data point. Each 
+	 * distinct value is converted to a color only once. The pixels after 
+	 * the end of a column are transparent.
+	 * @return
+	 */
+	public BufferedImage createImage() {
+		int columns = getNumberOfColumns();
+		int maxLen = getMaxColumnLength();
+		int width = vertical ? columns : maxLen;
+		int height = vertical ? maxLen : columns;
+		BufferedImage image = new BufferedImage(Math.max(width, 1),
+				Math.max(height, 1), BufferedImage.TYPE_INT_ARGB);
+		int[] raster = ((DataBufferInt) image.getRaster().getDataBuffer())
+				.getData();
+		
+		LinearScale colorScale = getColorScale(dataArrays, colorCategory);
+		Map<Long, Integer> argbMap = new HashMap<Long, Integer>();
+		for (int i = 0; i < columns; i++) {
+			long[] dataArray = dataArrays.get(i);
+			for (int j = 0; j < dataArray.length; j++) {
+				long data = dataArray[j];
+				Integer argb = argbMap.get(data);
+				if (argb == null) {
+					argb = toArgb(colorCategory.getColor(data, colorScale));
+					argbMap.put(data, argb);
+				}
+				if (vertical) {
+					raster[j * width + i] = argb;
+				} else {
+					raster[i * width + j] = argb;
+				}
+			}
+		}
+		return image;
+	}
+	
+	/**
+	 * Write the image as a PNG file
+	 * @param out
+	 * @throws IOException
+	 */
+	public void writePng(OutputStream out) throws IOException {
+		ImageIO.write(createImage(), "png", out);
+	}
+	
+	/**
+	 * Write the image as a base64 encoded PNG file, which can be used in 
+	 * a data URI.
+	 * @param writer
+	 * @throws IOException
+	 */
+	protected void writeBase64Png(Writer writer) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		writePng(out);
+		byte[] png = out.toByteArray();
+		Base64.Encoder encoder = Base64.getEncoder();
+		for (int from = 0; from < png.length; from += BASE64_CHUNK_SIZE) {
+			int to = Math.min(from + BASE64_CHUNK_SIZE, png.length);
+			byte[] encoded = encoder.encode(Arrays.copyOfRange(png, from, to));
+			writer.write(new String(encoded, StandardCharsets.US_ASCII));
+		}
+	}
+	
+	/**
+	 * Write the lookup table of the tooltips as a JSON object with: 
+	 * the distinct titles ("titles"), the description of each dataset 
+	 * ("descriptions"), and for each column, the pairs of the length of 
+	 * a run of pixels and the index of their title, or -1 if they have 
+	 * no title ("columns").
+	 * @param writer
+	 * @throws IOException
+	 */
+	protected void writeTooltipTable(Writer writer) throws IOException {
+		Map<Long, Integer> titleIndexMap = new HashMap<Long, Integer>();
+		Map<String, Integer> titleIndexes = new HashMap<String, Integer>();
+		writer.write("{\"vertical\":" + vertical);
+		writer.write(",\"pixelWidth\":" + pixelWidth);
+		writer.write(",\"pixelHeight\":" + pixelHeight);
+		
+		writer.write(",\"titles\":[");
+		for (Map.Entry<Long, String> entry : titleMap.entrySet()) {
+			Integer index = titleIndexes.get(entry.getValue());
+			if (index == null) {
+				index = titleIndexes.size();
+				titleIndexes.put(entry.getValue(), index);
+				if (index > 0) {
+					writer.write(",");
+				}
+				writeJsonString(writer, entry.getValue());
+			}
+			titleIndexMap.put(entry.getKey(), index);
+		}
+		writer.write("]");
+		
+		writer.write(",\"descriptions\":[");
+		for (int i = 0; i < datasetDescriptions.size(); i++) {
+			if (i > 0) {
+				writer.write(",");
+			}
+			writeJsonString(writer, datasetDescriptions.get(i));
+		}
+		writer.write("]");
+		
+		writer.write(",\"columns\":[");
+		for (int i = 0; i < dataArrays.size(); i++) {
+			if (i > 0) {
+				writer.write(",");
+			}
+			writer.write("[");
+			long[] dataArray = dataArrays.get(i);
+			int runStart = 0;
+			int runIndex = 0;
+			for (int j = 0; j <= dataArray.length; j++) {
+				int index = -1;
+				if (j < dataArray.length) {
+					index = titleIndexMap.getOrDefault(dataArray[j], -1);
+					if (j > 0 && index == runIndex) {
+						continue;
+					}
+				}
+				if (j > 0) {
+					if (runStart > 0) {
+						writer.write(",");
+					}
+					writer.write((j - runStart) + "," + runIndex);
+				}
+				runStart = j;
+				runIndex = index;
+			}
+			writer.write("]");
+		}
+		writer.write("]}");
+	}
+	
+	/**
+	 * Get the svg tags of the bookmarks, which are drawn over the image 
+	 * at the start of their columns.
+	 * @return
+	 */
+	protected String getBookmarkTags() {
+		StringBuilder builder = new StringBuilder();
+		int length = pixelHeight * getMaxColumnLength();
+		for (Map.Entry<Integer, String> entry : bookmarkMap.entrySet()) {
+			int offset = entry.getKey() * pixelWidth;
+			String lineTag;
+			String textTag;
+			if (vertical) {
+				lineTag = getLineTag(offset, 0, offset, length);
+				textTag = getTextTag(offset + 2, 2, BOOKMARK_SIZE,
+						"writing-mode:tb", entry.getValue());
+			} else {
+				lineTag = getLineTag(0, offset, length, offset);
+				textTag = getTextTag(2, offset + BOOKMARK_SIZE, BOOKMARK_SIZE,
+						null, entry.getValue());
+			}
+			builder.append("\t\t\t").append(lineTag).append("\n")
+					.append("\t\t\t").append(textTag).append("\n");
+		}
+		return builder.toString();
+	}
+	
+	/**
+	 * Initialize
+	 * @return
+	 */
+	public static ColorPixelsRaster init() {
+		return new ColorPixelsRaster();
+	}
+	
+	/**
+	 * Convert a color used in the svg tags (e.g. "#1f77b4") to an ARGB 
+	 * int
+	 * @param color
+	 * @return
+	 */
+	protected static int toArgb(String color) {
+		return Color.decode(color).getRGB();
+	}
+	
+	/**
+	 * Write a String as a JSON String. The line feeds used in the svg 
+	 * titles are converted to real ones.
+	 * @param writer
+	 * @param s
+	 * @throws IOException
+	 */
+	protected static void writeJsonString(Writer writer, String s)
+			throws IOException {
+		writer.write("\"");
+		writer.write(JSONValue.escape(s.replace(HTML_LF, "\n")));
+		writer.write("\"");
+	}
+	
+	/**
+	 * Get a svg line tag
+	 * @param x1
+	 * @param y1
+	 * @param x2
+	 * @param y2
+	 * @return
+	 */
+	protected static String getLineTag(int x1, int y1, int x2, int y2) {
+		return "<line x1='" + x1 + "' y1='" + y1 + "' x2='" + x2
+				+ "' y2='" + y2 + "' style='stroke:black'></line>";
+	}
+	
+}
@@ -0,0 +1,80 @@
+package io.ologn.gitstat.vis;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Writes the HTML of a visualization to a file, without opening it. It 
+ * doesn't need a desktop (java.awt.Desktop), so it works on headless 
+ * machines.<br>
+ * Typical usage: {@code VisRunner.init(dotGitPath) 
+ * .setReportWriter(FileReportWriter.init(path))}
+ * @author lisq199
+ */
+public class FileReportWriter implements ReportWriter {
+	
+	protected Path path;
+	protected volatile boolean written;
+	
+	protected FileReportWriter(Path path) {
+		this.path = path;
+	}
+	
+	public Path getPath() {
+		return path;
+	}
+	
+	/**
+	 * Whether the file has been written
+	 * @return
+	 */
+	public boolean isWritten() {
+		return written;
+	}
+	
+	/**
+	 * Write the HTML text to the file. The parent directories are 
+	 * created if they don't exist, and the file is overwritten if it 
+	 * exists.
+	 */
+	@Override
+	public void writeHtmlText(String htmlText) throws IOException {
+		try (
+			Writer writer = newWriter();
+		) {
+			writer.write(htmlText);
+		}
+		written = true;
+	}
+	
+	/**
+	 * Same as writeHtmlText(), but the HTML text is written by the 
+	 * generator.
+	 */
+	@Override
+	public void writeHtmlGenerator(VelocityHtmlGenerator generator)
+			throws IOException {
+		try (
+			Writer writer = newWriter();
+		) {
+			generator.writeHtml(writer);
+		}
+		written = true;
+	}
+	
+	protected Writer newWriter() throws IOException {
+		Path parent = path.toAbsolutePath().getParent();
+		if (parent != null) {
+			Files.createDirectories(parent);
+		}
+		return Files.newBufferedWriter(path, Charset.defaultCharset());
+	}
+	
+	public static FileReportWriter init(Path path) {
+		return new FileReportWriter(path);
+	}
+	
+}
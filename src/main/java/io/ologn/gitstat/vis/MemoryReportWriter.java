@@ -0,0 +1,56 @@
+package io.ologn.gitstat.vis;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Keeps the HTML of a visualization in memory as UTF-8 bytes, e.g. to 
+ * be served over HTTP.
+ * @author lisq199
+ */
+public class MemoryReportWriter implements ReportWriter {
+	
+	public static final Charset CHARSET = StandardCharsets.UTF_8;
+	
+	protected byte[] bytes;
+	
+	protected MemoryReportWriter() {}
+	
+	/**
+	 * Get the HTML
+	 * @return the bytes, or null if nothing has been written
+	 */
+	public byte[] getBytes() {
+		return bytes;
+	}
+	
+	public boolean isWritten() {
+		return bytes != null;
+	}
+	
+	@Override
+	public void writeHtmlText(String htmlText) throws IOException {
+		bytes = htmlText.getBytes(CHARSET);
+	}
+	
+	@Override
+	public void writeHtmlGenerator(VelocityHtmlGenerator generator)
+			throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (
+			Writer writer = new OutputStreamWriter(out, CHARSET);
+		) {
+			generator.writeHtml(writer);
+		}
+		bytes = out.toByteArray();
+	}
+	
+	public static MemoryReportWriter init() {
+		return new MemoryReportWriter();
+	}
+	
+}
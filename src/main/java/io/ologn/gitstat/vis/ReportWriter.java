@@ -0,0 +1,29 @@
+package io.ologn.gitstat.vis;
+
+import java.io.IOException;
+
+/**
+ * Where the HTML of a visualization goes once it's created, e.g. a 
+ * browser (BrowserLauncher) or a file (FileReportWriter).
+ * @author lisq199
+ */
+public interface ReportWriter {
+	
+	/**
+	 * Write the HTML text
+	 * @param htmlText
+	 * @throws IOException
+	 */
+	public void writeHtmlText(String htmlText) throws IOException;
+	
+	/**
+	 * Write the HTML text created by a VelocityHtmlGenerator. 
+	 * Implementations should let the generator write it directly, so 
+	 * it's never held in memory as a whole.
+	 * @param generator
+	 * @throws IOException
+	 */
+	public void writeHtmlGenerator(VelocityHtmlGenerator generator)
+			throws IOException;
+	
+}
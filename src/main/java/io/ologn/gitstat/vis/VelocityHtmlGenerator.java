@@ -1,12 +1,13 @@
 package io.ologn.gitstat.vis;
 
-import java.io.File;
 import java.io.StringWriter;
+import java.io.Writer;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Map;
 
 import org.apache.velocity.Template;
 import org.apache.velocity.VelocityContext;
-import org.apache.velocity.app.VelocityEngine;
 
 /**
  * Interface for classes that generate HTML strings with Apache Velocity.
@@ -15,28 +16,55 @@ import org.apache.velocity.app.VelocityEngine;
  */
 public interface VelocityHtmlGenerator {
 	
-	public static final String TEMPLATE_DIR = "res" + File.separator
-			+ "velocity_templates" + File.separator;
+	/**
+	 * The directory of the templates on the class path
+	 */
+	public static final String TEMPLATE_DIR = "velocity_templates/";
 	
 	/**
-	 * Get the path of the template relative to the current working 
-	 * directory
+	 * Get the path of the template on the class path (see 
+	 * VelocityTemplates)
 	 * @return
 	 */
 	public String getTemplatePath();
 	
 	/**
 	 * @return a Map where the keys are all the strings that needs to be 
-	 * replaced, and the values are the corresponding replacement strings.
+	 * replaced, and the values are the corresponding replacement strings. 
+	 * It may be a read-only view of the Map kept by the generator.
 	 */
 	public Map<String, String> getReplaceMap();
 	
 	/**
-	 * Create a String storing the resulting HTML text.
+	 * Get the objects put into the Velocity context. By default it's the 
+	 * same as getReplaceMap(), but implementations can use values that 
+	 * are written straight into the output (e.g. a Renderable) instead 
+	 * of big Strings.
+	 * @return
+	 */
+	public default Map<String, Object> getContextMap() {
+		return Collections.unmodifiableMap(getReplaceMap());
+	}
+	
+	/**
+	 * Create a String storing the resulting HTML text. It's written the 
+	 * same way as writeHtml(), so big values are not built as separate 
+	 * Strings first.
 	 * @return
 	 */
 	public default String createHtmlString() {
-		return replace(getTemplatePath(), getReplaceMap());
+		StringWriter writer = new StringWriter();
+		writeHtml(writer);
+		return writer.toString();
+	}
+	
+	/**
+	 * Write the resulting HTML text to a Writer, without creating a 
+	 * String of the whole text.
+	 * @param writer
+	 */
+	public default void writeHtml(Writer writer) {
+		merge(getTemplatePath(), getContextMap(), writer);
 	}
 	
 	/**
@@ -48,14 +76,25 @@ public interface VelocityHtmlGenerator {
 	 */
 	static String replace(String templatePath,
 			Map<String, String> replaceMap) {
-		VelocityEngine ve = new VelocityEngine();
-		ve.init();
-		Template t = ve.getTemplate(templatePath);
-		VelocityContext context = new VelocityContext();
-		replaceMap.forEach((s1, s2) -> context.put(s1, s2));
 		StringWriter writer = new StringWriter();
-		t.merge(context, writer);
+		merge(templatePath, replaceMap, writer);
 		return writer.toString();
 	}
 	
+	/**
+	 * Merge the template with the objects in contextMap, and write the 
+	 * result to a Writer. The template is taken from the shared engine 
+	 * (see VelocityTemplates), so it's only parsed once.
+	 * @param templatePath
+	 * @param contextMap
+	 * @param writer
+	 */
+	static void merge(String templatePath, Map<String, ?> contextMap,
+			Writer writer) {
+		Template t = VelocityTemplates.getTemplate(templatePath);
+		VelocityContext context = new VelocityContext(
+				new HashMap<String, Object>(contextMap));
+		t.merge(context, writer);
+	}
+	
 }
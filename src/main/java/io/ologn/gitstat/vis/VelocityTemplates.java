@@ -0,0 +1,49 @@
+package io.ologn.gitstat.vis;
+
+import org.apache.velocity.Template;
+import org.apache.velocity.app.VelocityEngine;
+import org.apache.velocity.runtime.RuntimeConstants;
+import org.apache.velocity.runtime.resource.loader.ClasspathResourceLoader;
+
+/**
+ * The Velocity engine shared by the whole process. It's initialized once, 
+ * and each template is parsed the first time it's used and then kept, so 
+ * creating a report only merges the template.<br>
+ * Templates are loaded from the class path first (e.g. 
+ * "velocity_templates/ChartJsPie.html" in src/main/resources), and then 
+ * relative to the current working directory.<br>
+ * The engine and the templates are thread safe.
+ * @author lisq199
+ */
+public class VelocityTemplates {
+	
+	private static final VelocityEngine ENGINE = createEngine();
+	
+	protected static VelocityEngine createEngine() {
+		VelocityEngine engine = new VelocityEngine();
+		engine.setProperty(RuntimeConstants.RESOURCE_LOADER, "class,file");
+		engine.setProperty("class.resource.loader.class",
+				ClasspathResourceLoader.class.getName());
+		engine.setProperty("class.resource.loader.cache", "true");
+		engine.setProperty(RuntimeConstants.FILE_RESOURCE_LOADER_PATH, ".");
+		engine.setProperty(RuntimeConstants.FILE_RESOURCE_LOADER_CACHE,
+				"true");
+		engine.init();
+		return engine;
+	}
+	
+	public static VelocityEngine getEngine() {
+		return ENGINE;
+	}
+	
+	/**
+	 * Get a template, parsing it only the first time
+	 * @param templatePath the path on the class path, or relative to the 
+	 * current working directory
+	 * @return
+	 */
+	public static Template getTemplate(String templatePath) {
+		return ENGINE.getTemplate(templatePath);
+	}
+	
+}
@@ -1,9 +1,12 @@
 package io.ologn.gitstat.vis;
 
+import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 
 import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.api.errors.GitAPIException;
@@ -13,15 +16,26 @@ import org.eclipse.jgit.lib.Repository;
 import org.eclipse.jgit.revwalk.RevCommit;
 
 import io.ologn.common.color.ColorCategory;
+import io.ologn.gitstat.jgit.CommitIndex;
+import io.ologn.gitstat.jgit.CommitRange;
+import io.ologn.gitstat.jgit.CommitSampler;
+import io.ologn.gitstat.jgit.RepoContext;
 import io.ologn.gitstat.jgit.RevCommitUtils;
+import io.ologn.gitstat.jgit.TreeUtils;
+import io.ologn.gitstat.metrics.Metrics;
+import io.ologn.gitstat.stat.BlameResultContainer;
+import io.ologn.gitstat.stat.DirectoryTimeline;
 import io.ologn.gitstat.stat.FileAge;
 import io.ologn.gitstat.stat.FileAgeOverCommits;
 import io.ologn.gitstat.stat.FileAuthorship;
+import io.ologn.gitstat.stat.FileAuthorshipOverCommits;
 import io.ologn.gitstat.stat.FileCommitStat;
 import io.ologn.gitstat.stat.LineAuthorship;
 import io.ologn.gitstat.stat.LineAuthorshipOverCommits;
+import io.ologn.gitstat.stat.RepoAuthorship;
 import io.ologn.gitstat.tokenizer.TokenParser;
 import io.ologn.gitstat.vis.chartjs.ChartJsPie;
+import io.ologn.gitstat.vis.chartjs.ChartJsStackedArea;
 
 /**
  * For running visualizations.
@@ -33,10 +47,39 @@ public class VisRunner {
 	 * The path to the ".git" file
 	 */
 	protected String dotGitPath;
-	protected BrowserLauncher browserLauncher;
+	/**
+	 * The repository shared with other VisRunner objects, or null if 
+	 * each visualization opens dotGitPath itself
+	 */
+	protected Repository sharedRepo;
+	/**
+	 * Where the HTML goes. It's created lazily (as a BrowserLauncher by 
+	 * default), so a VisRunner with a FileReportWriter never needs a 
+	 * desktop.
+	 */
+	protected ReportWriter reportWriter;
+	/**
+	 * An index of the commits shared with other VisRunner objects, or 
+	 * null if each visualization builds its own
+	 */
+	protected CommitIndex commitIndex;
+	/**
+	 * Whether color pixels are rendered as a PNG image instead of svg 
+	 * rect tags
+	 */
+	protected boolean rasterOutput;
+	/**
+	 * The commits analyzed by the visualizations over commits
+	 */
+	protected CommitRange commitRange;
+	/**
+	 * The sampling of the commits of the visualizations over commits
+	 */
+	protected CommitSampler commitSampler;
 	
 	protected VisRunner() {
-		browserLauncher = BrowserLauncher.init();
+		commitRange = CommitRange.init();
+		commitSampler = CommitSampler.init();
 	}
 	
 	protected VisRunner(String dotGitPath) {
@@ -44,6 +87,232 @@ public class VisRunner {
 		this.dotGitPath = dotGitPath;
 	}
 	
+	protected VisRunner(Repository repo) {
+		this();
+		this.sharedRepo = repo;
+	}
+	
+	/**
+	 * Set where the HTML goes. By default it's opened in the browser.
+	 * @param reportWriter
+	 * @return
+	 */
+	public VisRunner setReportWriter(ReportWriter reportWriter) {
+		this.reportWriter = reportWriter;
+		return this;
+	}
+	
+	/**
+	 * Set an index of the commits to be used by the visualizations over 
+	 * commits (type 2, 3 and 5) instead of building one every time. It 
+	 * has to contain all the commits in the commit range.
+	 * @param commitIndex
+	 * @return
+	 */
+	public VisRunner setCommitIndex(CommitIndex commitIndex) {
+		this.commitIndex = commitIndex;
+		return this;
+	}
+	
+	/**
+	 * Set whether color pixels (type 2 and 3) are rendered as a PNG 
+	 * image instead of svg rect tags. It's meant for data too big for 
+	 * one rect tag per pixel.
+	 * @param rasterOutput
+	 * @return
+	 */
+	public VisRunner setRasterOutput(boolean rasterOutput) {
+		this.rasterOutput = rasterOutput;
+		return this;
+	}
+	
+	/**
+	 * Set the range of revisions and the time window of the commits 
+	 * analyzed by the visualizations over commits (type 2, 3 and 5)
+	 * @param commitRange
+	 * @return
+	 */
+	public VisRunner setCommitRange(CommitRange commitRange) {
+		this.commitRange = commitRange;
+		return this;
+	}
+	
+	/**
+	 * Set the sampling of the commits of the visualizations over commits 
+	 * (type 2, 3 and 5), so that there are fewer columns to calculate
+	 * @param commitSampler
+	 * @return
+	 */
+	public VisRunner setCommitSampler(CommitSampler commitSampler) {
+		this.commitSampler = commitSampler;
+		return this;
+	}
+	
+	protected ReportWriter getReportWriter() {
+		if (reportWriter == null) {
+			reportWriter = BrowserLauncher.init();
+		}
+		return reportWriter;
+	}
+	
+	/**
+	 * Open the repository, or wrap the shared one. Closing the Git 
+	 * object doesn't close a shared repository.
+	 * @return
+	 * @throws IOException
+	 */
+	protected Git openGit() throws IOException {
+		if (sharedRepo != null) {
+			return Git.wrap(sharedRepo);
+		}
+		return Git.open(new File(dotGitPath));
+	}
+	
+	/**
+	 * Get the shared index of the commits, or build one
+	 * @param commits
+	 * @return
+	 */
+	protected CommitIndex getCommitIndex(Iterable<RevCommit> commits) {
+		return commitIndex != null ? commitIndex
+				: CommitIndex.build(commits);
+	}
+	
+	/**
+	 * Close the RepoContext objects of a repository opened by this 
+	 * VisRunner. The ones of a shared repository may still be in use by 
+	 * other threads, so they are left to its owner.
+	 * @param repo
+	 */
+	protected void closeRepoContexts(Repository repo) {
+		if (sharedRepo == null) {
+			RepoContext.closeAll(repo);
+		}
+	}
+	
+	/**
+	 * Get a Closeable that closes the RepoContext objects of the 
+	 * repository, so a try-with-resources statement closes them even 
+	 * when the visualization fails. It must be declared after the Git 
+	 * object, so the contexts are closed before the repository. The 
+	 * resource isn't referenced in the body of the statement, so the 
+	 * methods that declare it suppress the "try" lint warning.
+	 * @param git
+	 * @return
+	 */
+	protected Closeable repoContexts(Git git) {
+		Repository repo = git.getRepository();
+		return () -> closeRepoContexts(repo);
+	}
+	
+	/**
+	 * Print the tasks of a directory timeline that failed
+	 * @param timeline
+	 * @return the timeline
+	 */
+	protected <T extends BlameResultContainer> DirectoryTimeline<T>
+			reportFailedTasks(DirectoryTimeline<T> timeline) {
+		timeline.getFailedTasks().forEach(task ->
+				System.err.println("Giving up on " + task));
+		return timeline;
+	}
+	
+	/**
+	 * Add the files of a directory timeline to the descriptions of the 
+	 * commits of visualization type 2 or 3
+	 * @param descriptions
+	 * @param timeline the timeline of the directory, or null for a file
+	 * @param commitIndex
+	 * @return
+	 */
+	protected List<String> getColorPixelsDatasetDescriptions(
+			List<String> descriptions, DirectoryTimeline<?> timeline,
+			CommitIndex commitIndex) {
+		if (timeline == null) {
+			return descriptions;
+		}
+		return timeline.getColorPixelsDatasetDescriptions(descriptions,
+				commitIndex, true);
+	}
+	
+	/**
+	 * Get the bookmarks of visualization type 2 or 3
+	 * @param bookmarkType "year", "sha1", or "file" for a directory
+	 * @param byYear
+	 * @param bySha1
+	 * @param timeline the timeline of the directory, or null for a file
+	 * @param commitIndex
+	 * @return the bookmarks, or null if there are none of that type
+	 */
+	protected Map<Integer, String> getColorPixelsBookmarkMap(
+			String bookmarkType, Supplier<Map<Integer, String>> byYear,
+			Supplier<Map<Integer, String>> bySha1,
+			DirectoryTimeline<?> timeline, CommitIndex commitIndex) {
+		if (bookmarkType.equalsIgnoreCase("year")) {
+			return byYear.get();
+		} else if (bookmarkType.equalsIgnoreCase("sha1")) {
+			return bySha1.get();
+		} else if (bookmarkType.equalsIgnoreCase("file")
+				&& timeline != null) {
+			return timeline.getColorPixelsBookmarkMapByFile(commitIndex,
+					true);
+		}
+		return null;
+	}
+	
+	/**
+	 * Get the commits in the commit range that change a file or a 
+	 * directory, newest first
+	 * @param git
+	 * @param path the path of a file or a directory, or an empty String 
+	 * for the whole tree
+	 * @return
+	 * @throws NoHeadException
+	 * @throws GitAPIException
+	 * @throws IOException
+	 */
+	protected List<RevCommit> getCommitsWithPath(Git git, String path)
+			throws NoHeadException, GitAPIException, IOException {
+		if (path.isEmpty()) {
+			return RevCommitUtils.getCommitsWithPath(git, commitRange);
+		}
+		return RevCommitUtils.getCommitsWithPath(git, commitRange, path);
+	}
+	
+	/**
+	 * Normalize the path of a directory, e.g. "src/" to "src"
+	 * @param directory
+	 * @return
+	 */
+	protected static String toDirectoryPath(String directory) {
+		String path = directory.replace('\\', '/');
+		while (path.endsWith("/")) {
+			path = path.substring(0, path.length() - 1);
+		}
+		while (path.startsWith("/")) {
+			path = path.substring(1);
+		}
+		return path;
+	}
+	
+	/**
+	 * Record the time of a stage in the global Metrics
+	 * @param stage the name of the stage, e.g. Metrics.STAGE_SORT
+	 * @param start the start time of the stage from Metrics.now()
+	 * @return the start time of the next stage
+	 */
+	protected long recordStage(String stage, long start) {
+		return start + Metrics.getGlobal().recordTime(stage, start);
+	}
+	
+	/**
+	 * Create a ColorPixels for the output mode
+	 * @return
+	 */
+	protected ColorPixels createColorPixels() {
+		return rasterOutput ? ColorPixelsRaster.init() : ColorPixels.init();
+	}
+	
 	/**
 	 * Visualization type 1: 
 	 * Pie chart showing how much everyone owns a file at 
@@ -54,15 +323,19 @@ public class VisRunner {
 	 * @param combineSmallValues
 	 * @param percentageForOther
 	 */
+	@SuppressWarnings("try")
 	public void type1(String filePath, String revstr, TokenParser parser,
 			boolean combineSmallValues, double percentageForOther) {
 		try (
-			Git git = Git.open(new File(dotGitPath));
+			Git git = openGit();
+			Closeable contexts = repoContexts(git);
 		) {
 			Repository repo = git.getRepository();
 			
+			long start = Metrics.now();
 			FileCommitStat stat = FileCommitStat.calculate(git, repo,
 					revstr, filePath, parser.parseToken());
+			start = recordStage(Metrics.STAGE_BLAME, start);
 			FileAuthorship fileAuthorship = FileAuthorship.calculate(
 					parser.getTokenValue(), stat);
 			Map<String, Double> chartJsPieMap;
@@ -72,9 +345,11 @@ public class VisRunner {
 			} else {
 				chartJsPieMap = fileAuthorship.getChartJsPieMap();
 			}
+			start = recordStage(Metrics.STAGE_SORT, start);
 			String htmlString = ChartJsPie.init().parseMap(chartJsPieMap)
 					.createHtmlString();
-			browserLauncher.launchWithHtmlText(htmlString);
+			getReportWriter().writeHtmlText(htmlString);
+			recordStage(Metrics.STAGE_RENDER, start);
 		} catch (IOException e) {
 			e.printStackTrace();
 		} catch (RevisionSyntaxException e) {
@@ -99,23 +374,86 @@ public class VisRunner {
 			int pixelHeight, int pixelWidth,
 			String bookmarkType,
 			boolean displayLegend, boolean displayVertical) {
+		type2(filePath, null, sortByAge, sortByAgeAscending, pixelHeight,
+				pixelWidth, bookmarkType, displayLegend, displayVertical);
+	}
+	
+	/**
+	 * Visualization type 2 for a whole directory: Color pixels showing 
+	 * the age of each line of code of all the files under a directory 
+	 * over commits. The files at each commit are put one after another 
+	 * (see DirectoryTimeline). Besides "year" and "sha1", bookmarkType 
+	 * can be "file", which marks the commits where files are added or 
+	 * removed.
+	 * @param directory the path of the directory relative to the repo, 
+	 * or an empty String for the whole tree
+	 * @param includePaths glob patterns of the files included. If it's 
+	 * empty, all the files are included.
+	 * @param excludePaths glob patterns of the files skipped
+	 * @param sortByAge
+	 * @param sortByAgeAscending
+	 * @param pixelHeight
+	 * @param pixelWidth
+	 * @param bookmarkType
+	 * @param displayLegend
+	 * @param displayVertical
+	 */
+	public void type2Directory(String directory, List<String> includePaths,
+			List<String> excludePaths, boolean sortByAge,
+			boolean sortByAgeAscending,
+			int pixelHeight, int pixelWidth,
+			String bookmarkType,
+			boolean displayLegend, boolean displayVertical) {
+		type2(toDirectoryPath(directory),
+				TreeUtils.getGlobFilter(includePaths, excludePaths),
+				sortByAge, sortByAgeAscending, pixelHeight, pixelWidth,
+				bookmarkType, displayLegend, displayVertical);
+	}
+	
+	/**
+	 * Visualization type 2 for a file or a directory
+	 * @param path
+	 * @param pathFilter the filter of the files under the directory, or 
+	 * null if path is a file
+	 */
+	@SuppressWarnings("try")
+	protected void type2(String path, Predicate<String> pathFilter,
+			boolean sortByAge, boolean sortByAgeAscending,
+			int pixelHeight, int pixelWidth,
+			String bookmarkType,
+			boolean displayLegend, boolean displayVertical) {
 		try (
-			Git git = Git.open(new File(dotGitPath));
+			Git git = openGit();
+			Closeable contexts = repoContexts(git);
 		) {
 			Repository repo = git.getRepository();
 			
-			Iterable<RevCommit> commits = RevCommitUtils.getCommitsWithPath(
-					git, filePath);
-			List<FileAge> fileAges = FileAge.calculateMultiple(
-					git, repo, commits, filePath);
+			Iterable<RevCommit> commits = commitSampler.sample(
+					getCommitsWithPath(git, path));
+			CommitIndex commitIndex = getCommitIndex(commits);
+			long start = Metrics.now();
+			List<FileAge> fileAges;
+			DirectoryTimeline<FileAge> timeline = null;
+			if (pathFilter == null) {
+				fileAges = FileAge.calculateMultiple(git, repo, commits,
+						path);
+			} else {
+				timeline = reportFailedTasks(DirectoryTimeline
+						.calculateFileAges(git, commits, path, pathFilter));
+				long referenceTime = System.currentTimeMillis();
+				fileAges = timeline.concatenate(
+						c -> FileAge.calculate(c, referenceTime));
+			}
+			start = recordStage(Metrics.STAGE_BLAME, start);
 			FileAgeOverCommits faoc = FileAgeOverCommits.calculate(
-					repo, fileAges, filePath, true);
+					commitIndex, fileAges, path, true);
 			List<long[]> colorPixelsDataArrays;
 			Map<Long, String> colorPixelsTitleMap =
 					faoc.getColorPixelsTitleMap();
-			List<String> colorPixelsDatasetDescriptions = 
-					faoc.getColorPixelsDatasetDescriptions(repo);
-			Map<Integer, String> colorPixelsBookmarkMap = null;
+			List<String> colorPixelsDatasetDescriptions =
+					getColorPixelsDatasetDescriptions(
+							faoc.getColorPixelsDatasetDescriptions(),
+							timeline, commitIndex);
 			if (sortByAge) {
 				colorPixelsDataArrays = faoc
 						.getColorPixelsDataArraysSortedByAge(
@@ -123,15 +461,14 @@ public class VisRunner {
 			} else {
 				colorPixelsDataArrays = faoc.getColorPixelsDataArrays();
 			}
-			if (bookmarkType.equalsIgnoreCase("year")) {
-				colorPixelsBookmarkMap = faoc
-						.getColorPixelsBookmarkMapByYear(repo);
-			} else if (bookmarkType.equalsIgnoreCase("sha1")) {
-				colorPixelsBookmarkMap = faoc
-						.getColorPixelsBookmarkMapBySha1();
-			}
+			Map<Integer, String> colorPixelsBookmarkMap =
+					getColorPixelsBookmarkMap(bookmarkType,
+							faoc::getColorPixelsBookmarkMapByYear,
+							faoc::getColorPixelsBookmarkMapBySha1,
+							timeline, commitIndex);
+			start = recordStage(Metrics.STAGE_SORT, start);
 			
-			String htmlString = ColorPixels.init()
+			ColorPixels colorPixels = createColorPixels()
 					.setPixelHeight(pixelHeight)
 					.setPixelWidth(pixelWidth)
 					.setColorCategory(ColorCategory.ORANGERED_TO_GREEN
@@ -139,11 +476,13 @@ public class VisRunner {
 					.parse(colorPixelsDataArrays, colorPixelsTitleMap,
 							colorPixelsDatasetDescriptions,
 							colorPixelsBookmarkMap, displayLegend,
-							displayVertical, true)
-					.createHtmlString();
-			browserLauncher.launchWithHtmlText(htmlString);
+							displayVertical, true);
+			getReportWriter().writeHtmlGenerator(colorPixels);
+			recordStage(Metrics.STAGE_RENDER, start);
 		} catch (IOException e) {
 			e.printStackTrace();
+		} catch (RevisionSyntaxException e) {
+			e.printStackTrace();
 		} catch (NoHeadException e) {
 			e.printStackTrace();
 		} catch (GitAPIException e) {
@@ -166,23 +505,87 @@ public class VisRunner {
 			int pixelHeight, int pixelWidth,
 			String bookmarkType,
 			boolean displayLegend, boolean displayVertical) {
+		type3(filePath, null, sortByAuthor, sortByAuthorContribution,
+				pixelHeight, pixelWidth, bookmarkType, displayLegend,
+				displayVertical);
+	}
+	
+	/**
+	 * Visualization type 3 for a whole directory: Color pixels showing 
+	 * the authorship of each line of code of all the files under a 
+	 * directory over commits. The files at each commit are put one after 
+	 * another (see DirectoryTimeline). Besides "year" and "sha1", 
+	 * bookmarkType can be "file", which marks the commits where files are 
+	 * added or removed.
+	 * @param directory the path of the directory relative to the repo, 
+	 * or an empty String for the whole tree
+	 * @param includePaths glob patterns of the files included. If it's 
+	 * empty, all the files are included.
+	 * @param excludePaths glob patterns of the files skipped
+	 * @param sortByAuthor
+	 * @param sortByAuthorContribution
+	 * @param pixelHeight
+	 * @param pixelWidth
+	 * @param bookmarkType
+	 * @param displayLegend
+	 * @param displayVertical
+	 */
+	public void type3Directory(String directory, List<String> includePaths,
+			List<String> excludePaths, boolean sortByAuthor,
+			boolean sortByAuthorContribution,
+			int pixelHeight, int pixelWidth,
+			String bookmarkType,
+			boolean displayLegend, boolean displayVertical) {
+		type3(toDirectoryPath(directory),
+				TreeUtils.getGlobFilter(includePaths, excludePaths),
+				sortByAuthor, sortByAuthorContribution, pixelHeight,
+				pixelWidth, bookmarkType, displayLegend, displayVertical);
+	}
+	
+	/**
+	 * Visualization type 3 for a file or a directory
+	 * @param path
+	 * @param pathFilter the filter of the files under the directory, or 
+	 * null if path is a file
+	 */
+	@SuppressWarnings("try")
+	protected void type3(String path, Predicate<String> pathFilter,
+			boolean sortByAuthor, boolean sortByAuthorContribution,
+			int pixelHeight, int pixelWidth,
+			String bookmarkType,
+			boolean displayLegend, boolean displayVertical) {
 		try (
-			Git git = Git.open(new File(dotGitPath));
+			Git git = openGit();
+			Closeable contexts = repoContexts(git);
 		) {
 			Repository repo = git.getRepository();
 			
-			Iterable<RevCommit> commits = RevCommitUtils.getCommitsWithPath(
-					git, filePath);
-			List<LineAuthorship> lineAuthorships = LineAuthorship
-					.calculateMultiple(git, repo, commits, filePath);
+			Iterable<RevCommit> commits = commitSampler.sample(
+					getCommitsWithPath(git, path));
+			CommitIndex commitIndex = getCommitIndex(commits);
+			long start = Metrics.now();
+			List<LineAuthorship> lineAuthorships;
+			DirectoryTimeline<LineAuthorship> timeline = null;
+			if (pathFilter == null) {
+				lineAuthorships = LineAuthorship.calculateMultiple(git, repo,
+						commits, path);
+			} else {
+				timeline = reportFailedTasks(DirectoryTimeline
+						.calculateLineAuthorships(git, commits, path,
+								pathFilter));
+				lineAuthorships = timeline.concatenate(
+						LineAuthorship::calculate);
+			}
+			start = recordStage(Metrics.STAGE_BLAME, start);
 			LineAuthorshipOverCommits laoc = LineAuthorshipOverCommits
-					.calculate(repo, lineAuthorships, filePath, true);
+					.calculate(commitIndex, lineAuthorships, path, true);
 			List<long[]> colorPixelsDataArrays;
 			Map<Long, String> colorPixelsTitleMap =
 					laoc.getColorPixelsTitleMap();
 			List<String> colorPixelsDatasetDescriptions =
-					laoc.getColorPixelsDatasetDescriptions(repo);
-			Map<Integer, String> colorPixelsBookmarkMap = null;
+					getColorPixelsDatasetDescriptions(
+							laoc.getColorPixelsDatasetDescriptions(),
+							timeline, commitIndex);
 			if (sortByAuthor) {
 				if (sortByAuthorContribution) {
 					colorPixelsDataArrays = laoc
@@ -195,26 +598,118 @@ public class VisRunner {
 			} else {
 				colorPixelsDataArrays = laoc.getColorPixelsDataArrays();
 			}
-			if (bookmarkType.equalsIgnoreCase("year")) {
-				colorPixelsBookmarkMap = laoc
-						.getColorPixelsBookmarkMapByYear(repo);
-			} else if (bookmarkType.equalsIgnoreCase("sha1")) {
-				colorPixelsBookmarkMap = laoc
-						.getColorPixelsBookmarkMapBySha1();
-			}
+			Map<Integer, String> colorPixelsBookmarkMap =
+					getColorPixelsBookmarkMap(bookmarkType,
+							laoc::getColorPixelsBookmarkMapByYear,
+							laoc::getColorPixelsBookmarkMapBySha1,
+							timeline, commitIndex);
+			start = recordStage(Metrics.STAGE_SORT, start);
 			
-			String htmlString = ColorPixels.init()
+			ColorPixels colorPixels = createColorPixels()
 					.setPixelHeight(pixelHeight)
 					.setPixelWidth(pixelWidth)
 					.setColorCategory(ColorCategory.D3_CATEGORY20)
 					.parse(colorPixelsDataArrays, colorPixelsTitleMap,
 							colorPixelsDatasetDescriptions,
 							colorPixelsBookmarkMap, displayLegend,
-							displayVertical, false)
+							displayVertical, false);
+			getReportWriter().writeHtmlGenerator(colorPixels);
+			recordStage(Metrics.STAGE_RENDER, start);
+		} catch (IOException e) {
+			e.printStackTrace();
+		} catch (RevisionSyntaxException e) {
+			e.printStackTrace();
+		} catch (NoHeadException e) {
+			e.printStackTrace();
+		} catch (GitAPIException e) {
+			e.printStackTrace();
+		}
+	}
+	
+	/**
+	 * Visualization type 4: 
+	 * Pie chart showing how much everyone owns all the files in the 
+	 * tree at a specified commit. The files are blamed in parallel.
+	 * @param revstr
+	 * @param includePaths glob patterns of the files counted. If it's 
+	 * empty, all the files are counted.
+	 * @param excludePaths glob patterns of the files skipped
+	 * @param parser
+	 * @param combineSmallValues
+	 * @param percentageForOther
+	 */
+	@SuppressWarnings("try")
+	public void type4(String revstr, List<String> includePaths,
+			List<String> excludePaths, TokenParser parser,
+			boolean combineSmallValues, double percentageForOther) {
+		try (
+			Git git = openGit();
+			Closeable contexts = repoContexts(git);
+		) {
+			Repository repo = git.getRepository();
+			
+			long start = Metrics.now();
+			RepoAuthorship repoAuthorship = RepoAuthorship.calculate(git,
+					repo, revstr, TreeUtils.getGlobFilter(includePaths,
+							excludePaths), parser);
+			start = recordStage(Metrics.STAGE_BLAME, start);
+			repoAuthorship.getFailedFilePaths().forEach(path ->
+					System.err.println("Giving up on " + path));
+			Map<String, Double> chartJsPieMap;
+			if (combineSmallValues) {
+				chartJsPieMap = repoAuthorship.getTrimmedChartJsPieMap(
+						percentageForOther);
+			} else {
+				chartJsPieMap = repoAuthorship.getChartJsPieMap();
+			}
+			start = recordStage(Metrics.STAGE_SORT, start);
+			String htmlString = ChartJsPie.init().parseMap(chartJsPieMap)
 					.createHtmlString();
-			browserLauncher.launchWithHtmlText(htmlString);
+			getReportWriter().writeHtmlText(htmlString);
+			recordStage(Metrics.STAGE_RENDER, start);
 		} catch (IOException e) {
 			e.printStackTrace();
+		} catch (RevisionSyntaxException e) {
+			e.printStackTrace();
+		}
+	}
+	
+	/**
+	 * Visualization type 5: 
+	 * Stacked area chart showing how much everyone owns a file at 
+	 * every commit that changes it. The scores are updated from the 
+	 * diff of each commit instead of being calculated from scratch.
+	 * @param filePath
+	 * @param parser
+	 */
+	@SuppressWarnings("try")
+	public void type5(String filePath, TokenParser parser) {
+		try (
+			Git git = openGit();
+			Closeable contexts = repoContexts(git);
+		) {
+			Repository repo = git.getRepository();
+			
+			Iterable<RevCommit> commits = commitSampler.sample(
+					RevCommitUtils.getCommitsWithPath(git, commitRange,
+							filePath));
+			CommitIndex commitIndex = getCommitIndex(commits);
+			long start = Metrics.now();
+			List<FileAuthorship> fileAuthorships = FileAuthorship
+					.calculateMultiple(repo, commits, filePath, parser);
+			start = recordStage(Metrics.STAGE_BLAME, start);
+			FileAuthorshipOverCommits faoc = FileAuthorshipOverCommits
+					.calculate(commitIndex, fileAuthorships, filePath, true);
+			start = recordStage(Metrics.STAGE_SORT, start);
+			ChartJsStackedArea stackedArea = ChartJsStackedArea.init()
+					.parseSeries(faoc.getChartJsLabels(),
+							faoc.getChartJsSeries());
+			getReportWriter().writeHtmlGenerator(stackedArea);
+			recordStage(Metrics.STAGE_RENDER, start);
+		} catch (IOException e) {
+			e.printStackTrace();
+		} catch (RevisionSyntaxException e) {
+			e.printStackTrace();
 		} catch (NoHeadException e) {
 			e.printStackTrace();
 		} catch (GitAPIException e) {
@@ -230,5 +725,16 @@ public class VisRunner {
 	public static VisRunner init(String dotGitPath) {
 		return new VisRunner(dotGitPath);
 	}
+	
+	/**
+	 * Initialize with a repository shared with other VisRunner objects, 
+	 * e.g. when running many visualizations at the same time. The 
+	 * repository is not closed by the VisRunner.
+	 * @param repo
+	 * @return
+	 */
+	public static VisRunner init(Repository repo) {
+		return new VisRunner(repo);
+	}
 
 }
@@ -1,5 +1,6 @@
 package io.ologn.gitstat.vis.chartjs;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -34,7 +35,7 @@ public class ChartJsPie implements VelocityHtmlGenerator {
 
 	@Override
 	public Map<String, String> getReplaceMap() {
-		return new HashMap<String, String>(replaceMap);
+		return Collections.unmodifiableMap(replaceMap);
 	}
 	
 	public ChartJsPie parseMap(Map<?, ?> map) {
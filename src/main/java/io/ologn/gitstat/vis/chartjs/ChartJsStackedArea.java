@@ -0,0 +1,122 @@
+package io.ologn.gitstat.vis.chartjs;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.json.simple.JSONValue;
+
+import io.ologn.common.color.ColorCategory;
+import io.ologn.gitstat.vis.VelocityHtmlGenerator;
+
+/**
+ * Stacked area chart with Chart.js. Chart.js 1.x can't stack line 
+ * charts, so the series are added up before they are written: each 
+ * dataset is the sum of its series and all the series before it, and 
+ * the datasets are drawn from the top down with opaque fills, so each 
+ * band shows one series. The tooltips show the values of the series 
+ * rather than the sums.
+ * @author lisq199
+ */
+public class ChartJsStackedArea implements VelocityHtmlGenerator {
+	
+	public static final String TEMPLATE_PATH =
+			VelocityHtmlGenerator.TEMPLATE_DIR + "ChartJsStackedArea.html";
+	
+	public static final String REPLACE_DATA = "data";
+	public static final String REPLACE_SERIES = "series";
+	
+	protected Map<String, String> replaceMap;
+	protected ColorCategory colorCategory;
+	
+	protected ChartJsStackedArea() {
+		this.replaceMap = new HashMap<String, String>();
+		this.colorCategory = ColorCategory.D3_CATEGORY20;
+	}
+	
+	@Override
+	public String getTemplatePath() {
+		return TEMPLATE_PATH;
+	}
+	
+	@Override
+	public Map<String, String> getReplaceMap() {
+		return Collections.unmodifiableMap(replaceMap);
+	}
+	
+	public ChartJsStackedArea setColorCategory(ColorCategory colorCategory) {
+		this.colorCategory = colorCategory;
+		return this;
+	}
+	
+	/**
+	 * Parse the series
+	 * @param labels the labels of the x axis
+	 * @param series the keys are the labels of the series, from the 
+	 * bottom of the stack to the top, and the values have the same 
+	 * length as labels
+	 * @return
+	 */
+	public ChartJsStackedArea parseSeries(String[] labels,
+			Map<String, float[]> series) {
+		String[] escapedLabels = new String[labels.length];
+		for (int i = 0; i < labels.length; i++) {
+			escapedLabels[i] = JSONValue.escape(labels[i]);
+		}
+		List<ChartJsDataset> datasets = new ArrayList<ChartJsDataset>();
+		float[] sums = new float[labels.length];
+		int i = 0;
+		for (Map.Entry<String, float[]> e : series.entrySet()) {
+			float[] values = e.getValue();
+			float[] stacked = new float[labels.length];
+			for (int j = 0; j < stacked.length; j++) {
+				sums[j] += values[j];
+				stacked[j] = sums[j];
+			}
+			String color = colorCategory.getColor(i);
+			// The top of the stack has to be drawn first
+			datasets.add(0, new ChartJsDataset(
+					JSONValue.escape(e.getKey()), color, color, color,
+					"#fff", "#fff", color, stacked));
+			i++;
+		}
+		ChartJsData data = new ChartJsData(escapedLabels,
+				datasets.toArray(new ChartJsDataset[datasets.size()]));
+		this.replaceMap.put(REPLACE_DATA, data.toString());
+		this.replaceMap.put(REPLACE_SERIES, getSeriesJson(series));
+		return this;
+	}
+	
+	/**
+	 * Get the series as a JSON object, for the tooltips
+	 * @param series
+	 * @return
+	 */
+	protected static String getSeriesJson(Map<String, float[]> series) {
+		StringBuilder builder = new StringBuilder("{");
+		for (Map.Entry<String, float[]> e : series.entrySet()) {
+			if (builder.length() > 1) {
+				builder.append(",");
+			}
+			builder.append("\n\"").append(JSONValue.escape(e.getKey()))
+					.append("\": [");
+			float[] values = e.getValue();
+			for (int i = 0; i < values.length; i++) {
+				if (i > 0) {
+					builder.append(", ");
+				}
+				builder.append(values[i]);
+			}
+			builder.append("]");
+		}
+		builder.append("\n}");
+		return builder.toString();
+	}
+	
+	public static ChartJsStackedArea init() {
+		return new ChartJsStackedArea();
+	}
+	
+}
@@ -0,0 +1,149 @@
+package io.ologn.gitstat.akka;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import akka.actor.UntypedActor;
+import scala.concurrent.duration.Duration;
+
+/**
+ * Checks the timeouts and the retries of TaskScheduler with actors that 
+ * sleep for as many milliseconds as their task says. The replies for the 
+ * tasks of INVALID or more are not valid.
+ * @author lisq199
+ */
+public class TaskSchedulerTest {
+	
+	protected static final int POOL_SIZE = 2;
+	protected static final int MAX_RETRY = 2;
+	protected static final long TIMEOUT_MILLIS = 300;
+	protected static final int INVALID = 1000;
+	
+	/**
+	 * Sleeps for the number of milliseconds in the message (modulo 
+	 * INVALID), and then replies with the message
+	 */
+	public static class SleepActor extends UntypedActor {
+		
+		static final AtomicInteger running = new AtomicInteger();
+		static final AtomicInteger maxRunning = new AtomicInteger();
+		static final Map<Integer, AtomicInteger> received =
+				new ConcurrentHashMap<Integer, AtomicInteger>();
+		
+		@Override
+		public void onReceive(Object m) throws InterruptedException {
+			Integer millis = (Integer) m;
+			received.computeIfAbsent(millis, k -> new AtomicInteger())
+					.incrementAndGet();
+			maxRunning.accumulateAndGet(running.incrementAndGet(),
+					Math::max);
+			try {
+				Thread.sleep(millis % INVALID);
+			} finally {
+				running.decrementAndGet();
+			}
+			getSender().tell(m, getSelf());
+		}
+		
+	}
+	
+	protected TaskScheduler scheduler;
+	protected Map<Integer, Integer> replies;
+	
+	@Before
+	public void setUp() {
+		SleepActor.running.set(0);
+		SleepActor.maxRunning.set(0);
+		SleepActor.received.clear();
+		scheduler = TaskScheduler.init(SleepActor.class, POOL_SIZE)
+				.setTimeout(Duration.create(TIMEOUT_MILLIS,
+						TimeUnit.MILLISECONDS))
+				.setMaxRetry(MAX_RETRY);
+		replies = new HashMap<Integer, Integer>();
+	}
+	
+	@After
+	public void tearDown() {
+		scheduler.shutdown();
+	}
+	
+	/**
+	 * Run the tasks
+	 * @param tasks
+	 * @return the tasks that failed
+	 */
+	protected List<Integer> run(Integer... tasks) {
+		return scheduler.run(Arrays.asList(tasks), t -> t, (t, reply) -> {
+			replies.merge(t, 1, Integer::sum);
+			return t < INVALID;
+		});
+	}
+	
+	@Test
+	public void testFastTasks() {
+		List<Integer> failed = run(10, 11, 12, 13, 14, 15);
+		assertTrue(failed.isEmpty());
+		for (int task = 10; task <= 15; task++) {
+			assertEquals(Integer.valueOf(1), replies.get(task));
+			assertEquals(1, SleepActor.received.get(task).get());
+		}
+		assertTrue(SleepActor.maxRunning.get() <= POOL_SIZE);
+	}
+	
+	@Test
+	public void testInvalidRepliesAreRetriedUpToMaxRetry() {
+		List<Integer> failed = run(INVALID, INVALID + 1, 10);
+		// The actors of the pool report the failures in any order
+		assertEquals(new HashSet<Integer>(Arrays.asList(INVALID,
+				INVALID + 1)), new HashSet<Integer>(failed));
+		assertEquals(MAX_RETRY, SleepActor.received.get(INVALID).get());
+		assertEquals(MAX_RETRY,
+				SleepActor.received.get(INVALID + 1).get());
+		assertEquals(1, SleepActor.received.get(10).get());
+	}
+	
+	@Test
+	public void testTimedOutTasksAreRetriedUpToMaxRetry()
+			throws Exception {
+		// Every attempt misses its deadline, and its reply is not valid
+		int slow = INVALID + (int) TIMEOUT_MILLIS * 2;
+		List<Integer> failed = run(slow, slow + 1);
+		assertEquals(new HashSet<Integer>(Arrays.asList(slow, slow + 1)),
+				new HashSet<Integer>(failed));
+		// Wait for the actors that missed their deadline
+		Thread.sleep(TIMEOUT_MILLIS * 4);
+		assertEquals(MAX_RETRY, SleepActor.received.get(slow).get());
+		assertEquals(MAX_RETRY, SleepActor.received.get(slow + 1).get());
+		// An actor that missed its deadline is not given another task
+		assertTrue(SleepActor.maxRunning.get() <= POOL_SIZE);
+	}
+	
+	@Test
+	public void testLateReplyIsUsedOnce() throws Exception {
+		// The first attempt misses its deadline, but replies before the
+		// retry does
+		int late = (int) (TIMEOUT_MILLIS * 3 / 2);
+		List<Integer> failed = run(late, 20, 21);
+		assertTrue(failed.isEmpty());
+		assertEquals(Integer.valueOf(1), replies.get(late));
+		assertEquals(Integer.valueOf(1), replies.get(20));
+		assertEquals(Integer.valueOf(1), replies.get(21));
+		Thread.sleep(late * 2);
+		assertTrue(SleepActor.received.get(late).get() <= MAX_RETRY);
+		assertTrue(SleepActor.maxRunning.get() <= POOL_SIZE);
+	}
+	
+}
@@ -0,0 +1,132 @@
+package io.ologn.gitstat.jgit;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.List;
+
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Checks the buckets, the stride and the maximum number of commits of 
+ * CommitSampler
+ * @author lisq199
+ */
+public class CommitSamplerTest {
+	
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+	
+	protected TestRepo repo;
+	/**
+	 * The commits in the order they are created, oldest first
+	 */
+	protected List<RevCommit> created;
+	
+	@Before
+	public void setUp() throws Exception {
+		repo = TestRepo.init(folder.newFolder("repo"));
+		created = new ArrayList<RevCommit>();
+	}
+	
+	@After
+	public void tearDown() {
+		repo.close();
+	}
+	
+	/**
+	 * Create a commit at noon of a day in the local time zone, which is 
+	 * the one the buckets are in
+	 * @param month 1 to 12
+	 * @param day
+	 * @throws Exception
+	 */
+	protected void commit(int month, int day) throws Exception {
+		Calendar calendar = Calendar.getInstance();
+		calendar.clear();
+		calendar.set(2015, month - 1, day, 12, 0);
+		repo.write("f.c", Arrays.asList("commit " + created.size()));
+		created.add(repo.commit("alice",
+				calendar.getTimeInMillis() / 1000));
+	}
+	
+	/**
+	 * Get the commits newest first, the order of git log
+	 * @return
+	 */
+	protected List<RevCommit> getLog() {
+		List<RevCommit> log = new ArrayList<RevCommit>(created);
+		Collections.reverse(log);
+		return log;
+	}
+	
+	@Test
+	public void testDisabled() throws Exception {
+		commit(1, 5);
+		commit(1, 6);
+		CommitSampler sampler = CommitSampler.init();
+		assertEquals(false, sampler.isEnabled());
+		assertEquals(getLog(), sampler.sample(getLog()));
+	}
+	
+	@Test
+	public void testBucketKeepsTheNewestCommitOfEachMonth()
+			throws Exception {
+		commit(1, 5);
+		commit(1, 20);
+		commit(2, 10);
+		// Back to January, e.g. a branch merged late
+		commit(1, 25);
+		commit(3, 1);
+		List<RevCommit> sampled = CommitSampler.init().setBucket("month")
+				.sample(getLog());
+		assertEquals(Arrays.asList(created.get(4), created.get(3),
+				created.get(2)), sampled);
+	}
+	
+	@Test
+	public void testBucketOfWeeksAndYears() throws Exception {
+		commit(3, 2);
+		commit(3, 4);
+		commit(3, 18);
+		commit(3, 3);
+		List<RevCommit> log = getLog();
+		List<RevCommit> weeks = CommitSampler.init().setBucket("week")
+				.sample(log);
+		// March 2 to 4 are in the same week, whichever day it starts on
+		assertEquals(Arrays.asList(created.get(2), created.get(1)), weeks);
+		List<RevCommit> years = CommitSampler.init().setBucket("year")
+				.sample(log);
+		assertEquals(Arrays.asList(created.get(2)), years);
+	}
+	
+	@Test
+	public void testStrideAndMaxCommits() throws Exception {
+		for (int day = 1; day <= 10; day++) {
+			commit(4, day);
+		}
+		List<RevCommit> log = getLog();
+		assertEquals(Arrays.asList(log.get(0), log.get(3), log.get(6),
+				log.get(9)), CommitSampler.init().setStride(3).sample(log));
+		// The newest and the oldest commits are always kept
+		assertEquals(Arrays.asList(log.get(0), log.get(3), log.get(6),
+				log.get(9)), CommitSampler.init().setMaxCommits(4)
+						.sample(log));
+		assertEquals(log, CommitSampler.init().setMaxCommits(10)
+				.sample(log));
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnsupportedBucket() {
+		CommitSampler.init().setBucket("hour");
+	}
+	
+}
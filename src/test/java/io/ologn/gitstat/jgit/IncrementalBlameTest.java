@@ -0,0 +1,174 @@
+package io.ologn.gitstat.jgit;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.eclipse.jgit.blame.BlameResult;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import io.ologn.gitstat.stat.BlameResultContainer;
+import io.ologn.gitstat.stat.GitAuthor;
+
+/**
+ * Checks that IncrementalBlame attributes every line the same way as a 
+ * full blame (BlameGenerator) at every commit, with and without the 
+ * BlameCache.
+ * @author lisq199
+ */
+public class IncrementalBlameTest {
+	
+	protected static final String FILE_PATH = "f.c";
+	protected static final String[] AUTHORS = {"alice", "bob", "carol"};
+	
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+	
+	protected TestRepo repo;
+	protected List<RevCommit> commits;
+	protected Random random;
+	protected long time;
+	
+	@Before
+	public void setUp() throws Exception {
+		repo = TestRepo.init(folder.newFolder("repo"));
+		random = new Random(42);
+		time = 1400000000L;
+		List<String> lines = new ArrayList<String>();
+		for (int i = 0; i < 10; i++) {
+			lines.add("line " + i);
+		}
+		repo.write(FILE_PATH, lines).commit("alice", time);
+		for (int i = 0; i < 30; i++) {
+			time += 86400;
+			if (i == 15) {
+				// A merge: the two sides change different ends of the file
+				repo.getGit().branchCreate().setName("side").call();
+				repo.getGit().checkout().setName("side").call();
+				lines.set(0, "side " + i);
+				repo.write(FILE_PATH, lines).commit("dave", time);
+				repo.getGit().checkout().setName("master").call();
+				lines = repo.read(FILE_PATH);
+				lines.add("master " + i);
+				repo.write(FILE_PATH, lines).commit("bob", time + 60);
+				repo.getGit().merge().include(repo.getRepository()
+						.resolve("side")).setCommit(false).call();
+				repo.commit("carol", time + 120);
+				lines = repo.read(FILE_PATH);
+				continue;
+			}
+			edit(random, lines, i);
+			repo.write(FILE_PATH, lines).commit(
+					AUTHORS[random.nextInt(AUTHORS.length)], time);
+		}
+		commits = RevCommitUtils.getCommitsWithPath(repo.getGit(),
+				CommitRange.init(), FILE_PATH);
+	}
+	
+	@After
+	public void tearDown() {
+		RepoContext.closeAll(repo.getRepository());
+		repo.close();
+	}
+	
+	/**
+	 * Add, remove or change a few lines in the middle of the file
+	 * @param random
+	 * @param lines
+	 * @param i
+	 */
+	protected static void edit(Random random, List<String> lines, int i) {
+		int edits = 1 + random.nextInt(3);
+		for (int k = 0; k < edits; k++) {
+			// Keep the first and the last line for the merge
+			int index = 1 + random.nextInt(lines.size() - 1);
+			switch (random.nextInt(3)) {
+			case 0:
+				lines.add(index, "added " + i + "_" + k);
+				break;
+			case 1:
+				if (lines.size() > 4 && index < lines.size() - 1) {
+					lines.remove(index);
+				}
+				break;
+			default:
+				if (index < lines.size() - 1) {
+					lines.set(index, "changed " + i + "_" + k);
+				}
+			}
+		}
+	}
+	
+	protected void assertSameAsFullBlame(List<BlameResultContainer> results)
+			throws Exception {
+		assertSameAsFullBlame(results, commits, FILE_PATH);
+	}
+	
+	protected void assertSameAsFullBlame(List<BlameResultContainer> results,
+			List<RevCommit> commits, String filePath) throws Exception {
+		assertEquals(commits.size(), results.size());
+		for (BlameResultContainer result : results) {
+			BlameResult full = BlameUtils.getBlameResult(repo.getGit(),
+					repo.getRepository(), result.getSha1(), filePath);
+			int size = full.getResultContents().size();
+			assertEquals(result.getSha1(), size, result.getBlameSize());
+			for (int i = 0; i < size; i++) {
+				String line = result.getSha1() + ":" + i;
+				assertEquals(line, new GitAuthor(full.getSourceAuthor(i)),
+						result.getAuthorAtLine(i));
+				assertEquals(line, new GitAuthor(full.getSourceCommitter(i)),
+						result.getCommitterAtLine(i));
+				assertEquals(line, full.getResultContents().getString(i),
+						result.getSourceLine(i));
+			}
+		}
+	}
+	
+	@Test
+	public void testSameAsFullBlame() throws Exception {
+		assertSameAsFullBlame(IncrementalBlame.init(repo.getRepository(),
+				FILE_PATH).calculate(commits));
+	}
+	
+	@Test
+	public void testSameAsFullBlameWithCache() throws Exception {
+		BlameCache cache = BlameCache.forRepository(repo.getRepository(),
+				BlameCache.Algorithm.INCREMENTAL);
+		// The first run fills the cache, and the second one reads it
+		assertSameAsFullBlame(IncrementalBlame.init(repo.getRepository(),
+				FILE_PATH).setBlameCache(cache).calculate(commits));
+		assertSameAsFullBlame(IncrementalBlame.init(repo.getRepository(),
+				FILE_PATH).setBlameCache(cache).calculate(commits));
+	}
+	
+	@Test
+	public void testSameAsFullBlameAfterRename() throws Exception {
+		String newPath = "dir/g.c";
+		// Renamed with a small change, which is still found as a rename
+		List<String> lines = repo.read(FILE_PATH);
+		lines.set(lines.size() / 2, "renamed");
+		repo.move(FILE_PATH, newPath).write(newPath, lines)
+				.commit("dave", time += 86400);
+		for (int i = 0; i < 5; i++) {
+			edit(random, lines, 100 + i);
+			repo.write(newPath, lines).commit(
+					AUTHORS[random.nextInt(AUTHORS.length)], time += 86400);
+		}
+		List<RevCommit> renamed = RevCommitUtils.getCommitsWithPath(
+				repo.getGit(), CommitRange.init(), newPath);
+		assertEquals(6, renamed.size());
+		assertSameAsFullBlame(IncrementalBlame.init(repo.getRepository(),
+				newPath).calculate(renamed), renamed, newPath);
+		assertSameAsFullBlame(IncrementalBlame.init(repo.getRepository(),
+				newPath).setLineValue(String::length).calculate(renamed),
+				renamed, newPath);
+	}
+	
+}
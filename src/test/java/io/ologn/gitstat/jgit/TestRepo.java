@@ -0,0 +1,111 @@
+package io.ologn.gitstat.jgit;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Date;
+import java.util.List;
+import java.util.TimeZone;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+
+/**
+ * A repository for the tests, e.g. in a TemporaryFolder. The commits are 
+ * created with the author and the time given, so the history is the same 
+ * on every run.
+ * @author lisq199
+ */
+public class TestRepo implements AutoCloseable {
+	
+	protected final File dir;
+	protected final Git git;
+	
+	protected TestRepo(File dir) throws GitAPIException {
+		this.dir = dir;
+		this.git = Git.init().setDirectory(dir).call();
+	}
+	
+	public Git getGit() {
+		return git;
+	}
+	
+	public Repository getRepository() {
+		return git.getRepository();
+	}
+	
+	/**
+	 * Write the lines of a file in the working tree
+	 * @param path
+	 * @param lines
+	 * @return
+	 * @throws IOException
+	 */
+	public TestRepo write(String path, List<String> lines)
+			throws IOException {
+		File file = new File(dir, path);
+		file.getParentFile().mkdirs();
+		Files.write(file.toPath(), lines);
+		return this;
+	}
+	
+	/**
+	 * Read the lines of a file in the working tree
+	 * @param path
+	 * @return
+	 * @throws IOException
+	 */
+	public List<String> read(String path) throws IOException {
+		return Files.readAllLines(new File(dir, path).toPath());
+	}
+	
+	/**
+	 * Move a file in the working tree
+	 * @param from
+	 * @param to
+	 * @return
+	 * @throws IOException
+	 */
+	public TestRepo move(String from, String to) throws IOException {
+		File file = new File(dir, to);
+		file.getParentFile().mkdirs();
+		Files.move(new File(dir, from).toPath(), file.toPath());
+		return this;
+	}
+	
+	/**
+	 * Commit all the files in the working tree, including the ones that 
+	 * are removed. If a merge is in progress, the merge is committed.
+	 * @param author the name of the author and the committer
+	 * @param time the author time in seconds
+	 * @return
+	 * @throws GitAPIException
+	 */
+	public RevCommit commit(String author, long time)
+			throws GitAPIException {
+		git.add().addFilepattern(".").call();
+		PersonIdent person = new PersonIdent(author, author + "@example.com",
+				new Date(time * 1000L), TimeZone.getTimeZone("UTC"));
+		return git.commit().setAuthor(person).setCommitter(person)
+				.setAll(true).setMessage("Commit by " + author).call();
+	}
+	
+	@Override
+	public void close() {
+		git.close();
+	}
+	
+	/**
+	 * Create an empty repository
+	 * @param dir the working tree
+	 * @return
+	 * @throws GitAPIException
+	 */
+	public static TestRepo init(File dir) throws GitAPIException {
+		return new TestRepo(dir);
+	}
+	
+}
@@ -0,0 +1,156 @@
+package io.ologn.gitstat.stat;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.eclipse.jgit.blame.BlameResult;
+import org.junit.Test;
+
+/**
+ * Checks how ConcatenatedBlame maps its lines to the lines of its parts, 
+ * including the parts (files) that are empty.
+ * @author lisq199
+ */
+public class ConcatenatedBlameTest {
+	
+	/**
+	 * A part with one author per line and no BlameResult behind it
+	 */
+	protected static class Part implements BlameResultContainer {
+		
+		protected final String name;
+		protected final GitAuthor[] authors;
+		
+		protected Part(String name, String... authors) {
+			this.name = name;
+			this.authors = new GitAuthor[authors.length];
+			for (int i = 0; i < authors.length; i++) {
+				this.authors[i] = new GitAuthor(authors[i],
+						authors[i] + "@example.com");
+			}
+		}
+		
+		@Override
+		public BlameResult getBlameResult() {
+			return null;
+		}
+		
+		@Override
+		public String getSha1() {
+			return "sha1";
+		}
+		
+		@Override
+		public String getFilePath() {
+			return name;
+		}
+		
+		@Override
+		public int getBlameSize() {
+			return authors.length;
+		}
+		
+		@Override
+		public GitAuthor getAuthorAtLine(int i) {
+			return authors[i];
+		}
+		
+		@Override
+		public String getSourceLine(int i) {
+			return name + ":" + i;
+		}
+		
+	}
+	
+	/**
+	 * The parts have 0, 2, 0, 0, 3 and 0 lines
+	 * @return
+	 */
+	protected static ConcatenatedBlame initWithEmptyParts() {
+		return ConcatenatedBlame.init("sha1", "dir", Arrays.asList(
+				new Part("a"),
+				new Part("b", "alice", "bob"),
+				new Part("c"),
+				new Part("d"),
+				new Part("e", "carol", "alice", "dave"),
+				new Part("f")));
+	}
+	
+	@Test
+	public void testOffsets() {
+		ConcatenatedBlame blame = initWithEmptyParts();
+		assertEquals(6, blame.getPartCount());
+		assertEquals(5, blame.getBlameSize());
+		int[] starts = {0, 0, 2, 2, 2, 5};
+		for (int i = 0; i < starts.length; i++) {
+			assertEquals(starts[i], blame.getPartStart(i));
+		}
+	}
+	
+	@Test
+	public void testPartIndexSkipsEmptyParts() {
+		ConcatenatedBlame blame = initWithEmptyParts();
+		int[] indexes = {1, 1, 4, 4, 4};
+		for (int i = 0; i < indexes.length; i++) {
+			assertEquals("line " + i, indexes[i], blame.getPartIndex(i));
+		}
+	}
+	
+	@Test
+	public void testLinesOfParts() {
+		ConcatenatedBlame blame = initWithEmptyParts();
+		String[] lines = {"b:0", "b:1", "e:0", "e:1", "e:2"};
+		String[] names = {"alice", "bob", "carol", "alice", "dave"};
+		for (int i = 0; i < lines.length; i++) {
+			assertEquals(lines[i], blame.getSourceLine(i));
+			assertEquals(names[i], blame.getAuthorAtLine(i).getName());
+		}
+	}
+	
+	@Test
+	public void testAuthorIds() {
+		AuthorDictionary dictionary = AuthorDictionary.init();
+		int[] ids = initWithEmptyParts().getAuthorIds(dictionary);
+		List<String> names = new ArrayList<String>();
+		for (int id : ids) {
+			names.add(dictionary.getAuthor(id).getName());
+		}
+		assertEquals(Arrays.asList("alice", "bob", "carol", "alice",
+				"dave"), names);
+		assertArrayEquals(new int[] {ids[0], ids[1], ids[2], ids[0],
+				ids[4]}, ids);
+	}
+	
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testLineAfterTheEnd() {
+		initWithEmptyParts().getPartIndex(5);
+	}
+	
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testNegativeLine() {
+		initWithEmptyParts().getPartIndex(-1);
+	}
+	
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testOnlyEmptyParts() {
+		ConcatenatedBlame blame = ConcatenatedBlame.init("sha1", "dir",
+				Arrays.asList(new Part("a"), new Part("b")));
+		assertEquals(0, blame.getBlameSize());
+		assertEquals(0, blame.getAuthorIds(AuthorDictionary.init()).length);
+		blame.getPartIndex(0);
+	}
+	
+	@Test
+	public void testNoParts() {
+		ConcatenatedBlame blame = ConcatenatedBlame.init("sha1", "dir",
+				Collections.<Part>emptyList());
+		assertEquals(0, blame.getBlameSize());
+		assertEquals("", blame.getSource());
+	}
+	
+}